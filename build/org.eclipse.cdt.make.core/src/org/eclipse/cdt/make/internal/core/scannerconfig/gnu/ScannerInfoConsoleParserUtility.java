@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2016 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.cdt.core.IMarkerGenerator;
+import org.eclipse.cdt.internal.core.resources.DirectoryContentCache;
 import org.eclipse.cdt.internal.core.resources.ResourceLookup;
 import org.eclipse.cdt.make.core.MakeCorePlugin;
 import org.eclipse.cdt.make.internal.core.MakeMessages;
@@ -194,8 +195,7 @@ public class ScannerInfoConsoleParserUtility extends AbstractGCCBOPConsoleParser
 				if (includePath.getDevice()==null) {
 					String device = getWorkingDirectory().getDevice();
 					IPath candidatePath = includePath.setDevice(device);
-					File dir = candidatePath.toFile();
-					if (dir.exists()) {
+					if (DirectoryContentCache.getInstance().exists(candidatePath.toOSString())) {
 						include = candidatePath.toString();
 					} else {
 						final String error = MakeMessages.getString("ConsoleParser.Nonexistent_Include_Path_Error_Message"); //$NON-NLS-1$
@@ -248,9 +248,8 @@ public class ScannerInfoConsoleParserUtility extends AbstractGCCBOPConsoleParser
 				}
 				
 				IPath candidatePath = cwd.append(includePath);
-				File dir = candidatePath.toFile();
 				include = candidatePath.toString();
-				if (!dir.exists()) {
+				if (!DirectoryContentCache.getInstance().exists(candidatePath.toOSString())) {
 					final String error = MakeMessages.getString("ConsoleParser.Nonexistent_Include_Path_Error_Message"); //$NON-NLS-1$
 					TraceUtil.outputError(error, include);
 //					generateMarker(file, -1, error+include, IMarkerGenerator.SEVERITY_WARNING, fileName);				
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.codan.core.cxx.internal.model;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.cdt.codan.core.cxx.Activator;
+import org.eclipse.cdt.codan.core.cxx.model.ICAstChecker;
+import org.eclipse.cdt.codan.core.model.IAnalysisDependencyProvider;
+import org.eclipse.cdt.codan.core.model.IChecker;
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexFile;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.index.IIndexInclude;
+import org.eclipse.cdt.core.index.IIndexManager;
+import org.eclipse.cdt.core.index.IndexLocationFactory;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.model.ICElement;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Describes the inputs of the analysis of C/C++ files with the help of the index. The AST of a
+ * translation unit depends on the contents of the file, the headers it includes and the scanner
+ * configuration used for it. The include closure is taken from the index, the index is also used
+ * to find the files including a changed header.
+ */
+public class CxxAnalysisDependencyProvider implements IAnalysisDependencyProvider {
+	@Override
+	public boolean isCacheable(IChecker checker) {
+		return checker instanceof ICAstChecker;
+	}
+
+	@Override
+	public long getInputStamp(IResource resource) {
+		if (!(resource instanceof IFile))
+			return 0;
+		ICElement element = CoreModel.getDefault().create((IFile) resource);
+		if (!(element instanceof ITranslationUnit))
+			return 0;
+		try {
+			IIndex index = CCorePlugin.getIndexManager().getIndex(element.getCProject());
+			index.acquireReadLock();
+			try {
+				return computeInputStamp(index, (IFile) resource);
+			} finally {
+				index.releaseReadLock();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (CoreException e) {
+			Activator.log(e);
+		}
+		return 0;
+	}
+
+	private static long computeInputStamp(IIndex index, IFile file) throws CoreException {
+		// Checkers do not report problems while the index is not fully initialized.
+		if (!index.isFullyInitialized())
+			return 0;
+		IIndexFile[] files = index.getFiles(IndexLocationFactory.getWorkspaceIFL(file));
+		if (files.length == 0)
+			return 0;
+
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		long stamp = 0;
+		Set<IIndexFile> visited = new HashSet<>();
+		Deque<IIndexFile> queue = new ArrayDeque<>();
+		for (IIndexFile indexFile : files) {
+			// Reflects changes of the scanner configuration, which cause the file to be indexed again.
+			stamp = stamp * 31 + indexFile.getSourceReadTime();
+			stamp = stamp * 31 + indexFile.getScannerConfigurationHashcode();
+			if (visited.add(indexFile))
+				queue.add(indexFile);
+		}
+		while (!queue.isEmpty()) {
+			IIndexFile indexFile = queue.remove();
+			stamp = stamp * 31 + getModificationStamp(indexFile, root);
+			for (IIndexInclude include : indexFile.getIncludes()) {
+				if (!include.isActive())
+					continue;
+				IIndexFile included = include.isResolved() ? index.resolveInclude(include) : null;
+				if (included == null) {
+					// Creating the missing header changes the analysis.
+					stamp = stamp * 31 + include.getName().hashCode();
+				} else if (visited.add(included)) {
+					queue.add(included);
+				}
+			}
+		}
+		return stamp == 0 ? 1 : stamp;
+	}
+
+	private static long getModificationStamp(IIndexFile indexFile, IWorkspaceRoot root) throws CoreException {
+		IIndexFileLocation location = indexFile.getLocation();
+		String fullPath = location.getFullPath();
+		if (fullPath != null) {
+			IFile file = root.getFile(new Path(fullPath));
+			if (file.exists())
+				return file.getModificationStamp();
+		}
+		// Files outside of the workspace are considered unchanged until they are indexed again.
+		return indexFile.getTimestamp();
+	}
+
+	@Override
+	public Collection<IResource> getDependentResources(IResource resource) {
+		if (!(resource instanceof IFile))
+			return Collections.emptyList();
+		ICProject project = CoreModel.getDefault().create(resource.getProject());
+		if (project == null)
+			return Collections.emptyList();
+		try {
+			IIndex index = CCorePlugin.getIndexManager().getIndex(project, IIndexManager.ADD_DEPENDENT);
+			index.acquireReadLock();
+			try {
+				IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+				Set<IResource> result = new LinkedHashSet<>();
+				for (IIndexFile indexFile : index.getFiles(IndexLocationFactory.getWorkspaceIFL((IFile) resource))) {
+					for (IIndexInclude include : index.findIncludedBy(indexFile, IIndex.DEPTH_INFINITE)) {
+						String fullPath = include.getIncludedByLocation().getFullPath();
+						if (fullPath != null)
+							result.add(root.getFile(new Path(fullPath)));
+					}
+				}
+				return result;
+			} finally {
+				index.releaseReadLock();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (CoreException e) {
+			Activator.log(e);
+		}
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.codan.core.tests;
+
+import org.eclipse.cdt.codan.core.model.CheckerLaunchMode;
+import org.eclipse.cdt.codan.core.model.IProblemReporter;
+import org.eclipse.cdt.codan.internal.checkers.StatementHasNoEffectChecker;
+import org.eclipse.cdt.codan.internal.core.AnalysisResultCache;
+import org.eclipse.cdt.codan.internal.core.CodanRunner;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Test for {@link AnalysisResultCache} class
+ */
+public class AnalysisResultCacheTest extends CheckerTestCase {
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		enableProblems(StatementHasNoEffectChecker.ER_ID);
+	}
+
+	private void runBuilder() throws CoreException {
+		CodanRunner.processResource(cproject.getProject(), CheckerLaunchMode.RUN_ON_FULL_BUILD, true,
+				new NullProgressMonitor());
+		markers = cproject.getProject().findMarkers(IProblemReporter.GENERIC_CODE_ANALYSIS_MARKER_TYPE, true,
+				IResource.DEPTH_INFINITE);
+	}
+
+	private void deleteMarkers() throws CoreException {
+		// A checker running on a file would report its problems again.
+		cproject.getProject().deleteMarkers(IProblemReporter.GENERIC_CODE_ANALYSIS_MARKER_TYPE, true,
+				IResource.DEPTH_INFINITE);
+	}
+
+	// main() {
+	// int a;
+	// +a; // error here on line 3
+	// }
+	public void testUnchangedFile() throws Exception {
+		loadcode(getAboveComment());
+		runBuilder();
+		checkErrorLine(3);
+		deleteMarkers();
+		runBuilder();
+		assertEquals(0, markers.length);
+		currentIFile.touch(null);
+		runBuilder();
+		checkErrorLine(3);
+	}
+
+	// main() {
+	// int a;
+	// +a; // error here on line 3
+	// }
+	public void testChangedProfile() throws Exception {
+		loadcode(getAboveComment());
+		runBuilder();
+		checkErrorLine(3);
+		deleteMarkers();
+		enableProblems(StatementHasNoEffectChecker.ER_ID);
+		runBuilder();
+		checkErrorLine(3);
+	}
+
+	// @file:header.h
+	// int x;
+
+	// @file:source.c
+	// #include "header.h"
+	// main() {
+	// int a;
+	// +a; // error here on line 4
+	// }
+	public void testChangedHeader() throws Exception {
+		StringBuilder[] code = getContents(2);
+		loadcode(code[0].toString());
+		IFile header = currentIFile;
+		loadcode(code[1].toString());
+		runBuilder();
+		checkErrorLine(4);
+		deleteMarkers();
+		runBuilder();
+		assertEquals(0, markers.length);
+		header.touch(null);
+		runBuilder();
+		checkErrorLine(4);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 QNX Software Systems and others.
+ * Copyright (c) 2004, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -81,6 +81,7 @@ public class AutomatedIntegrationSuite extends TestSuite {
 		suite.addTestSuite(CommentCheckerNestedTests.class);
 		// framework
 		suite.addTest(CodanFastTestSuite.suite());
+		suite.addTestSuite(AnalysisResultCacheTest.class);
 		// quick fixes
 		suite.addTestSuite(CreateLocalVariableQuickFixTest.class);
 		suite.addTestSuite(SuggestedParenthesisQuickFixTest.class);
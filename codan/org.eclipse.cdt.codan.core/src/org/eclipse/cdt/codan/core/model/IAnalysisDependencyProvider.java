@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.codan.core.model;
+
+import java.util.Collection;
+
+import org.eclipse.core.resources.IResource;
+
+/**
+ * Describes the inputs the analysis of a resource depends on. The builder uses this information
+ * to skip running a checker on a file whose inputs did not change since the checker last ran on
+ * it, and to check the files affected by a change to another file.
+ * <p>
+ * Providers are contributed through the {@code org.eclipse.cdt.codan.core.analysisDependencies}
+ * extension point.
+ * </p>
+ *
+ * @since 4.0
+ */
+public interface IAnalysisDependencyProvider {
+	/**
+	 * Indicates whether the results of the given checker depend only on the inputs described by
+	 * this provider.
+	 * @param checker the given code checker.
+	 * @return {@code true} if the results of the checker can be reused while the input stamp of
+	 *     a resource does not change, {@code false} otherwise.
+	 */
+	public boolean isCacheable(IChecker checker);
+
+	/**
+	 * Computes a stamp summarizing all inputs of the analysis of the given resource. The stamp
+	 * changes whenever any of the inputs changes.
+	 * @param resource the resource to be checked.
+	 * @return the stamp, or {@code 0} if the inputs cannot be determined.
+	 */
+	public long getInputStamp(IResource resource);
+
+	/**
+	 * Returns the resources whose analysis depends on the given resource.
+	 * @param resource the changed resource.
+	 * @return the dependent resources, never {@code null}.
+	 */
+	public Collection<IResource> getDependentResources(IResource resource);
+}
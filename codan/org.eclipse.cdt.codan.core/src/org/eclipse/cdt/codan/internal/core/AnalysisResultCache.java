@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.codan.internal.core;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cdt.codan.core.CodanCorePlugin;
+import org.eclipse.cdt.codan.core.model.IAnalysisDependencyProvider;
+import org.eclipse.cdt.codan.core.model.IChecker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.QualifiedName;
+
+/**
+ * Remembers the inputs each checker analyzed when it last ran on a file. While the inputs do not
+ * change the builder does not need to run the checker on the file again, the markers reported by
+ * the previous run stay valid. The inputs are summarized by the stamps computed by the
+ * {@link IAnalysisDependencyProvider}s, the stamps are kept in a session property of the file.
+ * All stamps become invalid when the problem profiles change.
+ */
+public class AnalysisResultCache {
+	private static final QualifiedName RESULT_STAMPS =
+			new QualifiedName(CodanCorePlugin.PLUGIN_ID, "analysisResultStamps"); //$NON-NLS-1$
+	private static AnalysisResultCache instance = new AnalysisResultCache();
+	private final AtomicLong generation = new AtomicLong(1);
+	private boolean enabled = true;
+
+	{
+		if (Boolean.valueOf(System.getProperty("codan.resultCache.disabled"))) { //$NON-NLS-1$
+			enabled = false;
+		}
+	}
+
+	/**
+	 * @return global instance of the cache
+	 */
+	public static AnalysisResultCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the provider describing the inputs of the given checker.
+	 *
+	 * @param checker - the checker
+	 * @return the provider, or {@code null} if the results of the checker cannot be reused
+	 */
+	public IAnalysisDependencyProvider getProvider(IChecker checker) {
+		if (!enabled)
+			return null;
+		for (IAnalysisDependencyProvider provider : CheckersRegistry.getInstance().getAnalysisDependencyProviders()) {
+			if (provider.isCacheable(checker)) {
+				return provider;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the stamp of the inputs of the analysis of the given resource. The stamp also
+	 * reflects the problem profiles in use.
+	 *
+	 * @param provider - the provider describing the inputs
+	 * @param resource - the resource to be checked
+	 * @return the stamp, or {@code 0} if the inputs cannot be determined
+	 */
+	public long getInputStamp(IAnalysisDependencyProvider provider, IResource resource) {
+		long stamp = provider.getInputStamp(resource);
+		return stamp == 0 ? 0 : stamp * 31 + generation.get();
+	}
+
+	/**
+	 * Checks whether the given checker already analyzed the given inputs of a resource.
+	 *
+	 * @param resource - the resource to be checked
+	 * @param checker - the checker
+	 * @param inputStamp - the current stamp of the inputs of the analysis
+	 * @return {@code true} if the checker does not need to run on the resource
+	 */
+	public boolean isUpToDate(IResource resource, IChecker checker, long inputStamp) {
+		if (inputStamp == 0)
+			return false;
+		Map<String, Long> stamps = getStamps(resource, false);
+		if (stamps == null)
+			return false;
+		Long stamp = stamps.get(checker.getClass().getName());
+		return stamp != null && stamp.longValue() == inputStamp;
+	}
+
+	/**
+	 * Records the inputs analyzed by a run of the given checker.
+	 *
+	 * @param resource - the checked resource
+	 * @param checker - the checker
+	 * @param inputStamp - the stamp of the analyzed inputs, or {@code 0} to forget the
+	 *     previous run of the checker
+	 */
+	public void update(IResource resource, IChecker checker, long inputStamp) {
+		Map<String, Long> stamps = getStamps(resource, inputStamp != 0);
+		if (stamps == null)
+			return;
+		if (inputStamp == 0) {
+			stamps.remove(checker.getClass().getName());
+		} else {
+			stamps.put(checker.getClass().getName(), inputStamp);
+		}
+	}
+
+	/**
+	 * Invalidates the recorded runs of all checkers on all resources.
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Returns the resources whose analysis depends on the given resource.
+	 *
+	 * @param resource - the changed resource
+	 * @return the dependent resources
+	 */
+	public Collection<IResource> getDependentResources(IResource resource) {
+		Collection<IResource> result = new LinkedHashSet<IResource>();
+		if (!enabled)
+			return result;
+		for (IAnalysisDependencyProvider provider : CheckersRegistry.getInstance().getAnalysisDependencyProviders()) {
+			result.addAll(provider.getDependentResources(resource));
+		}
+		result.remove(resource);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Long> getStamps(IResource resource, boolean create) {
+		try {
+			Map<String, Long> stamps = (Map<String, Long>) resource.getSessionProperty(RESULT_STAMPS);
+			if (stamps == null && create && resource.exists()) {
+				stamps = new ConcurrentHashMap<String, Long>();
+				resource.setSessionProperty(RESULT_STAMPS, stamps);
+			}
+			return stamps;
+		} catch (CoreException e) {
+			// The resource does not exist or is not open, there is nothing to remember.
+			return null;
+		}
+	}
+}
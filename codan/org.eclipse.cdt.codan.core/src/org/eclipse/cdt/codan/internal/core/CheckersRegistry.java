@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 Alena Laskavaia
+ * Copyright (c) 2009, 2017 Alena Laskavaia
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import org.eclipse.cdt.codan.core.model.AbstractCheckerWithProblemPreferences;
 import org.eclipse.cdt.codan.core.model.CheckerLaunchMode;
 import org.eclipse.cdt.codan.core.model.Checkers;
 import org.eclipse.cdt.codan.core.model.CodanSeverity;
+import org.eclipse.cdt.codan.core.model.IAnalysisDependencyProvider;
 import org.eclipse.cdt.codan.core.model.IChecker;
 import org.eclipse.cdt.codan.core.model.ICheckerWithPreferences;
 import org.eclipse.cdt.codan.core.model.ICheckersRegistry;
@@ -56,6 +57,7 @@ public class CheckersRegistry implements Iterable<IChecker>, ICheckersRegistry {
 	private static final String CLASS_ATTR = "class"; //$NON-NLS-1$
 	private static final String CHECKERS_EXTENSION_POINT_NAME = "checkers"; //$NON-NLS-1$
 	private static final String CHECKER_ENABLEMENT_EXTENSION_POINT_NAME = "checkerEnablement"; //$NON-NLS-1$
+	private static final String ANALYSIS_DEPENDENCIES_EXTENSION_POINT_NAME = "analysisDependencies"; //$NON-NLS-1$
 	private static final String CHECKER_ELEMENT = "checker"; //$NON-NLS-1$
 	private static final String PROBLEM_ELEMENT = "problem"; //$NON-NLS-1$
 	private static final String CATEGORY_ELEMENT = "category"; //$NON-NLS-1$
@@ -68,12 +70,14 @@ public class CheckersRegistry implements Iterable<IChecker>, ICheckersRegistry {
 	private final Map<IChecker, Collection<IProblem>> problemList = new HashMap<IChecker, Collection<IProblem>>();
 	private final Map<String, IChecker> problemCheckerMapping = new HashMap<String, IChecker>();
 	private final List<ICheckerEnablementVerifier> checkerEnablementVerifiers = new ArrayList<ICheckerEnablementVerifier>();
+	private final List<IAnalysisDependencyProvider> analysisDependencyProviders = new ArrayList<IAnalysisDependencyProvider>();
 
 	private CheckersRegistry() {
 		instance = this;
 		profiles.put(DEFAULT, new ProblemProfile(DEFAULT));
 		readCheckersRegistry();
 		readCheckerEnablementVerifier();
+		readAnalysisDependencyProviders();
 		initialized = true;
 	}
 
@@ -253,6 +257,26 @@ public class CheckersRegistry implements Iterable<IChecker>, ICheckersRegistry {
 		}
 	}
 
+	private void readAnalysisDependencyProviders() {
+		IExtensionPoint ep = getExtensionPoint(ANALYSIS_DEPENDENCIES_EXTENSION_POINT_NAME);
+		if (ep == null)
+			return;
+		for (IConfigurationElement ce : ep.getConfigurationElements()) {
+			try {
+				analysisDependencyProviders.add((IAnalysisDependencyProvider) ce.createExecutableExtension(CLASS_ATTR));
+			} catch (CoreException e) {
+				CodanCorePlugin.log(e);
+			}
+		}
+	}
+
+	/**
+	 * @return the providers describing the inputs the analysis of resources depends on
+	 */
+	public List<IAnalysisDependencyProvider> getAnalysisDependencyProviders() {
+		return analysisDependencyProviders;
+	}
+
 	private IExtensionPoint getExtensionPoint(String extensionPointName) {
 		return Platform.getExtensionRegistry().getExtensionPoint(CodanCorePlugin.PLUGIN_ID, extensionPointName);
 	}
@@ -356,6 +380,8 @@ public class CheckersRegistry implements Iterable<IChecker>, ICheckersRegistry {
 		profiles.put(DEFAULT, defaultProfile);
 		if (profile != null && element != null)
 			profiles.put(element, profile);
+		// Checkers may report different problems with the new profile
+		AnalysisResultCache.getInstance().invalidateAll();
 	}
 
 	@Override
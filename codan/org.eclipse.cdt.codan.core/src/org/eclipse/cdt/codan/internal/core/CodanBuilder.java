@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 Alena Laskavaia
+ * Copyright (c) 2009, 2017 Alena Laskavaia
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.codan.internal.core;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.cdt.codan.core.model.CheckerLaunchMode;
 import org.eclipse.cdt.codan.core.model.ICodanBuilder;
@@ -41,6 +43,7 @@ public class CodanBuilder extends IncrementalProjectBuilder implements ICodanBui
 
 	private class CodanDeltaVisitor implements IResourceDeltaVisitor {
 		private IProgressMonitor monitor;
+		private Set<IResource> changedFiles = new LinkedHashSet<IResource>();
 
 		public CodanDeltaVisitor(IProgressMonitor monitor) {
 			this.monitor = monitor;
@@ -53,18 +56,39 @@ public class CodanBuilder extends IncrementalProjectBuilder implements ICodanBui
 				case IResourceDelta.ADDED:
 					// Handle added resource
 					processResourceDelta(resource, monitor);
+					addChangedFile(resource);
 					break;
 				case IResourceDelta.REMOVED:
 					// Handle removed resource
+					addChangedFile(resource);
 					break;
 				case IResourceDelta.CHANGED:
 					// Handle changed resource
 					processResourceDelta(resource, monitor);
+					addChangedFile(resource);
 					break;
 			}
 			// Return true to continue visiting children.
 			return true;
 		}
+
+		private void addChangedFile(IResource resource) {
+			if (resource.getType() == IResource.FILE)
+				changedFiles.add(resource);
+		}
+
+		/**
+		 * @return the files whose analysis depends on the changed files, e.g. the sources
+		 *     including a changed header
+		 */
+		public Set<IResource> getDependentFiles() {
+			Set<IResource> dependentFiles = new LinkedHashSet<IResource>();
+			for (IResource file : changedFiles) {
+				dependentFiles.addAll(AnalysisResultCache.getInstance().getDependentResources(file));
+			}
+			dependentFiles.removeAll(changedFiles);
+			return dependentFiles;
+		}
 	}
 
 	@SuppressWarnings("rawtypes")
@@ -106,16 +130,24 @@ public class CodanBuilder extends IncrementalProjectBuilder implements ICodanBui
 	}
 
 	private void processResourceDelta(IResource resource, IProgressMonitor monitor) {
-		processResource(resource, monitor, CheckerLaunchMode.RUN_ON_INC_BUILD);
+		// Checkers that already analyzed the current inputs of a file are skipped.
+		CodanRunner.processResource(resource, CheckerLaunchMode.RUN_ON_INC_BUILD, true, monitor);
 	}
 
 	protected void fullBuild(final IProgressMonitor monitor) throws CoreException {
-		processResource(getProject(), monitor);
+		CodanRunner.processResource(getProject(), CheckerLaunchMode.RUN_ON_FULL_BUILD, true, monitor);
 	}
 
 	protected void incrementalBuild(IResourceDelta delta, IProgressMonitor monitor) throws CoreException {
 		// The visitor does the work.
-		delta.accept(new CodanDeltaVisitor(monitor));
+		CodanDeltaVisitor visitor = new CodanDeltaVisitor(monitor);
+		delta.accept(visitor);
+		for (IResource file : visitor.getDependentFiles()) {
+			if (monitor.isCanceled())
+				return;
+			if (file.exists())
+				processResourceDelta(file, monitor);
+		}
 	}
 
 	@Override
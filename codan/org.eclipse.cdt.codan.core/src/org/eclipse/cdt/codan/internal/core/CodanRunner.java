@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 Alena Laskavaia
+ * Copyright (c) 2009, 2017 Alena Laskavaia
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,12 @@
  *******************************************************************************/
 package org.eclipse.cdt.codan.internal.core;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.cdt.codan.core.CodanCorePlugin;
 import org.eclipse.cdt.codan.core.model.CheckerLaunchMode;
+import org.eclipse.cdt.codan.core.model.IAnalysisDependencyProvider;
 import org.eclipse.cdt.codan.core.model.IChecker;
 import org.eclipse.cdt.codan.core.model.ICheckerInvocationContext;
 import org.eclipse.cdt.codan.core.model.IRunnableInEditorChecker;
@@ -43,7 +47,7 @@ public class CodanRunner {
 	 * @param monitor - the progress monitor
 	 */
 	public static void runInEditor(Object model, IResource resource, IProgressMonitor monitor) {
-		processResource(resource, model, CheckerLaunchMode.RUN_AS_YOU_TYPE, monitor);
+		processResource(resource, model, CheckerLaunchMode.RUN_AS_YOU_TYPE, false, monitor);
 	}
 
 	/**
@@ -55,12 +59,29 @@ public class CodanRunner {
 	 */
 	public static void processResource(IResource resource, CheckerLaunchMode checkerLaunchMode,
 			IProgressMonitor monitor) {
-		processResource(resource, null, checkerLaunchMode, monitor);
+		processResource(resource, null, checkerLaunchMode, false, monitor);
+	}
+
+	/**
+	 * Runs all checkers on a given resource. Checkers that already analyzed the current inputs
+	 * of a file are skipped when <code>useResultCache</code> is set, the markers they reported
+	 * stay in place.
+	 *
+	 * @param resource - the resource to run the checkers on, either IFile or IContainer
+	 * @param checkerLaunchMode - the checker launch mode.
+	 * @param useResultCache - whether to skip checkers whose results are up to date
+	 * @param monitor - the progress monitor
+	 * @see AnalysisResultCache
+	 */
+	public static void processResource(IResource resource, CheckerLaunchMode checkerLaunchMode,
+			boolean useResultCache, IProgressMonitor monitor) {
+		processResource(resource, null, checkerLaunchMode, useResultCache, monitor);
 	}
 
 	private static void processResource(IResource resource, Object model,
-			CheckerLaunchMode checkerLaunchMode, IProgressMonitor monitor) {
+			CheckerLaunchMode checkerLaunchMode, boolean useResultCache, IProgressMonitor monitor) {
 		CheckersRegistry chegistry = CheckersRegistry.getInstance();
+		AnalysisResultCache resultCache = AnalysisResultCache.getInstance();
 		int checkers = chegistry.getCheckersSize();
 		IResource[] children = null;
 		if (resource instanceof IContainer) {
@@ -78,28 +99,36 @@ public class CodanRunner {
 		try {
 			CheckersTimeStats.getInstance().checkerStart(CheckersTimeStats.ALL);
 			ICheckerInvocationContext context = new CheckerInvocationContext(resource);
+			Map<IAnalysisDependencyProvider, Long> inputStamps = new HashMap<IAnalysisDependencyProvider, Long>();
 			try {
 				for (IChecker checker : chegistry) {
 					if (monitor.isCanceled())
 						return;
 					if (chegistry.isCheckerEnabled(checker, resource, checkerLaunchMode)) {
-						synchronized (checker) {
-							try {
-								checker.before(resource);
-								CheckersTimeStats.getInstance().checkerStart(checker.getClass().getName());
-								if (checkerLaunchMode == CheckerLaunchMode.RUN_AS_YOU_TYPE) {
-									((IRunnableInEditorChecker) checker).processModel(model, context);
-								} else {
-									checker.processResource(resource, context);
+						long inputStamp = getInputStamp(checker, resource, checkerLaunchMode, inputStamps);
+						if (!useResultCache || !resultCache.isUpToDate(resource, checker, inputStamp)) {
+							boolean completed = false;
+							synchronized (checker) {
+								try {
+									checker.before(resource);
+									CheckersTimeStats.getInstance().checkerStart(checker.getClass().getName());
+									if (checkerLaunchMode == CheckerLaunchMode.RUN_AS_YOU_TYPE) {
+										((IRunnableInEditorChecker) checker).processModel(model, context);
+									} else {
+										checker.processResource(resource, context);
+									}
+									completed = true;
+								} catch (OperationCanceledException e) {
+									resultCache.update(resource, checker, 0);
+									return;
+								} catch (Throwable e) {
+									CodanCorePlugin.log(e);
+								} finally {
+									CheckersTimeStats.getInstance().checkerStop(checker.getClass().getName());
+									checker.after(resource);
 								}
-							} catch (OperationCanceledException e) {
-								return;
-							} catch (Throwable e) {
-								CodanCorePlugin.log(e);
-							} finally {
-								CheckersTimeStats.getInstance().checkerStop(checker.getClass().getName());
-								checker.after(resource);
 							}
+							resultCache.update(resource, checker, completed ? inputStamp : 0);
 						}
 					}
 					monitor.worked(1);
@@ -115,11 +144,34 @@ public class CodanRunner {
 				for (IResource child : children) {
 					if (monitor.isCanceled())
 						return;
-					processResource(child, null, checkerLaunchMode, new SubProgressMonitor(monitor, childWeight));
+					processResource(child, null, checkerLaunchMode, useResultCache,
+							new SubProgressMonitor(monitor, childWeight));
 				}
 			}
 		} finally {
 			monitor.done();
 		}
 	}
+
+	/**
+	 * Returns the stamp of the inputs the given checker analyzes in the given resource, or
+	 * {@code 0} if the results of the checker cannot be reused. Checkers sharing a provider share
+	 * the stamp, it is computed only once per resource.
+	 */
+	private static long getInputStamp(IChecker checker, IResource resource, CheckerLaunchMode checkerLaunchMode,
+			Map<IAnalysisDependencyProvider, Long> inputStamps) {
+		// The model analyzed while typing may differ from the contents of the resource.
+		if (checkerLaunchMode == CheckerLaunchMode.RUN_AS_YOU_TYPE)
+			return 0;
+		AnalysisResultCache resultCache = AnalysisResultCache.getInstance();
+		IAnalysisDependencyProvider provider = resultCache.getProvider(checker);
+		if (provider == null)
+			return 0;
+		Long stamp = inputStamps.get(provider);
+		if (stamp == null) {
+			stamp = resultCache.getInputStamp(provider, resource);
+			inputStamps.put(provider, stamp);
+		}
+		return stamp;
+	}
 }
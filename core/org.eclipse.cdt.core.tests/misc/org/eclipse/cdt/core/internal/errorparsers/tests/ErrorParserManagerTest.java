@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2016 QNX Software Systems and others.
+ * Copyright (c) 2008, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -189,6 +189,60 @@ public class ErrorParserManagerTest extends TestCase {
 		assertEquals(22, errorList.size());
 	}
 
+	private void outputFile(String path, int chunkSize) throws IOException {
+		try (FileInputStream fileInputStream = new FileInputStream(CTestPlugin.getDefault().getFileInPlugin(
+				new Path(path)))) {
+			byte b[] = new byte[chunkSize];
+			while (true) {
+				int k = fileInputStream.read(b);
+				if (k < 0)
+					break;
+				epManager.write(b, 0, k);
+			}
+		}
+	}
+
+	public void testOutputPipelined() throws IOException {
+		outputFile("resources/errortests/output-1", 1024);
+		end();
+		ArrayList<ProblemMarkerInfo> expected = new ArrayList<ProblemMarkerInfo>(errorList);
+
+		errorList.clear();
+		epManager = new ErrorParserManager(cProject.getProject(), markerGenerator, new String[] {
+			"org.eclipse.cdt.core.CWDLocator",
+			"org.eclipse.cdt.core.GCCErrorParser",
+			"org.eclipse.cdt.core.GASErrorParser",
+			"org.eclipse.cdt.core.GLDErrorParser",
+			"org.eclipse.cdt.core.VCErrorParser",
+			"org.eclipse.cdt.core.GmakeErrorParser",
+		});
+		epManager.enablePipelining();
+		outputFile("resources/errortests/output-1", 17);
+		end();
+		assertEquals(expected.size(), errorList.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).description, errorList.get(i).description);
+			assertEquals(expected.get(i).file, errorList.get(i).file);
+			assertEquals(expected.get(i).externalPath, errorList.get(i).externalPath);
+			assertEquals(expected.get(i).lineNumber, errorList.get(i).lineNumber);
+		}
+	}
+
+	public void testDirectoryTrackingPipelined() throws IOException {
+		epManager.enablePipelining();
+		output("make[1]: Entering directory `/tmp/dir1'\n");
+		output("make[2]: Entering directory `/tmp/dir1/dir2'\n");
+		assertEquals(2, epManager.getDirectoryLevel());
+		assertEquals(new Path("/tmp/dir1/dir2"), epManager.getWorkingDirectory());
+		output("catchpoints.cpp:12: warning: no return statement in function returning non-void\n");
+		output("make[2]: Leaving directory `/tmp/dir1/dir2'\n");
+		assertEquals(1, epManager.getDirectoryLevel());
+		assertEquals(4, epManager.getLineCounter());
+		end();
+		assertEquals(1, errorList.size());
+		assertEquals(new Path("catchpoints.cpp"), errorList.get(0).externalPath);
+	}
+
 	private String addErrorParserExtension(String shortId, Class cl) {
 		String ext = "<plugin><extension id=\"" + shortId + "\" name=\"" + shortId
 				+ "\" point=\"org.eclipse.cdt.core.ErrorParser\">" + "<errorparser class=\"" + cl.getName() + "\"/>"
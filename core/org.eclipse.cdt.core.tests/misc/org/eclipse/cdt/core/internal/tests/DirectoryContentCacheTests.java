@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.internal.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.indexer.FileExistsCache;
+import org.eclipse.cdt.internal.core.resources.DirectoryContentCache;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class DirectoryContentCacheTests extends BaseTestCase {
+    public static Test suite() {
+        return new TestSuite(DirectoryContentCacheTests.class);
+    }
+
+	private IProject fProject;
+	private File fDirectory;
+
+    @Override
+	protected void setUp() throws Exception {
+    	super.setUp();
+		fProject= ResourcesPlugin.getWorkspace().getRoot().getProject("dircache_" + getName());
+		fDirectory= new File(System.getProperty("java.io.tmpdir"), "dircache_" + getName());
+		fDirectory.mkdirs();
+    }
+
+    @Override
+	protected void tearDown() throws Exception {
+		fProject.delete(true, new NullProgressMonitor());
+		for (File file : fDirectory.listFiles()) {
+			file.delete();
+		}
+		fDirectory.delete();
+		super.tearDown();
+    }
+
+	public void testWatchedDirectory() throws Exception {
+		DirectoryContentCache cache= DirectoryContentCache.getInstance();
+		File file= new File(fDirectory, "a.h");
+		assertFalse(cache.exists(file.getPath()));
+
+		long saved= cache.getSavedFileSystemCalls();
+		assertFalse(cache.exists(file.getPath()));
+		assertTrue(cache.getSavedFileSystemCalls() > saved);
+
+		// The watch service reports the change asynchronously.
+		assertTrue(file.createNewFile());
+		for (int i= 0; i < 100 && !cache.exists(file.getPath()); i++) {
+			Thread.sleep(50);
+		}
+		assertTrue(cache.exists(file.getPath()));
+		assertTrue(new FileExistsCache(false).isFile(file.getPath()));
+		assertFalse(new FileExistsCache(false).isFile(fDirectory.getPath()));
+	}
+
+	public void testResourceDelta() throws Exception {
+		fProject.create(new NullProgressMonitor());
+		fProject.open(new NullProgressMonitor());
+		String path= fProject.getLocation().append("b.h").toOSString();
+		DirectoryContentCache cache= DirectoryContentCache.getInstance();
+		assertFalse(cache.exists(path));
+
+		IFile file= fProject.getFile("b.h");
+		file.create(new ByteArrayInputStream(new byte[0]), true, new NullProgressMonitor());
+		assertTrue(cache.exists(path));
+
+		file.delete(true, new NullProgressMonitor());
+		assertFalse(cache.exists(path));
+	}
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.utils.elf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.utils.AR;
+import org.eclipse.cdt.utils.Addr32;
+import org.eclipse.cdt.utils.Addr64;
+import org.eclipse.cdt.utils.elf.Elf.Section;
+import org.eclipse.cdt.utils.elf.Elf.Symbol;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests reading the symbols and sections of the binaries in the resources folder.
+ */
+public class ElfTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(ElfTest.class);
+	}
+
+	private static String getPath(String resource) {
+		return CTestPlugin.getDefault().getFileInPlugin(new Path(resource)).getAbsolutePath();
+	}
+
+	private static Symbol findSymbol(Symbol[] symbols, String name) {
+		for (Symbol symbol : symbols) {
+			if (name.equals(symbol.toString())) {
+				return symbol;
+			}
+		}
+		fail("Missing symbol " + name);
+		return null;
+	}
+
+	private static void checkSymbol(Symbol[] symbols, String name, long value, long size, int type) {
+		Symbol symbol = findSymbol(symbols, name);
+		assertEquals(name, value, symbol.st_value.getValue().longValue());
+		assertEquals(name, size, symbol.st_size);
+		assertEquals(name, type, symbol.st_type());
+	}
+
+	private static void checkSectionData(Elf elf) throws IOException {
+		for (Section section : elf.getSections()) {
+			if (section.sh_type == Section.SHT_NOBITS || section.sh_size == 0) {
+				continue;
+			}
+			ByteBuffer mapped = section.mapSectionData();
+			byte[] data = new byte[mapped.remaining()];
+			mapped.get(data);
+			assertTrue(section.toString(), Arrays.equals(section.loadSectionData(), data));
+		}
+	}
+
+	public void testSymbols32LittleEndian() throws Exception {
+		Elf elf = new Elf(getPath("resources/exe/x86/o.g/exe_g"));
+		try {
+			elf.loadSymbols();
+			Symbol[] symbols = elf.getSymbols();
+			assertSame(elf.getSymtabSymbols(), symbols);
+			checkSymbol(symbols, "main", 0x08048424L, 23, Symbol.STT_FUNC);
+			checkSymbol(symbols, "func1", 0x0804843cL, 26, Symbol.STT_FUNC);
+			checkSymbol(symbols, "test2func2", 0x0804848cL, 26, Symbol.STT_FUNC);
+			checkSymbol(symbols, "errno", 0x08049694L, 4, Symbol.STT_OBJECT);
+
+			Symbol[] dynamic = elf.getDynamicSymbols();
+			assertEquals(15, dynamic.length);
+			checkSymbol(dynamic, "printf", 0x08048330L, 99, Symbol.STT_FUNC);
+			checkSymbol(dynamic, "_end", 0x08049698L, 0, Symbol.STT_OBJECT);
+		} finally {
+			elf.dispose();
+		}
+	}
+
+	public void testSymbols32BigEndian() throws Exception {
+		Elf elf = new Elf(getPath("resources/exe/ppc/be.g/exe_g"));
+		try {
+			elf.loadSymbols();
+			Symbol[] symbols = elf.getSymbols();
+			checkSymbol(symbols, "main", 0x480404b8L, 48, Symbol.STT_FUNC);
+			checkSymbol(symbols, "func1", 0x480404e8L, 48, Symbol.STT_FUNC);
+			checkSymbol(symbols, "func2", 0x48040518L, 48, Symbol.STT_FUNC);
+		} finally {
+			elf.dispose();
+		}
+	}
+
+	public void testSymbols64() throws Exception {
+		Elf elf = new Elf(getPath("resources/exe/x86_64/o/test.o"));
+		try {
+			elf.loadSymbols();
+			Symbol[] symbols = elf.getSymbols();
+			assertEquals(5, symbols.length);
+			checkSymbol(symbols, "func1", 0, 26, Symbol.STT_FUNC);
+			checkSymbol(symbols, "func2", 0x1a, 26, Symbol.STT_FUNC);
+			checkSymbol(symbols, "puts", 0, 0, Symbol.STT_NOTYPE);
+			assertEquals(Symbol.STB_GLOBAL, findSymbol(symbols, "func2").st_bind());
+			assertEquals(0, elf.getDynamicSymbols().length);
+			assertEquals("func2", elf.getSymbol(new Addr64(0x20)).toString());
+		} finally {
+			elf.dispose();
+		}
+	}
+
+	public void testSymbolsOfArchiveMembers() throws Exception {
+		String path = getPath("resources/testlib/x86/a.g/libtestlib_g.a");
+		AR ar = new AR(path);
+		try {
+			AR.ARHeader[] headers = ar.getHeaders();
+			assertEquals(2, headers.length);
+			for (AR.ARHeader header : headers) {
+				Elf elf = new Elf(path, header.getObjectDataOffset());
+				try {
+					elf.loadSymbols();
+					Symbol[] symbols = elf.getSymbols();
+					if (header.getObjectName().equals("test.o")) {
+						checkSymbol(symbols, "func1", 0, 26, Symbol.STT_FUNC);
+						checkSymbol(symbols, "func2", 0x1c, 23, Symbol.STT_FUNC);
+					} else {
+						checkSymbol(symbols, "test2func1", 0, 26, Symbol.STT_FUNC);
+						checkSymbol(symbols, "test2func2", 0x1c, 26, Symbol.STT_FUNC);
+					}
+					checkSectionData(elf);
+				} finally {
+					elf.dispose();
+				}
+			}
+		} finally {
+			ar.dispose();
+		}
+	}
+
+	public void testSectionData() throws Exception {
+		Elf elf = new Elf(getPath("resources/exe/x86/o.g/exe_g"));
+		try {
+			checkSectionData(elf);
+		} finally {
+			elf.dispose();
+		}
+	}
+
+	public void testGetSymbol() throws Exception {
+		Elf elf = new Elf(getPath("resources/exe/x86/o.g/exe_g"));
+		try {
+			assertNull(elf.getSymbol(new Addr32(0x08048424L)));
+			elf.loadSymbols();
+			Symbol[] symbols = elf.getSymbols();
+
+			// An exact match on the first symbol.
+			Symbol first = elf.getSymbol(symbols[0].st_value);
+			assertNotNull(first);
+			assertEquals(symbols[0].st_value, first.st_value);
+
+			assertEquals("main", elf.getSymbol(new Addr32(0x08048424L)).toString());
+			assertEquals("main", elf.getSymbol(new Addr32(0x08048430L)).toString());
+			assertEquals("func1", elf.getSymbol(new Addr32(0x0804843cL)).toString());
+			assertEquals("_end", elf.getSymbol(new Addr32(0xffffff00L)).toString());
+		} finally {
+			elf.dispose();
+		}
+	}
+}
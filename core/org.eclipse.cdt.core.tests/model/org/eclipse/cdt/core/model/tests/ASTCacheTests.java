@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,11 +22,15 @@ import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.cdt.core.model.IWorkingCopy;
 import org.eclipse.cdt.core.testplugin.CProjectHelper;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
 import org.eclipse.cdt.internal.core.model.ASTCache;
 import org.eclipse.cdt.internal.core.model.ASTCache.ASTRunnable;
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
@@ -35,6 +39,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.text.IDocument;
 
 /**
  * Tests for the {@link ASTCache}.
@@ -311,6 +316,95 @@ public class ASTCacheTests extends BaseTestCase {
 		}
 	}
 
+	public void testInactiveElements() throws Exception {
+		ASTCache cache= new ASTCache();
+		cache.setActiveElement(fTU1);
+		IASTTranslationUnit ast1= getAST(cache, fTU1, true);
+		assertNotNull(ast1);
+		assertTrue(cache.getCachedSize() > 0);
+
+		// The AST of the previously active element is kept.
+		cache.setActiveElement(fTU2);
+		assertSame(ast1, getAST(cache, fTU1, false));
+		IASTTranslationUnit ast2= getAST(cache, fTU2, true);
+		assertNotNull(ast2);
+		cache.setActiveElement(fTU1);
+		assertSame(ast1, getAST(cache, fTU1, false));
+		assertSame(ast2, getAST(cache, fTU2, false));
+		assertEquals(0, cache.getEvictionCount());
+
+		// Reconciling discards the AST of an inactive element as well.
+		cache.aboutToBeReconciled(fTU2);
+		assertTrue(cache.isReconciling(fTU2));
+		assertNull(getAST(cache, fTU2, false));
+		cache.reconciled(ast2, fTU2);
+		assertFalse(cache.isReconciling(fTU2));
+		assertSame(ast2, getAST(cache, fTU2, false));
+
+		cache.disposeAllASTs();
+		assertEquals(0, cache.getCachedSize());
+		assertNull(getAST(cache, fTU1, false));
+	}
+
+	public void testMemoryLimit() throws Exception {
+		ASTCache cache= new ASTCache(1);
+		cache.setActiveElement(fTU1);
+		IASTTranslationUnit ast1= getAST(cache, fTU1, true);
+		assertNotNull(ast1);
+		// The AST of the active element is kept even if it exceeds the limit.
+		assertSame(ast1, getAST(cache, fTU1, false));
+		assertEquals(0, cache.getEvictionCount());
+
+		cache.setActiveElement(fTU2);
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(getAST(cache, fTU1, false));
+		assertNotNull(getAST(cache, fTU1, true));
+		assertNull(getAST(cache, fTU1, false));
+		assertEquals(2, cache.getEvictionCount());
+		assertTrue(cache.getEvictedSize() > 0);
+
+		// A pinned AST is not evicted.
+		cache.pinAST(fTU1);
+		ast1= getAST(cache, fTU1, true);
+		assertSame(ast1, getAST(cache, fTU1, false));
+		cache.unpinAST(fTU1);
+		assertNull(getAST(cache, fTU1, false));
+		assertEquals(3, cache.getEvictionCount());
+	}
+
+	public void testBufferChangeOfInactiveElement() throws Exception {
+		ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
+		manager.connect(fTU1.getPath(), LocationKind.IFILE, npm());
+		IWorkingCopy workingCopy= fTU1.getWorkingCopy();
+		try {
+			ASTCache cache= new ASTCache();
+			cache.setActiveElement(fTU2);
+			IASTTranslationUnit ast= getAST(cache, workingCopy, true);
+			assertNotNull(ast);
+			assertSame(ast, getAST(cache, workingCopy, false));
+
+			// The working copy is not reconciled, but the edit of its document invalidates the AST.
+			IDocument document= manager.getTextFileBuffer(fTU1.getPath(), LocationKind.IFILE).getDocument();
+			document.replace(0, 0, " ");
+			assertNull(getAST(cache, workingCopy, false));
+		} finally {
+			workingCopy.destroy();
+			manager.disconnect(fTU1.getPath(), LocationKind.IFILE, npm());
+		}
+	}
+
+	private IASTTranslationUnit getAST(ASTCache cache, ITranslationUnit tUnit, boolean wait) {
+		final IASTTranslationUnit[] result= { null };
+		cache.runOnAST(tUnit, wait, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				result[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		return result[0];
+	}
+
 	private void waitForAST(ASTCache cache, ITranslationUnit tUnit, ASTRunnable runnable) {
 		if (DEBUG) System.out.println("waiting for "+tUnit.getElementName());
 		long start= System.currentTimeMillis();
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.model.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.model.IBinary;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.model.BinaryFileCache;
+import org.eclipse.cdt.internal.core.model.BinaryParserConfig;
+import org.eclipse.cdt.internal.core.model.CModelManager;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests for the {@link BinaryFileCache} and its use by the binary runner.
+ */
+public class BinaryFileCacheTests extends BaseTestCase {
+	private ICProject fProject;
+	private IFile fExecutable;
+	private IFile fText;
+
+	public BinaryFileCacheTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(BinaryFileCacheTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= CProjectHelper.createCProject("BinaryFileCacheTests", "none", IPDOMManager.ID_NO_INDEXER);
+		fExecutable= fProject.getProject().getFile("test_g");
+		try (InputStream in= new FileInputStream(
+				CTestPlugin.getDefault().getFileInPlugin(new Path("resources/exe/x86/o.g/exe_g")))) {
+			fExecutable.create(in, false, npm());
+		}
+		fText= TestSourceReader.createFile(fProject.getProject(), "notes", "This is not a binary");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fProject != null) {
+			CProjectHelper.delete(fProject);
+		}
+		super.tearDown();
+	}
+
+	private BinaryParserConfig[] getParsers() {
+		return CModelManager.getDefault().getBinaryParser(fProject.getProject());
+	}
+
+	private BinaryFileCache loadCache() {
+		return new BinaryFileCache(fProject.getProject(), getParsers());
+	}
+
+	private byte[] getHeader(IFile file) throws Exception {
+		return Arrays.copyOf(Files.readAllBytes(file.getLocation().toFile().toPath()), 128);
+	}
+
+	private void touch(IFile file) throws Exception {
+		File osFile= file.getLocation().toFile();
+		assertTrue(osFile.setLastModified(osFile.lastModified() + 10000));
+		file.refreshLocal(IResource.DEPTH_ZERO, npm());
+	}
+
+	private boolean containsBinary(IFile file) throws Exception {
+		for (IBinary binary : fProject.getBinaryContainer().getBinaries()) {
+			if (file.equals(binary.getResource())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void rerunBinaryRunner() {
+		CModelManager manager= CModelManager.getDefault();
+		manager.removeBinaryRunner(fProject);
+		manager.getBinaryRunner(fProject).waitIfRunning();
+	}
+
+	public void testRecordedHeaderIsReused() throws Exception {
+		BinaryFileCache cache= loadCache();
+		IPath location= fText.getLocation();
+		assertNull(cache.getHeader(location));
+		assertNull(CModelManager.getDefault().createBinaryFile(fText, cache));
+		assertFalse(BinaryFileCache.isBinary(cache.getHeader(location)));
+
+		// The file is not read again as long as it does not change.
+		cache.putBinary(location, getHeader(fExecutable));
+		assertNotNull(CModelManager.getDefault().createBinaryFile(fText, cache));
+		assertNull(CModelManager.getDefault().createBinaryFile(fText));
+	}
+
+	public void testNonBinaryIsSkipped() throws Exception {
+		BinaryFileCache cache= loadCache();
+		assertNotNull(CModelManager.getDefault().createBinaryFile(fExecutable, cache));
+		assertTrue(BinaryFileCache.isBinary(cache.getHeader(fExecutable.getLocation())));
+
+		cache.putNotBinary(fExecutable.getLocation());
+		assertNull(CModelManager.getDefault().createBinaryFile(fExecutable, cache));
+		assertNotNull(CModelManager.getDefault().createBinaryFile(fExecutable));
+	}
+
+	public void testSizeChangeInvalidatesEntry() throws Exception {
+		BinaryFileCache cache= loadCache();
+		IPath location= fText.getLocation();
+		cache.putNotBinary(location);
+		assertNotNull(cache.getHeader(location));
+
+		fText.setContents(new ByteArrayInputStream("Longer, but still not a binary".getBytes()), true,
+				false, npm());
+		assertNull(cache.getHeader(location));
+	}
+
+	public void testModificationTimeChangeInvalidatesEntry() throws Exception {
+		BinaryFileCache cache= loadCache();
+		IPath location= fText.getLocation();
+		cache.putNotBinary(location);
+		assertNotNull(cache.getHeader(location));
+
+		touch(fText);
+		assertNull(cache.getHeader(location));
+	}
+
+	public void testEntriesAreSaved() throws Exception {
+		BinaryFileCache cache= loadCache();
+		cache.putNotBinary(fText.getLocation());
+		cache.putBinary(fExecutable.getLocation(), getHeader(fExecutable));
+		cache.save();
+
+		cache= loadCache();
+		assertFalse(BinaryFileCache.isBinary(cache.getHeader(fText.getLocation())));
+		assertTrue(Arrays.equals(getHeader(fExecutable), cache.getHeader(fExecutable.getLocation())));
+	}
+
+	public void testParserChangeDiscardsEntries() throws Exception {
+		BinaryFileCache cache= loadCache();
+		cache.putNotBinary(fText.getLocation());
+		cache.save();
+
+		BinaryParserConfig[] parsers= getParsers();
+		BinaryParserConfig[] changed= Arrays.copyOf(parsers, parsers.length + 1);
+		changed[parsers.length]= parsers[0];
+		cache= new BinaryFileCache(fProject.getProject(), changed);
+		assertNull(cache.getHeader(fText.getLocation()));
+	}
+
+	public void testCacheIsDeletedWithProject() throws Exception {
+		loadCache().save();
+		File cacheFile= BinaryFileCache.getCacheFile(fProject.getProject());
+		assertTrue(cacheFile.isFile());
+
+		CProjectHelper.delete(fProject);
+		fProject= null;
+		assertFalse(cacheFile.exists());
+	}
+
+	public void testBinaryRunnerUsesCache() throws Exception {
+		rerunBinaryRunner();
+		assertTrue(containsBinary(fExecutable));
+
+		// The second run takes the verdict from the cache instead of reading the file.
+		BinaryFileCache cache= loadCache();
+		cache.putNotBinary(fExecutable.getLocation());
+		cache.save();
+		rerunBinaryRunner();
+		assertFalse(containsBinary(fExecutable));
+
+		// A modified file is read again.
+		touch(fExecutable);
+		rerunBinaryRunner();
+		assertTrue(containsBinary(fExecutable));
+	}
+}
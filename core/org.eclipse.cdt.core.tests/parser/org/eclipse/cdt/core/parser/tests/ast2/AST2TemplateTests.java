@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -98,12 +98,14 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPVariable;
 import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.internal.core.dom.parser.IntegralValue;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTNameBase;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPBasicType;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPReferenceType;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ClassTypeHelper;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPDeferredClassInstance;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInternalUnknownScope;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPUnknownBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.InstantiationMemo;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.SemanticUtil;
 
 import junit.framework.TestSuite;
@@ -10576,4 +10578,25 @@ public class AST2TemplateTests extends AST2CPPTestBase {
 	public void testTemplateAliasWithVariadicArgs_530086b() throws Exception {
 		parseAndCheckBindings();
 	}
+
+	//	template<typename T> struct A { typedef T type; };
+	//	template<typename T> struct A<T*> { typedef T type; };
+	//	A<int>::type a1;
+	//	A<int>::type a2;
+	//	A<int*>::type b1;
+	//	A<int*>::type b2;
+	public void testInstantiationMemo() throws Exception {
+		BindingAssertionHelper bh= getAssertionHelper();
+		ICPPClassType a1= bh.assertNonProblem("A<int>::type a1", "A<int>");
+		ICPPClassType a2= bh.assertNonProblem("A<int>::type a2", "A<int>");
+		assertSame(a1, a2);
+		ICPPClassType b1= bh.assertNonProblem("A<int*>::type b1", "A<int*>");
+		ICPPClassType b2= bh.assertNonProblem("A<int*>::type b2", "A<int*>");
+		assertSame(b1, b2);
+		assertInstance(((ICPPTemplateInstance) b1).getSpecializedBinding(),
+				ICPPClassTemplatePartialSpecialization.class);
+		InstantiationMemo memo=
+				((CPPASTTranslationUnit) bh.getTranslationUnit()).getInstantiationMemo();
+		assertTrue(memo.getHits() > 0);
+	}
 }
@@ -19,6 +19,7 @@ import junit.framework.TestSuite;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.core.parser.IScannerInfo;
 import org.eclipse.cdt.core.parser.IToken;
 import org.eclipse.cdt.core.parser.ParserLanguage;
@@ -305,4 +306,44 @@ public class InclusionTests extends PreprocessorTestsBase {
     	validateInteger("2");
     	validateEOF();
     }
+
+    // #define A 1
+    // #include "cached.h"
+    // #undef A
+    // #include "cached.h"
+    public void testReplayOfLexedHeader() throws Exception {
+    	importFile("empty.h", "");
+    	importFile("cached.h", "// comment\n#ifdef A\nint a = A; /* block */\n#include \"empty.h\"\n" +
+    			"#else\nint b;\n#include <missing.h>\n#endif\nchar* s = \"unterminated\n");
+    	IFile base = importFile("base.cpp", getAboveComment());
+
+    	// The second inclusion and the second translation unit replay the tokens of the header.
+    	for (int i = 0; i < 2; i++) {
+    		initializeScanner(FileContent.create(base), ParserLanguage.CPP, ParserMode.COMPLETE_PARSE, new ScannerInfo());
+    		validateToken(IToken.t_int);
+    		validateIdentifier("a");
+    		validateToken(IToken.tASSIGN);
+    		validateInteger("1");
+    		validateToken(IToken.tSEMI);
+    		validateToken(IToken.t_char);
+    		validateToken(IToken.tSTAR);
+    		validateIdentifier("s");
+    		validateToken(IToken.tASSIGN);
+    		validateToken(IToken.tSTRING);
+    		validateToken(IToken.t_int);
+    		validateIdentifier("b");
+    		validateToken(IToken.tSEMI);
+    		validateToken(IToken.t_char);
+    		validateToken(IToken.tSTAR);
+    		validateIdentifier("s");
+    		validateToken(IToken.tASSIGN);
+    		validateToken(IToken.tSTRING);
+    		validateEOF();
+    		assertEquals(4, fLocationResolver.getComments().length);
+    		validateProblemCount(3);
+    		validateProblem(0, IProblem.SCANNER_UNBOUNDED_STRING, null);
+    		validateProblem(1, IProblem.PREPROCESSOR_INCLUSION_NOT_FOUND, null);
+    		validateProblem(2, IProblem.SCANNER_UNBOUNDED_STRING, null);
+    	}
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -340,6 +340,27 @@ public class LexerTests extends BaseTestCase {
 		eof();
 	}
 
+	public void testLineSplicingWithinRuns() throws Exception {
+		// runs of plain characters are scanned in bulk up to a line-splice
+		init("abcdef\\\nghij??/\nkl 0x12345\\\n678ULL 1234567e\\\n+8 \t\f\\\n\t xyz");
+		id("abcdefghijkl");
+		ws();
+		integer("0x12345678ULL");
+		ws();
+		floating("1234567e+8");
+		ws();
+		id("xyz");
+		eof();
+
+		init("// abcdef\\\nghij??/\nkl\r\nx /* abc\\\n*\\\r\n/y");
+		comment("// abcdef\\\nghij??/\nkl");
+		nl();
+		id("x");
+		comment("/* abc\\\n*\\\r\n/");
+		id("y");
+		eof();
+	}
+
 	public void testComments() throws Exception {
 		init("// /*\na");
 		comment("// /*");
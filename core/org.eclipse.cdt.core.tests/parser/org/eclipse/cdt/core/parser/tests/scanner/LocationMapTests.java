@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -421,8 +421,8 @@ public class LocationMapTests extends BaseTestCase {
 
 	public void testElse() {
 		init(DIGITS);
-		fLocationMap.encounterPoundElse(0, 0, false);
-		fLocationMap.encounterPoundElse(0, 16, true);
+		fLocationMap.encounterPoundElse(0, 0, false, true);
+		fLocationMap.encounterPoundElse(0, 16, true, true);
 		IASTPreprocessorStatement[] prep= fLocationMap.getAllPreprocessorStatements();
 		assertEquals(2, prep.length);
 		checkElse(prep[0], "", false, FN, 0, 0, 1);
@@ -431,8 +431,8 @@ public class LocationMapTests extends BaseTestCase {
 
 	public void testEndif() {
 		init(DIGITS);
-		fLocationMap.encounterPoundEndIf(0, 0);
-		fLocationMap.encounterPoundEndIf(0, 16);
+		fLocationMap.encounterPoundEndIf(0, 0, true);
+		fLocationMap.encounterPoundEndIf(0, 16, true);
 		IASTPreprocessorStatement[] prep= fLocationMap.getAllPreprocessorStatements();
 		assertEquals(2, prep.length);
 		checkEndif(prep[0], "", FN, 0, 0, 1);
@@ -523,6 +523,16 @@ public class LocationMapTests extends BaseTestCase {
 		refs= fLocationMap.getReferences(macro2);
 		assertEquals(1, refs.length);
 		checkName(refs[0], macro2, "n2", refs[0].getParent(), IASTPreprocessorMacroExpansion.NESTED_EXPANSION_NAME, ROLE_REFERENCE, FN, 110, 15, 2, 2, new String(LONGDIGITS, 110, 15));
+
+		// The expansion node is created on demand and shared by all of its names.
+		IASTPreprocessorMacroExpansion expansion= (IASTPreprocessorMacroExpansion) macro3ref.getParent();
+		assertSame(expansion, refs[0].getParent());
+		assertSame(fTu, expansion.getParent());
+		assertSame(macro3ref, expansion.getMacroReference());
+		assertEquals(2, expansion.getNestedMacroReferences().length);
+		fTu.copy();
+		assertSame(expansion, macro3ref.getParent());
+		assertSame(fTu, macro3ref.getTranslationUnit());
 	}
 	
 	public void testContexts() {
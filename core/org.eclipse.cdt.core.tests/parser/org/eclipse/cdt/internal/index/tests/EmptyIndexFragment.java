@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Symbian Software Ltd. and others.
+ * Copyright (c) 2007, 2017 Symbian Software Ltd. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,9 @@ public class EmptyIndexFragment implements IIndexFragment {
 	@Override
 	public void acquireReadLock() throws InterruptedException {}
 
+	@Override
+	public void acquireSnapshotReadLock() throws InterruptedException {}
+
 	@Override
 	public IIndexFragmentBinding adaptBinding(IBinding binding) {
 		return null;
@@ -115,6 +118,16 @@ public class EmptyIndexFragment implements IIndexFragment {
 		return 0;
 	}
 
+	@Override
+	public long getCacheEvictions() {
+		return 0;
+	}
+
+	@Override
+	public long getDirtyChunkFlushes() {
+		return 0;
+	}
+
 	@Override
 	@Deprecated
 	public IIndexFragmentFile getFile(int linkageID, IIndexFileLocation location)
@@ -631,6 +631,39 @@ public class IndexIncludeTest extends IndexTestBase {
 		}
 	}
 
+	public void testParallelParsing() throws Exception {
+		final int sourceCount= 7;
+		IFile header= TestSourceReader.createFile(fProject.getProject(), "shared_20171018.h",
+				"#pragma once\nint shared_20171018;\n");
+		for (int i = 0; i < sourceCount; i++) {
+			TestSourceReader.createFile(fProject.getProject(), "source" + i + "_20171018.cpp",
+					"#include \"shared_20171018.h\"\nint source" + i + "_20171018;\n");
+		}
+		IndexerPreferences.set(fProject.getProject(), IndexerPreferences.KEY_INDEXER_PARSER_THREADS, "3");
+		try {
+			CCorePlugin.getIndexManager().reindex(fProject);
+			waitForIndexer();
+
+			fIndex.acquireReadLock();
+			try {
+				for (int i = 0; i < sourceCount; i++) {
+					assertEquals(1, fIndex.findBindings(("source" + i + "_20171018").toCharArray(),
+							IndexFilter.ALL, npm()).length);
+				}
+				assertEquals(1, fIndex.findBindings("shared_20171018".toCharArray(), IndexFilter.ALL, npm()).length);
+				IIndexFile[] indexFiles=
+						fIndex.getFiles(ILinkage.CPP_LINKAGE_ID, IndexLocationFactory.getWorkspaceIFL(header));
+				assertEquals(1, indexFiles.length);
+				assertEquals(sourceCount, fIndex.findIncludedBy(indexFiles[0]).length);
+			} finally {
+				fIndex.releaseReadLock();
+			}
+		} finally {
+			IndexerPreferences.set(fProject.getProject(), IndexerPreferences.KEY_INDEXER_PARSER_THREADS,
+					String.valueOf(IndexerPreferences.DEFAULT_PARSER_THREADS));
+		}
+	}
+
 	private void standardCheckUpdateIncludes(IFile header, IFile s1, String tag) throws Exception {
 		fIndex.acquireReadLock();
 		try {
@@ -1431,6 +1431,35 @@ public class IndexUpdateTests extends IndexTestBase {
 		}
 	}
 
+	// void keptFunction(int sharedName);
+
+	// void changedFunction(int sharedName);
+
+	// void changedFunction(char otherNames);
+	public void testDeletingParameterWithSharedName() throws Exception {
+		setupHeader(3, false);
+		setupFile(3, false);
+		checkParameterName("keptFunction", "sharedName");
+		checkParameterName("changedFunction", "sharedName");
+		// Replaces the parameter of changedFunction, the name of the old parameter is deleted.
+		updateFile();
+		checkParameterName("changedFunction", "otherNames");
+		checkParameterName("keptFunction", "sharedName");
+	}
+
+	private void checkParameterName(String function, String name) throws Exception {
+		fIndex.acquireReadLock();
+		try {
+			IFunction func = (IFunction) findBinding(function);
+			assertNotNull(func);
+			IParameter[] params= func.getParameters();
+			assertEquals(1, params.length);
+			assertEquals(name, params[0].getName());
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
 	// struct S {};
 
 	// struct S {S(int){}};
@@ -117,6 +117,43 @@ public class BTreeTests extends BaseTestCase {
 		}
 	}
 
+	/**
+	 * Build B-trees of various sizes and degrees with {@link BTree#insertAll(long[])}
+	 * and use TreeSet as a reference implementation to check behaviour against.
+	 * @throws Exception
+	 */
+	public void testInsertAll() throws Exception {
+		Random random = new Random(90210);
+		int[] sizes = { 0, 1, 2, 3, 7, 15, 16, 17, 100, 1000, 20000 };
+		for (int degree = 2; degree <= 8; degree += 3) {
+			for (int size : sizes) {
+				init(degree);
+				try {
+					SortedSet expected = new TreeSet();
+					long[] records = new long[size];
+					for (int i = 0; i < size; i++) {
+						// Produce some duplicates, only the first one is inserted.
+						Integer value = random.nextInt(size * 2 + 1);
+						expected.add(value);
+						records[i] = new BTMockRecord(db, value.intValue()).getRecord();
+					}
+					btree.insertAll(records);
+					assertBTreeMatchesSortedSet("[degree " + degree + ", size " + size + "] ", btree, expected);
+					assertBTreeInvariantsHold("[degree " + degree + ", size " + size + "] ");
+
+					// Inserting into a non-empty tree falls back to single insertions.
+					Integer value = size * 2 + 1;
+					expected.add(value);
+					btree.insertAll(new long[] { new BTMockRecord(db, value.intValue()).getRecord() });
+					assertBTreeMatchesSortedSet("[degree " + degree + ", size " + size + "] ", btree, expected);
+					assertBTreeInvariantsHold("[degree " + degree + ", size " + size + "] ");
+				} finally {
+					finish();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Insert/Delete a random number of records into/from the B-tree
 	 * @param seed the seed for obtaining the deterministic random testing
@@ -215,6 +252,7 @@ public class BTreeTests extends BaseTestCase {
 				return true;
 			}
 		});
+		assertFalse(msg + " Sizes different", i.hasNext());
 	}
 
 	private static class BTMockRecord {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2014 QNX Software Systems
+ * Copyright (c) 2005, 2017 QNX Software Systems
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -142,6 +142,231 @@ public class DatabaseTest extends BaseTestCase {
 		assertEquals(mem2, mem1);
 	}
 
+	public void testSnapshotRead() throws Exception {
+		final long mem1= db.malloc(8);
+		final long mem2= db.malloc(Database.MAX_MALLOC_SIZE);
+		db.putLong(mem1, 1);
+		db.putLong(mem2, 1);
+		db.giveUpExclusiveLock(true);
+		db.setSnapshotReadsEnabled(true);
+
+		db.setExclusiveLock();
+		db.putLong(mem1, 2);
+		// The reader sees the contents the database had when the write session started.
+		assertEquals(1, readSnapshot(mem1));
+		assertEquals(1, readSnapshot(mem2));
+		assertEquals(2, db.getLong(mem1));
+		// Chunks are preserved also after the reader accessed them.
+		db.putLong(mem2, 2);
+		final long mem3= db.malloc(8);
+		db.putLong(mem3, 2);
+		assertEquals(1, readSnapshot(mem2));
+		assertEquals(2, db.getLong(mem2));
+		// Flushing does not end the write session.
+		db.flush();
+		db.putLong(mem1, 3);
+		assertEquals(1, readSnapshot(mem1));
+		db.giveUpExclusiveLock(true);
+
+		assertEquals(3, readSnapshot(mem1));
+		assertEquals(2, readSnapshot(mem3));
+		db.setExclusiveLock();
+		db.putLong(mem3, 3);
+		assertEquals(2, readSnapshot(mem3));
+		assertEquals(3, db.getLong(mem3));
+	}
+
+	public void testSnapshotBudget() throws Exception {
+		// A cache of 16 chunks allows 4 preserved chunks.
+		db.close();
+		db= new Database(db.getLocation(), new ChunkCache(16 * Database.CHUNK_SIZE), 0, false);
+		db.setExclusiveLock();
+		final long[] records= new long[8];
+		for (int i= 0; i < records.length; i++) {
+			records[i]= db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putLong(records[i], 1);
+		}
+		db.giveUpExclusiveLock(true);
+		db.setSnapshotReadsEnabled(true);
+
+		// Chunks are preserved beyond the budget while a reader uses the snapshot.
+		db.setExclusiveLock();
+		db.putLong(records[0], 2);
+		final boolean[] started= new boolean[1];
+		final Object lock= new Object();
+		final long[] values= new long[records.length];
+		Thread reader= new Thread() {
+			@Override
+			public void run() {
+				boolean snapshot= db.beginSnapshotRead();
+				try {
+					synchronized (lock) {
+						started[0]= true;
+						lock.notifyAll();
+						while (started[0])
+							lock.wait();
+					}
+					for (int i= 0; snapshot && i < records.length; i++) {
+						values[i]= db.getLong(records[i]);
+					}
+				} catch (Exception e) {
+				} finally {
+					if (snapshot) {
+						db.endSnapshotRead();
+					}
+				}
+			}
+		};
+		reader.start();
+		synchronized (lock) {
+			while (!started[0])
+				lock.wait();
+		}
+		for (long record : records) {
+			db.putLong(record, 2);
+		}
+		synchronized (lock) {
+			started[0]= false;
+			lock.notifyAll();
+		}
+		reader.join();
+		for (long value : values) {
+			assertEquals(1, value);
+		}
+		db.giveUpExclusiveLock(true);
+
+		// Without a reader, the snapshot is dropped once it exceeds the budget.
+		db.setExclusiveLock();
+		for (int i= 0; i < 4; i++) {
+			db.putLong(records[i], 3);
+		}
+		assertEquals(2, readSnapshot(records[3]));
+		for (long record : records) {
+			db.putLong(record, 3);
+		}
+		assertFalse(db.beginSnapshotRead());
+		db.giveUpExclusiveLock(true);
+		assertEquals(3, readSnapshot(records[7]));
+		db.setExclusiveLock();
+	}
+
+	private long readSnapshot(final long offset) throws Exception {
+		final long[] result= new long[1];
+		final Exception[] exception= new Exception[1];
+		Thread reader= new Thread() {
+			@Override
+			public void run() {
+				if (!db.beginSnapshotRead()) {
+					exception[0]= new IllegalStateException("snapshot closed");
+					return;
+				}
+				try {
+					result[0]= db.getLong(offset);
+				} catch (CoreException e) {
+					exception[0]= e;
+				} finally {
+					db.endSnapshotRead();
+				}
+			}
+		};
+		reader.start();
+		reader.join();
+		if (exception[0] != null)
+			throw exception[0];
+		return result[0];
+	}
+
+	public void testMappedStorage() throws Exception {
+		final int count= 3 * Database.CHUNK_SIZE / 8;
+		long[] records= new long[count];
+		for (int i= 0; i < count; i++) {
+			records[i]= db.malloc(8);
+			db.putLong(records[i], i * 31L);
+		}
+		db.flush();
+		db.close();
+
+		// The file of a writable database is never mapped, it may have to be truncated.
+		db= new Database(db.getLocation(), new ChunkCache(), 0, false, 2 * Database.CHUNK_SIZE);
+		db.setExclusiveLock();
+		assertEquals(31L, db.getLong(records[1]));
+		assertEquals(0, db.getMappedSizeBytes());
+		db.close();
+
+		// Use segments smaller than the file, such that both mapped and unmapped reads happen.
+		db= new Database(db.getLocation(), new ChunkCache(), 0, true, 2 * Database.CHUNK_SIZE);
+		db.setLocked(true);
+		for (int i= 0; i < count; i++) {
+			assertEquals(i * 31L, db.getLong(records[i]));
+		}
+		assertTrue(db.getMappedSizeBytes() > 0);
+		assertTrue(db.getMappedSizeBytes() <= db.getSizeBytes());
+		db.setExclusiveLock();
+	}
+
+	public void testScanResistantCache() throws Exception {
+		final int count= 200;
+		final int hotCount= 8;
+		long[] records= new long[count];
+		for (int i= 0; i < count; i++) {
+			records[i]= db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putLong(records[i], i);
+		}
+		db.flush();
+		assertTrue(db.getDirtyChunkFlushes() >= count);
+		db.close();
+
+		db= new Database(db.getLocation(), new ChunkCache(32 * Database.CHUNK_SIZE,
+				ChunkCache.Policy.SEGMENTED_LRU), 0, true);
+		db.setLocked(true);
+		for (int j= 0; j < 3; j++) {
+			for (int i= 0; i < hotCount; i++) {
+				assertEquals(i, db.getLong(records[i]));
+			}
+		}
+
+		// A scan touching each chunk once must not evict the chunks used repeatedly.
+		db.resetCacheCounters();
+		for (int i= hotCount; i < count; i++) {
+			assertEquals(i, db.getLong(records[i]));
+			assertEquals(i, db.getLong(records[i]));
+		}
+		assertEquals(count - hotCount, db.getCacheMisses());
+		assertTrue(db.getCacheEvictions() > 0);
+
+		db.resetCacheCounters();
+		for (int i= 0; i < hotCount; i++) {
+			assertEquals(i, db.getLong(records[i]));
+		}
+		assertEquals(0, db.getCacheMisses());
+		assertEquals(hotCount, db.getCacheHits());
+		db.setExclusiveLock();
+	}
+
+	public void testEvictedLockedChunkIsCachedAgain() throws Exception {
+		db.close();
+		db= new Database(db.getLocation(), new ChunkCache(4 * Database.CHUNK_SIZE), 0, false);
+		db.setExclusiveLock();
+		long record= db.malloc(Database.MAX_MALLOC_SIZE);
+		db.putLong(record, 42);
+		// Evicts the chunk of the record, it stays in the database since it is locked.
+		for (int i= 0; i < 16; i++) {
+			db.putLong(db.malloc(Database.MAX_MALLOC_SIZE), i);
+		}
+		db.resetCacheCounters();
+		assertEquals(42, db.getLong(record));
+		assertEquals(0, db.getCacheMisses());
+
+		// The chunk was put back into the cache, it is kept when the write lock is released.
+		db.giveUpExclusiveLock(true);
+		db.setLocked(true);
+		db.resetCacheCounters();
+		assertEquals(42, db.getLong(record));
+		assertEquals(0, db.getCacheMisses());
+		assertEquals(1, db.getCacheHits());
+		db.setExclusiveLock();
+	}
+
 	private static class FindVisitor implements IBTreeVisitor {
 		private Database db;
 		private String key;
@@ -226,6 +451,35 @@ public class DatabaseTest extends BaseTestCase {
 		}
 	}
 
+	public void testSharedStrings() throws Exception {
+		db.setStringTable(Database.DATA_AREA);
+
+		IString a1 = db.newSharedString("shared".toCharArray());
+		IString a2 = db.newSharedString("shared".toCharArray());
+		IString b = db.newSharedString("other \u1234".toCharArray());
+		IString c = db.newString("shared");
+		assertEquals(a1.getRecord(), a2.getRecord());
+		assertTrue(a1.getRecord() != b.getRecord());
+		assertTrue(a1.getRecord() != c.getRecord());
+		assertEquals("shared".hashCode(), a1.hashCode());
+		assertEquals(a1, c);
+
+		a1.delete();
+		assertEquals("shared", db.getString(a2.getRecord()).getString());
+		assertEquals("other \u1234", db.getString(b.getRecord()).getString());
+
+		// Plain strings are not counted as references.
+		c.delete();
+		assertEquals("shared", db.getString(a2.getRecord()).getString());
+
+		// The last reference frees the string, a new one is stored afresh.
+		a2.delete();
+		IString a3 = db.newSharedString("shared".toCharArray());
+		assertEquals("shared", a3.getString());
+		a3.delete();
+		b.delete();
+	}
+
 	private final int GT = 1, LT = -1, EQ = 0;
 
 	public void testShortStringComparison() throws CoreException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -209,6 +209,45 @@ public class PDOMCPPBugsTest extends BaseTestCase {
 		pdom.releaseWriteLock();
 	}
 
+	public void testSnapshotReadLock() throws Exception {
+		final WritablePDOM pdom= (WritablePDOM) CCoreInternals.getPDOMManager().getPDOM(cproject);
+		pdom.setSnapshotReadsEnabled(true);
+		final String[] value= {"none"};
+		Thread reader= new Thread() {
+			@Override
+			public void run() {
+				try {
+					pdom.acquireSnapshotReadLock();
+					try {
+						value[0]= pdom.getProperty("snapshot");
+					} finally {
+						pdom.releaseReadLock();
+					}
+				} catch (Exception e) {
+				}
+			}
+		};
+		pdom.acquireWriteLock(null);
+		try {
+			pdom.setProperty("snapshot", "written");
+			// The reader does not wait for the write lock and sees the index without the change.
+			reader.start();
+			reader.join(10000);
+			assertFalse("reader was blocked", reader.isAlive());
+			assertNull(value[0]);
+			assertEquals("written", pdom.getProperty("snapshot"));
+		} finally {
+			pdom.releaseWriteLock();
+		}
+		pdom.acquireSnapshotReadLock();
+		try {
+			assertEquals("written", pdom.getProperty("snapshot"));
+		} finally {
+			pdom.releaseReadLock();
+		}
+		pdom.setSnapshotReadsEnabled(PDOM.SNAPSHOT_READS);
+	}
+
 	public void test191679() throws Exception {
 		IProject project= cproject.getProject();
 		IFolder cHeaders= cproject.getProject().getFolder("cHeaders");
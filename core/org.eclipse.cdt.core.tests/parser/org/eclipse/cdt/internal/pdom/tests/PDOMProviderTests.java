@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,18 +14,24 @@ package org.eclipse.cdt.internal.pdom.tests;
 import static org.eclipse.cdt.core.testplugin.CProjectHelper.createCCProject;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.net.URI;
 
 import junit.framework.Test;
 
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassType;
 import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexFile;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.index.IIndexInclude;
 import org.eclipse.cdt.core.index.IIndexLocationConverter;
 import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.index.IndexLocationFactory;
 import org.eclipse.cdt.core.index.ResourceContainerRelativeLocationConverter;
 import org.eclipse.cdt.core.index.URIRelativeLocationConverter;
 import org.eclipse.cdt.core.index.provider.IPDOMDescriptor;
@@ -35,11 +41,14 @@ import org.eclipse.cdt.core.model.LanguageManager;
 import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
 import org.eclipse.cdt.core.settings.model.ICProjectDescription;
 import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.TestScannerProvider;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
 import org.eclipse.cdt.internal.core.CCoreInternals;
 import org.eclipse.cdt.internal.core.index.provider.IndexProviderManager;
+import org.eclipse.cdt.internal.core.index.provider.LibraryFragmentProvider;
 import org.eclipse.cdt.internal.core.index.provider.ReadOnlyPDOMProviderBridge;
 import org.eclipse.cdt.internal.core.pdom.WritablePDOM;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -308,4 +317,58 @@ public class PDOMProviderTests extends PDOMTestBase {
 			assertEquals(0, ipm.getProvidedIndexFragments(pd.getActiveConfiguration(), -1).length);
 		}
 	}
+
+	public void testLibraryFragment() throws Exception {
+		File includeDir= CProjectHelper.freshDir();
+		File header= new File(includeDir, "lib.h");
+		FileWriter writer= new FileWriter(header);
+		writer.write("class LibClass {};\n");
+		writer.close();
+		TestScannerProvider.sIncludes= new String[] { includeDir.getAbsolutePath() };
+
+		File folder= LibraryFragmentProvider.getDefaultFolder();
+		folder.mkdirs();
+		File library= new File(folder, "lib" + System.currentTimeMillis() + ".pdom");
+		deleteOnTearDown(library);
+		{
+			ICProject cproject= createCCProject("foo" + System.currentTimeMillis(), null, IPDOMManager.ID_FAST_INDEXER);
+			TestSourceReader.createFile(cproject.getProject(), new Path("/source.cpp"), "#include <lib.h>\nLibClass a;\n");
+			waitForIndexer(cproject);
+			LibraryFragmentProvider.exportLibrary(cproject, library, new String[] { includeDir.getAbsolutePath() }, npm());
+			assertTrue(library.exists());
+			assertFalse(new File(folder, library.getName() + ".tmp").exists());
+			CProjectHelper.delete(cproject);
+		}
+
+		ICProject cproject2= createCCProject("bar" + System.currentTimeMillis(), null, IPDOMManager.ID_FAST_INDEXER);
+		IFile source= TestSourceReader.createFile(cproject2.getProject(), new Path("/source.cpp"), "#include <lib.h>\nLibClass b;\n");
+		waitForIndexer(cproject2);
+
+		IIndexFileLocation headerLocation= IndexLocationFactory.getExternalIFL(header.getAbsolutePath());
+		IIndex index= CCorePlugin.getIndexManager().getIndex(cproject2);
+		index.acquireReadLock();
+		try {
+			// The header is provided by the library
+			IBinding[] bindings= index.findBindings("LibClass".toCharArray(), IndexFilter.ALL, npm());
+			assertEquals(1, bindings.length);
+			IIndexFile[] files= index.getFiles(ILinkage.CPP_LINKAGE_ID, IndexLocationFactory.getWorkspaceIFL(source));
+			assertEquals(1, files.length);
+			IIndexInclude[] includes= files[0].getIncludes();
+			assertEquals(1, includes.length);
+			assertTrue(includes[0].isResolved());
+			assertEquals(headerLocation, includes[0].getIncludesLocation());
+		} finally {
+			index.releaseReadLock();
+		}
+
+		// The header was not parsed for the project, and is not stored in its PDOM
+		WritablePDOM pdom= (WritablePDOM) CCoreInternals.getPDOMManager().getPDOM(cproject2);
+		pdom.acquireReadLock();
+		try {
+			assertEquals(1, pdom.getFiles(IndexLocationFactory.getWorkspaceIFL(source)).length);
+			assertEquals(0, pdom.getFiles(headerLocation).length);
+		} finally {
+			pdom.releaseReadLock();
+		}
+	}
 }
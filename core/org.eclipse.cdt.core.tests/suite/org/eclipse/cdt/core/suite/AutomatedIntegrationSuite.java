@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import org.eclipse.cdt.core.cdescriptor.tests.CDescriptorTests;
 import org.eclipse.cdt.core.envvar.IEnvironmentVariableManagerTests;
 import org.eclipse.cdt.core.internal.efsextension.tests.EFSExtensionTests;
 import org.eclipse.cdt.core.internal.errorparsers.tests.ErrorParserTests;
+import org.eclipse.cdt.core.internal.tests.DirectoryContentCacheTests;
 import org.eclipse.cdt.core.internal.tests.PositionTrackerTests;
 import org.eclipse.cdt.core.internal.tests.ResourceLookupTests;
 import org.eclipse.cdt.core.internal.tests.StringBuilderTest;
@@ -38,6 +39,7 @@ import org.eclipse.cdt.utils.FindProgramLocationTest;
 import org.eclipse.cdt.utils.StorableCdtVariablesTest;
 import org.eclipse.cdt.utils.UNCPathConverterTest;
 import org.eclipse.cdt.utils.WeakHashSetTest;
+import org.eclipse.cdt.utils.elf.ElfTest;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -80,6 +82,7 @@ public class AutomatedIntegrationSuite extends TestSuite {
 		suite.addTest(WorkingCopyTests.suite());
 		suite.addTest(PositionTrackerTests.suite());
 		suite.addTest(ResourceLookupTests.suite());
+		suite.addTest(DirectoryContentCacheTests.suite());
 		suite.addTest(StringBuilderTest.suite());
 		suite.addTest(AllLanguageTests.suite());
 		suite.addTest(RewriteTests.suite());
@@ -90,6 +93,7 @@ public class AutomatedIntegrationSuite extends TestSuite {
 		suite.addTest(FindProgramLocationTest.suite());
 		suite.addTest(EFSExtensionTests.suite());
 		suite.addTest(ByteUtilsTest.suite());
+		suite.addTest(ElfTest.suite());
 		suite.addTest(UNCPathConverterTest.suite());
 		suite.addTest(TestScopeOfBuildConfigResourceChangesPreference.suite());
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Wind River Systems, Inc. and others. All rights reserved.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others. All rights reserved.
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v1.0 which accompanies this distribution,
  * and is available at http://www.eclipse.org/legal/epl-v10.html
@@ -11,14 +11,23 @@
  ******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.ASTNode;
 import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPSemantics;
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -27,9 +36,14 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 
 /**
- * Provides a shared AST of a single translation unit at a time.
+ * Provides shared ASTs of translation units. The AST of the active translation unit is kept
+ * until another translation unit becomes active, the ASTs of other translation units are kept
+ * as long as the estimated memory size of all cached ASTs does not exceed a limit. The least
+ * recently used ASTs are discarded first.
  *
  * @since 4.0
  */
@@ -40,6 +54,12 @@ public class ASTCache {
 	private static final boolean DEBUG= Boolean.parseBoolean(Platform.getDebugOption("org.eclipse.cdt.core/debug/ASTCache"));  //$NON-NLS-1$
 	private static final String DEBUG_PREFIX= "[ASTCache] "; //$NON-NLS-1$
 
+	/**
+	 * Rough estimate of the memory used by an AST per character of the parsed code, including
+	 * the names, bindings and scopes created for the nodes.
+	 */
+	private static final int ESTIMATED_SIZE_PER_CHAR= 50;
+
 	/** Fast parse mode (use PDOM) */
 	public static int PARSE_MODE = ITranslationUnit.AST_SKIP_ALL_HEADERS
 			| ITranslationUnit.AST_CONFIGURE_USING_SOURCE_CONTEXT
@@ -62,27 +82,75 @@ public class ASTCache {
 		IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException;
 	}
 
+	/**
+	 * The cache state of a single translation unit.
+	 */
+	private static class Entry {
+		final ITranslationUnit fTU;
+		/** The cached AST if any */
+		IASTTranslationUnit fAST;
+		/** The estimated memory size of the cached AST */
+		long fSize;
+		/**
+		 * The timestamp of the last index write access at the time
+		 * the AST got cached. A cached AST becomes invalid on any index
+		 * write access afterwards.
+		 */
+		long fLastWriteOnIndex;
+		/**
+		 * The modification stamp of the file at the time the AST got cached.
+		 * A cached AST becomes invalid when the file changes.
+		 */
+		long fResourceStamp;
+		/**
+		 * The modification stamp of the buffer of a working copy at the time the AST got
+		 * cached. A cached AST becomes invalid when the buffer is edited, even if the
+		 * working copy is not reconciled because its editor is not active.
+		 */
+		long fBufferStamp;
+		/** Indicates whether the AST is currently being computed */
+		boolean fIsReconciling;
+		/** The number of clients that pinned the AST */
+		int fPinCount;
+
+		Entry(ITranslationUnit tUnit) {
+			fTU= tUnit;
+		}
+	}
+
 	private final int fParseMode;
 	private final Object fCacheMutex= new Object();
 
+	/** The cache entries, the least recently used one first */
+	private final LinkedHashMap<ITranslationUnit, Entry> fEntries= new LinkedHashMap<>();
 	/** The active translation unit for which to cache the AST */
 	private ITranslationUnit fActiveTU;
-	/** The cached AST if any */
-	private IASTTranslationUnit fAST;
+	/** The estimated memory size the cached ASTs may use */
+	private long fMemoryLimit;
+	/** The estimated memory size of all cached ASTs */
+	private long fCachedSize;
+
+	private long fHitCount;
+	private long fMissCount;
+	private long fEvictionCount;
+	private long fEvictedSize;
+
 	/**
-	 * The timestamp of the last index write access at the time
-	 * the AST got cached. A cached AST becomes invalid on any index
-	 * write access afterwards.
+	 * Create a new AST cache.
 	 */
-	private long fLastWriteOnIndex;
-	/** Indicates whether the AST is currently being computed */
-	private boolean fIsReconciling;
+	public ASTCache() {
+		this(Runtime.getRuntime().maxMemory() / 4);
+	}
 
 	/**
 	 * Create a new AST cache.
+	 *
+	 * @param memoryLimit  the estimated memory size in bytes the cached ASTs may use.
+	 *     The AST of the active translation unit is kept even if it exceeds the limit.
 	 */
-	public ASTCache() {
+	public ASTCache(long memoryLimit) {
 		fParseMode= PARSE_MODE;
+		fMemoryLimit= memoryLimit;
 	}
 
 	/**
@@ -111,48 +179,45 @@ public class ASTCache {
 			final boolean isActiveElement;
 			synchronized (fCacheMutex) {
 				isActiveElement= tUnit.equals(fActiveTU);
-				if (isActiveElement) {
-					if (fAST != null) {
-						// AST is cached
-						if (fLastWriteOnIndex < index.getLastWriteAccess()) {
-							// AST has been invalidated by index write access
-							disposeAST();
-						} else {
-							// cached AST is valid
-							if (DEBUG)
-								System.out.println(DEBUG_PREFIX + getThreadName() + "returning cached AST:" + toString(fAST) + " for: " + tUnit.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
-							return fAST;
-						}
-					}
-					// no cached AST
-					if (!wait) {
-						// no AST, no wait - we are done
+				Entry entry= fEntries.get(tUnit);
+				if (entry != null && entry.fAST != null) {
+					// AST is cached
+					if (entry.fLastWriteOnIndex < index.getLastWriteAccess()
+							|| entry.fResourceStamp != getResourceStamp(tUnit)
+							|| entry.fBufferStamp != getBufferStamp(tUnit)) {
+						// AST has been invalidated by index write access or a change of the file
+						disposeAST(entry);
+					} else {
+						// cached AST is valid
 						if (DEBUG)
-							System.out.println(DEBUG_PREFIX + getThreadName() + "returning null (WAIT_NO) for: " + tUnit.getElementName()); //$NON-NLS-1$
-						return null;
+							System.out.println(DEBUG_PREFIX + getThreadName() + "returning cached AST:" + toString(entry.fAST) + " for: " + tUnit.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+						fHitCount++;
+						touch(entry);
+						return entry.fAST;
 					}
 				}
-				// no cached AST, but wait
-				if (isActiveElement && isReconciling(tUnit)) {
+				// no cached AST
+				if (!wait) {
+					// no AST, no wait - we are done
+					if (DEBUG)
+						System.out.println(DEBUG_PREFIX + getThreadName() + "returning null (WAIT_NO) for: " + tUnit.getElementName()); //$NON-NLS-1$
+					return null;
+				}
+				// no cached AST, but wait. Only the reconciler of the active element is
+				// known to deliver the AST.
+				if (isActiveElement && entry != null && entry.fIsReconciling) {
 					try {
 						// Wait for AST
 						if (DEBUG)
 							System.out.println(DEBUG_PREFIX + getThreadName() + "waiting for AST for: " + tUnit.getElementName()); //$NON-NLS-1$
 						fCacheMutex.wait();
-						// Check whether active element is still valid
-						if (fAST != null) {
-							if (DEBUG)
-								System.out.println(DEBUG_PREFIX + getThreadName() + "...got AST for: " + tUnit.getElementName()); //$NON-NLS-1$
-							return fAST;
-						}
 						// try again
 						continue;
 					} catch (InterruptedException e) {
 						return null; // thread has been interrupted don't compute AST
 					}
-				} else if (!wait) {
-					return null;
 				}
+				fMissCount++;
 			}
 
 			if (isActiveElement)
@@ -170,13 +235,17 @@ public class ASTCache {
 					System.err.println(DEBUG_PREFIX + getThreadName() + "created AST for: " + tUnit.getElementName()); //$NON-NLS-1$
 			} finally {
 				if (isActiveElement) {
-					if (fAST != null) {
+					IASTTranslationUnit cachedAST= getCachedAST(tUnit);
+					if (cachedAST != null) {
 						if (DEBUG)
 							System.out.println(DEBUG_PREFIX + getThreadName() + "Ignore created AST for " + tUnit.getElementName() + "- AST from reconciler is newer"); //$NON-NLS-1$ //$NON-NLS-2$
 						// other reconciler was faster, still need to trigger notify
-						reconciled(fAST, tUnit);
-					} else
+						reconciled(cachedAST, tUnit);
+					} else {
 						reconciled(ast, tUnit);
+					}
+				} else if (ast != null) {
+					cache(ast, tUnit, false);
 				}
 			}
 			return ast;
@@ -203,7 +272,7 @@ public class ASTCache {
 		try {
 			index = CCorePlugin.getIndexManager().getIndex(tUnit.getCProject(),
 					IIndexManager.ADD_EXTENSION_FRAGMENTS_EDITOR);
-			index.acquireReadLock();
+			index.acquireSnapshotReadLock();
 		} catch (CoreException e) {
 			return e.getStatus();
 		} catch (InterruptedException e) {
@@ -284,43 +353,121 @@ public class ASTCache {
 	/**
 	 * Caches the given AST for the given translation unit.
 	 *
-	 * @param ast    the AST
+	 * @param ast    the AST, may be <code>null</code>
 	 * @param tUnit  the translation unit
+	 * @param reconciled  whether the AST is the result of reconciling the translation unit
 	 */
-	private void cache(IASTTranslationUnit ast, ITranslationUnit tUnit) {
-		assert Thread.holdsLock(fCacheMutex);
-		if (fActiveTU != null && !fActiveTU.equals(tUnit)) {
-			if (DEBUG && tUnit != null) // don't report call from disposeAST()
-				System.out.println(DEBUG_PREFIX + getThreadName() + "don't cache AST for inactive: " + toString(tUnit)); //$NON-NLS-1$
-			return;
+	private void cache(IASTTranslationUnit ast, ITranslationUnit tUnit, boolean reconciled) {
+		synchronized (fCacheMutex) {
+			Entry entry= fEntries.get(tUnit);
+			if (entry == null) {
+				if (ast == null)
+					return;
+				entry= new Entry(tUnit);
+			}
+			if (reconciled)
+				entry.fIsReconciling= false;
+
+			if (entry.fAST != ast) {
+				if (DEBUG)
+					System.out.println(DEBUG_PREFIX + getThreadName() + "caching AST: " + toString(ast) + " for: " + toString(tUnit)); //$NON-NLS-1$ //$NON-NLS-2$
+
+				disposeAST(entry);
+				if (ast != null) {
+					entry.fAST= ast;
+					entry.fSize= estimateSize(ast);
+					entry.fLastWriteOnIndex= ast.getIndex().getLastWriteAccess();
+					entry.fResourceStamp= getResourceStamp(tUnit);
+					entry.fBufferStamp= getBufferStamp(tUnit);
+					fCachedSize+= entry.fSize;
+				}
+			}
+			touch(entry);
+			evict();
+
+			// Signal AST change
+			fCacheMutex.notifyAll();
 		}
+	}
 
-		if (DEBUG && (tUnit != null || ast != null)) // don't report call from disposeAST()
-			System.out.println(DEBUG_PREFIX + getThreadName() + "caching AST: " + toString(ast) + " for: " + toString(tUnit)); //$NON-NLS-1$ //$NON-NLS-2$
+	private IASTTranslationUnit getCachedAST(ITranslationUnit tUnit) {
+		synchronized (fCacheMutex) {
+			Entry entry= fEntries.get(tUnit);
+			return entry != null ? entry.fAST : null;
+		}
+	}
 
-		if (fAST != null)
-			disposeAST();
+	/**
+	 * Marks the given entry as the most recently used one.
+	 */
+	private void touch(Entry entry) {
+		assert Thread.holdsLock(fCacheMutex);
+		fEntries.remove(entry.fTU);
+		fEntries.put(entry.fTU, entry);
+	}
 
-		fAST= ast;
-		fLastWriteOnIndex= fAST == null ? 0 : fAST.getIndex().getLastWriteAccess();
+	/**
+	 * Discards the least recently used ASTs until the cached ASTs fit into the memory limit.
+	 * The AST of the active translation unit and pinned ASTs are not discarded. Entries
+	 * that are no longer needed are removed.
+	 */
+	private void evict() {
+		assert Thread.holdsLock(fCacheMutex);
+		for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();) {
+			Entry entry= iterator.next();
+			if (entry.fPinCount > 0 || entry.fTU.equals(fActiveTU))
+				continue;
+			// The AST of a discarded working copy cannot be requested anymore.
+			boolean discarded= entry.fTU.isWorkingCopy() && !entry.fTU.isOpen();
+			if (entry.fAST != null && (fCachedSize > fMemoryLimit || discarded)) {
+				if (DEBUG)
+					System.out.println(DEBUG_PREFIX + getThreadName() + "evicting AST: " + toString(entry.fAST) + " for: " + toString(entry.fTU)); //$NON-NLS-1$ //$NON-NLS-2$
+				fEvictionCount++;
+				fEvictedSize+= entry.fSize;
+				disposeAST(entry);
+			}
+			if (entry.fAST == null && (!entry.fIsReconciling || discarded))
+				iterator.remove();
+		}
+	}
 
-		// Signal AST change
-		fCacheMutex.notifyAll();
+	private void disposeAST(Entry entry) {
+		assert Thread.holdsLock(fCacheMutex);
+		if (entry.fAST != null) {
+			fCachedSize-= entry.fSize;
+			entry.fAST= null;
+			entry.fSize= 0;
+			entry.fLastWriteOnIndex= 0;
+		}
 	}
 
 	/**
-	 * Disposes the cached AST.
+	 * Disposes the cached AST of the active translation unit.
 	 */
 	public void disposeAST() {
 		synchronized (fCacheMutex) {
-			if (fAST == null)
+			Entry entry= fActiveTU != null ? fEntries.get(fActiveTU) : null;
+			if (entry == null || entry.fAST == null)
 				return;
 
 			if (DEBUG)
-				System.out.println(DEBUG_PREFIX + getThreadName() + "disposing AST: " + toString(fAST) + " for: " + toString(fActiveTU)); //$NON-NLS-1$ //$NON-NLS-2$
+				System.out.println(DEBUG_PREFIX + getThreadName() + "disposing AST: " + toString(entry.fAST) + " for: " + toString(fActiveTU)); //$NON-NLS-1$ //$NON-NLS-2$
 
-			fAST= null;
-			cache(null, null);
+			disposeAST(entry);
+			fCacheMutex.notifyAll();
+		}
+	}
+
+	/**
+	 * Disposes all cached ASTs.
+	 */
+	public void disposeAllASTs() {
+		synchronized (fCacheMutex) {
+			for (Entry entry : fEntries.values()) {
+				disposeAST(entry);
+			}
+			evict();
+			fCacheMutex.notifyAll();
 		}
 	}
 
@@ -363,6 +510,8 @@ public class ASTCache {
 
 	/**
 	 * Set the given translation unit as active element to cache an AST for.
+	 * The AST of the previously active element stays in the cache as long
+	 * as it fits into the memory limit.
 	 *
 	 * @param tUnit  the translation unit
 	 */
@@ -371,9 +520,19 @@ public class ASTCache {
 			return;
 		}
 		synchronized (fCacheMutex) {
-			fIsReconciling= false;
 			fActiveTU= tUnit;
-			cache(null, tUnit);
+			if (tUnit != null) {
+				Entry entry= fEntries.get(tUnit);
+				if (entry == null) {
+					entry= new Entry(tUnit);
+				} else {
+					entry.fIsReconciling= false;
+				}
+				touch(entry);
+			}
+			evict();
+			// Signal AST change
+			fCacheMutex.notifyAll();
 		}
 		if (DEBUG)
 			System.out.println(DEBUG_PREFIX + getThreadName() + "active element is: " + toString(tUnit)); //$NON-NLS-1$
@@ -393,7 +552,7 @@ public class ASTCache {
 
 	/**
 	 * Informs that reconciling (computation of the AST) for the given element
-	 * is about to be started.
+	 * is about to be started. The cached AST of the element is discarded.
 	 *
 	 * @param tUnit  the translation unit
 	 */
@@ -402,15 +561,17 @@ public class ASTCache {
 			return;
 
 		synchronized (fCacheMutex) {
-			if (fActiveTU == null || !fActiveTU.equals(tUnit)) {
-				return;
-			}
-
 			if (DEBUG)
 				System.out.println(DEBUG_PREFIX + getThreadName() + "about to reconcile: " + toString(tUnit)); //$NON-NLS-1$
 
-			fIsReconciling= true;
-			cache(null, tUnit);
+			Entry entry= fEntries.get(tUnit);
+			if (entry == null) {
+				entry= new Entry(tUnit);
+				fEntries.put(tUnit, entry);
+			}
+			entry.fIsReconciling= true;
+			disposeAST(entry);
+			fCacheMutex.notifyAll();
 		}
 	}
 
@@ -421,18 +582,12 @@ public class ASTCache {
 	 * @param tUnit  the translation unit
 	 */
 	public void reconciled(IASTTranslationUnit ast, ITranslationUnit tUnit) {
-		synchronized (fCacheMutex) {
-			if (tUnit == null || !tUnit.equals(fActiveTU)) {
-				if (DEBUG)
-					System.out.println(DEBUG_PREFIX + getThreadName() + "ignoring AST of out-dated element"); //$NON-NLS-1$
-				return;
-			}
-			if (DEBUG)
-				System.out.println(DEBUG_PREFIX + getThreadName() + "reconciled: " + toString(tUnit) + ", AST: " + toString(ast)); //$NON-NLS-1$ //$NON-NLS-2$
+		if (tUnit == null)
+			return;
+		if (DEBUG)
+			System.out.println(DEBUG_PREFIX + getThreadName() + "reconciled: " + toString(tUnit) + ", AST: " + toString(ast)); //$NON-NLS-1$ //$NON-NLS-2$
 
-			fIsReconciling= false;
-			cache(ast, tUnit);
-		}
+		cache(ast, tUnit, true);
 	}
 
 	/**
@@ -444,11 +599,130 @@ public class ASTCache {
 	 */
 	public boolean isReconciling(ITranslationUnit tUnit) {
 		synchronized (fCacheMutex) {
-			if (fActiveTU == null || tUnit == null) {
+			if (tUnit == null) {
 				return false;
 			}
-			return fIsReconciling && (fActiveTU.equals(tUnit));
+			Entry entry= fEntries.get(tUnit);
+			return entry != null && entry.fIsReconciling;
+		}
+	}
+
+	/**
+	 * Keeps the AST of the given translation unit in the cache until
+	 * {@link #unpinAST(ITranslationUnit)} is called, for instance for the duration
+	 * of an operation accessing the AST several times. A pinned AST is still
+	 * discarded when it becomes out-of-date.
+	 *
+	 * @param tUnit  the translation unit
+	 */
+	public void pinAST(ITranslationUnit tUnit) {
+		synchronized (fCacheMutex) {
+			Entry entry= fEntries.get(tUnit);
+			if (entry == null) {
+				entry= new Entry(tUnit);
+				fEntries.put(tUnit, entry);
+			}
+			entry.fPinCount++;
+		}
+	}
+
+	/**
+	 * Releases a pin previously obtained by calling {@link #pinAST(ITranslationUnit)}.
+	 *
+	 * @param tUnit  the translation unit
+	 */
+	public void unpinAST(ITranslationUnit tUnit) {
+		synchronized (fCacheMutex) {
+			Entry entry= fEntries.get(tUnit);
+			if (entry == null || entry.fPinCount == 0)
+				throw new IllegalStateException("AST is not pinned: " + toString(tUnit)); //$NON-NLS-1$
+			if (--entry.fPinCount == 0)
+				evict();
+		}
+	}
+
+	/**
+	 * Returns the estimated memory size in bytes of all cached ASTs.
+	 */
+	public long getCachedSize() {
+		synchronized (fCacheMutex) {
+			return fCachedSize;
+		}
+	}
+
+	/**
+	 * Returns the number of requests served from the cache.
+	 */
+	public long getHitCount() {
+		synchronized (fCacheMutex) {
+			return fHitCount;
+		}
+	}
+
+	/**
+	 * Returns the number of requests that required to compute an AST.
+	 */
+	public long getMissCount() {
+		synchronized (fCacheMutex) {
+			return fMissCount;
+		}
+	}
+
+	/**
+	 * Returns the number of ASTs discarded to stay within the memory limit.
+	 */
+	public long getEvictionCount() {
+		synchronized (fCacheMutex) {
+			return fEvictionCount;
+		}
+	}
+
+	/**
+	 * Returns the estimated memory size in bytes of the ASTs discarded to stay
+	 * within the memory limit.
+	 */
+	public long getEvictedSize() {
+		synchronized (fCacheMutex) {
+			return fEvictedSize;
+		}
+	}
+
+	/**
+	 * Estimates the memory used by the given AST from the length of the parsed code, which
+	 * is given by the extent of the top-level declarations. Other than counting the nodes
+	 * this does not need to traverse the AST.
+	 */
+	private static long estimateSize(IASTTranslationUnit ast) {
+		long length= 0;
+		for (IASTDeclaration declaration : ast.getDeclarations(true)) {
+			if (declaration instanceof ASTNode) {
+				ASTNode node= (ASTNode) declaration;
+				length= Math.max(length, node.getOffset() + node.getLength());
+			}
+		}
+		return length * ESTIMATED_SIZE_PER_CHAR;
+	}
+
+	private static long getResourceStamp(ITranslationUnit tUnit) {
+		IResource resource= tUnit.getResource();
+		return resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP;
+	}
+
+	/**
+	 * Returns the modification stamp of the document backing the buffer of a working copy,
+	 * or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP} if there is none.
+	 */
+	private static long getBufferStamp(ITranslationUnit tUnit) {
+		if (tUnit.isWorkingCopy()) {
+			ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(tUnit.getPath(),
+					LocationKind.NORMALIZE);
+			if (buffer != null) {
+				IDocument document= buffer.getDocument();
+				if (document instanceof IDocumentExtension4)
+					return ((IDocumentExtension4) document).getModificationStamp();
+			}
 		}
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 	}
 
 	private static String getThreadName() {
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Remembers across sessions which files of a project are binaries. For each file the header
+ * passed to the binary parsers is recorded, or the fact that none of the parsers accepted the
+ * file. The binary parsers determine the type of a binary and its CPU from the header, when the
+ * size and the modification time of a file did not change the header does not need to be read
+ * again. Non-binary files are skipped altogether.
+ * <p>
+ * The cache is used by the {@link BinaryRunner}, it is thread-safe. The entries are discarded
+ * when the binary parsers of the project change.
+ */
+public final class BinaryFileCache {
+	private static final int VERSION = 1;
+	private static final String CACHE_FOLDER = "binaries"; //$NON-NLS-1$
+	private static final byte[] NOT_A_BINARY = {};
+
+	private static final class Entry {
+		final long fSize;
+		final long fModified;
+		final byte[] fHeader;
+
+		Entry(long size, long modified, byte[] header) {
+			fSize= size;
+			fModified= modified;
+			fHeader= header;
+		}
+	}
+
+	private final File fCacheFile;
+	private final String fParserKey;
+	private final Map<String, Entry> fRecorded= new ConcurrentHashMap<>();
+	private final Map<String, Entry> fCurrent= new ConcurrentHashMap<>();
+
+	/**
+	 * Loads the cache of the given project.
+	 *
+	 * @param project the project
+	 * @param parsers the binary parsers configured for the project
+	 */
+	public BinaryFileCache(IProject project, BinaryParserConfig[] parsers) {
+		fCacheFile= getCacheFile(project);
+		fParserKey= computeParserKey(parsers);
+		load();
+	}
+
+	/**
+	 * Returns the file the cache of the given project is stored in.
+	 */
+	public static File getCacheFile(IProject project) {
+		return CCorePlugin.getDefault().getStateLocation().append(CACHE_FOLDER)
+				.append(project.getName() + ".cache").toFile(); //$NON-NLS-1$
+	}
+
+	private static String computeParserKey(BinaryParserConfig[] parsers) {
+		StringBuilder key= new StringBuilder();
+		int hints= 0;
+		for (BinaryParserConfig parser : parsers) {
+			key.append(parser.getId()).append(',');
+			try {
+				hints= Math.max(hints, parser.getBinaryParser().getHintBufferSize());
+			} catch (CoreException e) {
+			}
+		}
+		return key.append(hints).toString();
+	}
+
+	/**
+	 * Returns the header recorded for the file at the given location, provided the file did not
+	 * change since.
+	 *
+	 * @return the header, or {@code null} if the file is not known. Use {@link #isBinary(byte[])}
+	 *     to check whether one of the binary parsers accepted the file.
+	 */
+	public byte[] getHeader(IPath location) {
+		String key= location.toOSString();
+		Entry entry= fCurrent.get(key);
+		if (entry == null) {
+			entry= fRecorded.get(key);
+		}
+		if (entry != null) {
+			File file= location.toFile();
+			if (file.length() == entry.fSize && file.lastModified() == entry.fModified) {
+				fCurrent.put(key, entry);
+				return entry.fHeader;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a header returned by {@link #getHeader(IPath)} belongs to a binary.
+	 */
+	public static boolean isBinary(byte[] header) {
+		return header != NOT_A_BINARY;
+	}
+
+	/**
+	 * Records the header of a binary file.
+	 */
+	public void putBinary(IPath location, byte[] header) {
+		put(location, header.clone());
+	}
+
+	/**
+	 * Records that none of the binary parsers accepts the file at the given location.
+	 */
+	public void putNotBinary(IPath location) {
+		put(location, NOT_A_BINARY);
+	}
+
+	private void put(IPath location, byte[] header) {
+		File file= location.toFile();
+		fCurrent.put(location.toOSString(), new Entry(file.length(), file.lastModified(), header));
+	}
+
+	private void load() {
+		if (!fCacheFile.isFile())
+			return;
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(fCacheFile)))) {
+			if (in.readInt() != VERSION || !fParserKey.equals(in.readUTF()))
+				return;
+			for (int count= in.readInt(); count > 0; count--) {
+				String key= in.readUTF();
+				long size= in.readLong();
+				long modified= in.readLong();
+				int length= in.readInt();
+				byte[] header= NOT_A_BINARY;
+				if (length >= 0) {
+					header= new byte[length];
+					in.readFully(header);
+				}
+				fRecorded.put(key, new Entry(size, modified, header));
+			}
+		} catch (IOException e) {
+			// The cache is incomplete, the remaining files are read again.
+		}
+	}
+
+	/**
+	 * Stores the entries of the files that were looked up or recorded since the cache was loaded.
+	 */
+	public void save() {
+		File folder= fCacheFile.getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs())
+			return;
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fCacheFile)))) {
+			out.writeInt(VERSION);
+			out.writeUTF(fParserKey);
+			Map<String, Entry> entries= new HashMap<>(fCurrent);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+				Entry entry= mapEntry.getValue();
+				out.writeUTF(mapEntry.getKey());
+				out.writeLong(entry.fSize);
+				out.writeLong(entry.fModified);
+				if (isBinary(entry.fHeader)) {
+					out.writeInt(entry.fHeader.length);
+					out.write(entry.fHeader);
+				} else {
+					out.writeInt(-1);
+				}
+			}
+		} catch (IOException e) {
+			CCorePlugin.log(e);
+		}
+	}
+
+	/**
+	 * Removes the cache of the given project, e.g. because the project is deleted.
+	 */
+	public static void delete(IProject project) {
+		File file= getCacheFile(project);
+		if (file.exists()) {
+			file.delete();
+		}
+	}
+}
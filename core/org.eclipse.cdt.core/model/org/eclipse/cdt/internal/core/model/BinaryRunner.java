@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 QNX Software Systems and others.
+ * Copyright (c) 2000, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,17 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.IBinaryParser.IBinaryFile;
@@ -82,6 +93,12 @@ public class BinaryRunner {
 
 	}
 
+	/**
+	 * Number of threads reading the headers of candidate files, shared by the runners of all projects.
+	 */
+	private static final int DETECTOR_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+	private static ExecutorService detectorExecutor;
+
 	private final ICProject cproject;
 	private final Job runnerJob;		// final fields don't need synchronization
 	private IOutputEntry[] entries = new IOutputEntry[0];
@@ -118,7 +135,9 @@ public class BinaryRunner {
 						// traverse project, but only if at least one binary parser is configured
 						BinaryParserConfig[] parsers = CModelManager.getDefault().getBinaryParser(cproject.getProject());
 						if (parsers.length > 0) {
-							cproject.getProject().accept(new Visitor(monitor), IContainer.INCLUDE_PHANTOMS);
+							Visitor visitor = new Visitor(monitor);
+							cproject.getProject().accept(visitor, IContainer.INCLUDE_PHANTOMS);
+							createBinaries(visitor.candidates, new BinaryFileCache(cproject.getProject(), parsers), monitor);
 						}
 
 						if (!monitor.isCanceled()) {
@@ -173,10 +192,80 @@ public class BinaryRunner {
 		waitIfRunning();
 	}
 
+	/**
+	 * Detects the binaries among the given files on the detector threads, and adds them to the
+	 * binary and archive containers in the order of the list. The cache is saved when all files
+	 * have been checked.
+	 */
+	private void createBinaries(List<IFile> files, final BinaryFileCache cache, final IProgressMonitor monitor) {
+		final CModelManager factory = CModelManager.getDefault();
+		List<Future<IBinaryFile>> futures = new ArrayList<>(files.size());
+		try {
+			for (final IFile file : files) {
+				futures.add(getDetectorExecutor().submit(new Callable<IBinaryFile>() {
+					@Override
+					public IBinaryFile call() {
+						if (monitor.isCanceled()) {
+							return null;
+						}
+						return factory.createBinaryFile(file, cache);
+					}
+				}));
+			}
+			for (int i = 0; i < files.size(); i++) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				IFile file = files.get(i);
+				// give a hint to the user of what we are doing
+				monitor.subTask(file.getName());
+				IBinaryFile bin;
+				try {
+					bin = futures.get(i).get();
+				} catch (ExecutionException e) {
+					CCorePlugin.log(e.getCause());
+					continue;
+				}
+				if (bin != null) {
+					// Create the file will add it to the {Archive,Binary}Container.
+					factory.create(file, bin, cproject);
+				}
+			}
+			cache.save();
+		} catch (InterruptedException e) {
+			// The job is being stopped.
+		} finally {
+			for (Future<IBinaryFile> future : futures) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private static synchronized ExecutorService getDetectorExecutor() {
+		if (detectorExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(DETECTOR_THREADS, DETECTOR_THREADS,
+					10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Binary Detector " + count.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			// Threads are not kept around once the projects have been scanned.
+			executor.allowCoreThreadTimeOut(true);
+			detectorExecutor = executor;
+		}
+		return detectorExecutor;
+	}
+
 	private class Visitor implements IResourceProxyVisitor {
 		private final IProgressMonitor vMonitor;
 		private final IProject project;
 		private final IContentType textContentType;
+		final List<IFile> candidates = new ArrayList<>();
 
 		public Visitor(IProgressMonitor monitor) {
 			vMonitor = monitor;
@@ -214,21 +303,12 @@ public class BinaryRunner {
 				}
 			}
 
-			// give a hint to the user of what we are doing
-			vMonitor.subTask(name);
-
-			// we have a candidate
+			// we have a candidate, the headers of the candidates are read in parallel
 			IPath path = proxy.requestFullPath();
 			if (path != null) {
 				for (IOutputEntry entrie : entries) {
 					if (isOnOutputEntry(entrie, path)) {
-						IFile file = (IFile) proxy.requestResource();
-						CModelManager factory = CModelManager.getDefault();
-						IBinaryFile bin = factory.createBinaryFile(file);
-						if (bin != null) {
-							// Create the file will add it to the {Archive,Binary}Container.
-							factory.create(file, bin, cproject);
-						}
+						candidates.add((IFile) proxy.requestResource());
 						return true;
 					}
 				}
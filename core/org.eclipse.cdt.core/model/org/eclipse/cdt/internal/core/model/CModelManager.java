@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 QNX Software Systems and others.
+ * Copyright (c) 2000, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -669,6 +669,14 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 	}
 
 	public IBinaryFile createBinaryFile(IFile file) {
+		return createBinaryFile(file, null);
+	}
+
+	/**
+	 * Same as {@link #createBinaryFile(IFile)}. The header of the file is taken from the given
+	 * cache if the file did not change since it was recorded, the result is recorded in the cache.
+	 */
+	public IBinaryFile createBinaryFile(IFile file, BinaryFileCache cache) {
 		BinaryParserConfig[] parsers = getBinaryParser(file.getProject());
 		if (parsers.length == 0) {
 			return null;
@@ -723,63 +731,79 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 			//return null;
 		}
 
-		int hints = 0;
+		IPath location = file.getLocation();
+		if (location == null) {
+			cache = null;
+		}
+		byte[] bytes = cache != null ? cache.getHeader(location) : null;
+		if (bytes != null) {
+			if (!BinaryFileCache.isBinary(bytes)) {
+				return null;
+			}
+		} else {
+			int hints = 0;
 
-		for (BinaryParserConfig parser2 : parsers) {
-			IBinaryParser parser = null;
-			try {
-				parser = parser2.getBinaryParser();
-				if (parser.getHintBufferSize() > hints) {
-					hints = Math.max(hints, parser.getHintBufferSize());
+			for (BinaryParserConfig parser2 : parsers) {
+				IBinaryParser parser = null;
+				try {
+					parser = parser2.getBinaryParser();
+					if (parser.getHintBufferSize() > hints) {
+						hints = Math.max(hints, parser.getHintBufferSize());
+					}
+				} catch (CoreException e) {
 				}
-			} catch (CoreException e) {
 			}
-		}
-		byte[] bytes = new byte[hints];
-		if (hints > 0) {
-			InputStream is = null;
-			try {
-				is = file.getContents();
-				int count = 0;
-				// Make sure we read up to 'hints' bytes if we possibly can
-				while (count < hints) {
-					int bytesRead = is.read(bytes, count, hints - count);
-					if (bytesRead < 0)
-						break;
-					count += bytesRead;
-				}
-				if (count > 0 && count < bytes.length) {
-					byte[] array = new byte[count];
-					System.arraycopy(bytes, 0, array, 0, count);
-					bytes = array;
-				}
-			} catch (CoreException | IOException e) {
-				return null;
-			} finally {
-				if (is != null) {
-					try {
-						is.close();
-					} catch (IOException e) {
-						// ignore
+			bytes = new byte[hints];
+			if (hints > 0) {
+				InputStream is = null;
+				try {
+					is = file.getContents();
+					int count = 0;
+					// Make sure we read up to 'hints' bytes if we possibly can
+					while (count < hints) {
+						int bytesRead = is.read(bytes, count, hints - count);
+						if (bytesRead < 0)
+							break;
+						count += bytesRead;
+					}
+					if (count > 0 && count < bytes.length) {
+						byte[] array = new byte[count];
+						System.arraycopy(bytes, 0, array, 0, count);
+						bytes = array;
+					}
+				} catch (CoreException | IOException e) {
+					return null;
+				} finally {
+					if (is != null) {
+						try {
+							is.close();
+						} catch (IOException e) {
+							// ignore
+						}
 					}
 				}
 			}
 		}
 
-		IPath location = file.getLocation();
-
+		boolean accepted = false;
 		for (BinaryParserConfig parser2 : parsers) {
 			try {
 				IBinaryParser parser = parser2.getBinaryParser();
 				if (parser.isBinary(bytes, location)) {
+					accepted = true;
     			    IBinaryFile binFile = parser.getBinary(bytes, location);
     			    if (binFile != null) {
+    			    	if (cache != null)
+    			    		cache.putBinary(location, bytes);
     			    	return binFile;
     			    }
 				}
 			} catch (IOException | CoreException e) {
 			}
 		}
+		if (!accepted && cache != null) {
+			cache.putNotBinary(location);
+		}
 		return null;
 	}
 
@@ -1406,6 +1430,7 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 		binaryParsersMap.remove(project);
 		// Stop the binary runner for this project
 		removeBinaryRunner(project);
+		BinaryFileCache.delete(project);
 	}
 
 	private void preCloseProject(IProject project) {
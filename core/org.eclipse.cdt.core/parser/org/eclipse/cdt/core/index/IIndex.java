@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -98,7 +98,24 @@ public interface IIndex {
 	public void acquireReadLock() throws InterruptedException;
 
 	/**
-	 * Any lock obtained by {@link #acquireReadLock()} must be released.
+	 * Obtains a read lock that does not wait for the indexer to release its write lock. While the
+	 * indexer holds the write lock, the index appears to the caller as it was before the indexer
+	 * acquired the lock. The lock has to be released by the same thread using
+	 * {@link #releaseReadLock()}. Nested read locks obtained by the thread see the same state
+	 * of the index.
+	 * <p>
+	 * This is intended for short, interactive requests. The indexer cannot acquire the write
+	 * lock again before the lock is released. If snapshots are not enabled, or the snapshot of
+	 * the current write session is no longer available, the method waits for the write lock to
+	 * be released like {@link #acquireReadLock()}.
+	 * @see #acquireReadLock()
+	 * @since 6.5
+	 */
+	public void acquireSnapshotReadLock() throws InterruptedException;
+
+	/**
+	 * Any lock obtained by {@link #acquireReadLock()} or {@link #acquireSnapshotReadLock()} must be
+	 * released.
 	 */
 	public void releaseReadLock();
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -253,9 +253,32 @@ public class CPPTemplates {
 
 	/**
 	 * Instantiates a class template with the given arguments. May return {@code null}.
+	 * The results are remembered in the instantiation memo of the translation unit.
 	 */
 	private static IBinding instantiate(ICPPPartiallySpecializable template, ICPPTemplateArgument[] args,
 			boolean isDefinition, boolean isExplicitSpecialization) {
+		InstantiationMemo memo= InstantiationMemo.getCurrent();
+		if (memo != null && isExplicitSpecialization)
+			memo.invalidate(template);
+		if (memo == null || isDefinition || isExplicitSpecialization
+				|| template instanceof ICPPTemplateTemplateParameter || hasDependentArgument(args)) {
+			return instantiateWithoutMemo(template, args, isDefinition, isExplicitSpecialization);
+		}
+
+		String key= InstantiationMemo.createKey(args);
+		IBinding result= memo.get(template, key);
+		if (result == null) {
+			result= instantiateWithoutMemo(template, args, false, false);
+			memo.put(template, key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Instantiates a class template with the given arguments. May return {@code null}.
+	 */
+	private static IBinding instantiateWithoutMemo(ICPPPartiallySpecializable template,
+			ICPPTemplateArgument[] args, boolean isDefinition, boolean isExplicitSpecialization) {
 		try {
 			ICPPTemplateArgument[] arguments= SemanticUtil.getSimplifiedArguments(args);
 			// Add default arguments, if necessary.
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.dom.parser.cpp.semantics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.ASTTypeUtil;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IProblemBinding;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPPartiallySpecializable;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateArgument;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.index.IIndexType;
+
+/**
+ * Remembers the results of instantiating class and variable templates while the bindings of
+ * a translation unit are resolved. Instantiating a template again with the same arguments does
+ * not need to repeat the completion of the arguments and the selection of a partial
+ * specialization. Instantiation memos are cached in the AST.
+ * <p>
+ * The arguments are canonicalized by their normalized signature, like the instance caches of
+ * the templates do. The results for a template are no longer used once partial or explicit
+ * specializations of the template are added.
+ */
+public class InstantiationMemo {
+	private static final class Entry {
+		final IBinding fResult;
+		final int fPartialSpecializationCount;
+
+		Entry(IBinding result, int partialSpecializationCount) {
+			fResult= result;
+			fPartialSpecializationCount= partialSpecializationCount;
+		}
+	}
+
+	private final Map<ICPPPartiallySpecializable, Map<String, Entry>> fEntries= new HashMap<>();
+	private int fHits;
+	private int fMisses;
+
+	/**
+	 * Returns the memo of the translation unit containing the current lookup point, or
+	 * {@code null} if there is no lookup point.
+	 */
+	public static InstantiationMemo getCurrent() {
+		IASTNode point= CPPSemantics.getCurrentLookupPoint();
+		if (point != null && point.getTranslationUnit() instanceof CPPASTTranslationUnit) {
+			return ((CPPASTTranslationUnit) point.getTranslationUnit()).getInstantiationMemo();
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the canonical form of the given template arguments.
+	 */
+	static String createKey(ICPPTemplateArgument[] args) {
+		StringBuilder buf= new StringBuilder(ASTTypeUtil.getArgumentListString(args, true));
+		// Types from the index may differ from AST types with the same signature.
+		buf.append(':');
+		for (ICPPTemplateArgument arg : args) {
+			buf.append(arg.getTypeValue() instanceof IIndexType ? 'i' : 'a');
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Returns the remembered result of instantiating the given template with the arguments
+	 * described by the given key, or {@code null} if it is not known.
+	 */
+	IBinding get(ICPPPartiallySpecializable template, String key) {
+		Map<String, Entry> entries= fEntries.get(template);
+		Entry entry= entries != null ? entries.get(key) : null;
+		if (entry != null) {
+			if (entry.fPartialSpecializationCount == getPartialSpecializationCount(template)) {
+				fHits++;
+				return entry.fResult;
+			}
+			entries.clear();
+		}
+		fMisses++;
+		return null;
+	}
+
+	/**
+	 * Remembers the result of instantiating the given template with the arguments described
+	 * by the given key.
+	 */
+	void put(ICPPPartiallySpecializable template, String key, IBinding result) {
+		if (result == null || result instanceof IProblemBinding)
+			return;
+		Map<String, Entry> entries= fEntries.get(template);
+		if (entries == null) {
+			entries= new HashMap<>();
+			fEntries.put(template, entries);
+		}
+		entries.put(key, new Entry(result, getPartialSpecializationCount(template)));
+	}
+
+	/**
+	 * Forgets the results of instantiating the given template, e.g. because an explicit
+	 * specialization of the template has been declared.
+	 */
+	void invalidate(ICPPPartiallySpecializable template) {
+		fEntries.remove(template);
+	}
+
+	private static int getPartialSpecializationCount(ICPPPartiallySpecializable template) {
+		// The partial specializations of an index binding do not change while the index is locked.
+		if (template instanceof IIndexBinding)
+			return 0;
+		return template.getPartialSpecializations().length;
+	}
+
+	public int getHits() {
+		return fHits;
+	}
+
+	public int getMisses() {
+		return fMisses;
+	}
+}
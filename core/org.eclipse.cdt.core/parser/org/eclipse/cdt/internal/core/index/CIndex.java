@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -388,11 +388,24 @@ public class CIndex implements IIndex {
 
 	@Override
 	public synchronized void acquireReadLock() throws InterruptedException {
+		acquireReadLock(false);
+	}
+
+	@Override
+	public synchronized void acquireSnapshotReadLock() throws InterruptedException {
+		acquireReadLock(true);
+	}
+
+	private void acquireReadLock(boolean snapshot) throws InterruptedException {
 		if (++fReadLock == 1) {
 			int i= 0;
 			try {
 				for (i = 0; i < fFragments.length; i++) {
-					fFragments[i].acquireReadLock();
+					if (snapshot) {
+						fFragments[i].acquireSnapshotReadLock();
+					} else {
+						fFragments[i].acquireReadLock();
+					}
 				}
 			} finally {
 				if (i < fFragments.length) {
@@ -728,6 +741,22 @@ public class CIndex implements IIndex {
 		return result;
 	}
 
+	public long getCacheEvictions() {
+		long result= 0;
+		for (IIndexFragment fragment : fFragments) {
+			result += fragment.getCacheEvictions();
+		}
+		return result;
+	}
+
+	public long getDirtyChunkFlushes() {
+		long result= 0;
+		for (IIndexFragment fragment : fFragments) {
+			result += fragment.getDirtyChunkFlushes();
+		}
+		return result;
+	}
+
 	public void resetCacheCounters() {
 		for (IIndexFragment fragment : fFragments) {
 			fragment.resetCacheCounters();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -109,6 +109,10 @@ final public class EmptyCIndex implements IIndex {
 	public void acquireReadLock() {
 	}
 
+	@Override
+	public void acquireSnapshotReadLock() {
+	}
+
 	@Override
 	public void releaseReadLock() {
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -226,6 +226,14 @@ public interface IIndexFragment {
 	 */
 	void acquireReadLock() throws InterruptedException;
 
+	/**
+	 * Acquires a read lock without waiting for a writer, while a writer holds the lock the
+	 * fragment is read as it was before the writer acquired the lock.
+	 * @see IIndex#acquireSnapshotReadLock()
+	 * @throws InterruptedException
+	 */
+	void acquireSnapshotReadLock() throws InterruptedException;
+
 	/**
 	 * Releases a read lock.
 	 */
@@ -289,7 +297,7 @@ public interface IIndexFragment {
 	public String getProperty(String propertyName) throws CoreException;
 
 	/**
-	 * Resets the counters for cache-hits and cache-misses.
+	 * Resets the counters for cache-hits, cache-misses, evictions and flushes.
 	 */
 	void resetCacheCounters();
 
@@ -303,6 +311,16 @@ public interface IIndexFragment {
 	 */
 	long getCacheMisses();
 
+	/**
+	 * Returns the number of chunks evicted from the cache since last reset of counters.
+	 */
+	long getCacheEvictions();
+
+	/**
+	 * Returns the number of dirty chunks written to disk since last reset of counters.
+	 */
+	long getDirtyChunkFlushes();
+
 	/**
 	 * Creates an empty file set for this fragment
 	 * @since 5.0
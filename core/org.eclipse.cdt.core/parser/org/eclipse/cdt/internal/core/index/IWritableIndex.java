@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -66,6 +66,12 @@ public interface IWritableIndex extends IIndex {
 	 */
 	IIndexFragmentFile[] getWritableFiles(IIndexFileLocation location) throws CoreException;
 
+	/**
+	 * Returns the files with content for the given location and linkage that are provided by
+	 * the read-only fragments of this index, e.g. pre-built indexes for libraries.
+	 */
+	IIndexFragmentFile[] getReadOnlyFiles(int linkageID, IIndexFileLocation location) throws CoreException;
+
 	/**
 	 * Clears the given file in the index.
 	 * @param file a file to clear.
@@ -154,6 +160,16 @@ public interface IWritableIndex extends IIndex {
 	 */
 	long getCacheMisses();
 
+	/**
+	 * Returns the number of chunks evicted from the cache since last reset of counters.
+	 */
+	long getCacheEvictions();
+
+	/**
+	 * Returns the number of dirty chunks written to disk since last reset of counters.
+	 */
+	long getDirtyChunkFlushes();
+
 	/**
 	 * Returns the primary writable fragment, or <code>null</code> if there is 
 	 * no writable fragment.
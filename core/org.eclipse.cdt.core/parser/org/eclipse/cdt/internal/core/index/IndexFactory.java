@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -71,6 +71,7 @@ public class IndexFactory {
 			IIndexFragment pdom= fPDOMManager.getPDOM(cproject);
 			if (pdom != null) {
 				safeAddFragment(fragments, pdom);
+				safeAddLibraryFragments(cproject, fragments);
 				if (fragmentUsage != 0) {
 					safeAddProvidedFragments(cproject, fragments, fragmentUsage);
 				}
@@ -90,7 +91,14 @@ public class IndexFactory {
 			throw new CoreException(CCorePlugin.createStatus(
 					NLS.bind(Messages.IndexFactory_errorNoSuchPDOM0, project.getElementName())));
 		}
-		return new WritableCIndex(pdom);
+		// The indexer does not parse the files provided by the libraries of the project.
+		HashMap<String, IIndexFragment> libraries= new LinkedHashMap<String, IIndexFragment>();
+		safeAddLibraryFragments(project, libraries);
+		if (libraries.isEmpty()) {
+			return new WritableCIndex(pdom);
+		}
+		Collection<IIndexFragment> readOnly= libraries.values();
+		return new WritableCIndex(pdom, readOnly.toArray(new IIndexFragment[readOnly.size()]));
 	}
 
 	private Collection<ICProject> getProjects(ICProject[] projects, boolean addDependencies,
@@ -183,4 +191,27 @@ public class IndexFactory {
 			}
 		}
 	}
+
+	/**
+	 * Adds ID -> IIndexFragment entries to the specified Map, for the pre-built library indexes
+	 * used by the specified ICProject.
+	 * @param cproject The project to get the library index fragments for.
+	 * @param fragments
+	 */
+	private void safeAddLibraryFragments(ICProject cproject, Map<String, IIndexFragment> fragments) {
+		ICProjectDescription pd= CoreModel.getDefault().getProjectDescription(cproject.getProject(), false);
+		if (pd != null) {
+			IndexProviderManager ipm = CCoreInternals.getPDOMManager().getIndexProviderManager();
+			ICConfigurationDescription cfg= pd.getDefaultSettingConfiguration();
+			if (cfg != null) {
+				try {
+					for (IIndexFragment fragment : ipm.getLibraryFragments(cfg)) {
+						safeAddFragment(fragments, fragment);
+					}
+				} catch (CoreException e) {
+					CCorePlugin.log(e);
+				}
+			}
+		}
+	}
 }
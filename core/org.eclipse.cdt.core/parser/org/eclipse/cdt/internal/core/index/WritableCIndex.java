@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.index;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.cdt.core.dom.ast.IASTName;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorStatement;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
@@ -29,6 +32,21 @@ public class WritableCIndex extends CIndex implements IWritableIndex {
 		super(new IWritableIndexFragment[] { writable });
 	}
 
+	/**
+	 * Creates a writable index that in addition to the writable fragment sees the given read-only
+	 * fragments. Files that are found in the read-only fragments are not parsed by the indexer.
+	 */
+	public WritableCIndex(IWritableIndexFragment writable, IIndexFragment[] readOnly) {
+		super(concat(writable, readOnly));
+	}
+
+	private static IIndexFragment[] concat(IWritableIndexFragment writable, IIndexFragment[] readOnly) {
+		IIndexFragment[] result= new IIndexFragment[readOnly.length + 1];
+		result[0]= writable;
+		System.arraycopy(readOnly, 0, result, 1, readOnly.length);
+		return result;
+	}
+
 	@Override
 	public IWritableIndexFragment getWritableFragment() {
 		return (IWritableIndexFragment) getFragments()[0];
@@ -37,7 +55,8 @@ public class WritableCIndex extends CIndex implements IWritableIndex {
 	@Override
 	public IIndexFragmentFile getWritableFile(int linkageID, IIndexFileLocation location,
 			ISignificantMacros macroDictionary) throws CoreException {
-		return (IIndexFragmentFile) super.getFile(linkageID, location, macroDictionary);
+		IIndexFragmentFile file= getWritableFragment().getFile(linkageID, location, macroDictionary);
+		return file != null && file.hasContent() ? file : null;
 	}
 
 	@Override
@@ -50,6 +69,23 @@ public class WritableCIndex extends CIndex implements IWritableIndex {
 		return getWritableFragment().getFiles(location);
 	}
 
+	@Override
+	public IIndexFragmentFile[] getReadOnlyFiles(int linkageID, IIndexFileLocation location) throws CoreException {
+		IIndexFragment[] fragments= getFragments();
+		if (fragments.length == 1)
+			return IIndexFragmentFile.EMPTY_ARRAY;
+
+		List<IIndexFragmentFile> result= new ArrayList<>();
+		for (int i= 1; i < fragments.length; i++) {
+			for (IIndexFragmentFile file : fragments[i].getFiles(linkageID, location)) {
+				if (file.hasContent()) {
+					result.add(file);
+				}
+			}
+		}
+		return result.toArray(new IIndexFragmentFile[result.size()]);
+	}
+
 	@Override
 	public IIndexFragmentFile addFile(int linkageID, IIndexFileLocation location,
 			ISignificantMacros macroDictionary) throws CoreException {
@@ -103,6 +139,12 @@ public class WritableCIndex extends CIndex implements IWritableIndex {
 		super.acquireReadLock();
 	}
 
+	@Override
+	public void acquireSnapshotReadLock() throws InterruptedException {
+		// The indexer has to see the changes it made.
+		acquireReadLock();
+	}
+
 	@Override
 	public void releaseReadLock() {
 		checkThread();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -85,6 +85,7 @@ public final class IndexProviderManager implements IElementChangedListener {
 	private Map<ProvisionMapKey, Boolean> provisionMap;
 	private Set<String> compatibleFragmentUnavailable;
 	private VersionRange pdomVersionRange;
+	private LibraryFragmentProvider libraryProvider;
 
 	public IndexProviderManager() {
 		reset();
@@ -145,6 +146,7 @@ public final class IndexProviderManager implements IElementChangedListener {
 		}
 
 		CoreModel.getDefault().addElementChangedListener(this);
+		this.libraryProvider= new LibraryFragmentProvider(LibraryFragmentProvider.getDefaultFolder());
 		this.fragmentProviders = providers.toArray(new IIndexFragmentProvider[providers.size()]);
 		this.fragmentProviderUsage= computeProviderUsage(usageSpecifications);
 		assert fragmentProviders.length == fragmentProviderUsage.length;
@@ -236,6 +238,36 @@ public final class IndexProviderManager implements IElementChangedListener {
 		return preresult.toArray(new IIndexFragment[preresult.size()]);
 	}
 
+	/**
+	 * Returns the pre-built library indexes that are used by the specified project. Other than
+	 * the fragments of the extension point, library indexes are part of the index of a project
+	 * for all usages, including the indexer.
+	 * @param config
+	 * @return the array of library index fragments
+	 */
+	public IIndexFragment[] getLibraryFragments(ICConfigurationDescription config) throws CoreException {
+		if (libraryProvider == null)
+			return new IIndexFragment[0];
+
+		Map<String, IIndexFragment> id2fragment = new HashMap<String, IIndexFragment>();
+		for (IIndexFragment fragment : libraryProvider.getIndexFragments(config)) {
+			try {
+				processCandidate(id2fragment, fragment);
+			} catch (InterruptedException e) {
+				CCorePlugin.log(e); // continue with next candidate
+			} catch (CoreException e) {
+				CCorePlugin.log(e); // continue with next candidate
+			}
+		}
+		List<IIndexFragment> result= new ArrayList<IIndexFragment>();
+		for (IIndexFragment fragment : id2fragment.values()) {
+			if (fragment != null) {
+				result.add(fragment);
+			}
+		}
+		return result.toArray(new IIndexFragment[result.size()]);
+	}
+
 	/**
 	 * Used for logging a problem.
 	 */
@@ -437,6 +469,10 @@ public final class IndexProviderManager implements IElementChangedListener {
 			break;
 		case ICElement.C_PROJECT:
 			final ICProject cproject = (ICProject) delta.getElement();
+			if (libraryProvider != null) {
+				// The include paths of the project may have changed.
+				libraryProvider.resetProject(cproject.getProject());
+			}
 			switch (delta.getKind()) {
 			case ICElementDelta.REMOVED:
 				List<ProvisionMapKey> toRemove = new ArrayList<>();
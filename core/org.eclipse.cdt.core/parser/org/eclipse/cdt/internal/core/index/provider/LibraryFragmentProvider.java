@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.index.IIndexLocationConverter;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.LanguageManager;
+import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfoProvider;
+import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
+import org.eclipse.cdt.internal.core.CCoreInternals;
+import org.eclipse.cdt.internal.core.index.IIndexFragment;
+import org.eclipse.cdt.internal.core.index.IndexFileLocation;
+import org.eclipse.cdt.internal.core.pdom.PDOM;
+import org.eclipse.cdt.internal.core.pdom.WritablePDOM;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Provides pre-built indexes for the headers of libraries, e.g. the ones of a toolchain or an SDK.
+ * A library index is built once by exporting the index of a project that includes the headers,
+ * see {@link #exportLibrary(ICProject, File, String[], IProgressMonitor)}. The library indexes are
+ * kept in a folder of the state location and are mounted into the index of every project that
+ * uses one of the include directories of the library. Files contained in a library index are
+ * not parsed again by the indexer of the project.
+ */
+public class LibraryFragmentProvider implements IIndexFragmentProvider {
+	/**
+	 * Property of a library index, the include directories covered by the library separated by
+	 * {@link File#pathSeparator}.
+	 */
+	public static final String PROPERTY_INCLUDE_DIRECTORIES=
+			"org.eclipse.cdt.internal.core.index.library.includeDirectories"; //$NON-NLS-1$
+
+	private static final String LIBRARIES_FOLDER= "libraries"; //$NON-NLS-1$
+	private static final String LIBRARY_EXTENSION= ".pdom"; //$NON-NLS-1$
+	private static final String LIBRARY_ID_PREFIX= "library."; //$NON-NLS-1$
+	private static final String TEMP_EXTENSION= ".tmp"; //$NON-NLS-1$
+
+	/**
+	 * A library index, together with the size and the modification time of its file when it
+	 * was opened. The PDOM is {@code null} if the file could not be opened.
+	 */
+	private static final class Library {
+		final File fFile;
+		final long fSize;
+		final long fModified;
+		final PDOM fPDOM;
+		final IPath[] fIncludeDirectories;
+
+		Library(File file, long size, long modified, PDOM pdom, IPath[] includeDirectories) {
+			fFile= file;
+			fSize= size;
+			fModified= modified;
+			fPDOM= pdom;
+			fIncludeDirectories= includeDirectories;
+		}
+
+		boolean isUpToDate(File file) {
+			return fFile.equals(file) && fSize == file.length() && fModified == file.lastModified();
+		}
+	}
+
+	private final File fFolder;
+	private Library[] fLibraries= {};
+	private final Map<IProject, IIndexFragment[]> fProjectLibraries= new HashMap<>();
+
+	public LibraryFragmentProvider(File folder) {
+		fFolder= folder;
+	}
+
+	/**
+	 * Returns the folder in which the library indexes are stored.
+	 */
+	public static File getDefaultFolder() {
+		return CCorePlugin.getDefault().getStateLocation().append(LIBRARIES_FOLDER).toFile();
+	}
+
+	/**
+	 * Exports the index of a project as a library index. Only files in the given include
+	 * directories are exported, the files of the workspace are omitted. The index is written
+	 * to a temporary file first, which then replaces the target, such that a library index is
+	 * never picked up while it is written.
+	 * @param cproject the project that includes the headers of the library.
+	 * @param targetLocation the file the library index is written to, it should be stored in
+	 *     the folder for library indexes to be picked up.
+	 * @param includeDirectories the include directories covered by the library.
+	 */
+	public static void exportLibrary(ICProject cproject, File targetLocation, String[] includeDirectories,
+			IProgressMonitor monitor) throws CoreException {
+		IPath[] directories= toPaths(includeDirectories);
+		LibraryLocationConverter converter= new LibraryLocationConverter(directories);
+		File tempLocation= new File(targetLocation.getParentFile(), targetLocation.getName() + TEMP_EXTENSION);
+		try {
+			CCoreInternals.getPDOMManager().exportProjectPDOM(cproject, tempLocation, converter, monitor);
+
+			WritablePDOM pdom= new WritablePDOM(tempLocation, converter,
+					LanguageManager.getInstance().getPDOMLinkageFactoryMappings());
+			pdom.acquireWriteLock(null);
+			try {
+				String name= targetLocation.getName();
+				if (name.endsWith(LIBRARY_EXTENSION))
+					name= name.substring(0, name.length() - LIBRARY_EXTENSION.length());
+				pdom.setProperty(IIndexFragment.PROPERTY_FRAGMENT_ID, LIBRARY_ID_PREFIX + name);
+				pdom.setProperty(PROPERTY_INCLUDE_DIRECTORIES, String.join(File.pathSeparator, includeDirectories));
+				pdom.close();
+			} finally {
+				pdom.releaseWriteLock();
+			}
+			replace(tempLocation, targetLocation);
+		} catch (InterruptedException e) {
+			throw new CoreException(CCorePlugin.createStatus(e.getMessage(), e));
+		} finally {
+			if (tempLocation.exists()) {
+				tempLocation.delete();
+			}
+		}
+	}
+
+	private static void replace(File source, File target) throws CoreException {
+		try {
+			try {
+				Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			throw new CoreException(CCorePlugin.createStatus(e.getMessage(), e));
+		}
+	}
+
+	@Override
+	public synchronized boolean providesFor(ICProject cproject) throws CoreException {
+		return getLibraries().length > 0;
+	}
+
+	@Override
+	public synchronized IIndexFragment[] getIndexFragments(ICConfigurationDescription config)
+			throws CoreException {
+		Library[] libraries= getLibraries();
+		if (libraries.length == 0)
+			return new IIndexFragment[0];
+
+		IProject project= config.getProjectDescription().getProject();
+		IIndexFragment[] result= fProjectLibraries.get(project);
+		if (result == null) {
+			IPath[] includePaths= getIncludePaths(project);
+			List<IIndexFragment> fragments= new ArrayList<>();
+			for (Library library : libraries) {
+				if (library.fPDOM != null && usesLibrary(includePaths, library.fIncludeDirectories)) {
+					fragments.add(library.fPDOM);
+				}
+			}
+			result= fragments.toArray(new IIndexFragment[fragments.size()]);
+			fProjectLibraries.put(project, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Discards the libraries computed for a project, e.g. because its include paths changed.
+	 */
+	public synchronized void resetProject(IProject project) {
+		fProjectLibraries.remove(project);
+	}
+
+	/**
+	 * Returns the library indexes of the folder. A library index is opened again when the size
+	 * or the modification time of its file changed.
+	 */
+	private Library[] getLibraries() {
+		List<File> files= new ArrayList<>();
+		File[] children= fFolder.listFiles();
+		if (children != null) {
+			Arrays.sort(children);
+			for (File file : children) {
+				if (file.isFile() && file.getName().endsWith(LIBRARY_EXTENSION)) {
+					files.add(file);
+				}
+			}
+		}
+		if (isUpToDate(files))
+			return fLibraries;
+
+		fProjectLibraries.clear();
+		Map<File, Library> previous= new HashMap<>();
+		for (Library library : fLibraries) {
+			previous.put(library.fFile, library);
+		}
+		List<Library> libraries= new ArrayList<>();
+		for (File file : files) {
+			Library library= previous.remove(file);
+			if (library == null || !library.isUpToDate(file)) {
+				IPath path= new Path(file.getAbsolutePath());
+				if (library != null) {
+					PDOMCache.getInstance().removePDOM(path);
+				}
+				long size= file.length();
+				long modified= file.lastModified();
+				PDOM pdom= PDOMCache.getInstance().getPDOM(path, new LibraryLocationConverter(new IPath[0]));
+				IPath[] includeDirectories= new IPath[0];
+				if (pdom != null) {
+					try {
+						includeDirectories= readIncludeDirectories(pdom);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					} catch (CoreException e) {
+						CCorePlugin.log(e);
+						pdom= null;
+					}
+				}
+				// Libraries that cannot be opened are kept as well, they are not opened again
+				// until their files change.
+				library= new Library(file, size, modified, pdom, includeDirectories);
+			}
+			libraries.add(library);
+		}
+		// The files of these libraries have been removed
+		for (Library library : previous.values()) {
+			PDOMCache.getInstance().removePDOM(new Path(library.fFile.getAbsolutePath()));
+		}
+		fLibraries= libraries.toArray(new Library[libraries.size()]);
+		return fLibraries;
+	}
+
+	private boolean isUpToDate(List<File> files) {
+		if (files.size() != fLibraries.length)
+			return false;
+		for (int i= 0; i < fLibraries.length; i++) {
+			if (!fLibraries[i].isUpToDate(files.get(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private static IPath[] readIncludeDirectories(PDOM pdom) throws InterruptedException, CoreException {
+		pdom.acquireReadLock();
+		try {
+			String directories= pdom.getProperty(PROPERTY_INCLUDE_DIRECTORIES);
+			if (directories == null || directories.isEmpty())
+				return new IPath[0];
+			return toPaths(directories.split(File.pathSeparator));
+		} finally {
+			pdom.releaseReadLock();
+		}
+	}
+
+	private static IPath[] getIncludePaths(IProject project) {
+		IScannerInfoProvider provider= CCorePlugin.getDefault().getScannerInfoProvider(project);
+		if (provider == null)
+			return new IPath[0];
+		IScannerInfo info= provider.getScannerInformation(project);
+		if (info == null)
+			return new IPath[0];
+		List<IPath> result= new ArrayList<>();
+		for (String path : info.getIncludePaths()) {
+			result.add(new Path(path));
+		}
+		if (info instanceof IExtendedScannerInfo) {
+			String[] localPaths= ((IExtendedScannerInfo) info).getLocalIncludePath();
+			if (localPaths != null) {
+				for (String path : localPaths) {
+					result.add(new Path(path));
+				}
+			}
+		}
+		return result.toArray(new IPath[result.size()]);
+	}
+
+	/**
+	 * A library is used by a project, if it covers one of the include paths of the project.
+	 * A library without include directories is used by all projects.
+	 */
+	private static boolean usesLibrary(IPath[] includePaths, IPath[] libraryDirectories) {
+		if (libraryDirectories.length == 0)
+			return true;
+		for (IPath includePath : includePaths) {
+			for (IPath directory : libraryDirectories) {
+				if (directory.isPrefixOf(includePath))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static IPath[] toPaths(String[] directories) {
+		IPath[] result= new IPath[directories.length];
+		for (int i= 0; i < directories.length; i++) {
+			result[i]= new Path(directories[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the absolute locations of the files in the include directories of a library,
+	 * files of the workspace are not stored.
+	 */
+	private static class LibraryLocationConverter implements IIndexLocationConverter {
+		private final IPath[] fIncludeDirectories;
+
+		LibraryLocationConverter(IPath[] includeDirectories) {
+			fIncludeDirectories= includeDirectories;
+		}
+
+		@Override
+		public IIndexFileLocation fromInternalFormat(String raw) {
+			try {
+				return new IndexFileLocation(new URI(raw), null);
+			} catch (URISyntaxException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toInternalFormat(IIndexFileLocation location) {
+			if (location.getFullPath() != null)
+				return null;
+			URI uri= location.getURI();
+			if (fIncludeDirectories.length > 0) {
+				if (!"file".equals(uri.getScheme())) //$NON-NLS-1$
+					return null;
+				IPath path= new Path(new File(uri).getAbsolutePath());
+				boolean covered= false;
+				for (IPath directory : fIncludeDirectories) {
+					if (directory.isPrefixOf(path)) {
+						covered= true;
+						break;
+					}
+				}
+				if (!covered)
+					return null;
+			}
+			return uri.toString();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -78,4 +78,16 @@ class PDOMCache {
 
 		return result;
 	}
+
+	/**
+	 * Removes the PDOM for the path specified from the cache, e.g. because the file has been
+	 * replaced. The next call to {@link #getPDOM(IPath, IIndexLocationConverter)} opens the file
+	 * again. The removed PDOM is not closed, indexes acquired before may still read from it.
+	 * @param path
+	 */
+	public void removePDOM(IPath path) {
+		synchronized (path2pdom) {
+			path2pdom.remove(path.toFile());
+		}
+	}
 }
\ No newline at end of file
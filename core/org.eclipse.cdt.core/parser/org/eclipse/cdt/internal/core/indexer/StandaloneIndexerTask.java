@@ -153,7 +153,9 @@ public abstract class StandaloneIndexerTask extends AbstractIndexerTask {
 				double missPct= tries==0 ? 0.0 : (double) misses / (double) tries;
 				trace(name + " Cache: " //$NON-NLS-1$
 					+ hits + " hits, "  //$NON-NLS-1$
-					+ misses + "(" + nf.format(missPct)+ ") misses."); //$NON-NLS-1$ //$NON-NLS-2$
+					+ misses + "(" + nf.format(missPct)+ ") misses, " //$NON-NLS-1$ //$NON-NLS-2$
+					+ index.getCacheEvictions() + " evictions, " //$NON-NLS-1$
+					+ index.getDirtyChunkFlushes() + " flushes."); //$NON-NLS-1$
 			}
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -207,6 +207,7 @@ class ASTBuiltinName extends ASTPreprocessorDefinition implements IAdaptable {
 
 class ASTMacroReferenceName extends ASTPreprocessorName {
 	private ImageLocationInfo fImageLocationInfo;
+	private LocationCtxMacroExpansion fExpansionContext;
 	
 	public ASTMacroReferenceName(IASTNode parent, ASTNodeProperty property,
 			int offset, int endOffset, IMacroBinding macro, ImageLocationInfo imgLocationInfo) {
@@ -214,6 +215,35 @@ class ASTMacroReferenceName extends ASTPreprocessorName {
 		fImageLocationInfo= imgLocationInfo;
 	}
 
+	/**
+	 * Makes this name a child of the expansion node of the given context. The node is created
+	 * only when the parent of this name is requested.
+	 */
+	void setExpansionContext(LocationCtxMacroExpansion ctx) {
+		assertNotFrozen();
+		fExpansionContext= ctx;
+	}
+
+	LocationCtxMacroExpansion getExpansionContext() {
+		return fExpansionContext;
+	}
+
+	@Override
+	public IASTNode getParent() {
+		if (fExpansionContext != null) {
+			return fExpansionContext.getExpansion();
+		}
+		return super.getParent();
+	}
+
+	@Override
+	public IASTTranslationUnit getTranslationUnit() {
+		if (fExpansionContext != null) {
+			return fExpansionContext.getTranslationUnit();
+		}
+		return super.getTranslationUnit();
+	}
+
 	@Override
 	public int getRoleOfName(boolean allowResolution) {
 		return IASTNameOwner.r_unclear;
@@ -241,10 +271,8 @@ class ASTMacroReferenceName extends ASTPreprocessorName {
 		// macro being expanded itself, have their node location set to the entire macro
 		// expansion (see LocationMap.pushMacroExpansion()), which doesn't produce a
 		// useful image location. 
-		if (getParent() instanceof ASTMacroExpansion) {
-			if (((ASTMacroExpansion) getParent()).getContext().getMacroReference() == this) {
-				return super.getImageLocation();
-			}
+		if (fExpansionContext != null && fExpansionContext.getMacroReference() == this) {
+			return super.getImageLocation();
 		}
 		return null;
 	}
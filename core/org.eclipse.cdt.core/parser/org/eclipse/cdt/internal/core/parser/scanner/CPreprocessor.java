@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -268,6 +268,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
     final private CharArrayIntMap fKeywords;
     final private CharArrayIntMap fPPKeywords;
     private final IncludeSearchPath fIncludeSearchPath;
+    private final LexerTokenCache fTokenCache= LexerTokenCache.getSharedInstance();
     private String[][] fPreIncludedFiles= null;
 
     private int fContentAssistLimit= -1;
@@ -354,7 +355,11 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
     
 	private char[] detectIncludeGuard(String filePath, AbstractCharArray source, ScannerContext ctx) {
 		if (!fFileContentProvider.shouldIndexAllHeaderVersions(filePath)) {
-			final char[] guard = IncludeGuardDetection.detectIncludeGuard(source, fLexOptions, fPPKeywords);
+			final Lexer lexer= new Lexer(source, fLexOptions, ILexerLog.NULL, null);
+			if (fTokenCache != null && ctx != fRootContext) {
+				fTokenCache.attach(lexer, filePath, source, fLexOptions, false);
+			}
+			final char[] guard = IncludeGuardDetection.detectIncludeGuard(lexer, fPPKeywords);
 			if (guard != null) {
 				IFileNomination nom= fLocationMap.reportPragmaOnceSemantics(ctx.getLocationCtx());
 				fFileContentProvider.reportPragmaOnceSemantics(filePath, nom);
@@ -1646,8 +1651,12 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 			if (source != null) {
 				ILocationCtx ctx= fLocationMap.pushInclusion(poundOffset, nameOffsets[0], nameOffsets[1],
 						condEndOffset, source, path, headerName, userInclude, isHeuristic, fi.isSource());
-				ScannerContext fctx= new ScannerContext(ctx, fCurrentContext,
-						new Lexer(source, fLexOptions, this, this));
+				Lexer includeLexer= new Lexer(source, fLexOptions, this, this);
+				if (fTokenCache != null) {
+					// Replay the tokens of a header that was lexed for another inclusion
+					fTokenCache.attach(includeLexer, path, source, fLexOptions, true);
+				}
+				ScannerContext fctx= new ScannerContext(ctx, fCurrentContext, includeLexer);
 				fctx.setFoundOnPath(fi.getFoundOnPath(), includeDirective);
 				detectIncludeGuard(path, source, fctx);
 				fCurrentContext= fctx;
@@ -1880,9 +1889,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 		}
 		
 		final boolean isTaken= cond.canHaveActiveBranch(withinExpansion);
-		ASTElse stmt = fLocationMap.encounterPoundElse(startOffset, endOffset, isTaken);
-		if (!cond.isActive(withinExpansion))
-			stmt.setInactive();
+		fLocationMap.encounterPoundElse(startOffset, endOffset, isTaken, cond.isActive(withinExpansion));
 		return fCurrentContext.setBranchState(cond, isTaken, withinExpansion, startOffset);
 	}
 
@@ -1893,9 +1900,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 		if (cond == null) {
 			handleProblem(IProblem.PREPROCESSOR_UNBALANCE_CONDITION, Keywords.cENDIF, startOffset, endOffset);
 		} else {
-			ASTEndif stmt = fLocationMap.encounterPoundEndIf(startOffset, endOffset);
-			if (!cond.isActive(withinExpansion))
-				stmt.setInactive();
+			fLocationMap.encounterPoundEndIf(startOffset, endOffset, cond.isActive(withinExpansion));
 		}
 		return fCurrentContext.setBranchEndState(cond, withinExpansion, startOffset);
 	}
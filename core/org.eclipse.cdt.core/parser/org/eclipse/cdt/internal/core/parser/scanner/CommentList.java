@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTComment;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+
+/**
+ * The comments of a translation unit. A comment is stored as the index of its file and its
+ * offsets within the file, the nodes for the comments are created when they are requested.
+ */
+final class CommentList {
+	private static final int RECORD_SIZE= 2;
+	private static final int BLOCK_COMMENT= 0x80000000;
+
+	private final List<String> fFilePaths= new ArrayList<>();
+	private final Map<String, Integer> fFileIndexes= new HashMap<>();
+	private String fLastFilePath;
+	private int fLastFileIndex;
+
+	// Per comment the index of the file, the offset and the end offset combined with the flag
+	// for block comments.
+	private int[] fFiles= new int[16];
+	private int[] fOffsets= new int[RECORD_SIZE * 16];
+	private int fSize;
+	private IASTComment[] fNodes= {};
+
+	public int size() {
+		return fSize;
+	}
+
+	public void add(String filePath, int offset, int endOffset, boolean isBlockComment) {
+		if (fSize == fFiles.length) {
+			fFiles= Arrays.copyOf(fFiles, fSize * 2);
+			fOffsets= Arrays.copyOf(fOffsets, fSize * 2 * RECORD_SIZE);
+		}
+		fFiles[fSize]= getFileIndex(filePath);
+		fOffsets[fSize * RECORD_SIZE]= offset;
+		fOffsets[fSize * RECORD_SIZE + 1]= isBlockComment ? endOffset | BLOCK_COMMENT : endOffset;
+		fSize++;
+	}
+
+	private int getFileIndex(String filePath) {
+		// Consecutive comments are usually in the same file.
+		if (filePath != fLastFilePath) {
+			Integer index= fFileIndexes.get(filePath);
+			if (index == null) {
+				index= fFilePaths.size();
+				fFilePaths.add(filePath);
+				fFileIndexes.put(filePath, index);
+			}
+			fLastFilePath= filePath;
+			fLastFileIndex= index;
+		}
+		return fLastFileIndex;
+	}
+
+	/**
+	 * Returns the nodes for the comments, the nodes are created when they are requested for
+	 * the first time.
+	 * @param tu the translation unit, becomes the parent of new nodes.
+	 */
+	public IASTComment[] toArray(IASTTranslationUnit tu) {
+		if (fNodes.length < fSize) {
+			IASTComment[] nodes= Arrays.copyOf(fNodes, fSize);
+			for (int i= fNodes.length; i < fSize; i++) {
+				final int offset= fOffsets[i * RECORD_SIZE];
+				final int end= fOffsets[i * RECORD_SIZE + 1];
+				nodes[i]= new ASTComment(tu, fFilePaths.get(fFiles[i]), offset, end & ~BLOCK_COMMENT,
+						(end & BLOCK_COMMENT) != 0);
+			}
+			fNodes= nodes;
+		}
+		return fNodes.clone();
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.util.Arrays;
+
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IMacroBinding;
+
+/**
+ * The preprocessor directives of a translation unit in the order they are encountered. Most
+ * directives are not needed while the translation unit is parsed, they are stored as records of
+ * sequence numbers and the nodes for them are created on demand. Directives the preprocessor
+ * refers to, e.g. inclusions and conditions with macro references, are stored as nodes.
+ */
+final class DirectiveList {
+	// Kinds of directives
+	private static final int NODE= 0;
+	private static final int DEFINE= 1;
+	private static final int ELSE= 2;
+	private static final int ENDIF= 3;
+	private static final int ERROR= 4;
+	private static final int PRAGMA= 5;
+	private static final int PRAGMA_OPERATOR= 6;
+	private static final int KIND_MASK= 0xff;
+	private static final int INACTIVE= 0x100;
+	private static final int TAKEN= 0x200;
+
+	// Layout of a record: kind and flags, start and end number of the node followed by
+	// up to three numbers depending on the kind of the directive.
+	private static final int RECORD_SIZE= 6;
+	private static final int FLAGS= 0;
+	private static final int START= 1;
+	private static final int END= 2;
+	private static final int ARG1= 3;
+	private static final int ARG2= 4;
+	private static final int ARG3= 5;
+
+	private int[] fRecords= new int[RECORD_SIZE * 16];
+	// The node of a directive, or the macro binding of a definition for which no node was created.
+	private Object[] fNodes= new Object[16];
+	private int fSize;
+
+	public int size() {
+		return fSize;
+	}
+
+	public void add(ASTPreprocessorNode node) {
+		final int offset= node.getOffset();
+		add(NODE, offset, offset + node.getLength(), 0, 0, 0, node);
+	}
+
+	public void addMacroDefinition(IMacroBinding macro, int startNumber, int nameNumber, int nameEndNumber,
+			int expansionNumber, int endNumber, boolean active) {
+		add(DEFINE | (active ? 0 : INACTIVE), startNumber, endNumber, nameNumber, nameEndNumber,
+				expansionNumber, macro);
+	}
+
+	public void addElse(int startNumber, int endNumber, boolean taken, boolean active) {
+		add(ELSE | (taken ? TAKEN : 0) | (active ? 0 : INACTIVE), startNumber, endNumber, 0, 0, 0, null);
+	}
+
+	public void addEndif(int startNumber, int endNumber, boolean active) {
+		add(ENDIF | (active ? 0 : INACTIVE), startNumber, endNumber, 0, 0, 0, null);
+	}
+
+	public void addError(int startNumber, int condNumber, int condEndNumber) {
+		add(ERROR, startNumber, condEndNumber, condNumber, 0, 0, null);
+	}
+
+	public void addPragma(int startNumber, int condNumber, int condEndNumber) {
+		add(PRAGMA, startNumber, condEndNumber, condNumber, 0, 0, null);
+	}
+
+	public void addPragmaOperator(int startNumber, int condNumber, int condEndNumber, int endNumber) {
+		add(PRAGMA_OPERATOR, startNumber, endNumber, condNumber, condEndNumber, 0, null);
+	}
+
+	private void add(int flags, int start, int end, int arg1, int arg2, int arg3, Object node) {
+		if (fSize == fNodes.length) {
+			fNodes= Arrays.copyOf(fNodes, fSize * 2);
+			fRecords= Arrays.copyOf(fRecords, fSize * 2 * RECORD_SIZE);
+		}
+		final int r= fSize * RECORD_SIZE;
+		fRecords[r + FLAGS]= flags;
+		fRecords[r + START]= start;
+		fRecords[r + END]= end;
+		fRecords[r + ARG1]= arg1;
+		fRecords[r + ARG2]= arg2;
+		fRecords[r + ARG3]= arg3;
+		fNodes[fSize++]= node;
+	}
+
+	/**
+	 * Returns the sequence number at which the directive with the given index starts.
+	 */
+	public int getStartNumber(int index) {
+		return fRecords[index * RECORD_SIZE + START];
+	}
+
+	/**
+	 * Returns whether the directive with the given index is a macro definition.
+	 */
+	public boolean isMacroDefinition(int index) {
+		return (fRecords[index * RECORD_SIZE + FLAGS] & KIND_MASK) == DEFINE;
+	}
+
+	/**
+	 * Returns whether the directive with the given index was stored as a node, this is the case
+	 * for inclusions, undefs and conditions with macro references.
+	 */
+	public boolean isStoredAsNode(int index) {
+		return (fRecords[index * RECORD_SIZE + FLAGS] & KIND_MASK) == NODE;
+	}
+
+	/**
+	 * Returns the index of the last directive ending before the given sequence number, or -1.
+	 */
+	public int findLastBefore(int sequenceNumber) {
+		int lower= -1;
+		int upper= fSize - 1;
+		while (lower < upper) {
+			int middle= (lower + upper + 1) / 2;
+			if (fRecords[middle * RECORD_SIZE + END] >= sequenceNumber) {
+				upper= middle - 1;
+			} else {
+				lower= middle;
+			}
+		}
+		return lower;
+	}
+
+	/**
+	 * Returns the node for the directive with the given index, the node is created if necessary.
+	 * @param tu the translation unit, becomes the parent of a new node.
+	 */
+	public ASTPreprocessorNode get(int index, IASTTranslationUnit tu) {
+		Object node= fNodes[index];
+		if (node instanceof ASTPreprocessorNode)
+			return (ASTPreprocessorNode) node;
+
+		final int r= index * RECORD_SIZE;
+		final int flags= fRecords[r + FLAGS];
+		final int start= fRecords[r + START];
+		final int end= fRecords[r + END];
+		final boolean active= (flags & INACTIVE) == 0;
+		ASTPreprocessorNode result;
+		switch (flags & KIND_MASK) {
+		case DEFINE:
+			IMacroBinding macro= (IMacroBinding) node;
+			if (macro.isFunctionStyle()) {
+				result= new ASTFunctionStyleMacroDefinition(tu, macro, start, fRecords[r + ARG1],
+						fRecords[r + ARG2], fRecords[r + ARG3], end, active);
+			} else {
+				result= new ASTMacroDefinition(tu, macro, start, fRecords[r + ARG1],
+						fRecords[r + ARG2], fRecords[r + ARG3], end, active);
+			}
+			break;
+		case ELSE:
+			result= new ASTElse(tu, start, end, (flags & TAKEN) != 0);
+			if (!active)
+				result.setInactive();
+			break;
+		case ENDIF:
+			result= new ASTEndif(tu, start, end);
+			if (!active)
+				result.setInactive();
+			break;
+		case ERROR:
+			result= new ASTError(tu, start, fRecords[r + ARG1], end);
+			break;
+		case PRAGMA:
+			result= new ASTPragma(tu, start, fRecords[r + ARG1], end);
+			break;
+		case PRAGMA_OPERATOR:
+			result= new ASTPragmaOperator(tu, start, fRecords[r + ARG1], fRecords[r + ARG2], end);
+			break;
+		default:
+			throw new IllegalStateException();
+		}
+		fNodes[index]= result;
+		return result;
+	}
+}
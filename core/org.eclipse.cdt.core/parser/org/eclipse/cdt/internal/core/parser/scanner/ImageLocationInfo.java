@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,9 +30,9 @@ public abstract class ImageLocationInfo {
 	public abstract boolean canConcatenate(ImageLocationInfo info);
 
 	public static class MacroImageLocationInfo extends ImageLocationInfo {
-		private final ObjectStyleMacro fMacro;
-		private final int fOffset;
-		private final int fEndOffset;
+		final ObjectStyleMacro fMacro;
+		final int fOffset;
+		final int fEndOffset;
 
 		public MacroImageLocationInfo(ObjectStyleMacro macro, int offset, int endOffset) {
 			fMacro= macro;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2013 Wind River Systems, Inc. and others.
+ * Copyright (c) 2011, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,7 +27,13 @@ public class IncludeGuardDetection {
 
 	public static char[] detectIncludeGuard(AbstractCharArray content, Lexer.LexerOptions lexOptions,
 			CharArrayIntMap ppKeywords) {
-		Lexer l= new Lexer(content, lexOptions, ILexerLog.NULL, null);
+		return detectIncludeGuard(new Lexer(content, lexOptions, ILexerLog.NULL, null), ppKeywords);
+	}
+
+	/**
+	 * Detects the include guard of the input of the given lexer, which must not have been used, yet.
+	 */
+	static char[] detectIncludeGuard(Lexer l, CharArrayIntMap ppKeywords) {
 		char[] guard= findIncludeGuard(l, ppKeywords);
 		if (guard != null && currentIfSpansFile(l, ppKeywords)) {
 			return guard;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -71,6 +71,29 @@ final public class Lexer implements ITokenSequence {
 		}
 	}
 
+	// Classes of characters that can be consumed in bulk, see skipRun(int).
+	private static final int BLANK= 0x1;
+	private static final int IDENTIFIER_PART= 0x2;
+	private static final int NUMBER_PART= 0x4;
+	private static final int COMMENT_PART= 0x8;
+	private static final byte[] CHAR_CLASSES= new byte[128];
+	static {
+		for (char c= 0; c < CHAR_CLASSES.length; c++) {
+			int charClass= COMMENT_PART;
+			if (c == ' ' || c == '\t' || c == 0xb || c == '\f') {
+				charClass|= BLANK;
+			} else if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_') {
+				charClass|= IDENTIFIER_PART;
+				if ("eEpPxX".indexOf(c) < 0) { //$NON-NLS-1$
+					charClass|= NUMBER_PART;
+				}
+			} else if (c == '\n' || c == '\r' || c == '\\' || c == '?') {
+				charClass= 0;
+			}
+			CHAR_CLASSES[c]= (byte) charClass;
+		}
+	}
+
 	// configuration
 	private final LexerOptions fOptions;
 	private boolean fSupportContentAssist= false;
@@ -79,6 +102,8 @@ final public class Lexer implements ITokenSequence {
 	
 	// the input to the lexer
 	private final AbstractCharArray fInput;
+	// the characters of the input, if they are available as an array
+	private final char[] fInputArray;
 	private final int fStart;
 	private int fLimit;
 
@@ -106,6 +131,23 @@ final public class Lexer implements ITokenSequence {
 	private boolean fMarkInsideIncludeDirective;
 	private Token fMarkToken;
 	private Token fMarkLastToken;
+	private int fMarkReplayIndex;
+	private int fMarkReplayEndOffset;
+	private boolean fMarkReplaying;
+	private int fMarkRecordingSize;
+
+	// Tokens recorded by an earlier lexer for the same input, replayed instead of lexing.
+	// Include directives are lexed from the input, the replay continues after the directive.
+	private LexerTokenStream fReplay;
+	private int fReplayIndex;
+	private int fReplayEndOffset;
+	private boolean fReplaying;
+
+	// Records the tokens for the cache, the recording is stored when the end of input is reached.
+	private LexerTokenStream fRecording;
+	private LexerTokenCache fRecordingCache;
+	private Object fRecordingKey;
+	private int fRecordingLimit;
 	
 	public Lexer(char[] input, LexerOptions options, ILexerLog log, Object source) {
 		this(new CharArray(input), 0, input.length, options, log, source);
@@ -117,6 +159,7 @@ final public class Lexer implements ITokenSequence {
 	
 	public Lexer(AbstractCharArray input, int start, int end, LexerOptions options, ILexerLog log, Object source) {
 		fInput= input;
+		fInputArray= input instanceof CharArray ? ((CharArray) input).getArray() : null;
 		fStart= fOffset= fEndOffset= start;
 		fLimit= end;
 		fOptions= options;
@@ -151,6 +194,30 @@ final public class Lexer implements ITokenSequence {
 		// re-initialize 
 		fOffset= fEndOffset= fStart;
 		nextCharPhase3();
+		fReplay= null;
+		fRecording= null;
+	}
+
+	/**
+	 * Replays the given tokens instead of lexing the input, the tokens must have been recorded
+	 * for the same input and options. Must be called before the first token is requested.
+	 */
+	void replay(LexerTokenStream stream) {
+		fReplay= stream;
+		fReplayIndex= 0;
+		fReplayEndOffset= fStart;
+		fReplaying= true;
+	}
+
+	/**
+	 * Records the tokens in the given stream, which is put into the cache when the end of
+	 * the input is reached. Must be called before the first token is requested.
+	 */
+	void record(LexerTokenStream stream, LexerTokenCache cache, Object key, int limit) {
+		fRecording= stream;
+		fRecordingCache= cache;
+		fRecordingKey= key;
+		fRecordingLimit= limit;
 	}
 	
 	public boolean isContentAssistMode() {
@@ -257,9 +324,125 @@ final public class Lexer implements ITokenSequence {
 	}
 	
 	/**
-	 * Computes the next token.
+	 * Computes the next token, either by replaying it or by lexing the input.
 	 */
 	private Token fetchToken() throws OffsetLimitReachedException {
+		if (fReplay != null) {
+			if (fReplaying) {
+				Token t= replayToken();
+				if (t != null)
+					return t;
+			}
+			Token t= lexToken();
+			if (t.getType() == tNEWLINE) {
+				resumeReplay(t);
+			}
+			return t;
+		}
+		if (fRecording == null)
+			return lexToken();
+
+		final boolean insideIncludeDirective= fInsideIncludeDirective;
+		final Token t= lexToken();
+		if (t instanceof TokenWithImage) {
+			recordEntry(LexerTokenStream.TOKEN_WITH_IMAGE, insideIncludeDirective, t.getType(),
+					t.getOffset(), t.getEndOffset(), t.getCharImage());
+		} else {
+			recordEntry(t instanceof TokenForDigraph ? LexerTokenStream.DIGRAPH_TOKEN : LexerTokenStream.TOKEN,
+					insideIncludeDirective, t.getType(), t.getOffset(), t.getEndOffset(), null);
+		}
+		if (t.getType() == IToken.tEND_OF_INPUT && fRecording != null) {
+			fRecordingCache.put(fRecordingKey, fRecording);
+			fRecording= null;
+		}
+		return t;
+	}
+
+	private void recordEntry(int flags, boolean insideIncludeDirective, int type, int offset, int endOffset, char[] image) {
+		if (insideIncludeDirective) {
+			flags |= LexerTokenStream.INCLUDE_DIRECTIVE;
+		}
+		fRecording.add(flags, type, offset, endOffset, image);
+		if (fRecording.size() > fRecordingLimit) {
+			// Too large for the cache
+			fRecording= null;
+		}
+	}
+
+	/**
+	 * Replays the comments and problems of the next group of the recorded stream and returns
+	 * its token. Returns <code>null</code> after switching to lexing the input, when the token
+	 * depends on the include directive that is being lexed.
+	 */
+	private Token replayToken() {
+		final LexerTokenStream stream= fReplay;
+		int i= fReplayIndex;
+		if (fInsideIncludeDirective || stream.isInsideIncludeDirective(i)) {
+			fReplaying= false;
+			fEndOffset= fReplayEndOffset;
+			nextCharPhase3();
+			return null;
+		}
+		while (true) {
+			final int offset= stream.getOffset(i);
+			final int endOffset= stream.getEndOffset(i);
+			switch (stream.getKind(i)) {
+			case LexerTokenStream.BLOCK_COMMENT:
+				fLog.handleComment(true, offset, endOffset, fInput);
+				break;
+			case LexerTokenStream.LINE_COMMENT:
+				fLog.handleComment(false, offset, endOffset, fInput);
+				break;
+			case LexerTokenStream.PROBLEM:
+				fLog.handleProblem(stream.getType(i), stream.getImage(i), offset, endOffset);
+				break;
+			default:
+				final int type= stream.getType(i);
+				// The end of input is returned again and again
+				fReplayIndex= type == IToken.tEND_OF_INPUT ? i : i + 1;
+				fReplayEndOffset= endOffset;
+				switch (stream.getKind(i)) {
+				case LexerTokenStream.TOKEN_WITH_IMAGE:
+					return new TokenWithImage(type, fSource, offset, endOffset, stream.getImage(i));
+				case LexerTokenStream.DIGRAPH_TOKEN:
+					return new TokenForDigraph(type, fSource, offset, endOffset);
+				default:
+					return new Token(type, fSource, offset, endOffset);
+				}
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Called with a newline that was lexed from the input, continues the replay after the newline.
+	 */
+	private void resumeReplay(Token newline) {
+		final LexerTokenStream stream= fReplay;
+		final int offset= newline.getOffset();
+		int i= fReplayIndex;
+		for (; i < stream.size(); i++) {
+			final int kind= stream.getKind(i);
+			if (kind == LexerTokenStream.TOKEN || kind == LexerTokenStream.TOKEN_WITH_IMAGE
+					|| kind == LexerTokenStream.DIGRAPH_TOKEN) {
+				final int tokenOffset= stream.getOffset(i);
+				if (tokenOffset > offset)
+					break;
+				if (tokenOffset == offset && stream.getType(i) == tNEWLINE) {
+					fReplayIndex= i + 1;
+					fReplayEndOffset= newline.getEndOffset();
+					fReplaying= true;
+					return;
+				}
+			}
+		}
+		fReplayIndex= Math.min(i, stream.size() - 1);
+	}
+
+	/**
+	 * Computes the next token from the input.
+	 */
+	private Token lexToken() throws OffsetLimitReachedException {
 		while (true) {
 			final int start= fOffset;
 			final int c= fCharPhase3;
@@ -275,6 +458,7 @@ final public class Lexer implements ITokenSequence {
 			case 0xb:  // vertical tab
 			case '\f': 
 			case '\r':
+				skipRun(BLANK);
 				continue;
 
 			case 'L':
@@ -673,6 +857,17 @@ final public class Lexer implements ITokenSequence {
 
     private void handleProblem(int problemID, char[] arg, int offset) {
     	fLog.handleProblem(problemID, arg, offset, fOffset);
+    	if (fRecording != null) {
+    		recordEntry(LexerTokenStream.PROBLEM, fInsideIncludeDirective, problemID, offset, fOffset, arg);
+    	}
+    }
+
+    private void handleComment(boolean isBlockComment, int offset, int endOffset) {
+    	fLog.handleComment(isBlockComment, offset, endOffset, fInput);
+    	if (fRecording != null) {
+    		recordEntry(isBlockComment ? LexerTokenStream.BLOCK_COMMENT : LexerTokenStream.LINE_COMMENT,
+    				fInsideIncludeDirective, 0, offset, endOffset, null);
+    	}
     }
 
 	private Token headerName(final int start, final boolean expectQuotes) throws OffsetLimitReachedException {
@@ -708,30 +903,41 @@ final public class Lexer implements ITokenSequence {
 		// We can ignore line-splices, trigraphs and windows newlines when searching for the '*'
 		int pos= fEndOffset;
 		while (isValidOffset(pos)) {
+			if (fInputArray != null) {
+				final int end= fLimit < 0 ? fInputArray.length : fLimit;
+				while (pos < end && fInputArray[pos] != trigger) {
+					pos++;
+				}
+				if (pos == end)
+					break;
+			}
 			if (fInput.get(pos++) == trigger) {
 				fEndOffset= pos;
 				if (nextCharPhase3() == '/') {
 					nextCharPhase3();
-					fLog.handleComment(true, start, fOffset, fInput);
+					handleComment(true, start, fOffset);
 					return;
 				}
 			}
 		}
 		fCharPhase3= END_OF_INPUT;
 		fOffset= fEndOffset= pos;
-		fLog.handleComment(true, start, pos, fInput);
+		handleComment(true, start, pos);
 	}
 
 	private void lineComment(final int start) {
+		skipRun(COMMENT_PART);
 		int c= fCharPhase3;
 		while (true) {
 			switch (c) {
 			case END_OF_INPUT:
 			case '\n':
-				fLog.handleComment(false, start, fOffset, fInput);
+				handleComment(false, start, fOffset);
 				return;
 			}
-			c= nextCharPhase3();
+			nextCharPhase3();
+			skipRun(COMMENT_PART);
+			c= fCharPhase3;
 		}
 	}
 	
@@ -965,6 +1171,11 @@ final public class Lexer implements ITokenSequence {
         	
         	length++;
         	c= nextCharPhase3();
+        	final int run= skipRun(IDENTIFIER_PART);
+        	if (run > 0) {
+        		length+= run;
+        		c= fCharPhase3;
+        	}
         }
 
         return newToken(tokenKind, start, length);
@@ -1052,6 +1263,11 @@ final public class Lexer implements ITokenSequence {
         	
         	c= nextCharPhase3();
         	length++;
+        	final int run= skipRun(NUMBER_PART);
+        	if (run > 0) {
+        		length+= run;
+        		c= fCharPhase3;
+        	}
 		}
 		
         return newToken((isFloat ? IToken.tFLOATINGPT : IToken.tINTEGER), start, length);
@@ -1077,6 +1293,33 @@ final public class Lexer implements ITokenSequence {
 		fCharPhase3= fMarkPhase3PrefetchedChar;
 	}
 	
+	/**
+	 * Consumes the run of characters of the given class starting with the current character,
+	 * scanning the input array directly. Characters that may be subject to phase 1-3 end the run.
+	 * Changes fOffset, fEndOffset and fCharPhase3 like {@link #nextCharPhase3()}.
+	 * @return the number of characters consumed.
+	 */
+	private int skipRun(int charClass) {
+		final char[] input= fInputArray;
+		// The current character must not be the result of phase 1-3.
+		if (input == null || fEndOffset != fOffset + 1)
+			return 0;
+		final int end= fLimit < 0 ? input.length : fLimit;
+		int pos= fOffset;
+		while (pos < end) {
+			final char c= input[pos];
+			if (((c < CHAR_CLASSES.length ? CHAR_CLASSES[c] : COMMENT_PART) & charClass) == 0)
+				break;
+			pos++;
+		}
+		final int length= pos - fOffset;
+		if (length > 0) {
+			fEndOffset= pos;
+			nextCharPhase3();
+		}
+		return length;
+	}
+
 	/**
 	 * Perform phase 1-3: Replace \r\n with \n, handle trigraphs, detect line-splicing.
 	 * Changes fOffset, fEndOffset and fCharPhase3, state-less otherwise.
@@ -1247,6 +1490,10 @@ final public class Lexer implements ITokenSequence {
 		fMarkInsideIncludeDirective= fInsideIncludeDirective;
 		fMarkToken= fToken;
 		fMarkLastToken= fLastToken;
+		fMarkReplayIndex= fReplayIndex;
+		fMarkReplayEndOffset= fReplayEndOffset;
+		fMarkReplaying= fReplaying;
+		fMarkRecordingSize= fRecording != null ? fRecording.size() : 0;
 	}
 
 	public void restoreState() {
@@ -1256,5 +1503,11 @@ final public class Lexer implements ITokenSequence {
 		fInsideIncludeDirective= fMarkInsideIncludeDirective;
 		fToken= fMarkToken;
 		fLastToken= fMarkLastToken;
+		fReplayIndex= fMarkReplayIndex;
+		fReplayEndOffset= fMarkReplayEndOffset;
+		fReplaying= fMarkReplaying;
+		if (fRecording != null) {
+			fRecording.truncate(fMarkRecordingSize);
+		}
 	}
 }
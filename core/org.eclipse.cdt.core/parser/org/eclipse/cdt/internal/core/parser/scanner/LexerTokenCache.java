@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
+
+/**
+ * Cache of the tokens lexed from included files, shared by all preprocessors. The first lexer
+ * that works through the contents of a header records its tokens, the lexers for the following
+ * inclusions of the same contents replay them. The entries are keyed by the location, the hash
+ * of the contents and the lexer options, a modified file is therefore lexed again. The least
+ * recently used streams are dropped when the total number of recorded tokens exceeds the limit.
+ * <p>
+ * A preprocessor keeps the shared cache for the duration of a parse. Between parses the cache is
+ * only softly reachable, such that the memory can be reclaimed when it is needed elsewhere.
+ */
+final class LexerTokenCache {
+	private static final String SIZE_PROPERTY= "org.eclipse.cdt.core.parser.scanner.tokenCacheSize"; //$NON-NLS-1$
+	// Takes a few megabytes, the tokens of the headers of a large library.
+	private static final int DEFAULT_SIZE= 200000;
+	private static final int MAX_SIZE= Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE);
+
+	private static SoftReference<LexerTokenCache> sSharedInstance= new SoftReference<>(null);
+
+	private static final class Key {
+		final String fPath;
+		final long fContentsHash;
+		final int fLength;
+		final int fOptions;
+
+		Key(String path, long contentsHash, int length, int options) {
+			fPath= path;
+			fContentsHash= contentsHash;
+			fLength= length;
+			fOptions= options;
+		}
+
+		@Override
+		public int hashCode() {
+			return fPath.hashCode() * 31 + (int) (fContentsHash ^ (fContentsHash >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fContentsHash == other.fContentsHash && fLength == other.fLength
+					&& fOptions == other.fOptions && fPath.equals(other.fPath);
+		}
+	}
+
+	private final Map<Key, LexerTokenStream> fStreams= new LinkedHashMap<>(16, 0.75f, true);
+	private final int fMaxSize;
+	private int fSize;
+
+	/**
+	 * Returns the cache shared by all preprocessors, or <code>null</code> if caching is disabled.
+	 * The cache is recreated when it has been garbage collected.
+	 */
+	static synchronized LexerTokenCache getSharedInstance() {
+		if (MAX_SIZE <= 0)
+			return null;
+
+		LexerTokenCache cache= sSharedInstance.get();
+		if (cache == null) {
+			cache= new LexerTokenCache(MAX_SIZE);
+			sSharedInstance= new SoftReference<>(cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * @param maxSize the maximum number of entries of all streams in the cache.
+	 */
+	LexerTokenCache(int maxSize) {
+		fMaxSize= maxSize;
+	}
+
+	/**
+	 * Lets the lexer replay the tokens recorded for the given contents, or, if requested, record
+	 * them when they are not in the cache.
+	 */
+	void attach(Lexer lexer, String path, AbstractCharArray source, LexerOptions options, boolean record) {
+		if (path == null || source.hasError())
+			return;
+
+		final Key key= new Key(path, source.getContentsHash(), source.getLength(), encode(options));
+		LexerTokenStream stream;
+		synchronized (this) {
+			stream= fStreams.get(key);
+		}
+		if (stream != null) {
+			lexer.replay(stream);
+		} else if (record) {
+			lexer.record(new LexerTokenStream(), this, key, fMaxSize / 4);
+		}
+	}
+
+	/**
+	 * Called by a lexer that recorded all tokens of its input.
+	 */
+	void put(Object key, LexerTokenStream stream) {
+		stream.trimToSize();
+		synchronized (this) {
+			store((Key) key, stream);
+		}
+	}
+
+	private void store(Key key, LexerTokenStream stream) {
+		final LexerTokenStream old= fStreams.put(key, stream);
+		if (old != null) {
+			fSize-= old.size();
+		}
+		fSize+= stream.size();
+		for (Iterator<LexerTokenStream> it= fStreams.values().iterator(); fSize > fMaxSize && it.hasNext();) {
+			fSize-= it.next().size();
+			it.remove();
+		}
+	}
+
+	synchronized void clear() {
+		fStreams.clear();
+		fSize= 0;
+	}
+
+	private static int encode(LexerOptions options) {
+		int result= 0;
+		if (options.fSupportDollarInIdentifiers)
+			result |= 0x01;
+		if (options.fSupportAtSignInIdentifiers)
+			result |= 0x02;
+		if (options.fSupportMinAndMax)
+			result |= 0x04;
+		if (options.fCreateImageLocations)
+			result |= 0x08;
+		if (options.fSupportSlashPercentComments)
+			result |= 0x10;
+		if (options.fSupportUTFLiterals)
+			result |= 0x20;
+		if (options.fSupportRawStringLiterals)
+			result |= 0x40;
+		if (options.fSupportUserDefinedLiterals)
+			result |= 0x80;
+		return result;
+	}
+}
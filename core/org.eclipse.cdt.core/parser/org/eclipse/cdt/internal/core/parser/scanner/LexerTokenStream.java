@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.util.Arrays;
+
+import org.eclipse.cdt.core.parser.util.CharArrayMap;
+
+/**
+ * The tokens, comments and problems produced by a {@link Lexer} for the contents of a file. The
+ * stream is recorded while a lexer works through the file and can then be replayed by lexers for
+ * the same contents instead of lexing it again. Lexing does not depend on macro definitions, the
+ * preprocessor still has to process the replayed tokens for every translation unit.
+ * <p>
+ * Each call to the lexer for the next token produces a group of entries, any number of comments
+ * and problems followed by the token. All entries of a group are flagged with
+ * {@link #INCLUDE_DIRECTIVE} when the token was lexed inside of an include directive.
+ */
+final class LexerTokenStream {
+	static final byte TOKEN= 0;
+	static final byte TOKEN_WITH_IMAGE= 1;
+	static final byte DIGRAPH_TOKEN= 2;
+	static final byte BLOCK_COMMENT= 3;
+	static final byte LINE_COMMENT= 4;
+	static final byte PROBLEM= 5;
+	static final byte KIND_MASK= 0x0f;
+	static final byte INCLUDE_DIRECTIVE= 0x10;
+
+	private byte[] fFlags;
+	// Type of tokens, id of problems.
+	private int[] fTypes;
+	private int[] fOffsets;
+	private int[] fEndOffsets;
+	// Image of tokens, argument of problems.
+	private char[][] fImages;
+	private int fSize;
+
+	LexerTokenStream() {
+		this(256);
+	}
+
+	LexerTokenStream(int initialCapacity) {
+		fFlags= new byte[initialCapacity];
+		fTypes= new int[initialCapacity];
+		fOffsets= new int[initialCapacity];
+		fEndOffsets= new int[initialCapacity];
+		fImages= new char[initialCapacity][];
+	}
+
+	void add(int flags, int type, int offset, int endOffset, char[] image) {
+		if (fSize == fFlags.length) {
+			int capacity= fSize * 2;
+			fFlags= Arrays.copyOf(fFlags, capacity);
+			fTypes= Arrays.copyOf(fTypes, capacity);
+			fOffsets= Arrays.copyOf(fOffsets, capacity);
+			fEndOffsets= Arrays.copyOf(fEndOffsets, capacity);
+			fImages= Arrays.copyOf(fImages, capacity);
+		}
+		fFlags[fSize]= (byte) flags;
+		fTypes[fSize]= type;
+		fOffsets[fSize]= offset;
+		fEndOffsets[fSize]= endOffset;
+		fImages[fSize]= image;
+		fSize++;
+	}
+
+	/**
+	 * Removes the entries recorded after the stream had the given size.
+	 */
+	void truncate(int size) {
+		if (size < fSize) {
+			Arrays.fill(fImages, size, fSize, null);
+			fSize= size;
+		}
+	}
+
+	/**
+	 * Called when the recording is complete. Releases unused capacity and shares equal images
+	 * between the tokens.
+	 */
+	void trimToSize() {
+		fFlags= Arrays.copyOf(fFlags, fSize);
+		fTypes= Arrays.copyOf(fTypes, fSize);
+		fOffsets= Arrays.copyOf(fOffsets, fSize);
+		fEndOffsets= Arrays.copyOf(fEndOffsets, fSize);
+		fImages= Arrays.copyOf(fImages, fSize);
+		CharArrayMap<char[]> images= new CharArrayMap<>();
+		for (int i= 0; i < fSize; i++) {
+			final char[] image= fImages[i];
+			if (image != null) {
+				final char[] shared= images.get(image);
+				if (shared == null) {
+					images.put(image, image);
+				} else {
+					fImages[i]= shared;
+				}
+			}
+		}
+	}
+
+	int size() {
+		return fSize;
+	}
+
+	int getKind(int i) {
+		return fFlags[i] & KIND_MASK;
+	}
+
+	boolean isInsideIncludeDirective(int i) {
+		return (fFlags[i] & INCLUDE_DIRECTIVE) != 0;
+	}
+
+	int getType(int i) {
+		return fTypes[i];
+	}
+
+	int getOffset(int i) {
+		return fOffsets[i];
+	}
+
+	int getEndOffset(int i) {
+		return fEndOffsets[i];
+	}
+
+	char[] getImage(int i) {
+		return fImages[i];
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,27 +15,56 @@ import java.util.ArrayList;
 import org.eclipse.cdt.core.dom.ast.IASTImageLocation;
 import org.eclipse.cdt.core.dom.ast.IASTNodeLocation;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IMacroBinding;
+import org.eclipse.cdt.internal.core.parser.scanner.ImageLocationInfo.MacroImageLocationInfo;
+import org.eclipse.cdt.internal.core.parser.scanner.ImageLocationInfo.ParameterImageLocationInfo;
 
 /**
  * A location context representing macro expansions.
+ * <p>
+ * The node for the expansion is created when it is first requested. The image locations are
+ * stored as triples of token offset, start and end in an int array, the macros they stem from
+ * in a parallel array with <code>null</code> for tokens that stem from macro arguments.
  * @since 5.0
  */
 class LocationCtxMacroExpansion extends LocationCtx {
+	private static final int[] NO_IMAGE_LOCATIONS= {};
+	private static final ObjectStyleMacro[] NO_IMAGE_MACROS= {};
+
 	private final LocationMap fLocationMap;
 	private final int fLength;
-	private final ImageLocationInfo[] fLocationInfos;
+	private final int[] fImageLocations;
+	private final ObjectStyleMacro[] fImageMacros;
 	private final ASTMacroReferenceName fExpansionName;
+	private ASTMacroExpansion fExpansion;
 
 	public LocationCtxMacroExpansion(LocationMap map, LocationCtxContainer parent, int parentOffset, int parentEndOffset,
 			int sequenceNumber, int length, ImageLocationInfo[] imageLocations,	ASTMacroReferenceName expansionName) {
 		super(parent, parentOffset, parentEndOffset, sequenceNumber);
 		fLocationMap= map;
 		fLength= length;
-		fLocationInfos= imageLocations;
 		fExpansionName= expansionName;
-		if (!(expansionName.getParent() instanceof ASTMacroExpansion)) {
-			throw new IllegalArgumentException(expansionName.toString() + " is not a macro expansion name"); //$NON-NLS-1$
+		if (imageLocations.length == 0) {
+			fImageLocations= NO_IMAGE_LOCATIONS;
+			fImageMacros= NO_IMAGE_MACROS;
+		} else {
+			fImageLocations= new int[3 * imageLocations.length];
+			fImageMacros= new ObjectStyleMacro[imageLocations.length];
+			for (int i= 0; i < imageLocations.length; i++) {
+				final ImageLocationInfo info= imageLocations[i];
+				fImageLocations[3 * i]= info.fTokenOffsetInExpansion;
+				if (info instanceof MacroImageLocationInfo) {
+					MacroImageLocationInfo mli= (MacroImageLocationInfo) info;
+					fImageMacros[i]= mli.fMacro;
+					fImageLocations[3 * i + 1]= mli.fOffset;
+					fImageLocations[3 * i + 2]= mli.fEndOffset;
+				} else {
+					ParameterImageLocationInfo pli= (ParameterImageLocationInfo) info;
+					fImageLocations[3 * i + 1]= pli.fSequenceNumber;
+					fImageLocations[3 * i + 2]= pli.fSequenceEndNumber;
+				}
+			}
 		}
 	}
 
@@ -57,9 +86,18 @@ class LocationCtxMacroExpansion extends LocationCtx {
 	}	
 	
 	public ASTMacroExpansion getExpansion() {
-		return (ASTMacroExpansion) fExpansionName.getParent();
+		if (fExpansion == null) {
+			fExpansion= new ASTMacroExpansion(fLocationMap.getNodeOwner(), fExpansionName.getOffset(),
+					fSequenceNumber);
+			fExpansion.setContext(this);
+		}
+		return fExpansion;
 	}
 	
+	public IASTTranslationUnit getTranslationUnit() {
+		return fLocationMap.getNodeOwner();
+	}
+
 	public ASTMacroReferenceName getMacroReference() {
 		return fExpansionName;
 	}
@@ -81,8 +119,10 @@ class LocationCtxMacroExpansion extends LocationCtx {
 		int nextToCheck= offset;
 		ImageLocationInfo firstInfo= null;
 		ImageLocationInfo lastInfo= null;
-		for (ImageLocationInfo info : fLocationInfos) {
-			if (info.fTokenOffsetInExpansion == nextToCheck) {
+		for (int i= 0; i < fImageMacros.length; i++) {
+			final int tokenOffset= fImageLocations[3 * i];
+			if (tokenOffset == nextToCheck) {
+				final ImageLocationInfo info= getImageLocationInfo(i);
 				if (firstInfo == null || lastInfo == null) {
 					firstInfo= lastInfo= info;
 				} else if (lastInfo.canConcatenate(info)) {
@@ -93,15 +133,24 @@ class LocationCtxMacroExpansion extends LocationCtx {
 				if (++nextToCheck == end) {
 					return firstInfo.createLocation(fLocationMap, lastInfo);
 				}
-			} else if (info.fTokenOffsetInExpansion > nextToCheck) {
+			} else if (tokenOffset > nextToCheck) {
 				return null;
 			}
 		}
 		return null;
 	}
 
+	private ImageLocationInfo getImageLocationInfo(int i) {
+		final int start= fImageLocations[3 * i + 1];
+		final int end= fImageLocations[3 * i + 2];
+		if (fImageMacros[i] != null) {
+			return new MacroImageLocationInfo(fImageMacros[i], start, end);
+		}
+		return new ParameterImageLocationInfo(start, end);
+	}
+
 	public ASTPreprocessorName[] getNestedMacroReferences() {
-		return fLocationMap.getNestedMacroReferences((ASTMacroExpansion) fExpansionName.getParent());
+		return fLocationMap.getNestedMacroReferences(this);
 	}
 	
 	@Override
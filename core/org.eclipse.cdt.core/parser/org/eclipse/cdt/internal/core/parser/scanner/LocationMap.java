@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -53,10 +53,13 @@ public class LocationMap implements ILocationResolver {
 	private final LexerOptions fLexerOptions;
 	private String fTranslationUnitPath;
     private IASTTranslationUnit fTranslationUnit;
+    // The nodes created on demand belong to the first root node, also when the AST is copied.
+    private IASTTranslationUnit fNodeOwner;
 
-    private ArrayList<ASTPreprocessorNode> fDirectives= new ArrayList<>();
+    // Directives and comments are stored in a compact form, the nodes are created on demand.
+    private DirectiveList fDirectives= new DirectiveList();
     private ArrayList<ASTProblem> fProblems= new ArrayList<>();
-    private ArrayList<ASTComment> fComments= new ArrayList<>();
+    private CommentList fComments= new CommentList();
     private ArrayList<ASTMacroDefinition> fBuiltinMacros= new ArrayList<>();
 	private ArrayList<ASTPreprocessorName> fMacroReferences= new ArrayList<>();
 	
@@ -190,21 +193,21 @@ public class LocationMap implements ILocationResolver {
 		int endNumber= getSequenceNumberForOffset(endOffset);
 		final int length= endNumber - nameNumber;
 		
-		ASTMacroExpansion expansion= new ASTMacroExpansion(fTranslationUnit, nameNumber, endNumber);
-		ASTMacroReferenceName explicitRef= new ASTMacroReferenceName(expansion,
+		// The node for the expansion is created by the context on demand.
+		ASTMacroReferenceName explicitRef= new ASTMacroReferenceName(null,
 				IASTPreprocessorMacroExpansion.EXPANSION_NAME, nameNumber, nameEndNumber, macro, null);
+		LocationCtxMacroExpansion expansionCtx= new LocationCtxMacroExpansion(this,
+				(LocationCtxContainer) fCurrentContext, nameOffset, endOffset, endNumber,
+				contextLength, imageLocations, explicitRef);
+		explicitRef.setExpansionContext(expansionCtx);
 		addMacroReference(explicitRef);
 		for (IASTName implicitMacroReference : implicitMacroReferences) {
 			ASTMacroReferenceName name = (ASTMacroReferenceName) implicitMacroReference;
-			name.setParent(expansion);
+			name.setExpansionContext(expansionCtx);
 			name.setOffsetAndLength(nameNumber, length);
 			addMacroReference(name);
 		}
 		
-		LocationCtxMacroExpansion expansionCtx= new LocationCtxMacroExpansion(this,
-				(LocationCtxContainer) fCurrentContext, nameOffset, endOffset, endNumber,
-				contextLength, imageLocations, explicitRef);
-		expansion.setContext(expansionCtx);
 		fCurrentContext= expansionCtx;
 		fLastChildInsertionOffset= 0;
 		return fCurrentContext;
@@ -273,7 +276,6 @@ public class LocationMap implements ILocationResolver {
 	}
 
 	public void encounteredComment(int offset, int endOffset, boolean isBlockComment, AbstractCharArray input) {
-		ASTComment comment = new ASTComment(fTranslationUnit, getCurrentFilePath(), offset, endOffset, isBlockComment);
 		if (fLexerOptions.fIncludeExportPatterns != null && fCurrentContext instanceof LocationCtxFile) {
 			CharSequence text = getTrimmedCommentText(input.subSequence(offset, endOffset), isBlockComment);
 			IncludeExportPatterns patterns = fLexerOptions.fIncludeExportPatterns;
@@ -288,7 +290,7 @@ public class LocationMap implements ILocationResolver {
 				((LocationCtxFile) fCurrentContext).setInsideIncludeExportBlock(false);
 			}
 		}
-		fComments.add(comment);
+		fComments.add(getCurrentFilePath(), offset, endOffset, isBlockComment);
 	}
 
 	private CharSequence getTrimmedCommentText(CharSequence comment, boolean isBlockComment) {
@@ -315,12 +317,10 @@ public class LocationMap implements ILocationResolver {
 		fProblems.add(problem);
 	}
 
-	public ASTElse encounterPoundElse(int startOffset, int endOffset, boolean isActive) {
+	public void encounterPoundElse(int startOffset, int endOffset, boolean isTaken, boolean isActive) {
 		startOffset= getSequenceNumberForOffset(startOffset);
 		endOffset= getSequenceNumberForOffset(endOffset);
-		final ASTElse astElse = new ASTElse(fTranslationUnit, startOffset, endOffset, isActive);
-		fDirectives.add(astElse);
-		return astElse;
+		fDirectives.addElse(startOffset, endOffset, isTaken, isActive);
 	}
 
 	public ASTElif encounterPoundElif(int startOffset, int condOffset, int condEndOffset, int endOffset, boolean taken, 
@@ -341,12 +341,10 @@ public class LocationMap implements ILocationResolver {
 		return elif;
 	}
 
-	public ASTEndif encounterPoundEndIf(int startOffset, int endOffset) {
+	public void encounterPoundEndIf(int startOffset, int endOffset, boolean isActive) {
 		startOffset= getSequenceNumberForOffset(startOffset);
 		endOffset= getSequenceNumberForOffset(endOffset);
-		final ASTEndif stmt = new ASTEndif(fTranslationUnit, startOffset, endOffset);
-		fDirectives.add(stmt);
-		return stmt;
+		fDirectives.addEndif(startOffset, endOffset, isActive);
 	}
 
 	public void encounterPoundError(int startOffset, int condOffset, int condEndOffset, int endOffset) {
@@ -354,7 +352,7 @@ public class LocationMap implements ILocationResolver {
 		condOffset= getSequenceNumberForOffset(condOffset);
 		condEndOffset= getSequenceNumberForOffset(condEndOffset);
 		// not using endOffset, compatible with 4.0: endOffset= getSequenceNumberForOffset(endOffset);
-		fDirectives.add(new ASTError(fTranslationUnit, startOffset, condOffset, condEndOffset));
+		fDirectives.addError(startOffset, condOffset, condEndOffset);
 	}
 
 	public void encounterPoundPragma(int startOffset, int condOffset, int condEndOffset, int endOffset) {
@@ -362,11 +360,11 @@ public class LocationMap implements ILocationResolver {
 		condOffset= getSequenceNumberForOffset(condOffset);
 		condEndOffset= getSequenceNumberForOffset(condEndOffset);
 		// not using endOffset, compatible with 4.0: endOffset= getSequenceNumberForOffset(endOffset);
-		fDirectives.add(new ASTPragma(fTranslationUnit, startOffset, condOffset, condEndOffset));
+		fDirectives.addPragma(startOffset, condOffset, condEndOffset);
 	}
 
 	public void encounterPragmaOperator(int startNumber, int condNumber, int condEndNumber, int endNumber) {
-		fDirectives.add(new ASTPragmaOperator(fTranslationUnit, startNumber, condNumber, condEndNumber, endNumber));
+		fDirectives.addPragmaOperator(startNumber, condNumber, condEndNumber, endNumber);
 	}
 
 	public ASTIfdef encounterPoundIfdef(int startOffset, int condOffset, int condEndOffset,
@@ -417,15 +415,8 @@ public class LocationMap implements ILocationResolver {
 		nameEndOffset= getSequenceNumberForOffset(nameEndOffset);
 		expansionOffset= getSequenceNumberForOffset(expansionOffset);
 		endOffset= getSequenceNumberForOffset(endOffset);
-		ASTPreprocessorNode astMacro;
-		if (!macrodef.isFunctionStyle()) {
-			astMacro= new ASTMacroDefinition(fTranslationUnit, macrodef, startOffset, nameOffset,
-					nameEndOffset, expansionOffset, endOffset, isActive);
-		} else {
-			astMacro= new ASTFunctionStyleMacroDefinition(fTranslationUnit, macrodef, startOffset,
-					nameOffset, nameEndOffset, expansionOffset, endOffset, isActive);
-		}
-		fDirectives.add(astMacro);
+		fDirectives.addMacroDefinition(macrodef, startOffset, nameOffset, nameEndOffset, expansionOffset,
+				endOffset, isActive);
 	}
 
 	public void encounterPoundUndef(IMacroBinding definition, int startOffset, int nameOffset,
@@ -443,11 +434,21 @@ public class LocationMap implements ILocationResolver {
 	@Override
 	public void setRootNode(IASTTranslationUnit root) {
 		fTranslationUnit= root;
+		if (fNodeOwner == null) {
+			fNodeOwner= root;
+		}
 		if (fTranslationUnit instanceof ISkippedIndexedFilesListener) {
 			fSkippedFilesListeners.add((ISkippedIndexedFilesListener) root);
 		}
 	}
 	
+	/**
+	 * Returns the parent for the nodes that are created on demand.
+	 */
+	IASTTranslationUnit getNodeOwner() {
+		return fNodeOwner;
+	}
+
 	@Override
 	public String getTranslationUnitPath() {
 		return fTranslationUnitPath;
@@ -589,13 +590,12 @@ public class LocationMap implements ILocationResolver {
 		final int sequenceEnd= nodeSpec.getSequenceEnd();
 		
 		// check directives
-		int from= findLastNodeBefore(fDirectives, sequenceStart);
+		int from= fDirectives.findLastBefore(sequenceStart);
 		for (int i= from + 1; i < fDirectives.size(); i++) {
-			ASTPreprocessorNode directive= fDirectives.get(i);
-			if (directive.getOffset() > sequenceEnd) {
+			if (fDirectives.getStartNumber(i) > sequenceEnd) {
 				break;
 			}
-			directive.findNode(nodeSpec);
+			fDirectives.get(i, fNodeOwner).findNode(nodeSpec);
 		}
 		
 		// check macro references and expansions
@@ -635,32 +635,21 @@ public class LocationMap implements ILocationResolver {
 		}
 	}
 	
-    private int findLastNodeBefore(ArrayList<? extends ASTPreprocessorNode> nodes, int sequenceStart) {
-    	int lower= -1;
-    	int upper= nodes.size() - 1;
-    	while (lower < upper) {
-    		int middle= (lower + upper + 1) / 2;
-    		ASTPreprocessorNode candidate= nodes.get(middle);
-    		if (candidate.getOffset() + candidate.getLength() >= sequenceStart) {
-    			upper= middle - 1;
-    		} else {
-    			lower= middle;
-    		}
-    	}
-    	return lower;
-	}
-
     private int findLastMacroReferenceBefore(ArrayList<? extends ASTPreprocessorName> nodes, int sequenceStart) {
     	int lower= -1;
     	int upper= nodes.size() - 1;
     	while (lower < upper) {
     		int middle= (lower + upper + 1) / 2;
     		ASTPreprocessorNode candidate= nodes.get(middle);
-    		IASTNode parent= candidate.getParent();
-    		if (parent instanceof ASTMacroExpansion) {
-    			candidate= (ASTMacroExpansion) parent;
+    		int candidateEnd= candidate.getOffset() + candidate.getLength();
+    		if (candidate instanceof ASTMacroReferenceName) {
+    			// Use the end of the expansion without creating its node.
+    			LocationCtxMacroExpansion ctx= ((ASTMacroReferenceName) candidate).getExpansionContext();
+    			if (ctx != null) {
+    				candidateEnd= ctx.fSequenceNumber;
+    			}
     		}
-    		if (candidate.getOffset() + candidate.getLength() >= sequenceStart) {
+    		if (candidateEnd >= sequenceStart) {
     			upper= middle - 1;
     		} else {
     			lower= middle;
@@ -741,9 +730,9 @@ public class LocationMap implements ILocationResolver {
 	@Override
 	public IASTPreprocessorMacroDefinition[] getMacroDefinitions() {
     	ArrayList<IASTPreprocessorMacroDefinition> result= new ArrayList<>();
-    	for (ASTPreprocessorNode directive : fDirectives) {
-			if (directive instanceof IASTPreprocessorMacroDefinition) {
-				result.add((IASTPreprocessorMacroDefinition) directive);
+    	for (int i= 0; i < fDirectives.size(); i++) {
+			if (fDirectives.isMacroDefinition(i)) {
+				result.add((IASTPreprocessorMacroDefinition) fDirectives.get(i, fNodeOwner));
 			}
 		}
     	return result.toArray(new IASTPreprocessorMacroDefinition[result.size()]);
@@ -752,22 +741,30 @@ public class LocationMap implements ILocationResolver {
     @Override
 	public IASTPreprocessorIncludeStatement[] getIncludeDirectives() {
     	ArrayList<IASTPreprocessorIncludeStatement> result= new ArrayList<>();
-    	for (ASTPreprocessorNode directive : fDirectives) {
-			if (directive instanceof IASTPreprocessorIncludeStatement) {
-				result.add((IASTPreprocessorIncludeStatement) directive);
-			}
+    	for (int i= 0; i < fDirectives.size(); i++) {
+    		// Inclusions are always stored as nodes.
+    		if (fDirectives.isStoredAsNode(i)) {
+    			ASTPreprocessorNode directive= fDirectives.get(i, fNodeOwner);
+    			if (directive instanceof IASTPreprocessorIncludeStatement) {
+    				result.add((IASTPreprocessorIncludeStatement) directive);
+    			}
+    		}
 		}
     	return result.toArray(new IASTPreprocessorIncludeStatement[result.size()]);
     }
 
 	@Override
 	public IASTComment[] getComments() {
-    	return fComments.toArray(new IASTComment[fComments.size()]);
+    	return fComments.toArray(fNodeOwner);
 	}
 
     @Override
 	public IASTPreprocessorStatement[] getAllPreprocessorStatements() {
-    	return fDirectives.toArray(new IASTPreprocessorStatement[fDirectives.size()]);
+    	IASTPreprocessorStatement[] result= new IASTPreprocessorStatement[fDirectives.size()];
+    	for (int i= 0; i < result.length; i++) {
+    		result[i]= (IASTPreprocessorStatement) fDirectives.get(i, fNodeOwner);
+    	}
+    	return result;
     }
 
     @Override
@@ -827,11 +824,12 @@ public class LocationMap implements ILocationResolver {
 		return fMacroReferences.toArray(new IASTName[fMacroReferences.size()]);
 	}
 
-	public ASTPreprocessorName[] getNestedMacroReferences(ASTMacroExpansion expansion) {
-		final IASTName explicitRef= expansion.getMacroReference(); 
+	public ASTPreprocessorName[] getNestedMacroReferences(LocationCtxMacroExpansion expansionCtx) {
+		final IASTName explicitRef= expansionCtx.getMacroReference(); 
 		List<ASTPreprocessorName> result= new ArrayList<>();
 		for (ASTPreprocessorName name : fMacroReferences) {
-			if (name.getParent() == expansion && name != explicitRef) {
+			if (name != explicitRef && name instanceof ASTMacroReferenceName
+					&& ((ASTMacroReferenceName) name).getExpansionContext() == expansionCtx) {
 				result.add(name);
 			}
 		}
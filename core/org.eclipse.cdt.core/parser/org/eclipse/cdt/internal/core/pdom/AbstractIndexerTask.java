@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,6 +52,7 @@ import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit.IDependencyTree;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit.IDependencyTree.IASTInclusionNode;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDirective;
+import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexInclude;
@@ -61,6 +71,7 @@ import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.core.parser.IncludeExportPatterns;
 import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
 import org.eclipse.cdt.internal.core.dom.IIncludeFileResolutionHeuristics;
+import org.eclipse.cdt.internal.core.index.CIndex;
 import org.eclipse.cdt.internal.core.index.FileContentKey;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
@@ -78,6 +89,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
@@ -301,6 +313,27 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * A translation unit parsed on one of the parser threads, waiting to be written to the index.
+	 */
+	private static class ParsedFile {
+		final Object fTu;
+		final IIndexFileLocation fLocation;
+		final AbstractLanguage fLanguage;
+		final IScannerInfo fScannerInfo;
+		FileContent fCodeReader;
+		IASTTranslationUnit fAST;
+		Throwable fError;
+		long fParsingTime;
+
+		ParsedFile(Object tu, IIndexFileLocation ifl, AbstractLanguage language, IScannerInfo scannerInfo) {
+			fTu= tu;
+			fLocation= ifl;
+			fLanguage= language;
+			fScannerInfo= scannerInfo;
+		}
+	}
+
 	protected enum MessageKind { parsingFileTask, errorWhileParsing, tooManyIndexProblems }
 
 	private int fUpdateFlags= IIndexManager.UPDATE_ALL;
@@ -326,6 +359,16 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private long fIncludedFileSizeLimit;
 	private InternalFileContentProvider fCodeReaderFactory;
 	private int fSwallowOutOfMemoryError= 5;
+	private int fParserThreads= 1;
+	private ExecutorService fParserExecutor;
+	/** The index locked by the parser threads, the writable index must not be used from other threads. */
+	private IIndex fParserIndex;
+	private final Object fParserGate= new Object();
+	/** Whether parsed files are waiting to be written, the parser threads do not start new files then. */
+	private boolean fWritingParsedFiles;
+	/** File content providers not in use by any of the parser threads. */
+	private final ConcurrentLinkedQueue<InternalFileContentProvider> fParserFileContentProviders=
+			new ConcurrentLinkedQueue<>();
 	/**
 	 * A queue of urgent indexing tasks that contribute additional files to this task.
 	 * The files from the urgent tasks are indexed before all not yet processed files.
@@ -385,6 +428,16 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		fPragmaPrivatePattern = pattern;
 	}
 
+	/**
+	 * Sets the number of threads used for parsing translation units that are not yet in the index.
+	 * The resulting ASTs are written to the index by the thread running the task, in the order in
+	 * which the files would have been parsed by a single thread. A value of {@code 1} disables
+	 * parallel parsing.
+	 */
+	public void setParserThreads(int threads) {
+		fParserThreads= Math.max(1, threads);
+	}
+
 	/**
 	 * @see IPDOMIndexerTask#acceptUrgentTask(IPDOMIndexerTask)
 	 */
@@ -613,6 +666,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				fIndex.releaseReadLock();
 			}
 		} finally {
+			shutdownParserExecutor();
 			synchronized (this) {
 				fTaskCompleted = true;
 			}
@@ -883,6 +937,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				continue;
 
 			// First parse the required sources.
+			List<IIndexFileLocation> parallelFiles= new ArrayList<>();
 			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
 				IIndexFileLocation ifl= it.next();
 				LocationTask locTask = map.find(ifl);
@@ -891,11 +946,26 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
 					if (hasUrgentTasks())
 						return;
+					// Only sources without a previous version in the index are parsed in parallel,
+					// writing their ASTs cannot invalidate index content used by other parser threads.
+					if (fParserThreads > 1 && locTask.fVersionTasks.isEmpty()) {
+						parallelFiles.add(ifl);
+						continue;
+					}
+					if (!parallelFiles.isEmpty()) {
+						parseFilesInParallel(linkageID, map, parallelFiles, progress.split(parallelFiles.size()));
+						parallelFiles.clear();
+					}
 					final Object tu = locTask.fTu;
 					final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
 					parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, progress.split(1));
 				}
 			}
+			if (!parallelFiles.isEmpty()) {
+				if (hasUrgentTasks())
+					return;
+				parseFilesInParallel(linkageID, map, parallelFiles, progress.split(parallelFiles.size()));
+			}
 	
 			// Files with context.
 			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
@@ -1075,45 +1145,182 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			IIndexFileLocation ifl, IScannerInfo scanInfo, FileContext ctx, IProgressMonitor monitor)
 			throws CoreException, InterruptedException {
 		SubMonitor progress = SubMonitor.convert(monitor, 21);
-		boolean resultCacheCleared = false;
 		IPath path= getLabel(ifl);
-		Throwable th= null;
+		if (fShowActivity) {
+			trace("Indexer: parsing " + path.toOSString()); //$NON-NLS-1$
+		}
+		progress.subTask(getMessage(MessageKind.parsingFileTask,
+				path.lastSegment(), path.removeLastSegments(1).toString()));
+		ParsedFile file= new ParsedFile(tu, ifl, lang, scanInfo);
 		try {
-			if (fShowActivity) {
-				trace("Indexer: parsing " + path.toOSString()); //$NON-NLS-1$
+			file.fCodeReader= fResolver.getCodeReader(tu);
+			long start= System.currentTimeMillis();
+			file.fAST= createAST(lang, file.fCodeReader, scanInfo, fASTOptions, ctx, progress.split(10));
+			file.fParsingTime= System.currentTimeMillis() - start;
+		} catch (Throwable e) {
+			file.fError= e;
+		}
+		return writeParsedFile(file, ctx, progress.split(11));
+	}
+
+	/**
+	 * Parses the given translation units on the parser threads and writes the ASTs to the index on
+	 * the calling thread, in the order of the list. Parsing runs at most two files per parser thread
+	 * ahead of writing, a file that is parsed before the ones preceding it waits until they have
+	 * been written.
+	 * <p>
+	 * The parser threads hold read locks on the index while parsing and the index lets readers go
+	 * before a waiting writer. To keep the writer from starving, the parser threads do not start to
+	 * parse new files while the calling thread has parsed files to write. The writer then waits only
+	 * for the files being parsed, and they are written in the same go.
+	 * </p>
+	 */
+	private void parseFilesInParallel(int linkageID, LinkageTask map, List<IIndexFileLocation> files,
+			IProgressMonitor monitor) throws CoreException, InterruptedException {
+		final SubMonitor progress = SubMonitor.convert(monitor, files.size());
+		// The parser threads only check for cancellation, progress is reported by the writer.
+		final IProgressMonitor parserMonitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return progress.isCanceled();
 			}
-			progress.subTask(getMessage(MessageKind.parsingFileTask,
-					path.lastSegment(), path.removeLastSegments(1).toString()));
-			FileContent codeReader= fResolver.getCodeReader(tu);
+		};
+		final int maxParsedAhead= 2 * fParserThreads;
+		final AtomicBoolean stopped= new AtomicBoolean();
+		List<ParsedFile> parsedFiles= new ArrayList<>(files.size());
+		List<Future<?>> futures= new ArrayList<>(files.size());
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				while (futures.size() < files.size() && futures.size() < i + maxParsedAhead) {
+					final IIndexFileLocation ifl= files.get(futures.size());
+					final Object tu= map.find(ifl).fTu;
+					final ParsedFile file=
+							new ParsedFile(tu, ifl, getLanguage(tu, linkageID), getScannerInfo(linkageID, tu));
+					parsedFiles.add(file);
+					futures.add(getParserExecutor().submit(new Callable<Void>() {
+						@Override
+						public Void call() throws InterruptedException {
+							awaitParsedFilesWritten();
+							if (stopped.get())
+								return null;
+							parseInParserThread(file, parserMonitor);
+							return null;
+						}
+					}));
+				}
+				Future<?> future= futures.get(i);
+				if (!future.isDone()) {
+					setWritingParsedFiles(false);
+					try {
+						future.get();
+					} catch (ExecutionException e) {
+						parsedFiles.get(i).fError= e.getCause();
+					}
+				}
+				if (hasUrgentTasks())
+					return;
+				setWritingParsedFiles(true);
+				ParsedFile file= parsedFiles.get(i);
+				parsedFiles.set(i, null);  // Release the AST once it is written.
+				IPath path= getLabel(file.fLocation);
+				progress.subTask(getMessage(MessageKind.parsingFileTask,
+						path.lastSegment(), path.removeLastSegments(1).toString()));
+				writeParsedFile(file, null, progress.split(1));
+			}
+		} finally {
+			// Interrupting the parser threads could close the database file, let them finish instead.
+			stopped.set(true);
+			setWritingParsedFiles(false);
+			for (Future<?> future : futures) {
+				future.cancel(false);
+			}
+		}
+	}
 
-			long start= System.currentTimeMillis();
-			IASTTranslationUnit ast=
-					createAST(lang, codeReader, scanInfo, fASTOptions, ctx, progress.split(10));
-			fStatistics.fParsingTime += System.currentTimeMillis() - start;
-			if (ast == null) {
-				++fStatistics.fTooManyTokensCount;
-			} else {
-				writeToIndex(lang.getLinkageID(), ast, codeReader, ctx, progress.split(10));
-				resultCacheCleared = true;  // The cache was cleared while writing to the index.
+	private void setWritingParsedFiles(boolean writing) {
+		synchronized (fParserGate) {
+			fWritingParsedFiles= writing;
+			if (!writing)
+				fParserGate.notifyAll();
+		}
+	}
+
+	private void awaitParsedFilesWritten() throws InterruptedException {
+		synchronized (fParserGate) {
+			while (fWritingParsedFiles) {
+				fParserGate.wait();
 			}
-			if (fShowActivity) {
-				long time = System.currentTimeMillis() - start;
-				trace("Indexer: processed " + path.toOSString() + " [" + time + " ms]");  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private void parseInParserThread(ParsedFile file, IProgressMonitor monitor) {
+		InternalFileContentProvider fileContentProvider= fParserFileContentProviders.poll();
+		try {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			// The writable index may only be locked by the thread running the task.
+			IIndex index= getParserIndex();
+			if (fileContentProvider == null)
+				fileContentProvider= createFileContentProvider(file.fLanguage.getLinkageID(), index);
+			index.acquireReadLock();
+			try {
+				file.fCodeReader= fResolver.getCodeReader(file.fTu);
+				long start= System.currentTimeMillis();
+				file.fAST= createAST(file.fLanguage, file.fCodeReader, file.fScannerInfo, fASTOptions,
+						null, fileContentProvider, index, monitor);
+				file.fParsingTime= System.currentTimeMillis() - start;
+			} finally {
+				index.releaseReadLock();
+			}
+		} catch (Throwable e) {
+			file.fError= e;
+		} finally {
+			if (fileContentProvider != null)
+				fParserFileContentProviders.add(fileContentProvider);
+		}
+	}
+
+	/**
+	 * Writes a parsed file to the index and handles the errors that occurred while parsing or writing
+	 * it. Returns the exception thrown when the file depends on an outdated file, such a file needs to
+	 * be parsed in a different context.
+	 */
+	private DependsOnOutdatedFileException writeParsedFile(ParsedFile file, FileContext ctx,
+			IProgressMonitor monitor) throws CoreException, InterruptedException {
+		SubMonitor progress = SubMonitor.convert(monitor, 11);
+		boolean resultCacheCleared = false;
+		IPath path= getLabel(file.fLocation);
+		Throwable th= file.fError;
+		if (th == null) {
+			try {
+				long start= System.currentTimeMillis();
+				fStatistics.fParsingTime += file.fParsingTime;
+				if (file.fAST == null) {
+					++fStatistics.fTooManyTokensCount;
+				} else {
+					writeToIndex(file.fLanguage.getLinkageID(), file.fAST, file.fCodeReader, ctx,
+							progress.split(10));
+					resultCacheCleared = true;  // The cache was cleared while writing to the index.
+				}
+				if (fShowActivity) {
+					long time = file.fParsingTime + System.currentTimeMillis() - start;
+					trace("Indexer: processed " + path.toOSString() + " [" + time + " ms]");  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+			} catch (RuntimeException | StackOverflowError | CoreException | AssertionError | OutOfMemoryError e) {
+				th= e;
 			}
-		} catch (OperationCanceledException e) {
-		} catch (RuntimeException e) {
-			final Throwable cause = e.getCause();
-			if (cause instanceof DependsOnOutdatedFileException)
-				return (DependsOnOutdatedFileException) cause;
-			th= e;
-		} catch (StackOverflowError | CoreException | AssertionError e) {
-			th= e;
-		} catch (OutOfMemoryError e) {
+		}
+		if (th instanceof RuntimeException && th.getCause() instanceof DependsOnOutdatedFileException)
+			return (DependsOnOutdatedFileException) th.getCause();
+		if (th instanceof InterruptedException)
+			throw (InterruptedException) th;
+		if (th instanceof OutOfMemoryError) {
 			if (--fSwallowOutOfMemoryError < 0)
-				throw e;
-			th= e;
+				throw (OutOfMemoryError) th;
+		} else if (th instanceof Error && !(th instanceof StackOverflowError || th instanceof AssertionError)) {
+			throw (Error) th;
 		}
-		if (th != null) {
+		if (th != null && !(th instanceof OperationCanceledException)) {
 			swallowError(path, th);
 		}
 
@@ -1130,6 +1337,38 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		return null;
 	}
 
+	private synchronized ExecutorService getParserExecutor() {
+		if (fParserExecutor == null) {
+			fParserExecutor= Executors.newFixedThreadPool(fParserThreads, new ThreadFactory() {
+				private final AtomicInteger fCount= new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread= new Thread(r, "Indexer Parser " + fCount.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fParserExecutor;
+	}
+
+	private synchronized IIndex getParserIndex() {
+		if (fParserIndex == null) {
+			fParserIndex= new CIndex(((CIndex) fIndex).getFragments());
+		}
+		return fParserIndex;
+	}
+
+	private synchronized void shutdownParserExecutor() {
+		if (fParserExecutor != null) {
+			fParserExecutor.shutdown();
+			fParserExecutor= null;
+		}
+		fParserIndex= null;
+		fParserFileContentProviders.clear();
+	}
+
 	private AbstractLanguage getLanguage(Object tu, int linkageID) {
 		for (AbstractLanguage language : fResolver.getLanguages(tu, UnusedHeaderStrategy.useBoth)) {
 			if (language.getLinkageID() == linkageID) {
@@ -1200,6 +1439,18 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private final IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
 			IScannerInfo scanInfo, int options, FileContext ctx, IProgressMonitor monitor)
 			throws CoreException {
+		if (fCodeReaderFactory == null) {
+			fCodeReaderFactory= createFileContentProvider(language.getLinkageID(), fIndex);
+		}
+		return createAST(language, codeReader, scanInfo, options, ctx, fCodeReaderFactory, fIndex, monitor);
+	}
+
+	/**
+	 * @param index the index used by the parser, which is locked by the calling thread.
+	 */
+	private final IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
+			IScannerInfo scanInfo, int options, FileContext ctx, InternalFileContentProvider fileContentProvider,
+			IIndex index, IProgressMonitor monitor) throws CoreException {
 		if (codeReader == null) {
 			return null;
 		}
@@ -1209,35 +1460,38 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			}
 			return null;
 		}
-		final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
-		if (fCodeReaderFactory == null) {
-			InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
-			if (fIsFastIndexer) {
-				IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(fIndex, fResolver,
-						language.getLinkageID(), fileContentProvider, this);
-				ibfcp.setContextToHeaderGap(ctx2header);
-				ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
-				ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
-				ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
-				fCodeReaderFactory= ibfcp;
-			} else {
-				fCodeReaderFactory= fileContentProvider;
-			}
-			fCodeReaderFactory.setIncludeResolutionHeuristics(createIncludeHeuristics());
-		} else if (fIsFastIndexer) {
-			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) fCodeReaderFactory;
+		if (fIsFastIndexer) {
+			final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
+			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) fileContentProvider;
 			ibfcp.setContextToHeaderGap(ctx2header);
 			ibfcp.setLinkage(language.getLinkageID());
 		}
 
-		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, fCodeReaderFactory,
-				fIndex, options, getLogService());
+		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, fileContentProvider,
+				index, options, getLogService());
 		if (monitor.isCanceled()) {
 			throw new OperationCanceledException();
 		}
 		return ast;
 	}
 
+	private InternalFileContentProvider createFileContentProvider(int linkageID, IIndex index) {
+		InternalFileContentProvider result;
+		InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
+		if (fIsFastIndexer) {
+			IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(index, fResolver,
+					linkageID, fileContentProvider, this);
+			ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
+			ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
+			ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
+			result= ibfcp;
+		} else {
+			result= fileContentProvider;
+		}
+		result.setIncludeResolutionHeuristics(createIncludeHeuristics());
+		return result;
+	}
+
 	private InternalFileContentProvider createInternalFileContentProvider() {
 		final IncludeFileContentProvider fileContentProvider = createReaderFactory();
 		if (fileContentProvider instanceof InternalFileContentProvider)
@@ -1265,6 +1519,10 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 
 		IIndexFragmentFile newFile= selectIndexFile(linkageID, topIfl, significantMacros);
 		if (ctx != null) {
+			// The includers of the context are transferred to the new file, which therefore has
+			// to be stored in the writable fragment.
+			if (newFile != null && newFile.getIndexFragment() != fIndex.getWritableFragment())
+				newFile= null;
 			orderedFileKeys.add(new FileInAST(topKey, codeReader));
 			// File can be reused
 			ctx.fNewFile= newFile;
@@ -1435,12 +1693,15 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 					throw new DependsOnOutdatedFileException(request.fTu, task.fIndexFile);
 			}
 		}
-		IndexFileContent fc= fIndexContentCache.get(file);
-		if (fc == null) {
-			fc= new IndexFileContent(file);
-			fIndexContentCache.put(file, fc);
+		// The cache is shared by the parser threads.
+		synchronized (fIndexContentCache) {
+			IndexFileContent fc= fIndexContentCache.get(file);
+			if (fc == null) {
+				fc= new IndexFileContent(file);
+				fIndexContentCache.put(file, fc);
+			}
+			return fc;
 		}
-		return fc;
 	}
 
 	IIndexFragmentFile selectIndexFile(int linkageID, IIndexFileLocation ifl, ISignificantMacros sigMacros)
@@ -1491,7 +1752,10 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 
 	public IIndexFragmentFile[] getAvailableIndexFiles(int linkageID, IIndexFileLocation ifl)
 			throws CoreException {
-		IIndexFragmentFile[] files= fIndexFilesCache.get(ifl);
+		IIndexFragmentFile[] files;
+		synchronized (fIndexFilesCache) {
+			files= fIndexFilesCache.get(ifl);
+		}
 		if (files == null) {
 			IIndexFragmentFile[] fragFiles = fIndex.getWritableFiles(linkageID, ifl);
 			int j= 0;
@@ -1502,13 +1766,18 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 					j++;
 				}
 			}
-			if (j == fragFiles.length) {
+			// Files provided by pre-built library fragments are not parsed again.
+			IIndexFragmentFile[] libraryFiles= fIndex.getReadOnlyFiles(linkageID, ifl);
+			if (j == fragFiles.length && libraryFiles.length == 0) {
 				files= fragFiles;
 			} else {
-				files= new IIndexFragmentFile[j];
+				files= new IIndexFragmentFile[j + libraryFiles.length];
 				System.arraycopy(fragFiles, 0, files, 0, j);
+				System.arraycopy(libraryFiles, 0, files, j, libraryFiles.length);
+			}
+			synchronized (fIndexFilesCache) {
+				fIndexFilesCache.put(ifl, files);
 			}
-			fIndexFilesCache.put(ifl, files);
 		}
 		return files;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -113,6 +113,13 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private static final int LONG_WRITE_LOCK_REPORT_THRESHOLD = 1000;
 	private static final int LONG_READ_LOCK_WAIT_REPORT_THRESHOLD = 1000;
 	static boolean sDEBUG_LOCKS; // Initialized in the PDOMManager, because IBM needs PDOM independent of runtime plugin.
+	/**
+	 * Whether readers may use a snapshot of a writable PDOM while a writer holds the lock. The
+	 * writer needs additional memory for the snapshot, therefore it has to be enabled with the
+	 * system property <code>org.eclipse.cdt.core.parser.pdom.snapshot.reads</code>.
+	 */
+	public static final boolean SNAPSHOT_READS=
+			Boolean.getBoolean("org.eclipse.cdt.core.parser.pdom.snapshot.reads"); //$NON-NLS-1$
 
 	/**
 	 * Identifier for PDOM format
@@ -289,10 +296,12 @@ public class PDOM extends PlatformObject implements IPDOM {
 	 *  209.0 - Alias templates and their instances take up more space than required, bug 516385.
 	 *  210.0 - Return type deduction, bug 408470.
 	 *  211.0 - Change representation of alias template instances, bug 516338.
+	 *  212.0 - Store equal strings only once.
+	 *  213.0 - Share only the names of parameters.
 	 */
-	private static final int MIN_SUPPORTED_VERSION= version(211, 0);
-	private static final int MAX_SUPPORTED_VERSION= version(211, Short.MAX_VALUE);
-	private static final int DEFAULT_VERSION = version(211, 0);
+	private static final int MIN_SUPPORTED_VERSION= version(213, 0);
+	private static final int MAX_SUPPORTED_VERSION= version(213, Short.MAX_VALUE);
+	private static final int DEFAULT_VERSION = version(213, 0);
 
 	private static int version(int major, int minor) {
 		return (major << 16) + minor;
@@ -329,7 +338,8 @@ public class PDOM extends PlatformObject implements IPDOM {
 	public static final int INDEX_OF_FILES_WITH_UNRESOLVED_INCLUDES = Database.DATA_AREA + 12;
 	public static final int PROPERTIES = Database.DATA_AREA + 16;
 	public static final int TAG_INDEX = Database.DATA_AREA + 20;
-	public static final int END= Database.DATA_AREA + 24;
+	public static final int STRING_TABLE = Database.DATA_AREA + 24;
+	public static final int END= Database.DATA_AREA + 28;
 	static {
 		assert END <= Database.CHUNK_SIZE;
 	}
@@ -400,6 +410,10 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private final Map<String, IPDOMLinkageFactory> fPDOMLinkageFactoryCache;
 	private final HashMap<Object, Object> fResultCache= new HashMap<>();
 	private final Map<Long, WeakReference<IValue>> fVariableResultCache= new HashMap<>();
+	// Results computed by readers of the snapshot, see acquireSnapshotReadLock().
+	private final HashMap<Object, Object> fSnapshotResultCache= new HashMap<>();
+	private final Map<Long, WeakReference<IValue>> fSnapshotVariableResultCache= new HashMap<>();
+	private boolean fSnapshotReads= SNAPSHOT_READS;
 	private List<IListener> listeners;
 	protected ChangeEvent fEvent= new ChangeEvent();
 
@@ -432,6 +446,8 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 		clearCaches();
 		db = new Database(fPath, cache, getDefaultVersion(), isPermanentlyReadOnly());
+		db.setSnapshotReadsEnabled(fSnapshotReads && !isPermanentlyReadOnly());
+		initStringTable();
 
 		db.setLocked(lockDB);
 		try {
@@ -452,6 +468,14 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return version >= MIN_SUPPORTED_VERSION && version <= MAX_SUPPORTED_VERSION;
 	}
 
+	/**
+	 * Databases of a supported version have a table of shared strings. Databases of older versions
+	 * are not read, they are cleared before they are used.
+	 */
+	private void initStringTable() throws CoreException {
+		db.setStringTable(isSupportedVersion() ? STRING_TABLE : 0);
+	}
+
 	private void readLinkages() throws CoreException {
 		long record= getFirstLinkageRecord();
 		while (record != 0) {
@@ -641,16 +665,19 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	protected void clear() throws CoreException {
 		assert lockCount < 0; // needs write-lock.
+		waitForSnapshotReaders();
 
 		// Clear out the database, everything is set to zero.
 		int vers = getDefaultVersion();
 		db.clear(vers);
+		initStringTable();
 		clearCaches();
 		fEvent.setCleared();
 	}
 
 	void reloadFromFile(File file) throws CoreException {
 		assert lockCount < 0;	// must have write lock.
+		waitForSnapshotReaders();
 		File oldFile= fPath;
 		clearCaches();
 		try {
@@ -977,25 +1004,50 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	// Read-write lock rules. Readers don't conflict with other readers,
 	// Writers conflict with readers, and everyone conflicts with writers.
+	// Readers of the snapshot don't conflict with anybody, but a writer waits for them before
+	// it acquires the lock.
 	private final Object mutex = new Object();
 	private int lockCount;
 	private int waitingReaders;
+	private int snapshotReaders;
+	private boolean snapshotReadsBlocked;
 	private long lastWriteAccess= 0;
 	private long lastReadAccess= 0;
 	private long timeWriteLockAcquired;
 
 	@Override
 	public void acquireReadLock() throws InterruptedException {
+		acquireReadLock(false);
+	}
+
+	/**
+	 * Acquires a read lock without waiting for a writer. While a writer holds the lock, the
+	 * current thread reads the database as it was before the writer acquired the lock. Nested
+	 * read locks of the thread read the same snapshot.
+	 */
+	@Override
+	public void acquireSnapshotReadLock() throws InterruptedException {
+		acquireReadLock(true);
+	}
+
+	private void acquireReadLock(boolean snapshot) throws InterruptedException {
 		long t = sDEBUG_LOCKS ? System.nanoTime() : 0;
 		synchronized (mutex) {
-			++waitingReaders;
-			try {
-				while (lockCount < 0)
-					mutex.wait();
-			} finally {
-				--waitingReaders;
+			// The database may have closed the snapshot of the current write session.
+			if ((db.isReadingSnapshot() ||
+					(snapshot && lockCount < 0 && !snapshotReadsBlocked && db.isSnapshotReadsEnabled())) &&
+					db.beginSnapshotRead()) {
+				++snapshotReaders;
+			} else {
+				++waitingReaders;
+				try {
+					while (lockCount < 0)
+						mutex.wait();
+				} finally {
+					--waitingReaders;
+				}
+				++lockCount;
 			}
-			++lockCount;
 			db.setLocked(true);
 
 			if (sDEBUG_LOCKS) {
@@ -1011,6 +1063,17 @@ public class PDOM extends PlatformObject implements IPDOM {
 	@Override
 	public void releaseReadLock() {
 		synchronized (mutex) {
+			if (db.isReadingSnapshot()) {
+				if (sDEBUG_LOCKS) {
+					decReadLock(fLockDebugging);
+				}
+				--snapshotReaders;
+				db.endSnapshotRead();
+				mutex.notifyAll();
+				db.setLocked(lockCount != 0 || snapshotReaders != 0);
+				clearSnapshotResultCache();
+				return;
+			}
 			assert lockCount > 0: "No lock to release"; //$NON-NLS-1$
 			if (sDEBUG_LOCKS) {
 				decReadLock(fLockDebugging);
@@ -1020,7 +1083,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 			if (lockCount > 0)
 				--lockCount;
 			mutex.notifyAll();
-			db.setLocked(lockCount != 0);
+			db.setLocked(lockCount != 0 || snapshotReaders != 0);
 		}
 		// A lock release probably means that some AST is going away. The result cache has to be
 		// cleared since it may contain objects belonging to the AST that is going away. A failure
@@ -1048,6 +1111,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 	 */
 	public void acquireWriteLock(int giveupReadLocks, IProgressMonitor monitor) throws InterruptedException {
 		assert !isPermanentlyReadOnly();
+		assert !db.isReadingSnapshot() : "A snapshot read lock cannot be upgraded"; //$NON-NLS-1$
 		synchronized (mutex) {
 			if (sDEBUG_LOCKS) {
 				incWriteLock(giveupReadLocks);
@@ -1066,7 +1130,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 			// Let the readers go first
 			long start= sDEBUG_LOCKS ? System.currentTimeMillis() : 0;
 			int count = 0;
-			while (lockCount > giveupReadLocks || waitingReaders > 0) {
+			while (lockCount > giveupReadLocks || waitingReaders > 0 || snapshotReaders > 0) {
 				mutex.wait(CANCELLATION_CHECK_INTERVAL);
 				if (monitor != null && monitor.isCanceled()) {
 					throw new OperationCanceledException();
@@ -1119,12 +1183,46 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 			if (lockCount < 0)
 				lockCount= establishReadLocks;
+			snapshotReadsBlocked= false;
 			mutex.notifyAll();
-			db.setLocked(lockCount != 0);
+			db.setLocked(lockCount != 0 || snapshotReaders != 0);
 		}
 		fireChange(event);
 	}
 
+	/**
+	 * Enables or disables snapshot reads, see {@link #acquireSnapshotReadLock()}. By default they
+	 * are enabled when {@link #SNAPSHOT_READS} is set. Must not be called while the lock is held.
+	 */
+	public void setSnapshotReadsEnabled(boolean enabled) {
+		synchronized (mutex) {
+			assert lockCount == 0 && snapshotReaders == 0;
+			fSnapshotReads= enabled;
+			db.setSnapshotReadsEnabled(enabled && !isPermanentlyReadOnly());
+		}
+	}
+
+	/**
+	 * Waits for the readers of the snapshot to release their locks, further readers wait for the
+	 * write lock to be released. Must be called before the database is replaced as a whole.
+	 */
+	private void waitForSnapshotReaders() {
+		boolean interrupted= false;
+		synchronized (mutex) {
+			snapshotReadsBlocked= true;
+			while (snapshotReaders > 0) {
+				try {
+					mutex.wait();
+				} catch (InterruptedException e) {
+					interrupted= true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@Override
 	public boolean hasWaitingReaders() {
 		synchronized (mutex) {
@@ -1481,6 +1579,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 	}
 
 	public void close() throws CoreException {
+		waitForSnapshotReaders();
 		db.close();
 		clearCaches();
 	}
@@ -1514,6 +1613,16 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return db.getCacheMisses();
 	}
 
+	@Override
+	public long getCacheEvictions() {
+		return db.getCacheEvictions();
+	}
+
+	@Override
+	public long getDirtyChunkFlushes() {
+		return db.getDirtyChunkFlushes();
+	}
+
 	@Override
 	public void resetCacheCounters() {
 		db.resetCacheCounters();
@@ -1523,10 +1632,32 @@ public class PDOM extends PlatformObject implements IPDOM {
 		db.flush();
 	}
 
+	private void clearSnapshotResultCache() {
+		synchronized (fSnapshotResultCache) {
+			fSnapshotResultCache.clear();
+		}
+		synchronized (fSnapshotVariableResultCache) {
+			fSnapshotVariableResultCache.clear();
+		}
+	}
+
+	/**
+	 * Returns the cache for the results computed by the current thread. The results computed by
+	 * readers of the snapshot must not be mixed with the results computed by other threads.
+	 */
+	private HashMap<Object, Object> getResultCache() {
+		return db.isReadingSnapshot() ? fSnapshotResultCache : fResultCache;
+	}
+
+	private Map<Long, WeakReference<IValue>> getVariableResultCache() {
+		return db.isReadingSnapshot() ? fSnapshotVariableResultCache : fVariableResultCache;
+	}
+
 	@Override
 	public Object getCachedResult(Object key) {
-		synchronized (fResultCache) {
-			return fResultCache.get(key);
+		final HashMap<Object, Object> resultCache= getResultCache();
+		synchronized (resultCache) {
+			return resultCache.get(key);
 		}
 	}
 
@@ -1536,10 +1667,11 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	@Override
 	public Object putCachedResult(Object key, Object result, boolean replace) {
-		synchronized (fResultCache) {
-			Object old= fResultCache.put(key, result);
+		final HashMap<Object, Object> resultCache= getResultCache();
+		synchronized (resultCache) {
+			Object old= resultCache.put(key, result);
 			if (old != null && !replace) {
-				fResultCache.put(key, old);
+				resultCache.put(key, old);
 				return old;
 			}
 			return result;
@@ -1547,14 +1679,16 @@ public class PDOM extends PlatformObject implements IPDOM {
 	}
 
 	public void removeCachedResult(Object key) {
-		synchronized (fResultCache) {
-			fResultCache.remove(key);
+		final HashMap<Object, Object> resultCache= getResultCache();
+		synchronized (resultCache) {
+			resultCache.remove(key);
 		}
 	}
 
 	public IValue getCachedVariableResult(Long key) {
-		synchronized (fVariableResultCache) {
-			WeakReference<IValue> variableResult = fVariableResultCache.get(key);
+		final Map<Long, WeakReference<IValue>> variableResultCache= getVariableResultCache();
+		synchronized (variableResultCache) {
+			WeakReference<IValue> variableResult = variableResultCache.get(key);
 			if (variableResult != null) {
 				return variableResult.get();
 			}
@@ -1563,14 +1697,16 @@ public class PDOM extends PlatformObject implements IPDOM {
 	}
 
 	public void removeCachedVariableResult(Long key) {
-		synchronized (fVariableResultCache) {
-			fVariableResultCache.remove(key);
+		final Map<Long, WeakReference<IValue>> variableResultCache= getVariableResultCache();
+		synchronized (variableResultCache) {
+			variableResultCache.remove(key);
 		}
 	}
 
 	public void putCachedVariableResult(Long key, IValue result) {
-		synchronized (fVariableResultCache) {
-			fVariableResultCache.put(key, new WeakReference<IValue>(result));
+		final Map<Long, WeakReference<IValue>> variableResultCache= getVariableResultCache();
+		synchronized (variableResultCache) {
+			variableResultCache.put(key, new WeakReference<IValue>(result));
 		}
 	}
 
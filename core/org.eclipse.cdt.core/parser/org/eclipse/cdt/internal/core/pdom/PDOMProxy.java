@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -67,6 +67,15 @@ public class PDOMProxy implements IPDOM {
 		}
 	}
 
+	@Override
+	public synchronized void acquireSnapshotReadLock() throws InterruptedException {
+		if (fDelegate != null) {
+			fDelegate.acquireSnapshotReadLock();
+		} else {
+			acquireReadLock();
+		}
+	}
+
 	@Override
 	public IIndexMacro[] findMacros(char[] name, boolean isPrefix, boolean caseSensitive,
 			IndexFilter filter, IProgressMonitor monitor) throws CoreException {
@@ -167,6 +176,22 @@ public class PDOMProxy implements IPDOM {
 		return 0;
 	}
 
+	@Override
+	public synchronized long getCacheEvictions() {
+		if (fDelegate != null)
+			return fDelegate.getCacheEvictions();
+
+		return 0;
+	}
+
+	@Override
+	public synchronized long getDirtyChunkFlushes() {
+		if (fDelegate != null)
+			return fDelegate.getDirtyChunkFlushes();
+
+		return 0;
+	}
+
 	@Deprecated
 	@Override
 	public synchronized IIndexFragmentFile getFile(int linkageID, IIndexFileLocation location) throws CoreException {
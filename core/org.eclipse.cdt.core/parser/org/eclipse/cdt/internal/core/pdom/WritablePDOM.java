@@ -43,6 +43,7 @@ import org.eclipse.core.runtime.CoreException;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -227,15 +228,19 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 
 		clearFileIndex();
 		final List<PDOMFile> notConverted = new ArrayList<PDOMFile>();
+		final long[] converted = new long[pdomfiles.size()];
+		int convertedCount = 0;
 		for (PDOMFile file : pdomfiles) {
 			String internalFormat = newConverter.toInternalFormat(file.getLocation());
 			if (internalFormat != null) {
 				file.setInternalLocation(internalFormat);
-				getFileIndex().insert(file.getRecord());
+				converted[convertedCount++] = file.getRecord();
 			} else {
 				notConverted.add(file);
 			}
 		}
+		// The file index is empty, build it in one pass.
+		getFileIndex().insertAll(Arrays.copyOf(converted, convertedCount));
 
 		// remove content where converter returns null
 		for (PDOMFile file : notConverted) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -199,6 +199,123 @@ public class BTree {
 		}
 	}
 
+	/**
+	 * Inserts all of the given records into the b-tree. Like for {@link #insert(long)}, a record
+	 * is not inserted if a record with an equal key is already in the tree or precedes it in the
+	 * array.
+	 * <p>
+	 * When the b-tree is empty, the records are sorted in memory and the tree is built bottom-up,
+	 * such that every node is allocated and written exactly once, without any splits. Otherwise
+	 * the records are inserted one by one.
+	 * <p>
+	 * This is meant for trees whose records are all known before the tree is needed, like an index
+	 * that is rebuilt from the records of a database. The indexer cannot use it, not even while
+	 * the index is rebuilt from scratch, it needs to find every record right after inserting it.
+	 *
+	 * @param records offsets of the records, the array is reordered by this method.
+	 */
+	public void insertAll(long[] records) throws CoreException {
+		if (getRoot() != 0) {
+			for (long record : records) {
+				insert(record);
+			}
+			return;
+		}
+
+		mergeSort(records.clone(), records, 0, records.length);
+		int count= 0;
+		for (int i= 0; i < records.length; i++) {
+			if (count == 0 || cmp.compare(records[count - 1], records[i]) != 0) {
+				records[count++]= records[i];
+			}
+		}
+		if (count == 0)
+			return;
+
+		int height= 1;
+		for (long capacity= MAX_RECORDS; capacity < count; capacity= capacity * MAX_CHILDREN + MAX_RECORDS) {
+			height++;
+		}
+		long root= buildSubtree(records, 0, count, height);
+		db.putRecPtr(rootPointer, root);
+	}
+
+	/**
+	 * Stable sort of src[from, to) into dest[from, to), both arrays need to have the same content
+	 * in the given range.
+	 */
+	private void mergeSort(long[] src, long[] dest, int from, int to) throws CoreException {
+		final int length= to - from;
+		if (length < 8) {
+			// Insertion sort for small ranges.
+			for (int i= from + 1; i < to; i++) {
+				final long record= dest[i];
+				int j= i;
+				for (; j > from && cmp.compare(dest[j - 1], record) > 0; j--) {
+					dest[j]= dest[j - 1];
+				}
+				dest[j]= record;
+			}
+			return;
+		}
+		final int mid= (from + to) >>> 1;
+		mergeSort(dest, src, from, mid);
+		mergeSort(dest, src, mid, to);
+		for (int i= from, p= from, q= mid; i < to; i++) {
+			if (q >= to || (p < mid && cmp.compare(src[p], src[q]) <= 0)) {
+				dest[i]= src[p++];
+			} else {
+				dest[i]= src[q++];
+			}
+		}
+	}
+
+	/**
+	 * Creates a subtree of the given height for the sorted records in [from, to). The children
+	 * are created before their parent.
+	 * @return the offset of the root node of the subtree.
+	 */
+	private long buildSubtree(long[] records, int from, int to, int height) throws CoreException {
+		final int count= to - from;
+		if (height == 1) {
+			final long node= allocateNode();
+			final Chunk chunk= db.getChunk(node);
+			for (int i= 0; i < count; i++) {
+				putRecord(chunk, node, i, records[from + i]);
+			}
+			return node;
+		}
+
+		// Use as few children as possible, the records are distributed evenly among them.
+		long childCapacity= MAX_RECORDS;
+		for (int h= 2; h < height; h++) {
+			childCapacity= childCapacity * MAX_CHILDREN + MAX_RECORDS;
+		}
+		final int childCount= (int) Math.max(2, (count + 1 + childCapacity) / (childCapacity + 1));
+		final int childRecords= count - (childCount - 1);
+		final long[] children= new long[childCount];
+		final long[] separators= new long[childCount - 1];
+		int start= from;
+		for (int i= 0; i < childCount; i++) {
+			final int end= start + childRecords / childCount + (i < childRecords % childCount ? 1 : 0);
+			children[i]= buildSubtree(records, start, end, height - 1);
+			if (i < separators.length) {
+				separators[i]= records[end];
+			}
+			start= end + 1;
+		}
+
+		final long node= allocateNode();
+		final Chunk chunk= db.getChunk(node);
+		for (int i= 0; i < childCount; i++) {
+			putChild(chunk, node, i, children[i]);
+			if (i < separators.length) {
+				putRecord(chunk, node, i, separators[i]);
+			}
+		}
+		return node;
+	}
+
 	private void firstInsert(long record) throws CoreException {
 		// Create the node and save it as root.
 		long root = allocateNode();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,19 +22,28 @@ import org.eclipse.core.runtime.CoreException;
  * Caches the content of a piece of the database.
  */
 final class Chunk {
-	final private byte[] fBuffer= new byte[Database.CHUNK_SIZE];
+	// Replaced by a copy when the chunk is modified while readers may access the snapshot.
+	byte[] fBuffer;
 
 	final Database fDatabase;
 	final int fSequenceNumber;
 	
 	boolean fCacheHitFlag;
 	boolean fDirty;
+	int fWriteGeneration;	// the write session in which the content of the chunk was preserved.
 	boolean fLocked;	// locked chunks must not be released from cache.
-	int fCacheIndex= -1;
+	int fCacheIndex= -1;	// negative if not cached, otherwise used by the replacement policy.
+	Chunk fCachePrev;
+	Chunk fCacheNext;
 		
 	Chunk(Database db, int sequenceNumber) {
+		this(db, sequenceNumber, new byte[Database.CHUNK_SIZE]);
+	}
+
+	Chunk(Database db, int sequenceNumber, byte[] buffer) {
 		fDatabase= db;
 		fSequenceNumber= sequenceNumber;
+		fBuffer= buffer;
 	}
 
 	void read() throws CoreException {
@@ -56,13 +65,23 @@ final class Chunk {
 		fDirty= false;
 	}
 
+	/**
+	 * Must be called before the content of the chunk is modified.
+	 */
+	private void makeDirty() {
+		if (fWriteGeneration != fDatabase.fWriteGeneration) {
+			fDatabase.preserveSnapshot(this);
+		}
+		fDirty= true;
+	}
+
 	private static int recPtrToIndex(final long offset) {
 		return (int) (offset & Database.OFFSET_IN_CHUNK_MASK);
 	}
 
 	public void putByte(final long offset, final byte value) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		fBuffer[recPtrToIndex(offset)]= value;
 	}
 	
@@ -78,13 +97,13 @@ final class Chunk {
 	
 	public void putBytes(final long offset, final byte[] bytes) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		System.arraycopy(bytes, 0, fBuffer, recPtrToIndex(offset), bytes.length);
 	}
 	
 	public void putInt(final long offset, final int value) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset);
 		putInt(value, fBuffer, idx);
 	}
@@ -140,7 +159,7 @@ final class Chunk {
 	 */
 	public void putRecPtr(final long offset, final long value) {
 		assert fLocked;
-		fDirty = true;
+		makeDirty();
 		int idx = recPtrToIndex(offset);
 		Database.putRecPtr(value, fBuffer, idx);
 	}
@@ -151,7 +170,7 @@ final class Chunk {
 	 */
 	public void putFreeRecPtr(final long offset, final long value) {
 		assert fLocked;
-		fDirty = true;
+		makeDirty();
 		int idx = recPtrToIndex(offset);
 		putInt(compressFreeRecPtr(value), fBuffer, idx);
 	}
@@ -169,7 +188,7 @@ final class Chunk {
 	
 	public void put3ByteUnsignedInt(final long offset, final int value) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset);
 		fBuffer[idx]= (byte) (value >> 16);
 		fBuffer[++idx]= (byte) (value >> 8);
@@ -185,7 +204,7 @@ final class Chunk {
 
 	public void putShort(final long offset, final short value) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset);
 		fBuffer[idx]= (byte) (value >> 8);
 		fBuffer[++idx]= (byte) (value);
@@ -210,7 +229,7 @@ final class Chunk {
 
 	public void putLong(final long offset, final long value) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset);
 
 		fBuffer[idx]=   (byte) (value >> 56);
@@ -225,7 +244,7 @@ final class Chunk {
 	
 	public void putChar(final long offset, final char value) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset);
 		fBuffer[idx]= (byte) (value >> 8);
 		fBuffer[++idx]= (byte) (value);
@@ -233,7 +252,7 @@ final class Chunk {
 	
 	public void putChars(final long offset, char[] chars, int start, int len) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset)-1;
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
@@ -245,7 +264,7 @@ final class Chunk {
 
 	public void putCharsAsBytes(final long offset, char[] chars, int start, int len) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx= recPtrToIndex(offset)-1;
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
@@ -274,7 +293,7 @@ final class Chunk {
 
 	void clear(final long offset, final int length) {
 		assert fLocked;
-		fDirty= true;
+		makeDirty();
 		int idx = recPtrToIndex(offset);
 		final int end = idx + length;
 		for (; idx < end; idx++) {
@@ -288,7 +307,7 @@ final class Chunk {
 	
 	void put(final long offset, final byte[] data, int dataPos, final int len) {
 		assert fLocked;
-		fDirty = true;
+		makeDirty();
 		int idx = recPtrToIndex(offset);
 		System.arraycopy(data, dataPos, fBuffer, idx, len);
 	}
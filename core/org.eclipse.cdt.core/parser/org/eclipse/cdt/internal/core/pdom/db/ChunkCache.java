@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,16 +7,44 @@
  *
  * Contributors:
  *     Markus Schorn - initial API and implementation
- *******************************************************************************/ 
+ *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.db;
 
 public final class ChunkCache {
+	/**
+	 * The algorithms available for choosing the chunk to be evicted from a full cache.
+	 */
+	public enum Policy {
+		/** Second chance replacement, chunks referenced since the last sweep are kept. */
+		CLOCK,
+		/**
+		 * Segmented LRU, chunks referenced repeatedly are protected from being evicted by
+		 * chunks that are read only once, e.g. during a scan.
+		 */
+		SEGMENTED_LRU;
+
+		/**
+		 * The policy used when none is specified. Can be changed with the system property
+		 * <code>org.eclipse.cdt.core.parser.pdom.db.cache.policy</code>.
+		 */
+		public static Policy getDefault() {
+			String name= System.getProperty("org.eclipse.cdt.core.parser.pdom.db.cache.policy"); //$NON-NLS-1$
+			if (name != null) {
+				for (Policy policy : values()) {
+					if (policy.name().equalsIgnoreCase(name))
+						return policy;
+				}
+			}
+			return SEGMENTED_LRU;
+		}
+	}
+
 	private static ChunkCache sSharedInstance= new ChunkCache();
-	
-	private Chunk[] fPageTable;
-	private boolean fTableIsFull;
-	private int fPointer;
-	
+
+	private final Policy fPolicy;
+	private final ReplacementPolicy fReplacement;
+	private int fSnapshotChunks;
+
 	public static ChunkCache getSharedInstance() {
 		return sSharedInstance;
 	}
@@ -24,113 +52,92 @@ public final class ChunkCache {
 	public ChunkCache() {
 		this(5 * 1024 * 1024);
 	}
-	
+
 	public ChunkCache(long maxSize) {
-		fPageTable= new Chunk[computeLength(maxSize)];
+		this(maxSize, Policy.getDefault());
+	}
+
+	public ChunkCache(long maxSize, Policy policy) {
+		fPolicy= policy;
+		switch (policy) {
+		case CLOCK:
+			fReplacement= new ClockReplacementPolicy(computeLength(maxSize));
+			break;
+		case SEGMENTED_LRU:
+		default:
+			fReplacement= new SegmentedLRUReplacementPolicy(computeLength(maxSize));
+			break;
+		}
 	}
-	
+
+	/**
+	 * Returns the algorithm used for evicting chunks.
+	 */
+	public Policy getPolicy() {
+		return fPolicy;
+	}
+
 	public synchronized void add(Chunk chunk, boolean locked) {
 		if (locked) {
 			chunk.fLocked= true;
 		}
 		if (chunk.fCacheIndex >= 0) {
-			chunk.fCacheHitFlag= true;
-			return;
-		}
-		if (fTableIsFull) {
-			evictChunk();
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
+			fReplacement.touch(chunk);
 		} else {
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
-
-			fPointer++;
-			if (fPointer == fPageTable.length) {
-				fPointer= 0;
-				fTableIsFull= true;
-			}
+			fReplacement.add(chunk);
 		}
 	}
-	
-	/**                                                                   
-	 * Evicts a chunk from the page table and the chunk table.            
-	 * After this method returns, {@link #fPointer}  will contain
-	 * the index of the evicted chunk within the page table.              
-	 */                                                                   
-	private void evictChunk() {
-		/*
-		 * Use the CLOCK algorithm to determine which chunk to evict.
-		 * i.e., if the chunk in the current slot of the page table has been
-		 * recently referenced (i.e. the reference flag is set), unset the
-		 * reference flag and move to the next slot.  Otherwise, evict the
-		 * chunk in the current slot.
-		 */
-		while (true) {
-			Chunk chunk = fPageTable[fPointer];
-			if (chunk.fCacheHitFlag) {
-				chunk.fCacheHitFlag= false;
-				fPointer= (fPointer + 1) % fPageTable.length;
-			} else {
-				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
-				fPageTable[fPointer] = null;
-				return;
-			}
-		}
+
+	/**
+	 * Records a reference to a chunk that is part of the cache. Does not take the monitor of the
+	 * cache, such that cache hits of concurrent readers do not contend for it.
+	 */
+	void touch(Chunk chunk) {
+		fReplacement.touch(chunk);
 	}
 
 	public synchronized void remove(Chunk chunk) {
-		final int idx= chunk.fCacheIndex;
-		if (idx >= 0) {
-			if (fTableIsFull) {
-				fPointer= fPageTable.length-1;
-				fTableIsFull= false;
-			} else {
-				fPointer--;
-			}
-			chunk.fCacheIndex= -1;
-			final Chunk move= fPageTable[fPointer];
-			fPageTable[idx]= move;
-			move.fCacheIndex= idx;
-			fPageTable[fPointer]= null;
-		}	
+		if (chunk.fCacheIndex >= 0) {
+			fReplacement.remove(chunk);
+		}
 	}
 
-	/**                                                                           
+	/**
 	 * Returns the maximum size of the chunk cache in bytes.
-	 */                                                                           
+	 */
 	public synchronized long getMaxSize() {
-		return (long) fPageTable.length * Database.CHUNK_SIZE;
+		return (long) fReplacement.getCapacity() * Database.CHUNK_SIZE;
 	}
 
-	/**                                                                           
+	/**
 	 * Clears the page table and changes it to hold chunks with
-	 * maximum total memory of <code>maxSize</code>.       
-	 * @param maxSize the total size of the chunks in bytes.                
-	 */                                                                           
+	 * maximum total memory of <code>maxSize</code>.
+	 * @param maxSize the total size of the chunks in bytes.
+	 */
 	public synchronized void setMaxSize(long maxSize) {
-		final int newLength= computeLength(maxSize);
-		final int oldLength= fTableIsFull ? fPageTable.length : fPointer;
-		if (newLength > oldLength) {
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, oldLength);
-			fTableIsFull= false;
-			fPointer= oldLength;
-			fPageTable= newTable;
-		} else {
-			for (int i= newLength; i < oldLength; i++) {
-				final Chunk chunk= fPageTable[i];
-				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
-			}
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, newLength);
-			fTableIsFull= true;
-			fPointer= 0;
-			fPageTable= newTable;
-		}       
-	}                                                                             
+		fReplacement.setCapacity(computeLength(maxSize));
+	}
+
+	/**
+	 * Reserves memory for a chunk preserved for the readers of a database snapshot, see
+	 * {@link Database#beginSnapshotRead()}. The preserved chunks of all databases using the cache
+	 * may take up to a quarter of its size.
+	 * @return whether the chunk may be preserved
+	 */
+	synchronized boolean reserveSnapshotChunk() {
+		if (fSnapshotChunks >= fReplacement.getCapacity() / 4)
+			return false;
+		fSnapshotChunks++;
+		return true;
+	}
+
+	/**
+	 * Releases the memory reserved by {@link #reserveSnapshotChunk()}.
+	 */
+	synchronized void releaseSnapshotChunks(int count) {
+		fSnapshotChunks-= count;
+		assert fSnapshotChunks >= 0;
+	}
 
 	private int computeLength(long maxSize) {
 		long maxLength= Math.min(maxSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
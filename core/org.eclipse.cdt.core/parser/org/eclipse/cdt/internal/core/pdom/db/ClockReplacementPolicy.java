@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Replacement using the CLOCK algorithm. {@link Chunk#fCacheIndex} is the index of the chunk
+ * within the page table.
+ */
+final class ClockReplacementPolicy extends ReplacementPolicy {
+	private Chunk[] fPageTable;
+	private boolean fTableIsFull;
+	private int fPointer;
+
+	ClockReplacementPolicy(int capacity) {
+		fPageTable= new Chunk[capacity];
+	}
+
+	@Override
+	void add(Chunk chunk) {
+		if (fTableIsFull) {
+			evictChunk();
+			chunk.fCacheIndex= fPointer;
+			fPageTable[fPointer]= chunk;
+		} else {
+			chunk.fCacheIndex= fPointer;
+			fPageTable[fPointer]= chunk;
+
+			fPointer++;
+			if (fPointer == fPageTable.length) {
+				fPointer= 0;
+				fTableIsFull= true;
+			}
+		}
+	}
+
+	@Override
+	void touch(Chunk chunk) {
+		chunk.fCacheHitFlag= true;
+	}
+
+	/**
+	 * Evicts a chunk from the page table and the chunk table.
+	 * After this method returns, {@link #fPointer}  will contain
+	 * the index of the evicted chunk within the page table.
+	 */
+	private void evictChunk() {
+		/*
+		 * Use the CLOCK algorithm to determine which chunk to evict.
+		 * i.e., if the chunk in the current slot of the page table has been
+		 * recently referenced (i.e. the reference flag is set), unset the
+		 * reference flag and move to the next slot.  Otherwise, evict the
+		 * chunk in the current slot.
+		 */
+		while (true) {
+			Chunk chunk = fPageTable[fPointer];
+			if (chunk.fCacheHitFlag) {
+				chunk.fCacheHitFlag= false;
+				fPointer= (fPointer + 1) % fPageTable.length;
+			} else {
+				evict(chunk);
+				fPageTable[fPointer] = null;
+				return;
+			}
+		}
+	}
+
+	@Override
+	void remove(Chunk chunk) {
+		final int idx= chunk.fCacheIndex;
+		if (fTableIsFull) {
+			fPointer= fPageTable.length-1;
+			fTableIsFull= false;
+		} else {
+			fPointer--;
+		}
+		chunk.fCacheIndex= -1;
+		final Chunk move= fPageTable[fPointer];
+		fPageTable[idx]= move;
+		move.fCacheIndex= idx;
+		fPageTable[fPointer]= null;
+	}
+
+	@Override
+	int getCapacity() {
+		return fPageTable.length;
+	}
+
+	@Override
+	void setCapacity(int newLength) {
+		final int oldLength= fTableIsFull ? fPageTable.length : fPointer;
+		if (newLength > oldLength) {
+			Chunk[] newTable= new Chunk[newLength];
+			System.arraycopy(fPageTable, 0, newTable, 0, oldLength);
+			fTableIsFull= false;
+			fPointer= oldLength;
+			fPageTable= newTable;
+		} else {
+			for (int i= newLength; i < oldLength; i++) {
+				evict(fPageTable[i]);
+			}
+			Chunk[] newTable= new Chunk[newLength];
+			System.arraycopy(fPageTable, 0, newTable, 0, newLength);
+			fTableIsFull= true;
+			fPointer= 0;
+			fPageTable= newTable;
+		}
+	}
+}
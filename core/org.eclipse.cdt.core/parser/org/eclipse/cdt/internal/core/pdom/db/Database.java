@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,8 +26,11 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -96,6 +99,16 @@ public class Database {
 	private static final int BLOCK_PREV_OFFSET = BLOCK_HEADER_SIZE;
 	private static final int BLOCK_NEXT_OFFSET = BLOCK_HEADER_SIZE + INT_SIZE;
 
+	/**
+	 * Size in bytes of the segments used to map the database file into memory, a value of zero or
+	 * less disables memory mapped access. Only databases opened read-only are mapped, the file of
+	 * a writable database may be truncated which is not possible while mappings are alive.
+	 */
+	public static final long MAPPED_SEGMENT_SIZE =
+			Long.getLong("org.eclipse.cdt.core.parser.pdom.db.mapped.segment.size", 0); //$NON-NLS-1$
+	// Number of locks used to serialize the loading of chunks, must be a power of two.
+	private static final int CHUNK_LOAD_STRIPES = 64;
+
 	private final File fLocation;
 	private final boolean fReadOnly;
 	private RandomAccessFile fFile;
@@ -105,15 +118,33 @@ public class Database {
 
 	private int fVersion;
 	private final Chunk fHeaderChunk;
-	private Chunk[] fChunks;
+	// Written while holding the monitor of fCache, cache hits read it without locking.
+	private volatile AtomicReferenceArray<Chunk> fChunks;
 	private int fChunksUsed;
 	private int fChunksAllocated;
 	private ChunkCache fCache;
+	private final MappedChunkStore fMappedStore;
+	private final Object[] fChunkLoadLocks= new Object[CHUNK_LOAD_STRIPES];
+
+	// While a thread holds the exclusive lock, readers of the snapshot see the contents the database
+	// had when the lock was acquired. The writer preserves the content of a chunk before it modifies
+	// the chunk for the first time. Once the preserved chunks exceed their share of the chunk cache
+	// while no reader uses them, they are dropped and the snapshot is closed until the lock is
+	// given up.
+	private boolean fSnapshotReadsEnabled;
+	int fWriteGeneration;	// Zero if snapshot reads are disabled.
+	private final Map<Integer, Chunk> fSnapshotChunks= new HashMap<>();	// Protected by fCache.
+	private int fReservedSnapshotChunks;	// Protected by fCache.
+	private boolean fSnapshotClosed;	// Protected by fCache.
+	private volatile int fSnapshotReaders;
+	private final ThreadLocal<int[]> fSnapshotReadDepth= new ThreadLocal<>();
 
 	private long malloced;
 	private long freed;
-	private long cacheHits;
+	private final LongAdder cacheHits= new LongAdder();
 	private long cacheMisses;
+	private long cacheEvictions;
+	private long dirtyChunkFlushes;
 
 	/** Soft reference wrapper to keep track of the record for disposed strings. */
 	private static class SoftStringRef extends SoftReference<IString> {
@@ -130,6 +161,8 @@ public class Database {
 	// a cache for strings which is used for btree lookups; soft refs ensure garbage collection
 	private final Map<Long, Reference<IString>> stringCache = new ConcurrentHashMap<>();
 	private final ReferenceQueue<IString> stringDisposal = new ReferenceQueue<>();
+	// the table of shared strings, null if strings are not shared
+	private BTree fStringTable;
 
 	/**
 	 * Construct a new Database object, creating a backing file if necessary.
@@ -140,10 +173,30 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public Database(File location, ChunkCache cache, int version, boolean openReadOnly) throws CoreException {
+		this(location, cache, version, openReadOnly, MAPPED_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Construct a new Database object, creating a backing file if necessary.
+	 * @param location the local file path for the database
+	 * @param cache the cache to be used optimization
+	 * @param version the version number to store in the database (only applicable for new databases)
+	 * @param openReadOnly whether this Database object will ever need writing to
+	 * @param mappedSegmentSize size of the segments in which the file is mapped into memory for
+	 *     reading chunks, or zero to read chunks via the file channel. Ignored unless the database
+	 *     is opened read-only.
+	 * @throws CoreException
+	 */
+	public Database(File location, ChunkCache cache, int version, boolean openReadOnly,
+			long mappedSegmentSize) throws CoreException {
 		try {
 			fLocation = location;
 			fReadOnly= openReadOnly;
 			fCache= cache;
+			fMappedStore= openReadOnly && mappedSegmentSize > 0 ? new MappedChunkStore(mappedSegmentSize) : null;
+			for (int i= 0; i < fChunkLoadLocks.length; i++) {
+				fChunkLoadLocks[i]= new Object();
+			}
 			openFile();
 
 			int nChunksOnDisk = (int) (fFile.length() / CHUNK_SIZE);
@@ -151,12 +204,12 @@ public class Database {
 			fHeaderChunk.fLocked= true;		// Never makes it into the cache, needed to satisfy assertions.
 			if (nChunksOnDisk <= 0) {
 				fVersion= version;
-				fChunks= new Chunk[1];
-				fChunksUsed = fChunksAllocated = fChunks.length;
+				fChunks= new AtomicReferenceArray<>(1);
+				fChunksUsed = fChunksAllocated = 1;
 			} else {
 				fHeaderChunk.read();
 				fVersion= fHeaderChunk.getInt(VERSION_OFFSET);
-				fChunks = new Chunk[nChunksOnDisk];	// chunk[0] is unused.
+				fChunks = new AtomicReferenceArray<>(nChunksOnDisk);	// chunk[0] is unused.
 				fChunksUsed = fChunksAllocated = nChunksOnDisk;
 			}
 		} catch (IOException e) {
@@ -172,7 +225,10 @@ public class Database {
 		int retries= 0;
 		do {
 			try {
-				fFile.getChannel().read(buf, position);
+				final FileChannel channel= fFile.getChannel();
+				if (fMappedStore != null && fMappedStore.read(channel, buf, position))
+					return;
+				channel.read(buf, position);
 				return;
 			} catch (ClosedChannelException e) {
 				// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
@@ -240,8 +296,8 @@ public class Database {
 		// Clear the first chunk.
 		fHeaderChunk.clear(0, CHUNK_SIZE);
 		// Chunks have been removed from the cache, so we may just reset the array of chunks.
-		fChunks = new Chunk[] {null};
-		fChunksUsed = fChunksAllocated = fChunks.length;
+		fChunks = new AtomicReferenceArray<>(1);
+		fChunksUsed = fChunksAllocated = 1;
 		try {
 			fHeaderChunk.flush();	// Zero out header chunk.
 			fFile.getChannel().truncate(CHUNK_SIZE);	// Truncate database.
@@ -270,11 +326,14 @@ public class Database {
 
 	private void removeChunksFromCache() {
 		synchronized (fCache) {
-			for (int i= 1; i < fChunks.length; i++) {
-				Chunk chunk= fChunks[i];
+			// The content is replaced as a whole, there are no readers of the snapshot.
+			clearSnapshotChunks();
+			final AtomicReferenceArray<Chunk> chunks= fChunks;
+			for (int i= 1; i < chunks.length(); i++) {
+				Chunk chunk= chunks.get(i);
 				if (chunk != null) {
 					fCache.remove(chunk);
-					fChunks[i]= null;
+					chunks.set(i, null);
 				}
 			}
 		}
@@ -285,33 +344,145 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public Chunk getChunk(long offset) throws CoreException {
+		if (isReadingSnapshot()) {
+			return getSnapshotChunk(offset);
+		}
 		if (offset < CHUNK_SIZE) {
 			return fHeaderChunk;
 		}
+		return getChunk(getChunkIndex(offset), fExclusiveLock);
+	}
+
+	private static int getChunkIndex(long offset) {
 		long long_index = offset / CHUNK_SIZE;
 		assert long_index < Integer.MAX_VALUE;
+		return (int) long_index;
+	}
 
-		synchronized (fCache) {
-			assert fLocked;
-			final int index = (int) long_index;
-			if (index < 0 || index >= fChunks.length) {
-				databaseCorruptionDetected();
+	private Chunk getChunk(final int index, boolean lock) throws CoreException {
+		assert fLocked;
+		final AtomicReferenceArray<Chunk> chunks= fChunks;
+		if (index < 0 || index >= chunks.length()) {
+			databaseCorruptionDetected();
+		}
+		// A cache hit does not take the monitor of the (shared) cache, the replacement policy
+		// is notified via the chunk. Only the writer locks chunks, it does so in its own thread.
+		Chunk chunk= chunks.get(index);
+		if (chunk != null && (chunk.fLocked || !lock)) {
+			cacheHits.increment();
+			if (chunk.fCacheIndex < 0) {
+				// A locked chunk stays in the database when it is evicted from the cache, it is
+				// put back. The unsynchronized check may miss an eviction in progress, the chunk
+				// is then read again after the write lock is released.
+				fCache.add(chunk, lock);
+			} else {
+				fCache.touch(chunk);
 			}
-			Chunk chunk= fChunks[index];
-			if (chunk == null) {
+			return chunk;
+		}
+		return loadChunk(index, lock);
+	}
+
+	/**
+	 * Reads a chunk that is not present in the cache. The I/O is done outside of the monitor of
+	 * the (shared) cache, such that threads accessing cached chunks are not blocked. Concurrent
+	 * requests for the same chunk are serialized by one of the {@link #fChunkLoadLocks}.
+	 */
+	private Chunk loadChunk(final int index, boolean lock) throws CoreException {
+		synchronized (fChunkLoadLocks[index & (CHUNK_LOAD_STRIPES - 1)]) {
+			synchronized (fCache) {
+				// Another thread may have loaded the chunk while we were waiting for the lock.
+				Chunk chunk= fChunks.get(index);
+				if (chunk != null) {
+					cacheHits.increment();
+					fCache.add(chunk, lock);
+					return chunk;
+				}
+			}
+
+			final Chunk chunk = new Chunk(this, index);
+			chunk.read();
+			synchronized (fCache) {
 				cacheMisses++;
-				chunk = new Chunk(this, index);
-				chunk.read();
 				// Put the chunk in fChunks after it was read successfully.
-				fChunks[index] = chunk;
-			} else {
-				cacheHits++;
+				fChunks.set(index, chunk);
+				fCache.add(chunk, lock);
 			}
-			fCache.add(chunk, fExclusiveLock);
 			return chunk;
 		}
 	}
 
+	/**
+	 * Returns the chunk with the content the given offset had when the current write session
+	 * started. The returned chunk is not modified by the writer.
+	 */
+	private Chunk getSnapshotChunk(long offset) throws CoreException {
+		final int index= getChunkIndex(offset);
+		synchronized (fCache) {
+			Chunk chunk= fSnapshotChunks.get(index);
+			if (chunk != null)
+				return chunk;
+		}
+		// The chunk may be modified by the writer in the meantime, its content is preserved then.
+		final Chunk current= index == 0 ? fHeaderChunk : getChunk(index, false);
+		synchronized (fCache) {
+			Chunk chunk= fSnapshotChunks.get(index);
+			if (chunk == null) {
+				chunk= new Chunk(this, index, current.fBuffer);
+				fSnapshotChunks.put(index, chunk);
+			}
+			return chunk;
+		}
+	}
+
+	/**
+	 * Called by the writer before the given chunk is modified for the first time in the current
+	 * write session. The buffer of the chunk may be shared with readers of the snapshot, the
+	 * writer continues with a copy.
+	 */
+	void preserveSnapshot(Chunk chunk) {
+		synchronized (fCache) {
+			chunk.fWriteGeneration= fWriteGeneration;
+			if (fSnapshotClosed)
+				return;
+
+			Chunk snapshot= fSnapshotChunks.get(chunk.fSequenceNumber);
+			if (snapshot == null || snapshot.fBuffer == chunk.fBuffer) {
+				if (fCache.reserveSnapshotChunk()) {
+					fReservedSnapshotChunks++;
+				} else if (fSnapshotReaders == 0) {
+					// Nobody reads the snapshot, stop paying for it.
+					closeSnapshot();
+					return;
+				}
+				// Readers of the snapshot rely on the chunk, it is preserved beyond the budget.
+			}
+			if (snapshot == null) {
+				snapshot= new Chunk(this, chunk.fSequenceNumber, chunk.fBuffer);
+				fSnapshotChunks.put(chunk.fSequenceNumber, snapshot);
+			}
+			if (snapshot.fBuffer == chunk.fBuffer) {
+				chunk.fBuffer= chunk.fBuffer.clone();
+			}
+		}
+	}
+
+	/**
+	 * Drops the preserved chunks, readers cannot obtain the snapshot until the exclusive lock
+	 * is given up. Must be called while holding the monitor of the cache.
+	 */
+	private void closeSnapshot() {
+		assert fSnapshotReaders == 0;
+		clearSnapshotChunks();
+		fSnapshotClosed= true;
+	}
+
+	private void clearSnapshotChunks() {
+		fSnapshotChunks.clear();
+		fCache.releaseSnapshotChunks(fReservedSnapshotChunks);
+		fReservedSnapshotChunks= 0;
+	}
+
 	private void databaseCorruptionDetected() throws CoreException {
 		String msg = MessageFormat.format(Messages.getString("Database.CorruptedDatabase"), //$NON-NLS-1$
 				new Object[] { fLocation.getName() });
@@ -376,17 +547,15 @@ public class Database {
 
 			final Chunk chunk = new Chunk(this, newChunkIndex);
 			chunk.fDirty = true;
+			chunk.fWriteGeneration= fWriteGeneration;	// Not part of the snapshot.
 
 			if (newChunkIndex >= fChunksAllocated) {
 				int increment = Math.max(1024, fChunksAllocated / 20);
-				Chunk[] newchunks = new Chunk[fChunksAllocated + increment];
-				System.arraycopy(fChunks, 0, newchunks, 0, fChunksAllocated);
-
-				fChunks = newchunks;
+				fChunks = copyChunks(fChunksAllocated + increment);
 				fChunksAllocated += increment;
 			}
 			fChunksUsed += 1;
-			fChunks[newChunkIndex] = chunk;
+			fChunks.set(newChunkIndex, chunk);
 
 			fCache.add(chunk, true);
 			long address = (long) newChunkIndex * CHUNK_SIZE;
@@ -413,15 +582,12 @@ public class Database {
 	private long createNewChunks(int numChunks) throws CoreException {
 		assert fExclusiveLock;
 		synchronized (fCache) {
-			final int oldLen= fChunks.length;
-			Chunk[] newchunks = new Chunk[oldLen + numChunks];
-			System.arraycopy(fChunks, 0, newchunks, 0, oldLen);
-			for (int i = oldLen; i < oldLen + numChunks; i++) {
-				newchunks[i]= null;
-			}
+			final int oldLen= fChunks.length();
+			AtomicReferenceArray<Chunk> newchunks = copyChunks(oldLen + numChunks);
 			final Chunk chunk= new Chunk(this, oldLen + numChunks - 1);
 			chunk.fDirty= true;
-			newchunks[ oldLen + numChunks - 1 ] = chunk;
+			chunk.fWriteGeneration= fWriteGeneration;
+			newchunks.set(oldLen + numChunks - 1, chunk);
 			fChunks= newchunks;
 			fCache.add(chunk, true);
 			fChunksAllocated=oldLen + numChunks;
@@ -430,6 +596,20 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Returns a copy of the chunk table with the given length, called while holding the monitor of
+	 * the cache.
+	 */
+	private AtomicReferenceArray<Chunk> copyChunks(int length) {
+		final AtomicReferenceArray<Chunk> chunks= fChunks;
+		final int oldLength= chunks.length();
+		AtomicReferenceArray<Chunk> newchunks= new AtomicReferenceArray<>(length);
+		for (int i= 0; i < oldLength; i++) {
+			newchunks.set(i, chunks.get(i));
+		}
+		return newchunks;
+	}
+
 	private long getFirstBlock(int blocksize) throws CoreException {
 		assert fLocked;
 		return fHeaderChunk.getFreeRecPtr((blocksize / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1) * INT_SIZE);
@@ -594,6 +774,85 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Stores a string that is expected to be stored many times. If the database has a string
+	 * table, equal strings created by this method share a single record. Otherwise, or if the
+	 * string is too long to be shared, this is the same as {@link #newString(char[])}.
+	 * <p>
+	 * Sharing costs a few bytes per string and an entry in the string table, it should be used
+	 * only for kinds of strings that are known to repeat.
+	 */
+	public IString newSharedString(char[] chars) throws CoreException {
+		final boolean useBytes = useBytes(chars);
+		final int bytelen= useBytes ? chars.length : 2 * chars.length;
+		if (fStringTable == null || bytelen > ShortString.MAX_SHARED_BYTE_LENGTH) {
+			return newString(chars);
+		}
+		return addStringToCache(findOrCreateSharedString(chars, useBytes));
+	}
+
+	/**
+	 * Sets up the table of strings created with {@link #newSharedString(char[])}. The strings are
+	 * kept in a B-tree ordered by their hash codes, the root of the B-tree is stored at the given
+	 * offset. The table has to be set up whenever the database is opened.
+	 * @param rootPointer the offset for the root of the table, or 0 to not share strings.
+	 */
+	public void setStringTable(long rootPointer) {
+		fStringTable= rootPointer == 0 ? null : new BTree(this, rootPointer, new SharedStringComparator());
+		clearStringCache();
+	}
+
+	private ShortString findOrCreateSharedString(final char[] chars, boolean useBytes) throws CoreException {
+		final int hash= ShortString.hash(chars);
+		final long[] existing= { 0 };
+		fStringTable.accept(new IBTreeVisitor() {
+			@Override
+			public int compare(long record) throws CoreException {
+				return compareSharedString(record, hash, chars);
+			}
+
+			@Override
+			public boolean visit(long record) throws CoreException {
+				existing[0]= record;
+				return false;
+			}
+		});
+		if (existing[0] != 0) {
+			ShortString.addSharedReferences(this, existing[0], 1);
+			return (ShortString) getString(existing[0]);
+		}
+		ShortString string= new ShortString(this, chars, useBytes, true);
+		fStringTable.insert(string.getRecord());
+		return string;
+	}
+
+	/**
+	 * Removes a reference to a shared string, the string is freed when it is no longer referenced.
+	 */
+	void releaseSharedString(long record) throws CoreException {
+		if (ShortString.addSharedReferences(this, record, -1) <= 0) {
+			fStringTable.delete(record);
+			stringCache.remove(record);
+			free(record);
+		}
+	}
+
+	private int compareSharedString(long record, int hash, char[] chars) throws CoreException {
+		int cmp= Integer.compare(ShortString.getSharedHash(this, record), hash);
+		if (cmp == 0) {
+			cmp= ShortString.compare(getString(record).getChars(), chars, true);
+		}
+		return cmp;
+	}
+
+	private class SharedStringComparator implements IBTreeComparator {
+		@Override
+		public int compare(long record1, long record2) throws CoreException {
+			return compareSharedString(record1, ShortString.getSharedHash(Database.this, record2),
+					getString(record2).getChars());
+		}
+	}
+
 	private boolean useBytes(char[] chars) {
 		for (char c : chars) {
 			if ((c & 0xff00) != 0)
@@ -603,6 +862,10 @@ public class Database {
 	}
 
 	public IString getString(long offset) throws CoreException {
+		if (isReadingSnapshot()) {
+			// The cache reflects the current contents of the database.
+			return createString(offset);
+		}
 		final Reference<IString> cachedStringReference = stringCache.get(offset);
 		if (cachedStringReference != null) {
 			final IString cachedString = cachedStringReference.get();
@@ -610,12 +873,19 @@ public class Database {
 				return cachedString; // string already cached, no need to re-retrieve it :-)
 			}
 		}
+		return addStringToCache(createString(offset));
+	}
+
+	private IString createString(long offset) throws CoreException {
 		final int l = getInt(offset);
+		if (ShortString.isShared(l)) {
+			return new ShortString(this, offset);
+		}
 		int bytelen= l < 0 ? -l : 2 * l;
 		if (bytelen > ShortString.MAX_BYTE_LENGTH) {
-			return addStringToCache(new LongString(this, offset));
+			return new LongString(this, offset);
 		}
-		return addStringToCache(new ShortString(this, offset));
+		return new ShortString(this, offset);
 	}
 
 	private IString addStringToCache(IString string) {
@@ -667,8 +937,11 @@ public class Database {
 		// Chunks have been removed from the cache, so we are fine.
 		fHeaderChunk.clear(0, CHUNK_SIZE);
 		fHeaderChunk.fDirty= false;
-		fChunks= new Chunk[] { null };
-		fChunksUsed = fChunksAllocated = fChunks.length;
+		fChunks= new AtomicReferenceArray<>(1);
+		fChunksUsed = fChunksAllocated = 1;
+		if (fMappedStore != null) {
+			fMappedStore.clear();
+		}
 		try {
 			fFile.close();
 		} catch (IOException e) {
@@ -688,8 +961,9 @@ public class Database {
 	 * Called from any thread via the cache, protected by {@link #fCache}.
 	 */
 	void releaseChunk(final Chunk chunk) {
+		cacheEvictions++;
 		if (!chunk.fLocked) {
-			fChunks[chunk.fSequenceNumber]= null;
+			fChunks.set(chunk.fSequenceNumber, null);
 		}
 	}
 
@@ -706,6 +980,16 @@ public class Database {
 	 * write operations.
 	 */
 	public void setExclusiveLock() {
+		if (!fExclusiveLock && fSnapshotReadsEnabled) {
+			synchronized (fCache) {
+				assert fSnapshotReaders == 0;
+				clearSnapshotChunks();
+				fSnapshotClosed= false;
+				if (++fWriteGeneration == 0) {
+					fWriteGeneration= 1;
+				}
+			}
+		}
 		fExclusiveLock= true;
 		fLocked= true;
 	}
@@ -714,53 +998,119 @@ public class Database {
 		fLocked= val;
 	}
 
+	/**
+	 * Enables reading a snapshot of the database while another thread holds the exclusive lock.
+	 * The writer preserves the content of the chunks it modifies when snapshot reads are enabled.
+	 */
+	public void setSnapshotReadsEnabled(boolean enabled) {
+		assert !fExclusiveLock;
+		fSnapshotReadsEnabled= enabled;
+		if (!enabled) {
+			fWriteGeneration= 0;
+		}
+	}
+
+	public boolean isSnapshotReadsEnabled() {
+		return fSnapshotReadsEnabled;
+	}
+
+	/**
+	 * Makes the current thread see the contents the database had when the current write session
+	 * started, or the contents of the database if there is no write session. Calls may be nested,
+	 * each successful call must be followed by a call to {@link #endSnapshotRead()} from the same
+	 * thread.
+	 * @return {@code false} if the snapshot of the current write session is no longer available,
+	 *     the thread has to wait for the writer then.
+	 */
+	public boolean beginSnapshotRead() {
+		synchronized (fCache) {
+			if (fSnapshotClosed)
+				return false;
+			fSnapshotReaders++;
+		}
+		int[] depth= fSnapshotReadDepth.get();
+		if (depth == null) {
+			depth= new int[1];
+			fSnapshotReadDepth.set(depth);
+		}
+		depth[0]++;
+		return true;
+	}
+
+	public void endSnapshotRead() {
+		int[] depth= fSnapshotReadDepth.get();
+		assert depth != null && depth[0] > 0;
+		if (--depth[0] == 0) {
+			fSnapshotReadDepth.remove();
+		}
+		synchronized (fCache) {
+			if (--fSnapshotReaders == 0 && !fExclusiveLock) {
+				clearSnapshotChunks();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the current thread reads the snapshot of the database.
+	 */
+	public boolean isReadingSnapshot() {
+		return fSnapshotReaders != 0 && fSnapshotReadDepth.get() != null;
+	}
+
 	public void giveUpExclusiveLock(final boolean flush) throws CoreException {
 		if (fExclusiveLock) {
 			try {
-				ArrayList<Chunk> dirtyChunks= new ArrayList<>();
+				unlockChunks(flush);
+			} finally {
+				fExclusiveLock= false;
 				synchronized (fCache) {
-					for (int i= 1; i < fChunksUsed; i++) {
-						Chunk chunk= fChunks[i];
-						if (chunk != null) {
-							if (chunk.fCacheIndex < 0) {
-								// Locked chunk that has been removed from cache.
-								if (chunk.fDirty) {
-									dirtyChunks.add(chunk); // Keep in fChunks until it is flushed.
-								} else {
-									chunk.fLocked= false;
-									fChunks[i]= null;
-								}
-							} else if (chunk.fLocked) {
-								// Locked chunk, still in cache.
-								if (chunk.fDirty) {
-									if (flush) {
-										dirtyChunks.add(chunk);
-									}
-								} else {
-									chunk.fLocked= false;
-								}
-							} else {
-								assert !chunk.fDirty; // Dirty chunks must be locked.
+					if (fSnapshotReaders == 0) {
+						clearSnapshotChunks();
+					}
+					fSnapshotClosed= false;
+				}
+			}
+		}
+	}
+
+	private void unlockChunks(final boolean flush) throws CoreException {
+		ArrayList<Chunk> dirtyChunks= new ArrayList<>();
+		synchronized (fCache) {
+			for (int i= 1; i < fChunksUsed; i++) {
+				Chunk chunk= fChunks.get(i);
+				if (chunk != null) {
+					if (chunk.fCacheIndex < 0) {
+						// Locked chunk that has been removed from cache.
+						if (chunk.fDirty) {
+							dirtyChunks.add(chunk); // Keep in fChunks until it is flushed.
+						} else {
+							chunk.fLocked= false;
+							fChunks.set(i, null);
+						}
+					} else if (chunk.fLocked) {
+						// Locked chunk, still in cache.
+						if (chunk.fDirty) {
+							if (flush) {
+								dirtyChunks.add(chunk);
 							}
+						} else {
+							chunk.fLocked= false;
 						}
+					} else {
+						assert !chunk.fDirty; // Dirty chunks must be locked.
 					}
 				}
-				// Also handles header chunk.
-				flushAndUnlockChunks(dirtyChunks, flush);
-			} finally {
-				fExclusiveLock= false;
 			}
 		}
+		// Also handles header chunk.
+		flushAndUnlockChunks(dirtyChunks, flush);
 	}
 
 	public void flush() throws CoreException {
 		assert fLocked;
 		if (fExclusiveLock) {
-			try {
-				giveUpExclusiveLock(true);
-			} finally {
-				setExclusiveLock();
-			}
+			// Flushing does not end the write session.
+			unlockChunks(true);
 			return;
 		}
 
@@ -768,7 +1118,7 @@ public class Database {
 		ArrayList<Chunk> dirtyChunks= new ArrayList<>();
 		synchronized (fCache) {
 			for (int i= 1; i < fChunksUsed; i++) {
-				Chunk chunk= fChunks[i];
+				Chunk chunk= fChunks.get(i);
 				if (chunk != null && chunk.fDirty) {
 					dirtyChunks.add(chunk);
 				}
@@ -799,6 +1149,7 @@ public class Database {
 				for (Chunk chunk : dirtyChunks) {
 					if (chunk.fDirty) {
 						chunk.flush();
+						dirtyChunkFlushes++;
 					}
 				}
 
@@ -807,7 +1158,7 @@ public class Database {
 					for (Chunk chunk : dirtyChunks) {
 						chunk.fLocked= false;
 						if (chunk.fCacheIndex < 0) {
-							fChunks[chunk.fSequenceNumber]= null;
+							fChunks.set(chunk.fSequenceNumber, null);
 						}
 					}
 				}
@@ -836,17 +1187,40 @@ public class Database {
 	}
 
 	public void resetCacheCounters() {
-		cacheHits= cacheMisses= 0;
+		cacheHits.reset();
+		cacheMisses= cacheEvictions= dirtyChunkFlushes= 0;
 	}
 
 	public long getCacheHits() {
-		return cacheHits;
+		return cacheHits.sum();
 	}
 
 	public long getCacheMisses() {
 		return cacheMisses;
 	}
 
+	/**
+	 * Returns the number of chunks of this database that were evicted from the cache since the
+	 * last reset of the counters.
+	 */
+	public long getCacheEvictions() {
+		return cacheEvictions;
+	}
+
+	/**
+	 * Returns the number of dirty chunks written to the file since the last reset of the counters.
+	 */
+	public long getDirtyChunkFlushes() {
+		return dirtyChunkFlushes;
+	}
+
+	/**
+	 * Returns the number of bytes of the database file that are mapped into memory.
+	 */
+	public long getMappedSizeBytes() {
+		return fMappedStore != null ? fMappedStore.getMappedSize() : 0;
+	}
+
 	public long getSizeBytes() {
 		try {
 			return fFile.length();
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * Read access to the database file through memory mapped segments. The file is mapped read-only
+ * in segments of a fixed size, a segment is mapped on first access once the file is large enough
+ * to contain it completely. Reads from the trailing, partially filled segment are not served by
+ * the store and have to be performed via the file channel.
+ * <p>
+ * The store is used for databases opened read-only only. Java offers no way to unmap a segment,
+ * the mapping stays alive until the buffer is garbage collected. On some platforms, e.g. Windows,
+ * a file cannot be truncated while it is mapped, which a writable database does when it is
+ * cleared.
+ */
+final class MappedChunkStore {
+	private final long fSegmentSize;
+	private volatile MappedByteBuffer[] fSegments= new MappedByteBuffer[0];
+	private long fMappedSize;
+
+	/**
+	 * @param segmentSize the size of a segment in bytes, rounded to a multiple of
+	 *     {@link Database#CHUNK_SIZE}.
+	 */
+	MappedChunkStore(long segmentSize) {
+		long chunks= Math.max(1, segmentSize / Database.CHUNK_SIZE);
+		fSegmentSize= Math.min(chunks * Database.CHUNK_SIZE,
+				(Integer.MAX_VALUE / Database.CHUNK_SIZE) * (long) Database.CHUNK_SIZE);
+	}
+
+	long getSegmentSize() {
+		return fSegmentSize;
+	}
+
+	/**
+	 * Returns the number of bytes of the file that are currently mapped.
+	 */
+	synchronized long getMappedSize() {
+		return fMappedSize;
+	}
+
+	/**
+	 * Fills the remaining bytes of the buffer with the content of the file at the given position.
+	 * @return {@code false} if the region is not covered by a mapped segment, in which case the
+	 *     buffer is not modified.
+	 */
+	boolean read(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		final int length= buf.remaining();
+		final long segmentIndex= position / fSegmentSize;
+		final int offsetInSegment= (int) (position % fSegmentSize);
+		if (segmentIndex >= Integer.MAX_VALUE || offsetInSegment + (long) length > fSegmentSize)
+			return false;
+
+		MappedByteBuffer segment= getSegment(channel, (int) segmentIndex);
+		if (segment == null)
+			return false;
+
+		// Use a private view, the position of the shared buffer must not be touched by concurrent readers.
+		ByteBuffer view= segment.duplicate();
+		view.limit(offsetInSegment + length);
+		view.position(offsetInSegment);
+		buf.put(view);
+		return true;
+	}
+
+	private MappedByteBuffer getSegment(FileChannel channel, int index) throws IOException {
+		MappedByteBuffer[] segments= fSegments;
+		if (index < segments.length && segments[index] != null)
+			return segments[index];
+
+		synchronized (this) {
+			segments= fSegments;
+			if (index < segments.length && segments[index] != null)
+				return segments[index];
+
+			final long start= index * fSegmentSize;
+			if (start + fSegmentSize > channel.size())
+				return null;
+
+			MappedByteBuffer segment= channel.map(MapMode.READ_ONLY, start, fSegmentSize);
+			MappedByteBuffer[] newSegments= Arrays.copyOf(segments, Math.max(segments.length, index + 1));
+			newSegments[index]= segment;
+			fSegments= newSegments;
+			fMappedSize+= fSegmentSize;
+			return segment;
+		}
+	}
+
+	/**
+	 * Drops the references to the mapped segments, called when the file is closed. The segments
+	 * are unmapped once they are garbage collected.
+	 */
+	synchronized void clear() {
+		fSegments= new MappedByteBuffer[0];
+		fMappedSize= 0;
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Strategy used by the {@link ChunkCache} to decide which chunk to evict. All methods but
+ * {@link #touch(Chunk)} are called while holding the monitor of the cache.
+ * <p>
+ * A policy has to maintain {@link Chunk#fCacheIndex}: it is negative exactly when the chunk is
+ * not part of the cache. Other than that the policy is free to use the field.
+ */
+abstract class ReplacementPolicy {
+	/**
+	 * Adds a chunk that is not yet part of the cache, evicting another one if the cache is full.
+	 */
+	abstract void add(Chunk chunk);
+
+	/**
+	 * Notifies the policy about a reference to a chunk that is part of the cache. Cache hits call
+	 * this method without holding the monitor of the cache, concurrently with the other methods.
+	 * It must therefore only record the reference in the chunk, e.g. in
+	 * {@link Chunk#fCacheHitFlag}, and leave it to the other methods to act upon it.
+	 */
+	abstract void touch(Chunk chunk);
+
+	/**
+	 * Removes a chunk from the cache without releasing it from its database.
+	 */
+	abstract void remove(Chunk chunk);
+
+	/**
+	 * Returns the maximum number of chunks in the cache.
+	 */
+	abstract int getCapacity();
+
+	/**
+	 * Changes the maximum number of chunks, evicting chunks as necessary.
+	 */
+	abstract void setCapacity(int capacity);
+
+	/**
+	 * Evicts the chunk from the cache and releases it from its database.
+	 */
+	protected final void evict(Chunk chunk) {
+		chunk.fDatabase.releaseChunk(chunk);
+		chunk.fCacheIndex= -1;
+	}
+}
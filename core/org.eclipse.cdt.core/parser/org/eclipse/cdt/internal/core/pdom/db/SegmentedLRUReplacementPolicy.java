@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Segmented LRU replacement. Chunks enter a probationary segment and are promoted to a protected
+ * segment when they are referenced again. Chunks are evicted from the probationary segment
+ * first, such that a scan over a large part of the database cannot push out chunks that are
+ * used repeatedly, e.g. the interior nodes of the b-trees.
+ * <p>
+ * Consecutive references to the same chunk are typical for reading the fields of a record, they
+ * do not count as a re-reference. {@link Chunk#fCacheIndex} holds the segment of the chunk.
+ * <p>
+ * As references are recorded without holding the monitor of the cache, the segments are not
+ * reordered on a reference. A reference sets {@link Chunk#fCacheHitFlag}, the flag is consumed
+ * when the chunk reaches the end of its segment: a flagged chunk of the probationary segment is
+ * promoted, a flagged chunk of the protected segment gets another round instead of being demoted.
+ */
+final class SegmentedLRUReplacementPolicy extends ReplacementPolicy {
+	private static final int PROBATION= 0;
+	private static final int PROTECTED= 1;
+	// Share of the capacity reserved for the protected segment, in percent.
+	private static final int PROTECTED_PERCENT= 80;
+
+	/**
+	 * Doubly linked list of chunks, most recently used first.
+	 */
+	private static final class Segment {
+		final int fId;
+		Chunk fHead;
+		Chunk fTail;
+		int fSize;
+
+		Segment(int id) {
+			fId= id;
+		}
+
+		void addFirst(Chunk chunk) {
+			chunk.fCacheIndex= fId;
+			chunk.fCachePrev= null;
+			chunk.fCacheNext= fHead;
+			if (fHead != null) {
+				fHead.fCachePrev= chunk;
+			} else {
+				fTail= chunk;
+			}
+			fHead= chunk;
+			fSize++;
+		}
+
+		void unlink(Chunk chunk) {
+			final Chunk prev= chunk.fCachePrev;
+			final Chunk next= chunk.fCacheNext;
+			if (prev != null) {
+				prev.fCacheNext= next;
+			} else {
+				fHead= next;
+			}
+			if (next != null) {
+				next.fCachePrev= prev;
+			} else {
+				fTail= prev;
+			}
+			chunk.fCachePrev= chunk.fCacheNext= null;
+			chunk.fCacheIndex= -1;
+			fSize--;
+		}
+	}
+
+	private final Segment fProbation= new Segment(PROBATION);
+	private final Segment fProtected= new Segment(PROTECTED);
+	private int fCapacity;
+	private int fProtectedCapacity;
+	private Chunk fLastReferenced;
+
+	SegmentedLRUReplacementPolicy(int capacity) {
+		setCapacity(capacity);
+	}
+
+	@Override
+	void add(Chunk chunk) {
+		if (fProbation.fSize + fProtected.fSize >= fCapacity) {
+			evict();
+		}
+		chunk.fCacheHitFlag= false;
+		fProbation.addFirst(chunk);
+		fLastReferenced= chunk;
+	}
+
+	@Override
+	void touch(Chunk chunk) {
+		// Races with other threads are benign, at worst a reference is lost or counted twice.
+		if (chunk != fLastReferenced) {
+			fLastReferenced= chunk;
+			chunk.fCacheHitFlag= true;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used chunk that has not been referenced again, promoting the
+	 * chunks of the probationary segment that have been.
+	 */
+	private void evict() {
+		Chunk chunk;
+		while ((chunk= fProbation.fTail) != null) {
+			if (!chunk.fCacheHitFlag || fProtectedCapacity == 0) {
+				evict(fProbation);
+				return;
+			}
+			chunk.fCacheHitFlag= false;
+			fProbation.unlink(chunk);
+			fProtected.addFirst(chunk);
+			// Demote the least recently used chunks of the protected segment.
+			while (fProtected.fSize > fProtectedCapacity) {
+				Chunk demoted= fProtected.fTail;
+				fProtected.unlink(demoted);
+				if (demoted.fCacheHitFlag) {
+					demoted.fCacheHitFlag= false;
+					fProtected.addFirst(demoted);
+				} else {
+					fProbation.addFirst(demoted);
+				}
+			}
+		}
+		evict(fProtected);
+	}
+
+	@Override
+	void remove(Chunk chunk) {
+		(chunk.fCacheIndex == PROTECTED ? fProtected : fProbation).unlink(chunk);
+		if (chunk == fLastReferenced) {
+			fLastReferenced= null;
+		}
+	}
+
+	private void evict(Segment segment) {
+		final Chunk chunk= segment.fTail;
+		segment.unlink(chunk);
+		if (chunk == fLastReferenced) {
+			fLastReferenced= null;
+		}
+		evict(chunk);
+	}
+
+	@Override
+	int getCapacity() {
+		return fCapacity;
+	}
+
+	@Override
+	void setCapacity(int capacity) {
+		fCapacity= capacity;
+		fProtectedCapacity= (int) ((long) capacity * PROTECTED_PERCENT / 100);
+		while (fProtected.fSize > fProtectedCapacity) {
+			evict(fProtected);
+		}
+		while (fProbation.fSize + fProtected.fSize > fCapacity) {
+			evict(fProbation);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,10 @@ import org.eclipse.core.runtime.CoreException;
 
 /**
  * This is for strings that fit inside a single chunk.
+ * <p>
+ * Strings created with {@link Database#newSharedString(char[])} are stored only once per database.
+ * A shared string is marked in its length field, it additionally stores its hash code and the
+ * number of references to it and is freed when the last reference is deleted.
  * 
  * @author Doug Schaefer
  */
@@ -31,8 +35,15 @@ public class ShortString implements IString {
 
 	private static final int LENGTH = 0;
 	private static final int CHARS = 4;
+
+	// Layout of shared strings
+	private static final int SHARED = 1 << 30;
+	private static final int SHARED_HASH = 4;
+	private static final int SHARED_REFCOUNT = 8;
+	private static final int SHARED_CHARS = 12;
 	
 	public static final int MAX_BYTE_LENGTH = Database.MAX_MALLOC_SIZE - CHARS;
+	static final int MAX_SHARED_BYTE_LENGTH = Database.MAX_MALLOC_SIZE - SHARED_CHARS;
 	
 	public ShortString(Database db, long offset) {
 		this.db = db;
@@ -40,13 +51,23 @@ public class ShortString implements IString {
 	}
 
 	public ShortString(Database db, char[] chars, boolean useBytes) throws CoreException {
+		this(db, chars, useBytes, false);
+	}
+
+	ShortString(Database db, char[] chars, boolean useBytes, boolean shared) throws CoreException {
 		final int n = chars.length;
 		this.db = db;
 		
-		this.record = db.malloc(CHARS + (useBytes ? n : 2 * n));
+		final int charsOffset = shared ? SHARED_CHARS : CHARS;
+		this.record = db.malloc(charsOffset + (useBytes ? n : 2 * n));
 		Chunk chunk = db.getChunk(record);
-		chunk.putInt(record + LENGTH, useBytes ? -n : n);
-		long p = record + CHARS;
+		final int length = shared ? n | SHARED : n;
+		chunk.putInt(record + LENGTH, useBytes ? -length : length);
+		if (shared) {
+			chunk.putInt(record + SHARED_HASH, hash(chars));
+			chunk.putInt(record + SHARED_REFCOUNT, 1);
+		}
+		long p = record + charsOffset;
 		if (useBytes) {
 			chunk.putCharsAsBytes(p, chars, 0, n);
 		} else {
@@ -64,7 +85,52 @@ public class ShortString implements IString {
 	
 	@Override
 	public void delete() throws CoreException {
-		db.free(record);
+		if (isShared(db.getInt(record + LENGTH))) {
+			db.releaseSharedString(record);
+		} else {
+			db.free(record);
+		}
+	}
+
+	/**
+	 * Returns whether the length field of a string marks it as a shared short string.
+	 */
+	static boolean isShared(int lengthField) {
+		return (Math.abs(lengthField) & SHARED) != 0;
+	}
+
+	/**
+	 * Returns the number of characters stored in the length field of a short or long string.
+	 */
+	static int getLength(int lengthField) {
+		return Math.abs(lengthField) & ~SHARED;
+	}
+
+	/**
+	 * Returns the hash code stored with a shared string.
+	 */
+	static int getSharedHash(Database db, long record) throws CoreException {
+		return db.getInt(record + SHARED_HASH);
+	}
+
+	/**
+	 * Adjusts the number of references to a shared string and returns the new number.
+	 */
+	static int addSharedReferences(Database db, long record, int delta) throws CoreException {
+		final int count = db.getInt(record + SHARED_REFCOUNT) + delta;
+		db.putInt(record + SHARED_REFCOUNT, count);
+		return count;
+	}
+
+	/**
+	 * Compatible with {@link String#hashCode()}
+	 */
+	static int hash(char[] chars) {
+		int h = 0;
+		for (char c : chars) {
+			h = 31 * h + c;
+		}
+		return h;
 	}
 	
 	@Override
@@ -74,12 +140,13 @@ public class ShortString implements IString {
 		}
 		final Chunk chunk = db.getChunk(record);
 		final int l = chunk.getInt(record + LENGTH);
-		final int length = Math.abs(l);
+		final int length = getLength(l);
 		final char[] chars = new char[length];
+		final long p = record + (isShared(l) ? SHARED_CHARS : CHARS);
 		if (l < 0) {
-			chunk.getCharsFromBytes(record + CHARS, chars, 0, length);
+			chunk.getCharsFromBytes(p, chars, 0, length);
 		} else {
-			chunk.getChars(record + CHARS, chars, 0, length);
+			chunk.getChars(p, chars, 0, length);
 		}
 		cachedChars = chars; // cache the array
 		return chars;
@@ -106,7 +173,7 @@ public class ShortString implements IString {
 				
 				int n1 = chunk1.getInt(record); 
 				int n2 = chunk2.getInt(string.record);
-				if (n1 != n2)
+				if (getLength(n1) != getLength(n2))
 					return false;
 				
 				return CharArrayUtils.equals(getChars(), string.getChars());
@@ -139,13 +206,8 @@ public class ShortString implements IString {
 	public int hashCode() {
 		int h = hash;
 		if (h == 0) {
-			char chars[];
 			try {
-				chars = getChars();
-				final int len = chars.length;
-				for (int i = 0; i < len; i++) {
-					h = 31 * h + chars[i];
-				}
+				h = isShared(db.getInt(record + LENGTH)) ? getSharedHash(db, record) : hash(getChars());
 			} catch (CoreException e) {
 			}
 			hash = h;
@@ -236,7 +298,7 @@ public class ShortString implements IString {
 	}
 	
 	public final int getLength() throws CoreException {
-		return Math.abs(db.getInt(record + LENGTH));
+		return getLength(db.getInt(record + LENGTH));
 	}
 	
 	/**
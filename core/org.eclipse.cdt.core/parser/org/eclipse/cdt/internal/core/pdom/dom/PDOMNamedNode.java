@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -44,11 +44,24 @@ public abstract class PDOMNamedNode extends PDOMNode {
 	}
 
 	public PDOMNamedNode(PDOMLinkage linkage, PDOMNode parent, char[] name) throws CoreException {
+		this(linkage, parent, name, false);
+	}
+
+	/**
+	 * @param shareName whether the name should be stored with
+	 *     {@link Database#newSharedString(char[])}, for kinds of nodes whose names repeat a lot.
+	 */
+	protected PDOMNamedNode(PDOMLinkage linkage, PDOMNode parent, char[] name, boolean shareName)
+			throws CoreException {
 		super(linkage, parent);
 
 		fName= name;
 		final Database db = linkage.getDB();
-		db.putRecPtr(record + NAME, name != null ? db.newString(name).getRecord() : 0);
+		long namerec= 0;
+		if (name != null) {
+			namerec= (shareName ? db.newSharedString(name) : db.newString(name)).getRecord();
+		}
+		db.putRecPtr(record + NAME, namerec);
 	}
 
 	/**
@@ -91,6 +104,13 @@ public abstract class PDOMNamedNode extends PDOMNode {
 	 * @throws CoreException
 	 */
 	protected void updateName(char[] nameCharArray) throws CoreException {
+		updateName(nameCharArray, false);
+	}
+
+	/**
+	 * Updates the name, for nodes that were created with a shared name.
+	 */
+	protected void updateName(char[] nameCharArray, boolean shareName) throws CoreException {
 		if (fName != null && CharArrayUtils.equals(fName, nameCharArray))
 			return;
 
@@ -98,7 +118,8 @@ public abstract class PDOMNamedNode extends PDOMNode {
 		if (!name.equals(nameCharArray)) {
 			name.delete();
 			final Database db= getDB();
-			db.putRecPtr(record + NAME, db.newString(nameCharArray).getRecord());
+			IString newName= shareName ? db.newSharedString(nameCharArray) : db.newString(nameCharArray);
+			db.putRecPtr(record + NAME, newName.getRecord());
 		}
 		fName= nameCharArray;
 	}
@@ -108,7 +129,7 @@ public abstract class PDOMNamedNode extends PDOMNode {
 		final Database db = getDB();
 		final long namerec= db.getRecPtr(record + NAME);
 		if (namerec != 0) {
-			db.free(namerec);
+			db.getString(namerec).delete();
 		}
 		super.delete(linkage);
 	}
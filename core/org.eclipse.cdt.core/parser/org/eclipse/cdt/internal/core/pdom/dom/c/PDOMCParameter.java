@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -47,7 +47,7 @@ final class PDOMCParameter extends PDOMNamedNode implements IParameter, IPDOMBin
 
 	public PDOMCParameter(PDOMLinkage linkage, PDOMNode parent, IParameter param, PDOMCParameter next)
 			throws CoreException {
-		super(linkage, parent, param.getNameCharArray());
+		super(linkage, parent, param.getNameCharArray(), true);
 		fType= null; // this constructor is used for adding parameters to the database, only.
 
 		Database db = getDB();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -55,7 +55,7 @@ class PDOMCPPParameter extends PDOMNamedNode implements ICPPParameter, IPDOMBind
 
 	public PDOMCPPParameter(PDOMLinkage linkage, PDOMNode parent, ICPPParameter param, PDOMCPPParameter next)
 			throws CoreException {
-		super(linkage, parent, param.getNameCharArray());
+		super(linkage, parent, param.getNameCharArray(), true);
 		fType= null;	// This constructor is used for adding parameters to the database, only.
 		fDefaultValue = param.getDefaultValue();
 
@@ -83,7 +83,7 @@ class PDOMCPPParameter extends PDOMNamedNode implements ICPPParameter, IPDOMBind
 
 		final char[] newName = newPar.getNameCharArray();
 		if (!CharArrayUtils.equals(newName, getNameCharArray())) {
-			updateName(newName);
+			updateName(newName, true);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2008, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,10 +16,11 @@ import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.eclipse.cdt.internal.core.resources.DirectoryContentCache;
+import org.eclipse.cdt.internal.core.resources.DirectoryContentCache.Content;
 import org.eclipse.cdt.utils.UNCPathConverter;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
@@ -27,23 +28,15 @@ import org.eclipse.core.runtime.CoreException;
 
 /**
  * A cache for checking whether a file exists. The cache shall be used for a limited amount of time,
- * only (e.g. one indexer task). It uses as much memory as it needs. To protect against OutOfMemory
- * situations, a soft reference is used.
+ * only (e.g. one indexer task). The content of directories on the local file system is taken from
+ * the process-wide {@link DirectoryContentCache}, other directories are cached by this object.
+ * It uses as much memory as it needs. To protect against OutOfMemory situations, a soft reference
+ * is used. The cache can be shared between the parser threads of an indexer task.
  * @since 5.0
  */
 public final class FileExistsCache {
-	private static final Content EMPTY_STRING_ARRAY= new Content(new String[0]);
 	private static boolean BYPASS_CACHE= Boolean.getBoolean("CDT_INDEXER_BYPASS_FILE_EXISTS_CACHE"); //$NON-NLS-1$
 
-	private static class Content {
-		public Content(String[] names) {
-			fNames= names;
-			fIsFile= new BitSet(names.length * 2);
-		}
-		public String[] fNames;
-		public BitSet fIsFile;
-	}
-
 	private Reference<Map<String, Content>> fCache;
 	// Cache for recent results of isFile calls (bug 471103).
 	private final Map<String, Boolean> fCacheIsFile = new HashMap<>();
@@ -56,7 +49,7 @@ public final class FileExistsCache {
 		fCache= new SoftReference<>(cache);
 	}
 
-	public boolean isFile(String path) {
+	public synchronized boolean isFile(String path) {
 		// Fast return when path was already queried. The method is potentially called multiple times with
 		// the same path on each return statement the returned value is stored in the cache (bug 471103).
 		Boolean cachedResult = fCacheIsFile.get(path);
@@ -107,7 +100,13 @@ public final class FileExistsCache {
 		if (fCaseInSensitive)
 			name= name.toUpperCase();
 
-		Content avail= getExistsCache().get(parent);
+		Content avail= null;
+		if (parentStore == null) {
+			avail= DirectoryContentCache.getInstance().getContent(parent, fCaseInSensitive);
+		}
+		if (avail == null) {
+			avail= getExistsCache().get(parent);
+		}
 		if (avail == null) {
 			String[] files = null;
 			try {
@@ -116,7 +115,7 @@ public final class FileExistsCache {
 				// Ignore
 			}
 			if (files == null || files.length == 0) {
-				avail= EMPTY_STRING_ARRAY;
+				avail= Content.EMPTY;
 			} else {
 				if (fCaseInSensitive) {
 					for (int i = 0; i < files.length; i++) {
@@ -128,22 +127,19 @@ public final class FileExistsCache {
 			}
 			getExistsCache().put(parent, avail);
 		}
-		int idx= Arrays.binarySearch(avail.fNames, name);
+		int idx= avail.indexOf(name);
 		if (idx < 0)
 			return false;
-		idx *= 2;
 
-		final BitSet isFileBitset = avail.fIsFile;
-		if (isFileBitset.get(idx))
-			return true;
-		if (isFileBitset.get(idx + 1))
-			return false;
+		Boolean isFile= avail.isFile(idx);
+		if (isFile != null)
+			return isFile.booleanValue();
 
 		if ((file != null && file.isFile()) || (fileStore != null && !fileStore.fetchInfo().isDirectory())) {
-			isFileBitset.set(idx);
+			avail.setIsFile(idx, true);
 			return true;
 		}
-		isFileBitset.set(idx + 1);
+		avail.setIsFile(idx, false);
 		return false;
 	}
 
@@ -68,11 +68,14 @@ public class IndexerPreferences {
 	public static final String KEY_REINDEX_ON_INDEXER_CHANGE = "reindexOnIndexerChange"; //$NON-NLS-1$
 	public static final String KEY_INDEX_ALL_HEADER_VERSIONS= "indexAllHeaderVersions"; //$NON-NLS-1$
 	public static final String KEY_INDEX_ALL_VERSIONS_SPECIFIC_HEADERS= "indexAllVersionsSpecificHeaders"; //$NON-NLS-1$
+	/** Number of threads parsing translation units concurrently, {@code 1} disables parallel parsing. */
+	public static final String KEY_INDEXER_PARSER_THREADS= "indexerParserThreads"; //$NON-NLS-1$
 
 	private static final String DEFAULT_INDEX_IMPORT_LOCATION = ".settings/cdt-index.zip"; //$NON-NLS-1$
 	private static final int DEFAULT_UPDATE_POLICY= 0;
 	public static final int DEFAULT_FILE_SIZE_LIMIT_MB = 8;
 	public static final int DEFAULT_INCLUDED_FILE_SIZE_LIMIT_MB = 16;
+	public static final int DEFAULT_PARSER_THREADS = 1;
 
 	private static final String QUALIFIER = CCorePlugin.PLUGIN_ID;
 	private static final String INDEXER_NODE = "indexer"; //$NON-NLS-1$
@@ -336,6 +339,7 @@ public class IndexerPreferences {
 		prefs.putBoolean(KEY_SKIP_MACRO_REFERENCES, false);
 		prefs.put(KEY_INDEX_IMPORT_LOCATION, DEFAULT_INDEX_IMPORT_LOCATION);
 		prefs.putBoolean(KEY_INDEX_ALL_HEADER_VERSIONS, false);
+		prefs.putInt(KEY_INDEXER_PARSER_THREADS, DEFAULT_PARSER_THREADS);
 	}
 
 	public static void setDefaultIndexerId(String defaultId) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,7 @@ import org.eclipse.cdt.internal.core.pdom.AbstractIndexerTask;
 import org.eclipse.cdt.internal.core.pdom.ITodoTaskUpdater;
 import org.eclipse.cdt.internal.core.pdom.IndexerProgress;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.resources.DirectoryContentCache;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -68,6 +69,8 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 		final long fileLimit = getIntProperty(IndexerPreferences.KEY_SKIP_FILES_LARGER_THAN_MB, 0);
 		final long includedFileLimit = getIntProperty(IndexerPreferences.KEY_SKIP_INCLUDED_FILES_LARGER_THAN_MB, 0);
 		setFileSizeLimits(fileLimit * 1024 * 1024, includedFileLimit * 1024 * 1024);
+		setParserThreads(getIntProperty(IndexerPreferences.KEY_INDEXER_PARSER_THREADS,
+				IndexerPreferences.DEFAULT_PARSER_THREADS));
 		setIndexAllHeaderVersions(checkProperty(IndexerPreferences.KEY_INDEX_ALL_HEADER_VERSIONS));
 		setHeadersToIndexAllVersions(getStringSet(IndexerPreferences.KEY_INDEX_ALL_VERSIONS_SPECIFIC_HEADERS));
 		if (checkProperty(IndexerPreferences.KEY_SKIP_ALL_REFERENCES)) {
@@ -318,7 +321,12 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 			System.out.println(indent + " Cache["    //$NON-NLS-1$
 					+ ChunkCache.getSharedInstance().getMaxSize() / 1024 / 1024 + "MB]: " +    //$NON-NLS-1$
 					+ hits + " hits, "      //$NON-NLS-1$
-					+ misses + "(" + nfPercent.format(missPct) + ") misses.");      //$NON-NLS-1$ //$NON-NLS-2$
+					+ misses + "(" + nfPercent.format(missPct) + ") misses, "      //$NON-NLS-1$ //$NON-NLS-2$
+					+ index.getCacheEvictions() + " evictions, "      //$NON-NLS-1$
+					+ index.getDirtyChunkFlushes() + " flushes.");      //$NON-NLS-1$
+			System.out.println(indent + " File system: "    //$NON-NLS-1$
+					+ DirectoryContentCache.getInstance().getSavedFileSystemCalls()
+					+ " calls saved by the directory content cache.");    //$NON-NLS-1$
 
 			if (Boolean.parseBoolean(System.getProperty("SHOW_COMPRESSED_INDEXER_INFO"))) {    //$NON-NLS-1$
 				Calendar cal = Calendar.getInstance();
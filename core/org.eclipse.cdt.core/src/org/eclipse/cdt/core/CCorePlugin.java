@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -63,6 +63,7 @@ import org.eclipse.cdt.internal.core.language.settings.providers.LanguageSetting
 import org.eclipse.cdt.internal.core.model.CModelManager;
 import org.eclipse.cdt.internal.core.model.Util;
 import org.eclipse.cdt.internal.core.pdom.PDOMManager;
+import org.eclipse.cdt.internal.core.resources.DirectoryContentCache;
 import org.eclipse.cdt.internal.core.resources.ResourceLookup;
 import org.eclipse.cdt.internal.core.settings.model.CProjectDescriptionManager;
 import org.eclipse.cdt.internal.core.settings.model.ExceptionFactory;
@@ -382,6 +383,7 @@ public class CCorePlugin extends Plugin {
 
 			fNewCProjectDescriptionManager.shutdown();
 			ResourceLookup.shutdown();
+			DirectoryContentCache.getInstance().shutdown();
 			
 			buildConfigManager.dispose();
 			buildConfigManager = null;
@@ -404,6 +406,7 @@ public class CCorePlugin extends Plugin {
 		configurePluginDebugOptions();
 		PositionTrackerManager.getInstance().install();
 		ResourceLookup.startup();
+		DirectoryContentCache.getInstance().startup();
 
 		ToolChainManager toolChainManager = new ToolChainManager();
 		context.registerService(IToolChainManager.class, toolChainManager, null);
@@ -19,6 +19,7 @@ package org.eclipse.cdt.core;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -40,9 +41,12 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceProxy;
 import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.URIUtil;
 import org.osgi.service.prefs.BackingStoreException;
@@ -76,6 +80,14 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	public static final String BUILD_CONTEXT = "build"; //$NON-NLS-1$
 
 	private static final Pattern ANSI_ESCAPE_RE = Pattern.compile("\\e\\[[\\d;]*[^\\d;]"); //$NON-NLS-1$
+	private static final char ESCAPE = '\u001b';
+
+	// Number of received lines the parser thread may fall behind before the output is throttled.
+	private static final int MAX_PENDING_LINES = 10000;
+	// Number of markers the parser thread collects before it creates them.
+	private static final int MARKER_BATCH_SIZE = 100;
+	// Time in milliseconds the parser thread waits for more output before it ends.
+	private static final long PARSER_IDLE_TIMEOUT = 1000;
 
 	private int nOpens;
 	private int lineCounter=0;
@@ -103,8 +115,96 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 
 	private boolean deferDeDuplication = false;
 
+	private boolean pipelined = false;
+	private final ArrayDeque<PendingLine> pendingLines = new ArrayDeque<PendingLine>();
+	private volatile ParserThread parserThread = null;
+	private boolean parserIdle = false;
+	private final List<ProblemMarkerInfo> pendingMarkers = new ArrayList<ProblemMarkerInfo>();
+
 	private static boolean isCygwin = true;
 
+	/**
+	 * A line of output waiting to be parsed.
+	 */
+	private static class PendingLine {
+		final String line;
+		final boolean fromStream;
+
+		PendingLine(String line, boolean fromStream) {
+			this.line = line;
+			this.fromStream = fromStream;
+		}
+	}
+
+	/**
+	 * Parses the received lines in the order of their arrival. The thread ends when no output
+	 * arrives for a while, and is started again for the next line.
+	 */
+	private class ParserThread extends Thread {
+		ParserThread() {
+			super("Error Parser"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				parsePendingLines();
+			} finally {
+				synchronized (pendingLines) {
+					if (parserThread == this) {
+						parserThread = null;
+					}
+					pendingLines.notifyAll();
+				}
+			}
+		}
+
+		private void parsePendingLines() {
+			while (true) {
+				PendingLine pending;
+				synchronized (pendingLines) {
+					pending = pendingLines.peek();
+				}
+				if (pending == null) {
+					// Make the markers visible before waiting for more output.
+					flushMarkers();
+					synchronized (pendingLines) {
+						if (pendingLines.isEmpty()) {
+							parserIdle = true;
+							pendingLines.notifyAll();
+							try {
+								pendingLines.wait(PARSER_IDLE_TIMEOUT);
+							} catch (InterruptedException e) {
+							}
+							if (pendingLines.isEmpty()) {
+								// Lines arriving from now on start a new thread.
+								parserThread = null;
+								return;
+							}
+							parserIdle = false;
+						}
+					}
+					continue;
+				}
+				try {
+					parseLine(pending.line, pending.fromStream);
+				} catch (RuntimeException e) {
+					CCorePlugin.log(e);
+				}
+				// The line is removed only after it is parsed, an empty queue means that all
+				// received lines are parsed.
+				synchronized (pendingLines) {
+					pendingLines.remove();
+					pendingLines.notifyAll();
+				}
+				if (pendingMarkers.size() >= MARKER_BATCH_SIZE) {
+					flushMarkers();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Constructor.
 	 *
@@ -211,6 +311,7 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	 */
 	@Override
 	public URI getWorkingDirectoryURI() {
+		waitForParser();
 		if (!fDirectoryStack.isEmpty()) {
 			return fDirectoryStack.lastElement();
 		}
@@ -242,6 +343,7 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	 * @since 5.1
 	 */
 	public void pushDirectoryURI(URI dir) {
+		waitForParser();
 		if (dir != null) {
 			if (dir.isAbsolute()) {
 				fDirectoryStack.addElement(dir);
@@ -273,6 +375,7 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	 * @since 5.1
 	 */
 	public URI popDirectoryURI() {
+		waitForParser();
 		int i = fDirectoryStack.size();
 		if (i != 0) {
 			URI dir = fDirectoryStack.lastElement();
@@ -286,6 +389,7 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	 * @return number of directories in the stack.
 	 */
 	public int getDirectoryLevel() {
+		waitForParser();
 		return fDirectoryStack.size();
 	}
 
@@ -322,11 +426,48 @@ public class ErrorParserManager extends OutputStream implements IConsoleParser,
 	 */
 	@Override
 	public boolean processLine(String line) {
+		lineReceived(line, false);
+		return false;
+	}
+
+	/**
+	 * Parses the line right away, or queues it for the parser thread in pipelined mode.
+	 *
+	 * @param fromStream - whether the line was written to this stream, such lines are
+	 *     remembered as the previous line.
+	 */
+	private void lineReceived(String line, boolean fromStream) {
+		if (pipelined && Thread.currentThread() != parserThread) {
+			synchronized (pendingLines) {
+				while (pendingLines.size() >= MAX_PENDING_LINES && parserThread != null) {
+					try {
+						pendingLines.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				pendingLines.add(new PendingLine(line, fromStream));
+				parserIdle = false;
+				if (parserThread == null) {
+					parserThread = new ParserThread();
+					parserThread.start();
+				} else {
+					pendingLines.notifyAll();
+				}
+			}
+		} else {
+			parseLine(line, fromStream);
+		}
+	}
+
+	private void parseLine(String line, boolean fromStream) {
 		/*
 		 * If the tool outputs colored text, it will contain ANSI escape
 		 * sequences. Remove them, since they can confuse the error parsers.
 		 */
-		String lineTrimmed = ANSI_ESCAPE_RE.matcher(line).replaceAll("").trim(); //$NON-NLS-1$
+		String lineTrimmed = line.indexOf(ESCAPE) < 0 ? line.trim() :
+				ANSI_ESCAPE_RE.matcher(line).replaceAll("").trim(); //$NON-NLS-1$
 		lineCounter++;
 
 		ProblemMarkerInfo marker=null;
@@ -384,8 +525,9 @@ outer:
 			}
 		}
 		outputLine(line, marker);
-
-		return false;
+		if (fromStream) {
+			previousLine = line;
+		}
 	}
 
 	/**
@@ -415,6 +557,7 @@ outer:
 	 * @since 5.2
 	 */
 	public int getLineCounter() {
+		waitForParser();
 		return lineCounter;
 	}
 
@@ -600,9 +743,15 @@ outer:
 	public void addProblemMarker(ProblemMarkerInfo problemMarkerInfo){
 		if ( ! ProblemMarkerFilterManager.getInstance().acceptMarker(problemMarkerInfo) )
 			return;
+		waitForParser();
 		fErrors.add(problemMarkerInfo);
 		problemMarkerInfo.setDeferDeDuplication(deferDeDuplication);
-		fMarkerGenerator.addMarker(problemMarkerInfo);
+		if (Thread.currentThread() == parserThread) {
+			// Creating markers one by one notifies the resource change listeners for each of them.
+			pendingMarkers.add(problemMarkerInfo);
+		} else {
+			fMarkerGenerator.addMarker(problemMarkerInfo);
+		}
 		if (problemMarkerInfo.severity == IMarkerGenerator.SEVERITY_ERROR_RESOURCE) {
 			hasErrors = true;
 		}
@@ -646,6 +795,7 @@ outer:
 	public synchronized void close() throws IOException {
 		if (nOpens > 0 && --nOpens == 0) {
 			checkLine(true);
+			waitForParser();
 			fDirectoryStack.removeAllElements();
 		}
 	}
@@ -687,26 +837,22 @@ outer:
 	// parsers (processLine method).
 	// If flush is true rest of line is checked by error parsers.
 	private void checkLine(boolean flush) {
-		String buffer = currentLine.toString();
-		int i = 0;
-		while ((i = buffer.indexOf('\n')) != -1) {
-			String line = buffer.substring(0, i);
+		int start = 0;
+		int i;
+		while ((i = currentLine.indexOf("\n", start)) != -1) { //$NON-NLS-1$
+			int end = i;
 			// get rid of any trailing '\r'
-			if (line.endsWith("\r")) { //$NON-NLS-1$
-				line=line.substring(0,line.length()-1);
+			if (end > start && currentLine.charAt(end - 1) == '\r') {
+				end--;
 			}
-			processLine(line);
-			previousLine = line;
-			buffer = buffer.substring(i + 1); // skip the \n and advance
+			lineReceived(currentLine.substring(start, end), true);
+			start = i + 1; // skip the \n and advance
 		}
-		currentLine.setLength(0);
-		if (flush) {
-			if (buffer.length() > 0) {
-				processLine(buffer);
-				previousLine = buffer;
-			}
-		} else {
-			currentLine.append(buffer);
+		currentLine.delete(0, start);
+		if (flush && currentLine.length() > 0) {
+			String line = currentLine.toString();
+			currentLine.setLength(0);
+			lineReceived(line, true);
 		}
 	}
 
@@ -782,6 +928,7 @@ outer:
 	 */
 	@Deprecated
 	public boolean hasErrors() {
+		waitForParser();
 		return hasErrors;
 	}
 
@@ -892,6 +1039,11 @@ outer:
 	 */
 	@Override
 	public void shutdown() {
+		// Let the parser thread finish the received lines, it ends when there are no more.
+		waitForParser();
+		synchronized (pendingLines) {
+			pendingLines.notifyAll();
+		}
 		for (IErrorParser[] parsers : fErrorParsers.values()) {
 			for (IErrorParser parser : parsers) {
 				if (parser instanceof IErrorParser3) {
@@ -920,9 +1072,71 @@ outer:
 	 * @since 6.3
 	 */
 	public void deDuplicate() {
+		waitForParser();
 		if (deferDeDuplication) {
 			deferDeDuplication = false;
 			((ACBuilder) fMarkerGenerator).deDuplicate();
 		}
 	}
+
+	/**
+	 * Lets the received lines be parsed by a separate thread, so that the thread reading
+	 * the build output does not wait for the error parsers. The lines are parsed one
+	 * after another in the order of their arrival, the error parsers therefore see the
+	 * same sequence of lines and working directories as without pipelining. The markers
+	 * found by the parser thread are created in batches.
+	 * <p>
+	 * Methods depending on the state of the parsing, like {@link #getWorkingDirectoryURI()},
+	 * {@link #getLineCounter()} or {@link #deDuplicate()}, wait until all lines received
+	 * so far are parsed when they are called from another thread. Parsing of all lines is
+	 * complete after the stream is closed or {@link #shutdown()} is called.
+	 *
+	 * @since 6.5
+	 */
+	public void enablePipelining() {
+		pipelined = true;
+	}
+
+	/**
+	 * Waits until the parser thread parsed all received lines and created their markers.
+	 * Returns immediately when called by the parser thread itself.
+	 */
+	private void waitForParser() {
+		if (!pipelined || Thread.currentThread() == parserThread)
+			return;
+		synchronized (pendingLines) {
+			while (parserThread != null && !parserIdle) {
+				try {
+					pendingLines.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the markers collected by the parser thread.
+	 */
+	private void flushMarkers() {
+		if (pendingMarkers.isEmpty())
+			return;
+		final ProblemMarkerInfo[] markers = pendingMarkers.toArray(new ProblemMarkerInfo[pendingMarkers.size()]);
+		pendingMarkers.clear();
+		IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (ProblemMarkerInfo marker : markers) {
+					fMarkerGenerator.addMarker(marker);
+				}
+			}
+		};
+		try {
+			// Notify the resource change listeners once for the entire batch.
+			ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, null);
+		} catch (CoreException e) {
+			CCorePlugin.log(e);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2016 Andrew Gvozdev and others.
+ * Copyright (c) 2012, 2017 Andrew Gvozdev and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -142,6 +142,11 @@ public class BuildRunnerHelper implements Closeable {
 		consoleOut = console.getOutputStream();
 		// stdout/stderr get to the console through ErrorParserManager
 		errorParserManager.setOutputStream(consoleOut);
+		// Other console parsers ask ErrorParserManager for the working directory of each line,
+		// they would have to wait for the parser thread all the time.
+		if (buildOutputParsers == null || buildOutputParsers.isEmpty()) {
+			errorParserManager.enablePipelining();
+		}
 
 		List<IConsoleParser> parsers = new ArrayList<IConsoleParser>();
 		// Using ErrorParserManager as console parser helps to avoid intermixing buffered streams
@@ -0,0 +1,372 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Process-wide cache for the names of the entries of directories on the local file system. It
+ * allows checking whether a file exists without accessing the file system, which is expensive
+ * on network file systems. A directory is cached only while it is watched by a
+ * {@link WatchService}, its content is discarded when the watch service or a resource delta
+ * reports that entries were added or removed. The cache is shared by the indexer, the include
+ * resolution of the preprocessor and scanner discovery.
+ * <p>
+ * On network file systems the watch service does not see changes made by other hosts, therefore
+ * the modification time of a cached directory is compared with the one at the time of the
+ * listing, at most once per {@link #REVALIDATION_INTERVAL}.
+ */
+public final class DirectoryContentCache implements IResourceChangeListener, IResourceDeltaVisitor {
+	// The cache is used by the standalone indexer, too, the platform may not be running.
+	private static final boolean CASE_INSENSITIVE_FILE_SYSTEM=
+			System.getProperty("os.name").toLowerCase().startsWith("mac") //$NON-NLS-1$ //$NON-NLS-2$
+			|| new File("a").equals(new File("A")); //$NON-NLS-1$ //$NON-NLS-2$
+	// Stay well below the default limit of inotify watches per user on Linux.
+	private static final int MAX_WATCHED_DIRECTORIES= 4000;
+	// Milliseconds during which a cached directory is used without checking its modification time.
+	private static final long REVALIDATION_INTERVAL= 2000;
+	// Some file systems store the modification time in seconds only.
+	private static final long MODIFICATION_TIME_RESOLUTION= 2000;
+	private static final DirectoryContentCache INSTANCE= new DirectoryContentCache();
+
+	/**
+	 * The sorted names of the entries of a directory, together with the information which
+	 * entries are known to be files or directories.
+	 */
+	public static final class Content {
+		public static final Content EMPTY= new Content(new String[0]);
+
+		private final String[] fNames;
+		private final BitSet fIsFile;
+
+		public Content(String[] sortedNames) {
+			fNames= sortedNames;
+			fIsFile= new BitSet(sortedNames.length * 2);
+		}
+
+		/**
+		 * Returns the index of the entry with the given name, or -1.
+		 */
+		public int indexOf(String name) {
+			int idx= Arrays.binarySearch(fNames, name);
+			return idx < 0 ? -1 : idx;
+		}
+
+		/**
+		 * Returns whether the entry with the given index is a file, or {@code null} if this
+		 * is not yet known.
+		 */
+		public Boolean isFile(int index) {
+			synchronized (fIsFile) {
+				if (fIsFile.get(index * 2)) {
+					INSTANCE.fSavedCalls.incrementAndGet();
+					return Boolean.TRUE;
+				}
+				if (fIsFile.get(index * 2 + 1)) {
+					INSTANCE.fSavedCalls.incrementAndGet();
+					return Boolean.FALSE;
+				}
+				return null;
+			}
+		}
+
+		public void setIsFile(int index, boolean isFile) {
+			synchronized (fIsFile) {
+				fIsFile.set(isFile ? index * 2 : index * 2 + 1);
+			}
+		}
+	}
+
+	/**
+	 * The content of a directory together with the modification time of the directory when it
+	 * was listed.
+	 */
+	private static final class Entry {
+		final Content fContent;
+		final long fModified;
+		final long fListed;
+		volatile long fValidUntil;
+
+		Entry(Content content, long modified, long listed) {
+			fContent= content;
+			fModified= modified;
+			fListed= listed;
+			fValidUntil= listed + REVALIDATION_INTERVAL;
+		}
+
+		/**
+		 * Checks whether the directory was modified since it was listed.
+		 */
+		boolean revalidate(String directory, long now) {
+			// A modification right before the listing may not change the modification time.
+			if (fListed - fModified < MODIFICATION_TIME_RESOLUTION)
+				return false;
+			if (new File(directory).lastModified() != fModified)
+				return false;
+			fValidUntil= now + REVALIDATION_INTERVAL;
+			return true;
+		}
+	}
+
+	private final Map<String, Entry> fContents= new ConcurrentHashMap<>();
+	private final Map<String, Entry> fUpperCaseContents= new ConcurrentHashMap<>();
+	private final Map<WatchKey, String> fWatchedDirectories= new ConcurrentHashMap<>();
+	private final Map<String, WatchKey> fWatchKeys= new ConcurrentHashMap<>();
+	private final AtomicLong fInvalidations= new AtomicLong();
+	private final AtomicLong fSavedCalls= new AtomicLong();
+	private WatchService fWatchService;
+	private boolean fWatchServiceFailed;
+
+	public static DirectoryContentCache getInstance() {
+		return INSTANCE;
+	}
+
+	private DirectoryContentCache() {
+	}
+
+	public void startup() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	public void shutdown() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		synchronized (this) {
+			if (fWatchService != null) {
+				try {
+					fWatchService.close();
+				} catch (IOException e) {
+					// Ignore
+				}
+				fWatchService= null;
+			}
+			fWatchedDirectories.clear();
+			fWatchKeys.clear();
+			clear();
+		}
+	}
+
+	/**
+	 * Returns the content of the given directory. The names of the entries are upper case, if
+	 * {@code upperCase} is {@code true}. Returns {@code null} if the directory cannot be watched
+	 * for changes, in which case the caller has to list the directory itself.
+	 */
+	public Content getContent(String directory, boolean upperCase) {
+		final Map<String, Entry> contents= upperCase ? fUpperCaseContents : fContents;
+		Entry entry= contents.get(directory);
+		if (entry != null) {
+			long now= System.currentTimeMillis();
+			if (now < entry.fValidUntil) {
+				fSavedCalls.incrementAndGet();
+				return entry.fContent;
+			}
+			if (entry.revalidate(directory, now))
+				return entry.fContent;
+			contents.remove(directory, entry);
+		}
+		if (!watch(directory))
+			return null;
+
+		// A change reported while the directory is listed may not be reflected by the listing.
+		long invalidations= fInvalidations.get();
+		File file= new File(directory);
+		long modified= file.lastModified();
+		long listed= System.currentTimeMillis();
+		String[] names= file.list();
+		Content content;
+		if (names == null || names.length == 0) {
+			content= Content.EMPTY;
+		} else {
+			if (upperCase) {
+				for (int i = 0; i < names.length; i++) {
+					names[i]= names[i].toUpperCase();
+				}
+			}
+			Arrays.sort(names);
+			content= new Content(names);
+		}
+		if (invalidations == fInvalidations.get()) {
+			contents.put(directory, new Entry(content, modified, listed));
+		}
+		return content;
+	}
+
+	/**
+	 * Checks whether a file or directory exists, using the cached content of its parent
+	 * directory where possible.
+	 */
+	public boolean exists(String path) {
+		File file= new File(path);
+		String parent= file.getParent();
+		String name= file.getName();
+		if (parent != null && !name.equals(".") && !name.equals("..")) { //$NON-NLS-1$ //$NON-NLS-2$
+			if (CASE_INSENSITIVE_FILE_SYSTEM)
+				name= name.toUpperCase();
+			Content content= getContent(parent, CASE_INSENSITIVE_FILE_SYSTEM);
+			if (content != null)
+				return content.indexOf(name) >= 0;
+		}
+		return file.exists();
+	}
+
+	/**
+	 * Returns the number of file system calls that were saved by the cache since the start of
+	 * the process.
+	 */
+	public long getSavedFileSystemCalls() {
+		return fSavedCalls.get();
+	}
+
+	/**
+	 * Discards the content of the given directory.
+	 */
+	public void invalidate(String directory) {
+		fInvalidations.incrementAndGet();
+		fContents.remove(directory);
+		fUpperCaseContents.remove(directory);
+	}
+
+	/**
+	 * Discards the content of all directories.
+	 */
+	public void clear() {
+		fInvalidations.incrementAndGet();
+		fContents.clear();
+		fUpperCaseContents.clear();
+	}
+
+	private boolean watch(String directory) {
+		if (fWatchKeys.containsKey(directory))
+			return true;
+
+		synchronized (this) {
+			if (fWatchKeys.containsKey(directory))
+				return true;
+			if (fWatchKeys.size() >= MAX_WATCHED_DIRECTORIES)
+				return false;
+			WatchService watchService= getWatchService();
+			if (watchService == null)
+				return false;
+			try {
+				WatchKey key= Paths.get(directory).register(watchService,
+						StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+				fWatchedDirectories.put(key, directory);
+				fWatchKeys.put(directory, key);
+				return true;
+			} catch (IOException | InvalidPathException | UnsupportedOperationException
+					| ClosedWatchServiceException e) {
+				// The directory does not exist or cannot be watched, it is not cached.
+				return false;
+			}
+		}
+	}
+
+	private WatchService getWatchService() {
+		assert Thread.holdsLock(this);
+		if (fWatchService == null && !fWatchServiceFailed) {
+			try {
+				fWatchService= FileSystems.getDefault().newWatchService();
+			} catch (IOException | UnsupportedOperationException e) {
+				fWatchServiceFailed= true;
+				CCorePlugin.log(e);
+				return null;
+			}
+			final WatchService watchService= fWatchService;
+			Thread thread= new Thread("Directory Content Cache") { //$NON-NLS-1$
+				@Override
+				public void run() {
+					processEvents(watchService);
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return fWatchService;
+	}
+
+	private void processEvents(WatchService watchService) {
+		try {
+			while (true) {
+				WatchKey key= watchService.take();
+				key.pollEvents();
+				String directory= fWatchedDirectories.get(key);
+				if (directory != null) {
+					invalidate(directory);
+					if (!key.reset()) {
+						// The directory is no longer accessible.
+						fWatchedDirectories.remove(key);
+						fWatchKeys.remove(directory);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// The cache was shut down.
+		}
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		if (fContents.isEmpty() && fUpperCaseContents.isEmpty())
+			return;
+		IResourceDelta delta= event.getDelta();
+		if (delta != null) {
+			try {
+				delta.accept(this);
+			} catch (CoreException e) {
+				CCorePlugin.log(e);
+			}
+		}
+	}
+
+	/**
+	 * Discards the content of folders in which resources were added or removed. The watch
+	 * service reports such changes asynchronously, the indexer may already run when the
+	 * notification arrives.
+	 */
+	@Override
+	public boolean visit(IResourceDelta delta) throws CoreException {
+		switch (delta.getKind()) {
+		case IResourceDelta.ADDED:
+		case IResourceDelta.REMOVED:
+			IResource parent= delta.getResource().getParent();
+			if (parent != null) {
+				IPath location= parent.getLocation();
+				if (location != null) {
+					invalidate(location.toOSString());
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+}
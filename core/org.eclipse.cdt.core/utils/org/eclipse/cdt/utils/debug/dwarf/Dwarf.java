@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 QNX Software Systems and others.
+ * Copyright (c) 2000, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -576,22 +576,30 @@ public class Dwarf {
 	void parseDebugInfoEntry(IDebugEntryRequestor requestor, ByteBuffer in, Map<Long, AbbreviationEntry> abbrevs, CompilationUnitHeader header)
 		throws IOException {
 		while (in.remaining() > 0) {
-			long code = read_unsigned_leb128(in);
-			AbbreviationEntry entry = abbrevs.get(Long.valueOf(code));
-			if (entry != null) {
-				int len = entry.attributes.size();
-				List<AttributeValue> list = new ArrayList<AttributeValue>(len);
-				try {
-					for (int i = 0; i < len; i++) {
-						Attribute attr = entry.attributes.get(i);
-						Object obj = readAttribute((int) attr.form, in, header);
-						list.add(new AttributeValue(attr, obj));
-					}
-				} catch (IOException e) {
-					//break;
+			readDebugInfoEntry(requestor, in, abbrevs, header);
+		}
+	}
+
+	/**
+	 * Reads the next entry from the contribution of a compilation unit to the debug info and processes it.
+	 */
+	void readDebugInfoEntry(IDebugEntryRequestor requestor, ByteBuffer in, Map<Long, AbbreviationEntry> abbrevs, CompilationUnitHeader header)
+		throws IOException {
+		long code = read_unsigned_leb128(in);
+		AbbreviationEntry entry = abbrevs.get(Long.valueOf(code));
+		if (entry != null) {
+			int len = entry.attributes.size();
+			List<AttributeValue> list = new ArrayList<AttributeValue>(len);
+			try {
+				for (int i = 0; i < len; i++) {
+					Attribute attr = entry.attributes.get(i);
+					Object obj = readAttribute((int) attr.form, in, header);
+					list.add(new AttributeValue(attr, obj));
 				}
-				processDebugInfoEntry(requestor, entry, list);
+			} catch (IOException e) {
+				//break;
 			}
+			processDebugInfoEntry(requestor, entry, list);
 		}
 	}
 
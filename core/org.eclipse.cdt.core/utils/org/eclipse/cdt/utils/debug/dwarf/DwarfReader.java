@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Nokia and others.
+ * Copyright (c) 2007, 2017 Nokia and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -63,7 +63,7 @@ public class DwarfReader extends Dwarf implements ISymbolReader, ICompileOptions
 	private String[] 	m_fileNames = null;
 	private boolean		m_parsed = false;
 	private boolean		m_macros_parsed = false;
-	private final ArrayList<Integer>	m_parsedLineTableOffsets = new ArrayList<Integer>();
+	private final Set<Integer>	m_parsedLineTableOffsets = new HashSet<Integer>();
 	private long			m_parsedLineTableSize = 0;
 		
 	public DwarfReader(String file) throws IOException {
@@ -597,6 +597,16 @@ public class DwarfReader extends Dwarf implements ISymbolReader, ICompileOptions
 		return fullName;
 	}
 	
+	// Override parent: only the first entry of a compilation unit is read, which is the
+	// TAG_Compile_Unit. Decoding the entries nested in it would read all of the debug info.
+	@Override
+	void parseDebugInfoEntry(IDebugEntryRequestor requestor, ByteBuffer in, Map<Long, AbbreviationEntry> abbrevs, CompilationUnitHeader header)
+		throws IOException {
+		if (in.remaining() > 0) {
+			readDebugInfoEntry(requestor, in, abbrevs, header);
+		}
+	}
+
 	// Override parent: only handle TAG_Compile_Unit.
 	@Override
 	void processDebugInfoEntry(IDebugEntryRequestor requestor, AbbreviationEntry entry, List<Dwarf.AttributeValue> list) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 QNX Software Systems and others.
+ * Copyright (c) 2000, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,7 +28,9 @@ import org.eclipse.cdt.utils.debug.dwarf.DwarfReader;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,7 +55,9 @@ public class Elf {
 	private Section symtab_sym;
 	private Symbol[] dynsym_symbols;
 	private Section dynsym_sym;
+	private volatile long[] symbol_addresses; // Addresses of the sorted symbols, for binary search.
 	private boolean sections_mapped; // Have sections been mapped? Used to clean up properly in Elf.Dispose.
+	private long file_offset; // Offset of the ELF data within the file, for members of archives.
 
 	protected String EMPTY_STRING = ""; //$NON-NLS-1$
 
@@ -320,12 +324,27 @@ public class Elf {
 		public long sh_addralign;
 		public long sh_entsize;
 
+		private ByteBuffer mapped_data;
+
 		/**
+		 * Maps the data of the section into memory. The pages of the section are read from
+		 * the file when they are accessed.
 		 * @since 5.1
 		 */
 		public ByteBuffer mapSectionData() throws IOException {
 			sections_mapped = true;
-			return efile.getChannel().map(MapMode.READ_ONLY, sh_offset, sh_size).load().asReadOnlyBuffer();
+			return efile.getChannel().map(MapMode.READ_ONLY, file_offset + sh_offset, sh_size).asReadOnlyBuffer();
+		}
+
+		/**
+		 * Returns the mapped data of the section, shared by all readers of the section. Callers
+		 * must use absolute positions or work on a duplicate of the buffer.
+		 */
+		private ByteBuffer getMappedData() throws IOException {
+			if (mapped_data == null) {
+				mapped_data = mapSectionData();
+			}
+			return mapped_data;
 		}
 
 		public byte[] loadSectionData() throws IOException {
@@ -367,25 +386,16 @@ public class Elf {
 			return EMPTY_STRING;
 		}
 
+		// The string table is mapped once, the names of the symbols are decoded on demand.
+		ByteBuffer data = section.getMappedData();
 		StringBuilder str = new StringBuilder();
-		//Most string symbols will be less than 50 bytes in size
-		byte [] tmp = new byte[50];
-
-		efile.seek(section.sh_offset + index);
-		while(true) {
-			int len = efile.read(tmp);
-			for(int i = 0; i < len; i++) {
-				if(tmp[i] == 0) {
-					len = 0;
-					break;
-				}
-				str.append((char)tmp[i]);
-			}
-			if(len <= 0) {
+		for (int i = index; i < data.limit(); i++) {
+			byte b = data.get(i);
+			if (b == 0) {
 				break;
 			}
+			str.append((char) b);
 		}
-
 		return str.toString();
 	}
 
@@ -663,6 +673,7 @@ public class Elf {
 		try {
 			efile = new ERandomAccessFile(file, "r"); //$NON-NLS-1$
 			efile.setFileOffset(offset);
+			file_offset = offset;
 			ehdr = new ELFhdr();
 			this.file = file;
 		} finally {
@@ -955,6 +966,11 @@ public class Elf {
 			if (efile != null) {
 				efile.close();
 				efile = null;
+				if (sections != null) {
+					for (Section section : sections) {
+						section.mapped_data = null;
+					}
+				}
 
 				// ensure the mappings get cleaned up
 				if (sections_mapped)
@@ -1067,42 +1083,42 @@ public class Elf {
 			numSyms = (int)section.sh_size / (int)section.sh_entsize;
 		}
 		ArrayList<Symbol> symList = new ArrayList<Symbol>(numSyms);
-		long offset = section.sh_offset;
-		for (int c = 0; c < numSyms; offset += section.sh_entsize, c++) {
-			efile.seek(offset);
-			Symbol symbol = new Symbol(section);
-			switch (ehdr.e_ident[ELFhdr.EI_CLASS]) {
-				case ELFhdr.ELFCLASS32 : {
-					byte[] addrArray = new byte[ELF32_ADDR_SIZE];
-
-					symbol.st_name = efile.readIntE();
-					efile.readFullyE(addrArray);
-					symbol.st_value = new Addr32(addrArray);
-					symbol.st_size = efile.readIntE();
-					symbol.st_info = efile.readByte();
-					symbol.st_other = efile.readByte();
-					symbol.st_shndx = efile.readShortE();
-				}
-					break;
-				case ELFhdr.ELFCLASS64 : {
-					byte[] addrArray = new byte[ELF64_ADDR_SIZE];
-
-					symbol.st_name = efile.readIntE();
-					symbol.st_info = efile.readByte();
-					symbol.st_other = efile.readByte();
-					symbol.st_shndx = efile.readShortE();
-					efile.readFullyE(addrArray);
-					symbol.st_value = new Addr64(addrArray);
-					symbol.st_size = readUnsignedLong(efile);
+		// Decode the symbols from the mapped section rather than reading each field from the file.
+		ByteBuffer data = section.getMappedData().duplicate();
+		data.order(ehdr.e_ident[ELFhdr.EI_DATA] == ELFhdr.ELFDATA2LSB ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		try {
+			for (int c = 0; c < numSyms; c++) {
+				data.position((int) (c * section.sh_entsize));
+				Symbol symbol = new Symbol(section);
+				switch (ehdr.e_ident[ELFhdr.EI_CLASS]) {
+					case ELFhdr.ELFCLASS32 : {
+						symbol.st_name = data.getInt() & 0xffffffffL;
+						symbol.st_value = new Addr32(data.getInt() & 0xffffffffL);
+						symbol.st_size = data.getInt() & 0xffffffffL;
+						symbol.st_info = data.get();
+						symbol.st_other = data.get();
+						symbol.st_shndx = data.getShort();
+					}
+						break;
+					case ELFhdr.ELFCLASS64 : {
+						symbol.st_name = data.getInt() & 0xffffffffL;
+						symbol.st_info = data.get();
+						symbol.st_other = data.get();
+						symbol.st_shndx = data.getShort();
+						symbol.st_value = new Addr64(data.getLong());
+						symbol.st_size = checkUnsignedLong(data.getLong());
+					}
+						break;
+					case ELFhdr.ELFCLASSNONE :
+					default :
+						throw new IOException("Unknown ELF class " + ehdr.e_ident[ELFhdr.EI_CLASS]); //$NON-NLS-1$
 				}
-					break;
-				case ELFhdr.ELFCLASSNONE :
-				default :
-					throw new IOException("Unknown ELF class " + ehdr.e_ident[ELFhdr.EI_CLASS]); //$NON-NLS-1$
+				if (symbol.st_info == 0)
+					continue;
+				symList.add(symbol);
 			}
-			if (symbol.st_info == 0)
-				continue;
-			symList.add(symbol);
+		} catch (BufferUnderflowException e) {
+			throw new EOFException();
 		}
 		Symbol[] results = symList.toArray(new Symbol[0]);
 		Arrays.sort(results);
@@ -1111,6 +1127,7 @@ public class Elf {
 
 	public void loadSymbols() throws IOException {
 		if (symbols == null) {
+			symbol_addresses = null;
 			Section section[] = getSections(Section.SHT_SYMTAB);
 			if (section.length > 0) {
 				symtab_sym = section[0];
@@ -1153,21 +1170,34 @@ public class Elf {
 
 	/* return the address of the function that address is in */
 	public Symbol getSymbol(IAddress vma) {
-		if (symbols == null) {
+		Symbol[] syms = symbols;
+		if (syms == null) {
 			return null;
 		}
 
-		//@@@ If this works, move it to a single instance in this class.
-		SymbolComparator symbol_comparator = new SymbolComparator();
-
-		int ndx = Arrays.binarySearch(symbols, vma, symbol_comparator);
-		if (ndx > 0)
-			return symbols[ndx];
-		if (ndx == -1) {
-			return null;
+		long[] addresses = symbol_addresses;
+		if (addresses == null) {
+			// Searching the primitive addresses avoids comparing address objects. The array
+			// is published only once it is filled, concurrent callers may search it right away.
+			addresses = new long[syms.length];
+			for (int i = 0; i < syms.length; i++) {
+				addresses[i] = syms[i].st_value.getValue().longValue();
+			}
+			symbol_addresses = addresses;
+		}
+		long address = vma.getValue().longValue();
+		int low = 0;
+		int high = addresses.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(addresses[mid], address) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
 		}
-		ndx = -ndx - 1;
-		return symbols[ndx - 1];
+		// The last symbol starting at or before the address.
+		return high >= 0 ? syms[high] : null;
 	}
 	/*
 	 * public long swapInt( long val ) { if ( ehdr.e_ident[ELFhdr.EI_DATA] ==
@@ -1186,12 +1216,15 @@ public class Elf {
 	}
 
 	protected long readUnsignedLong(ERandomAccessFile file) throws IOException {
-		long result = file.readLongE();
-		if (result < 0) {
+		return checkUnsignedLong(file.readLongE());
+	}
+
+	private static long checkUnsignedLong(long value) throws IOException {
+		if (value < 0) {
 			throw new IOException("Maximal file offset is " + Long.toHexString(Long.MAX_VALUE) + //$NON-NLS-1$
-					" given offset is " + Long.toHexString(result)); //$NON-NLS-1$
+					" given offset is " + Long.toHexString(value)); //$NON-NLS-1$
 		}
-		return result;
+		return value;
 	}
 
 	private ISymbolReader createDwarfReader() {
@@ -1213,11 +1246,6 @@ public class Elf {
 
 	/** @since 5.4 */
 	public static long makeUnsignedLong(byte[] val, int offset, boolean isle) throws IOException {
-		long result = makeLong(val, offset, isle);
-		if (result < 0) {
-			throw new IOException("Maximal file offset is " + Long.toHexString(Long.MAX_VALUE) + //$NON-NLS-1$
-					" given offset is " + Long.toHexString(result)); //$NON-NLS-1$
-		}
-		return result;
+		return checkUnsignedLong(makeLong(val, offset, isle));
 	}
 }
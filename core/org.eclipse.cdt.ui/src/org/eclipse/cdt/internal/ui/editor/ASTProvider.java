@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.ui.editor;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -42,7 +45,8 @@ import org.eclipse.cdt.internal.core.model.ASTCache.ASTRunnable;
 
 /**
  * Provides a shared AST for clients. The shared AST is
- * the AST of the active CEditor's input element.
+ * the AST of the active CEditor's input element. The ASTs of
+ * previously active editors stay cached while memory permits.
  *
  * @since 4.0
  */
@@ -116,6 +120,8 @@ public final class ASTProvider {
 			if (isActiveEditor(ref)) {
 				activeEditorChanged(null);
 			}
+			if (isCEditor(ref))
+				editorClosed(ref.getPart(false));
 		}
 
 		@Override
@@ -198,7 +204,13 @@ public final class ASTProvider {
 	private final ASTCache fCache= new ASTCache();
 	private ActivationListener fActivationListener;
 	private IWorkbenchPart fActiveEditor;
+	private ITranslationUnit fActiveTU;
 	private long fTimeStamp;
+	/**
+	 * The document modification stamps of the previously active editors at the time they
+	 * were deactivated. The ASTs of these editors may still be cached.
+	 */
+	private final Map<ITranslationUnit, Long> fInactiveTimeStamps= new HashMap<>();
 	private final IndexUpdateRequestor fIndexUpdateRequestor = new IndexUpdateRequestor();
 
 	/**
@@ -234,17 +246,26 @@ public final class ASTProvider {
 		}
 	}
 
-	private void activeEditorChanged(IWorkbenchPart editor) {
-		ITranslationUnit tu = null;
+	private static ITranslationUnit getTranslationUnit(IWorkbenchPart editor) {
 		if (editor != null) {
 			ITranslationUnitHolder provider = editor.getAdapter(ITranslationUnitHolder.class);
 			if (provider != null)
-				tu = provider.getTranslationUnit();
+				return provider.getTranslationUnit();
 		}
+		return null;
+	}
+
+	private void activeEditorChanged(IWorkbenchPart editor) {
+		ITranslationUnit tu = getTranslationUnit(editor);
 
 		synchronized (this) {
+			// The AST of the previous editor stays cached, remember which contents it reflects.
+			if (fActiveTU != null && fTimeStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+				fInactiveTimeStamps.put(fActiveTU, fTimeStamp);
+			Long timeStamp= tu != null ? fInactiveTimeStamps.remove(tu) : null;
 			fActiveEditor= editor;
-			fTimeStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+			fActiveTU= tu;
+			fTimeStamp= timeStamp != null ? timeStamp : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 			fCache.setActiveElement(tu);
 		}
 
@@ -252,6 +273,15 @@ public final class ASTProvider {
 		fIndexUpdateRequestor.updateIndexInclusion(tu);
 	}
 
+	private void editorClosed(IWorkbenchPart editor) {
+		ITranslationUnit tu = getTranslationUnit(editor);
+		if (tu != null) {
+			synchronized (this) {
+				fInactiveTimeStamps.remove(tu);
+			}
+		}
+	}
+
 	/**
 	 * Informs that reconciling for the given element is about to be started.
 	 *
@@ -303,7 +333,11 @@ public final class ASTProvider {
 			PlatformUI.getWorkbench().removeWindowListener(fActivationListener);
 			fActivationListener= null;
 		}
+		synchronized (this) {
+			fInactiveTimeStamps.clear();
+		}
 		fCache.setActiveElement(null);
+		fCache.disposeAllASTs();
 	}
 
 	/**
@@ -371,6 +405,26 @@ public final class ASTProvider {
 		fCache.releaseSharedAST(ast);
 	}
 
+	/**
+	 * Keeps the shared AST of the given translation unit cached until
+	 * {@link #unpinAST(ITranslationUnit)} is called, for instance for the duration
+	 * of an operation accessing the AST several times.
+	 *
+	 * @param tu the translation unit.
+	 */
+	public void pinAST(ITranslationUnit tu) {
+		fCache.pinAST(tu);
+	}
+
+	/**
+	 * Releases a pin previously obtained by calling {@link #pinAST(ITranslationUnit)}.
+	 *
+	 * @param tu the translation unit.
+	 */
+	public void unpinAST(ITranslationUnit tu) {
+		fCache.unpinAST(tu);
+	}
+
 	/**
 	 * Prepares the AST cache to be used for the given translation unit.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2009, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -161,7 +161,7 @@ class OpenDeclarationsJob extends Job implements ASTRunnable {
 				IIndexManager.ADD_DEPENDENCIES | IIndexManager.ADD_DEPENDENT | IIndexManager.ADD_EXTENSION_FRAGMENTS_NAVIGATION);
 
 		try {
-			fIndex.acquireReadLock();
+			fIndex.acquireSnapshotReadLock();
 		} catch (InterruptedException e) {
 			return Status.CANCEL_STATUS;
 		}
@@ -17,6 +17,7 @@ import org.eclipse.cdt.dsf.gdb.service.GDBRegisterTest.GDBRegisterTest_WithConta
 import org.eclipse.cdt.dsf.mi.service.command.commands.TestMIBreakInsertCommand;
 import org.eclipse.cdt.dsf.mi.service.command.commands.TestMICommandConstructCommand;
 import org.eclipse.cdt.dsf.mi.service.command.commands.TestMIGDBSetSysroot;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIParserTests;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIStringHandlerTests;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIThreadTests;
 import org.junit.runner.RunWith;
@@ -32,6 +33,7 @@ import org.junit.runners.Suite.SuiteClasses;
     TestMIGDBSetSysroot.class,
     LaunchUtilsTest.class,
     MIStringHandlerTests.class,
+    MIParserTests.class,
     ProcStatParserTest.class,
     FilePartsTest.class,
     GDBRegisterTest.class,
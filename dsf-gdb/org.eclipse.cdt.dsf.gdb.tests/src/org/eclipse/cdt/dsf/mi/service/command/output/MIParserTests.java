@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Ericsson - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service.command.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.debug.core.model.MemoryByte;
+import org.junit.Test;
+
+public class MIParserTests {
+	private final MIParser fParser = new MIParser();
+
+	@Test
+	public void testRecordType() {
+		assertEquals(MIParser.RecordType.ResultRecord, fParser.getRecordType("12^done"));
+		assertEquals(MIParser.RecordType.ResultRecord, fParser.getRecordType("^running"));
+		assertEquals(MIParser.RecordType.PrimaryPrompt, fParser.getRecordType("(gdb) "));
+		assertEquals(MIParser.RecordType.OOBRecord, fParser.getRecordType("*stopped,reason=\"exited-normally\""));
+		assertEquals(MIParser.RecordType.OOBRecord, fParser.getRecordType("~\"text\""));
+	}
+
+	@Test
+	public void testResultRecord() {
+		MIResultRecord rr = fParser.parseMIResultRecord(
+				"42^done,stack=[frame={level=\"0\",addr=\"0x0000000000400526\",func=\"main\",file=\"a.c\",line=\"5\"}," +
+				"frame={level=\"1\",addr=\"0x00007ffff7a2d830\",func=\"__libc_start_main\"}]");
+		assertEquals(42, rr.getToken());
+		assertEquals(MIResultRecord.DONE, rr.getResultClass());
+		MIResult[] results = rr.getMIResults();
+		assertEquals(1, results.length);
+		assertEquals("stack", results[0].getVariable());
+		MIList stack = (MIList) results[0].getMIValue();
+		assertEquals(2, stack.getMIResults().length);
+		MITuple frame = (MITuple) stack.getMIResults()[0].getMIValue();
+		assertEquals("main", ((MIConst) frame.getField("func")).getCString());
+		assertEquals("5", ((MIConst) frame.getField("line")).getCString());
+		assertEquals("{level=\"1\",addr=\"0x00007ffff7a2d830\",func=\"__libc_start_main\"}",
+				stack.getMIResults()[1].getMIValue().toString());
+	}
+
+	@Test
+	public void testResultRecordWithoutResults() {
+		MIResultRecord rr = fParser.parseMIResultRecord("^error");
+		assertEquals(-1, rr.getToken());
+		assertEquals(MIResultRecord.ERROR, rr.getResultClass());
+		assertEquals(0, rr.getMIResults().length);
+	}
+
+	@Test
+	public void testEscapes() {
+		MIResultRecord rr = fParser.parseMIResultRecord(
+				"3^error,msg=\"No symbol \\\"foo\\\" in current context.\",value=\"a\\\\b\\n\",empty=\"\"");
+		MIResult[] results = rr.getMIResults();
+		assertEquals(3, results.length);
+		assertEquals("No symbol \"foo\" in current context.", ((MIConst) results[0].getMIValue()).getCString());
+		assertEquals("a\\b\\n", ((MIConst) results[1].getMIValue()).getCString());
+		assertEquals("", ((MIConst) results[2].getMIValue()).getCString());
+	}
+
+	@Test
+	public void testValueLists() {
+		MIResultRecord rr = fParser.parseMIResultRecord(
+				"^done,register-names=[\"rax\",\"rbx\",\"\"],groups=[],nested=[[\"1\"],{}]");
+		MIResult[] results = rr.getMIResults();
+		assertEquals(3, results.length);
+		MIValue[] names = ((MIList) results[0].getMIValue()).getMIValues();
+		assertEquals(3, names.length);
+		assertEquals("rbx", ((MIConst) names[1]).getCString());
+		assertEquals(0, ((MIList) results[1].getMIValue()).getMIValues().length);
+		assertEquals("[[1],{}]", results[2].getMIValue().toString());
+	}
+
+	@Test
+	public void testAsyncRecord() {
+		MIOOBRecord oob = fParser.parseMIOOBRecord(
+				"*stopped,reason=\"breakpoint-hit\",bkptno=\"1\",frame={func=\"main\",args=[]},thread-id=\"1\"");
+		assertTrue(oob instanceof MIExecAsyncOutput);
+		MIExecAsyncOutput async = (MIExecAsyncOutput) oob;
+		assertEquals("stopped", async.getAsyncClass());
+		MIResult[] results = async.getMIResults();
+		assertEquals(4, results.length);
+		assertEquals("thread-id", results[3].getVariable());
+		assertEquals("1", ((MIConst) results[3].getMIValue()).getCString());
+
+		oob = fParser.parseMIOOBRecord("=thread-group-added,id=\"i1\"");
+		assertTrue(oob instanceof MINotifyAsyncOutput);
+		assertEquals("thread-group-added", ((MINotifyAsyncOutput) oob).getAsyncClass());
+	}
+
+	@Test
+	public void testStreamRecord() {
+		MIOOBRecord oob = fParser.parseMIOOBRecord("~\"Breakpoint 1 at 0x400526: file a.c, line 5.\\n\"");
+		assertTrue(oob instanceof MIConsoleStreamOutput);
+		// Backslashes of stream records are not parsed
+		assertEquals("Breakpoint 1 at 0x400526: file a.c, line 5.\\n", ((MIStreamRecord) oob).getCString());
+
+		oob = fParser.parseMIOOBRecord("&\"no quotes");
+		assertTrue(oob instanceof MILogStreamOutput);
+		assertEquals("no quotes", ((MIStreamRecord) oob).getCString());
+
+		oob = fParser.parseMIOOBRecord("garbage");
+		assertTrue(oob instanceof MITargetStreamOutput);
+		assertEquals("garbage\n", ((MIStreamRecord) oob).getCString());
+	}
+
+	@Test
+	public void testReadMemoryBytes() {
+		MIResultRecord rr = fParser.parseMIResultRecord(
+				"7^done,memory=[{begin=\"0xbffff154\",offset=\"0x00000002\",end=\"0xbffff15e\",contents=\"01ff7A\"}]");
+		MIOutput output = new MIOutput(rr, new MIOOBRecord[0]);
+		MemoryByte[] block = new MIDataReadMemoryBytesInfo(output, 6).getMIMemoryBlock();
+		assertEquals(6, block.length);
+		assertEquals(0, block[1].getFlags());
+		assertEquals(0x01, block[2].getValue());
+		assertEquals((byte) 0xff, block[3].getValue());
+		assertEquals(0x7a, block[4].getValue());
+		assertEquals(0, block[5].getFlags());
+	}
+}
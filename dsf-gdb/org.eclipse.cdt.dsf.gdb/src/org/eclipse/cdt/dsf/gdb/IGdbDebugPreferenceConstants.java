@@ -204,4 +204,48 @@ public interface IGdbDebugPreferenceConstants {
 	 */
 	public static final int CONSOLE_BUFFERLINES_DEFAULT = 1000;
 
+	/**
+	 * Preference key controlling the number of MI commands that can be sent to GDB
+	 * before the results of the previous ones are received. The value <code>0</code>
+	 * disables pipelining.
+	 * @since 5.4
+	 */
+	public static final String PREF_COMMAND_PIPELINE_DEPTH = PREFIX + "commandPipelineDepth"; //$NON-NLS-1$
+
+	/**
+	 * Default preference value for the number of pipelined MI commands
+	 * @since 5.4
+	 */
+	public static final int COMMAND_PIPELINE_DEPTH_DEFAULT = 0;
+
+	/**
+	 * Preference key controlling the size, in addressable units, of the pages the memory
+	 * cache reads from the target. Reads are extended to the page boundaries, the value
+	 * <code>0</code> reads exactly the requested memory. Reading beyond the requested
+	 * memory may have side effects on targets with memory mapped I/O, it is therefore
+	 * disabled by default.
+	 * @since 5.4
+	 */
+	public static final String PREF_MEMORY_CACHE_PAGE_SIZE = PREFIX + "memoryCachePageSize"; //$NON-NLS-1$
+
+	/**
+	 * Default preference value for the size of the pages read by the memory cache
+	 * @since 5.4
+	 */
+	public static final int MEMORY_CACHE_PAGE_SIZE_DEFAULT = 0;
+
+	/**
+	 * Preference key controlling the maximum number of addressable units the memory cache
+	 * reads ahead of sequential requests. The value <code>0</code>, the default, disables
+	 * reading ahead.
+	 * @since 5.4
+	 */
+	public static final String PREF_MEMORY_CACHE_READ_AHEAD = PREFIX + "memoryCacheReadAhead"; //$NON-NLS-1$
+
+	/**
+	 * Default preference value for the maximum read ahead of the memory cache
+	 * @since 5.4
+	 */
+	public static final int MEMORY_CACHE_READ_AHEAD_DEFAULT = 0;
+
 }
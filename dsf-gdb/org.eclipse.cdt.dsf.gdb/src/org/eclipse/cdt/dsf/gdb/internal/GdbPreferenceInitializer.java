@@ -50,5 +50,8 @@ public class GdbPreferenceInitializer extends AbstractPreferenceInitializer {
 		node.put(IGdbDebugPreferenceConstants.PREF_REVERSE_TRACE_METHOD_HARDWARE, IGdbDebugPreferenceConstants.PREF_REVERSE_TRACE_METHOD_GDB_TRACE);
 		node.putBoolean(IGdbDebugPreferenceConstants.PREF_CONSOLE_INVERTED_COLORS, IGdbDebugPreferenceConstants.CONSOLE_INVERTED_COLORS_DEFAULT);
 		node.putInt(IGdbDebugPreferenceConstants.PREF_CONSOLE_BUFFERLINES, IGdbDebugPreferenceConstants.CONSOLE_BUFFERLINES_DEFAULT);		
+		node.putInt(IGdbDebugPreferenceConstants.PREF_COMMAND_PIPELINE_DEPTH, IGdbDebugPreferenceConstants.COMMAND_PIPELINE_DEPTH_DEFAULT);
+		node.putInt(IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_PAGE_SIZE, IGdbDebugPreferenceConstants.MEMORY_CACHE_PAGE_SIZE_DEFAULT);
+		node.putInt(IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_READ_AHEAD, IGdbDebugPreferenceConstants.MEMORY_CACHE_READ_AHEAD_DEFAULT);
 	}
 }
@@ -49,6 +49,7 @@ import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
 import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
 import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
 import org.eclipse.cdt.dsf.gdb.IGdbDebugConstants;
+import org.eclipse.cdt.dsf.gdb.IGdbDebugPreferenceConstants;
 import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
 import org.eclipse.cdt.dsf.gdb.internal.Messages;
 import org.eclipse.cdt.dsf.gdb.launching.FinalLaunchSequence;
@@ -85,6 +86,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
@@ -257,6 +259,12 @@ public class GDBControl extends AbstractMIControl implements IGDBControl {
         // which is why we must wait until we have MIBackend, before we can create the below context.
         fControlDmc = createComandControlContext(); 
 
+        setCommandPipelineDepth(Platform.getPreferencesService().getInt(
+        		GdbPlugin.PLUGIN_ID,
+        		IGdbDebugPreferenceConstants.PREF_COMMAND_PIPELINE_DEPTH,
+        		IGdbDebugPreferenceConstants.COMMAND_PIPELINE_DEPTH_DEFAULT,
+        		null));
+
         getExecutor().execute(getStartupSequence(requestMonitor));
     }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Wind River Systems and others.
+ * Copyright (c) 2006, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1949,9 +1949,10 @@ public class MIExpressions extends AbstractDsfService implements IMIExpressions,
 			int length, 
 			final DataRequestMonitor<IExpressionDMContext[]> rm) {
 		
+		// Only the requested range of children is fetched, the children of the
+		// result start at the given index.
 		ExprMetaGetChildren getChildren = (startIndex < 0 || length < 0) ? 
-				new ExprMetaGetChildren(exprCtx) : new ExprMetaGetChildren(exprCtx, startIndex + length);
-		final int startIndex1 = (startIndex < 0) ? 0 : startIndex;
+				new ExprMetaGetChildren(exprCtx) : new ExprMetaGetChildren(exprCtx, startIndex, startIndex + length);
 		final int length1 = (length < 0) ? Integer.MAX_VALUE : length;
 		fExpressionCache.execute(
 				getChildren,				
@@ -1960,17 +1961,16 @@ public class MIExpressions extends AbstractDsfService implements IMIExpressions,
 					protected void handleSuccess() {
 						ExpressionInfo[] childrenExpr = getData().getChildrenExpressions();
 
-						if (startIndex1 >= childrenExpr.length) {
+						if (childrenExpr.length == 0) {
 							rm.setStatus(new Status(IStatus.ERROR, GdbPlugin.PLUGIN_ID, REQUEST_FAILED, "Invalid range for evaluating sub expressions.", null)); //$NON-NLS-1$
 							rm.done();
 							return;
 						}
 
-						int numChildren = childrenExpr.length - startIndex1;
-						numChildren = Math.min(length1, numChildren);
+						int numChildren = Math.min(length1, childrenExpr.length);
 						IExpressionDMContext[] childrenArray = new IExpressionDMContext[numChildren];
 						for (int i=0; i < numChildren; i++) {
-							childrenArray[i] = createExpression(exprCtx.getParents()[0], childrenExpr[startIndex1 + i]);
+							childrenArray[i] = createExpression(exprCtx.getParents()[0], childrenExpr[i]);
 						}
 						rm.setData(childrenArray);
 						rm.done();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems and others.
+ * Copyright (c) 2007, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,7 +18,11 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedList;
@@ -29,7 +33,9 @@ import java.util.Map;
 import org.eclipse.cdt.core.IAddress;
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
 import org.eclipse.cdt.dsf.concurrent.IDsfStatusConstants;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
 import org.eclipse.cdt.dsf.concurrent.ImmediateRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
 import org.eclipse.cdt.dsf.datamodel.AbstractDMEvent;
@@ -48,6 +54,7 @@ import org.eclipse.cdt.dsf.debug.service.IRunControl.ISuspendedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.StateChangeReason;
 import org.eclipse.cdt.dsf.debug.service.command.BufferedCommandControl;
 import org.eclipse.cdt.dsf.debug.service.command.CommandCache;
+import org.eclipse.cdt.dsf.gdb.IGdbDebugPreferenceConstants;
 import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
 import org.eclipse.cdt.dsf.gdb.service.command.IGDBControl;
 import org.eclipse.cdt.dsf.mi.service.MIExpressions.ExpressionChangedEvent;
@@ -61,6 +68,7 @@ import org.eclipse.cdt.dsf.service.DsfServiceEventHandler;
 import org.eclipse.cdt.dsf.service.DsfSession;
 import org.eclipse.cdt.utils.Addr64;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.model.MemoryByte;
 import org.osgi.framework.BundleContext;
@@ -110,6 +118,13 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
     // Whether the -data-read-memory-bytes should be used
     // instead of -data-read-memory
     private boolean fDataReadMemoryBytes;
+
+    // Size of the pages read by the memory caches and maximum read ahead,
+    // in addressable units
+    private int fCachePageSize;
+    private int fMaxReadAhead;
+
+    private final MIMemoryStatistics fStatistics = new MIMemoryStatistics();
     
 	/**
 	 *  Constructor 
@@ -158,6 +173,17 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 
     	fMemoryCaches = new HashMap<IMemoryDMContext, MIMemoryCache>();
 
+    	setCachePageSize(Platform.getPreferencesService().getInt(
+    			GdbPlugin.PLUGIN_ID,
+    			IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_PAGE_SIZE,
+    			IGdbDebugPreferenceConstants.MEMORY_CACHE_PAGE_SIZE_DEFAULT,
+    			null));
+    	setMaxReadAhead(Platform.getPreferencesService().getInt(
+    			GdbPlugin.PLUGIN_ID,
+    			IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_READ_AHEAD,
+    			IGdbDebugPreferenceConstants.MEMORY_CACHE_READ_AHEAD_DEFAULT,
+    			null));
+
     	getSession().addServiceEventListener(this, null);
 
     	requestMonitor.done();
@@ -184,6 +210,42 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
         return GdbPlugin.getBundleContext();
     }
 
+    /**
+     * Sets the size, in addressable units, of the pages read by the memory caches. Reads
+     * from the back end are extended to page boundaries, <code>0</code> or <code>1</code>
+     * reads exactly the missing memory.
+     * @since 5.4
+     */
+    protected void setCachePageSize(int pageSize) {
+    	fCachePageSize = Math.max(0, pageSize);
+    }
+
+    /**
+     * Sets the maximum number of addressable units read ahead of clients that access the
+     * memory sequentially, <code>0</code> disables reading ahead.
+     * @since 5.4
+     */
+    protected void setMaxReadAhead(int maxReadAhead) {
+    	fMaxReadAhead = Math.max(0, maxReadAhead);
+    }
+
+    /**
+     * Returns the statistics about the memory requests served by this service.
+     * @since 5.4
+     */
+    public MIMemoryStatistics getStatistics() {
+    	return fStatistics;
+    }
+
+    /**
+     * Memory beyond the requested one is only read when the back end supports
+     * -data-read-memory-bytes, which reports unreadable parts of a range instead of
+     * failing the whole read.
+     */
+    private boolean canReadSpeculatively() {
+    	return fDataReadMemoryBytes;
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // IMemory
     ///////////////////////////////////////////////////////////////////////////
@@ -543,6 +605,55 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		}
 	}
 
+	// A range of memory to be read from the back end, together with the request
+	// monitors of the clients waiting for it. Reads without waiters are speculative.
+	private static class PendingRead {
+		public final IMemoryDMContext fContext;
+		public final IAddress fAddress;
+		public final int fWordSize;
+		public IAddress fEnd;
+		public final List<RequestMonitor> fWaiters = new ArrayList<RequestMonitor>(1);
+		public PendingRead(IMemoryDMContext context, IAddress address, int wordCount, int wordSize) {
+			fContext = context;
+			fAddress = address;
+			fEnd = address.add(wordCount);
+			fWordSize = wordSize;
+		}
+
+		public int getWordCount() {
+			return (int) fAddress.distanceTo(fEnd).longValue();
+		}
+
+		// Whether the given read, which does not start before this one, is adjacent to
+		// or overlaps this one and can be merged into a single read
+		public boolean canMerge(PendingRead other) {
+			if (fWordSize != other.fWordSize || !fContext.equals(other.fContext))
+				return false;
+			if (other.fAddress.compareTo(fEnd) > 0)
+				return false;
+			long end = Math.max(fAddress.distanceTo(other.fEnd).longValue(), getWordCount());
+			return end <= Integer.MAX_VALUE / fWordSize;
+		}
+
+		public void merge(PendingRead other) {
+			if (other.fEnd.compareTo(fEnd) > 0) {
+				fEnd = other.fEnd;
+			}
+			fWaiters.addAll(other.fWaiters);
+		}
+
+		public boolean overlaps(IAddress address, long wordCount) {
+			return fAddress.compareTo(address.add(wordCount)) < 0 && address.compareTo(fEnd) < 0;
+		}
+	}
+
+	private static final Comparator<PendingRead> PENDING_READ_COMPARATOR = new Comparator<PendingRead>() {
+		@Override
+		public int compare(PendingRead read1, PendingRead read2) {
+			return read1.fAddress.compareTo(read2.fAddress);
+		}
+	};
+
    	// Address-ordered data structure to cache the memory blocks.
    	// Contiguous blocks are merged if possible.
 	@SuppressWarnings("serial")
@@ -637,6 +748,21 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		// The memory cache data structure
 		private SortedMemoryBlockList fMemoryBlockList;
 
+		// Reads waiting to be sent to the back end, they are sent together in the
+		// next executor cycle so that adjacent ranges can be merged
+		private final List<PendingRead> fPendingReads = new ArrayList<PendingRead>();
+		// Reads sent to the back end and not completed yet
+		private final List<PendingRead> fActiveReads = new ArrayList<PendingRead>();
+		// Incremented on every reset, speculative reads started before a reset are
+		// not stored in the cache
+		private int fGeneration;
+
+		// The previous request, to detect clients that access the memory sequentially,
+		// and the number of units currently read ahead of them
+		private IAddress fLastRequestStart;
+		private IAddress fLastRequestEnd;
+		private int fReadAhead;
+
 		public MIMemoryCache() {
 	    	// Create the memory block cache
 	    	fMemoryBlockList = new SortedMemoryBlockList();
@@ -645,6 +771,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		public void reset() {
 	    	// Clear the memory cache
 	    	fMemoryBlockList.clear();
+	    	fGeneration++;
 		}
 
 	    /**
@@ -880,6 +1007,150 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 			return;
 		}
 
+	    /**
+	     * Returns the blocks missing in the cache to cover the given range extended by the
+	     * given number of units before and after it, aligned to the cache pages. The extension
+	     * is limited to the address space.
+	     */
+	    private List<MemoryBlock> getListOfMissingBlocks(IAddress reqBlockStart, int wordCount, int wordSize,
+	    		long unitsBefore, long unitsAfter) {
+	    	BigInteger start = reqBlockStart.getValue().subtract(BigInteger.valueOf(unitsBefore)).max(BigInteger.ZERO);
+	    	BigInteger end = reqBlockStart.getValue().add(BigInteger.valueOf(wordCount + unitsAfter));
+	    	if (fCachePageSize > 1) {
+	    		BigInteger pageSize = BigInteger.valueOf(fCachePageSize);
+	    		start = start.subtract(start.mod(pageSize));
+	    		end = end.add(pageSize.subtract(BigInteger.ONE));
+	    		end = end.subtract(end.mod(pageSize));
+	    	}
+	    	BigInteger reqBlockEnd = reqBlockStart.getValue().add(BigInteger.valueOf(wordCount));
+	    	end = end.min(reqBlockStart.getMaxOffset()).max(reqBlockEnd);
+
+	    	long count = end.subtract(start).longValue();
+	    	if (count > Integer.MAX_VALUE / wordSize) {
+	    		return getListOfMissingBlocks(reqBlockStart, wordCount, wordSize);
+	    	}
+	    	return getListOfMissingBlocks(reqBlockStart.add(start.subtract(reqBlockStart.getValue())), (int) count, wordSize);
+	    }
+
+	    /**
+	     * Adds the parts of the given block that are not cached yet to the cache.
+	     */
+	    private void addToCache(IAddress blockStart, MemoryByte[] block, int wordSize) {
+	    	for (MemoryBlock missingBlock : getListOfMissingBlocks(blockStart, block.length / wordSize, wordSize)) {
+	    		int pos = (int) blockStart.distanceTo(missingBlock.fAddress).longValue() * wordSize;
+	    		int length = (int) missingBlock.fLengthInOctets;
+	    		MemoryByte[] part = length == block.length ? block : Arrays.copyOfRange(block, pos, pos + length);
+	    		fMemoryBlockList.add(new MemoryBlock(missingBlock.fAddress, length, missingBlock.fLengthInAddressableUnits, part));
+	    	}
+	    }
+
+	    /**
+	     * Records the given request and returns the number of units to read ahead of it: positive
+	     * after the request for clients reading upwards, negative before it for clients reading
+	     * downwards. The read ahead starts at the size of the request and doubles with every
+	     * sequential request, up to the configured maximum.
+	     */
+	    private int updateReadAhead(IAddress address, int wordCount) {
+	    	IAddress end = address.add(wordCount);
+	    	int direction = 0;
+	    	if (fLastRequestStart != null) {
+	    		if (address.compareTo(fLastRequestStart) > 0 && address.compareTo(fLastRequestEnd) <= 0
+	    				&& end.compareTo(fLastRequestEnd) > 0) {
+	    			direction = 1;
+	    		} else if (end.compareTo(fLastRequestEnd) < 0 && end.compareTo(fLastRequestStart) >= 0
+	    				&& address.compareTo(fLastRequestStart) < 0) {
+	    			direction = -1;
+	    		}
+	    	}
+	    	fLastRequestStart = address;
+	    	fLastRequestEnd = end;
+
+	    	if (direction == 0 || fMaxReadAhead == 0 || !canReadSpeculatively()) {
+	    		fReadAhead = 0;
+	    		return 0;
+	    	}
+	    	if (fReadAhead == 0 || Integer.signum(fReadAhead) != direction) {
+	    		fReadAhead = direction * Math.min(wordCount, fMaxReadAhead);
+	    	} else {
+	    		fReadAhead = direction * (int) Math.min(2L * Math.abs(fReadAhead), fMaxReadAhead);
+	    	}
+	    	return fReadAhead;
+	    }
+
+	    private void enqueueRead(IMemoryDMContext memoryDMC, MemoryBlock block, int wordSize, RequestMonitor waiter) {
+	    	if (fPendingReads.isEmpty()) {
+	    		getExecutor().execute(new DsfRunnable() {
+	    			@Override
+	    			public void run() {
+	    				flushPendingReads();
+	    			}
+	    		});
+	    	}
+	    	PendingRead read = new PendingRead(memoryDMC, block.fAddress, (int) block.fLengthInAddressableUnits, wordSize);
+	    	if (waiter != null) {
+	    		read.fWaiters.add(waiter);
+	    	}
+	    	fPendingReads.add(read);
+	    }
+
+	    private boolean isBeingRead(IAddress address, long wordCount) {
+	    	for (PendingRead read : fActiveReads) {
+	    		if (read.overlaps(address, wordCount))
+	    			return true;
+	    	}
+	    	return false;
+	    }
+
+	    /**
+	     * Sends the pending reads to the back end, adjacent and overlapping ranges are
+	     * merged into a single read command.
+	     */
+	    private void flushPendingReads() {
+	    	List<PendingRead> reads = new ArrayList<PendingRead>(fPendingReads);
+	    	fPendingReads.clear();
+	    	Collections.sort(reads, PENDING_READ_COMPARATOR);
+
+	    	PendingRead current = null;
+	    	for (PendingRead read : reads) {
+	    		if (current != null && current.canMerge(read)) {
+	    			current.merge(read);
+	    			fStatistics.recordCoalesced();
+	    		} else {
+	    			if (current != null) {
+	    				sendRead(current);
+	    			}
+	    			current = read;
+	    		}
+	    	}
+	    	if (current != null) {
+	    		sendRead(current);
+	    	}
+	    }
+
+	    private void sendRead(final PendingRead read) {
+	    	final int generation = fGeneration;
+	    	final int wordCount = read.getWordCount();
+	    	fActiveReads.add(read);
+	    	fStatistics.recordRead(wordCount);
+	    	readMemoryBlock(read.fContext, read.fAddress, 0, read.fWordSize, wordCount,
+	    			new DataRequestMonitor<MemoryByte[]>(getExecutor(), null) {
+	    				@Override
+	    				protected void handleCompleted() {
+	    					fActiveReads.remove(read);
+	    					// The memory may have changed since a speculative read was sent
+	    					if (isSuccess() && (generation == fGeneration || !read.fWaiters.isEmpty())) {
+	    						addToCache(read.fAddress, getData(), read.fWordSize);
+	    					}
+	    					for (RequestMonitor waiter : read.fWaiters) {
+	    						if (!isSuccess()) {
+	    							waiter.setStatus(getStatus());
+	    						}
+	    						waiter.done();
+	    					}
+	    				}
+	    			});
+	    }
+
 	    /**
 		 * @param memoryDMC
 	     * @param address	the memory block address (on the target)
@@ -890,40 +1161,62 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	    public void getMemory(IMemoryDMContext memoryDMC, final IAddress address, final int wordSize, 
 	    		final int wordCount, final DataRequestMonitor<MemoryByte[]> drm)
 	    {
-	    	// Determine the number of read requests to issue 
+	    	// Determine the blocks to read from the back end, extended to whole pages if
+	    	// configured. Without pages exactly the missing parts of the request are read.
 	    	List<MemoryBlock> missingBlocks = getListOfMissingBlocks(address, wordCount, wordSize);
+	    	fStatistics.recordRequest(wordCount, missingBlocks.isEmpty());
+	    	if (!missingBlocks.isEmpty() && fCachePageSize > 1 && canReadSpeculatively()) {
+	    		int missingCount = countUnits(missingBlocks);
+	    		missingBlocks = getListOfMissingBlocks(address, wordCount, wordSize, 0, 0);
+	    		fStatistics.recordPrefetch(countUnits(missingBlocks) - missingCount);
+	    	}
 	    	int numberOfRequests = missingBlocks.size();
 
-	    	// A read request will be issued for each block needed
-	    	// so we need to keep track of the count
-	        final CountingRequestMonitor countingRM =
-	        	new CountingRequestMonitor(getExecutor(), drm) { 
-	                @Override
-	                protected void handleSuccess() {
-	                	// We received everything so read the result from the memory cache
-	                	drm.setData(getMemoryBlockFromCache(address, wordCount, wordSize));
-	                    drm.done();
-	                }
-	            };
-	       	countingRM.setDoneCount(numberOfRequests);
-
-	        // Issue the read requests
-	        for (int i = 0; i < numberOfRequests; i++) {
-	        	MemoryBlock block = missingBlocks.get(i);
-	        	final IAddress startAddress = block.fAddress;
-	        	final int length = (int) block.fLengthInAddressableUnits;
-		        readMemoryBlock(memoryDMC, startAddress, 0, wordSize, length,
-					    new DataRequestMonitor<MemoryByte[]>(getSession().getExecutor(), drm) {
-					    	@Override
-					    	protected void handleSuccess() {
-					    		MemoryByte[] block = getData();
-					    		int lenghtInaddressableUnits = block.length / wordSize;
-					    		MemoryBlock memoryBlock = new MemoryBlock(startAddress, block.length, lenghtInaddressableUnits, block);
-					    		fMemoryBlockList.add(memoryBlock);
-					    		countingRM.done();
-					    	}
-					    });
-	        }
+	    	if (numberOfRequests == 0) {
+	    		drm.setData(getMemoryBlockFromCache(address, wordCount, wordSize));
+	    		drm.done();
+	    	} else {
+	    		// A read request will be issued for each block needed
+	    		// so we need to keep track of the count
+	    		final CountingRequestMonitor countingRM =
+	    			new CountingRequestMonitor(getExecutor(), drm) {
+	    				@Override
+	    				protected void handleSuccess() {
+	    					// We received everything so read the result from the memory cache
+	    					drm.setData(getMemoryBlockFromCache(address, wordCount, wordSize));
+	    					drm.done();
+	    				}
+	    			};
+	    		countingRM.setDoneCount(numberOfRequests);
+
+	    		// Queue the read requests, they are sent together once this request is processed
+	    		for (MemoryBlock block : missingBlocks) {
+	    			enqueueRead(memoryDMC, block, wordSize, new RequestMonitor(ImmediateExecutor.getInstance(), countingRM));
+	    		}
+	    	}
+
+	    	// Read ahead of clients scrolling through the memory. Ranges that are being read
+	    	// already are skipped, the ranges of pending reads are merged with them.
+	    	int readAhead = updateReadAhead(address, wordCount);
+	    	if (readAhead != 0) {
+	    		List<MemoryBlock> blocks = readAhead > 0
+	    				? getListOfMissingBlocks(address.add(wordCount), 0, wordSize, 0, readAhead)
+	    				: getListOfMissingBlocks(address, 0, wordSize, -readAhead, 0);
+	    		for (MemoryBlock block : blocks) {
+	    			if (!isBeingRead(block.fAddress, block.fLengthInAddressableUnits)) {
+	    				enqueueRead(memoryDMC, block, wordSize, null);
+	    				fStatistics.recordPrefetch((int) block.fLengthInAddressableUnits);
+	    			}
+	    		}
+	    	}
+	    }
+
+	    private int countUnits(List<MemoryBlock> blocks) {
+	    	int count = 0;
+	    	for (MemoryBlock block : blocks) {
+	    		count += block.fLengthInAddressableUnits;
+	    	}
+	    	return count;
 	    }
 
 	    /**
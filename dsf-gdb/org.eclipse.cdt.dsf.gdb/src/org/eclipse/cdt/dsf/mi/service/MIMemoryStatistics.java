@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ericsson - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing how the memory requests of the clients of {@link MIMemory} were
+ * served. Sizes are given in addressable units.
+ * <p>
+ * The statistics can be updated and read from any thread.
+ *
+ * @since 5.4
+ */
+public final class MIMemoryStatistics {
+	private final AtomicLong fRequests = new AtomicLong();
+	private final AtomicLong fHits = new AtomicLong();
+	private final AtomicLong fReads = new AtomicLong();
+	private final AtomicLong fCoalescedReads = new AtomicLong();
+	private final AtomicLong fUnitsRequested = new AtomicLong();
+	private final AtomicLong fUnitsRead = new AtomicLong();
+	private final AtomicLong fUnitsPrefetched = new AtomicLong();
+
+	void recordRequest(int units, boolean hit) {
+		fRequests.incrementAndGet();
+		fUnitsRequested.addAndGet(units);
+		if (hit) {
+			fHits.incrementAndGet();
+		}
+	}
+
+	void recordRead(int units) {
+		fReads.incrementAndGet();
+		fUnitsRead.addAndGet(units);
+	}
+
+	void recordCoalesced() {
+		fCoalescedReads.incrementAndGet();
+	}
+
+	void recordPrefetch(int units) {
+		fUnitsPrefetched.addAndGet(units);
+	}
+
+	/**
+	 * Returns the number of memory requests received from clients.
+	 */
+	public long getRequests() {
+		return fRequests.get();
+	}
+
+	/**
+	 * Returns the number of memory requests that were served from the cache alone.
+	 */
+	public long getHits() {
+		return fHits.get();
+	}
+
+	/**
+	 * Returns the number of read commands sent to the back end.
+	 */
+	public long getReads() {
+		return fReads.get();
+	}
+
+	/**
+	 * Returns the number of pending reads that were merged into the read of an adjacent
+	 * range instead of being sent to the back end on their own.
+	 */
+	public long getCoalescedReads() {
+		return fCoalescedReads.get();
+	}
+
+	/**
+	 * Returns the number of addressable units requested by clients.
+	 */
+	public long getUnitsRequested() {
+		return fUnitsRequested.get();
+	}
+
+	/**
+	 * Returns the number of addressable units read from the back end.
+	 */
+	public long getUnitsRead() {
+		return fUnitsRead.get();
+	}
+
+	/**
+	 * Returns the number of addressable units that were read from the back end before
+	 * a client asked for them, by aligning reads to pages or by reading ahead.
+	 */
+	public long getUnitsPrefetched() {
+		return fUnitsPrefetched.get();
+	}
+
+	public void reset() {
+		fRequests.set(0);
+		fHits.set(0);
+		fReads.set(0);
+		fCoalescedReads.set(0);
+		fUnitsRequested.set(0);
+		fUnitsRead.set(0);
+		fUnitsPrefetched.set(0);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("requests=").append(getRequests()) //$NON-NLS-1$
+			   .append(" hits=").append(getHits()) //$NON-NLS-1$
+			   .append(" reads=").append(getReads()) //$NON-NLS-1$
+			   .append(" coalesced=").append(getCoalescedReads()) //$NON-NLS-1$
+			   .append(" unitsRequested=").append(getUnitsRequested()) //$NON-NLS-1$
+			   .append(" unitsRead=").append(getUnitsRead()) //$NON-NLS-1$
+			   .append(" unitsPrefetched=").append(getUnitsPrefetched()); //$NON-NLS-1$
+		return builder.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 Wind River Systems and others.
+ * Copyright (c) 2006, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -339,6 +339,14 @@ implements IStack, ICachingService {
 	 */
 	private Map<IMIExecutionDMContext, VariableData> fThreadToReturnVariable = new HashMap<IMIExecutionDMContext, VariableData>();
 
+	/**
+	 * The threads that triggered the last suspend, for which the top stack frames and the
+	 * locals are fetched before the views ask for them, and the request monitor used to cancel
+	 * the prefetch. See {@link #prefetch(ISuspendedDMEvent)}.
+	 */
+	private List<IMIExecutionDMContext> fPrefetchThreads = new ArrayList<IMIExecutionDMContext>();
+	private RequestMonitor fPrefetchRm;
+
 	public MIStack(DsfSession session) {
 		super(session);
 	}
@@ -448,6 +456,7 @@ implements IStack, ICachingService {
 	{
 		unregister();
 		getSession().removeServiceEventListener(this);
+		cancelPrefetch();
 		fMICommandCache.reset();
 		super.shutdown(rm);
 	}
@@ -946,6 +955,12 @@ implements IStack, ICachingService {
 
 	@Override
 	public void getLocals(final IFrameDMContext frameDmc, final DataRequestMonitor<IVariableDMContext[]> rm) {
+		// The locals of another thread are shown, the user selected something else than
+		// the threads we are prefetching for.
+		if (fPrefetchRm != null &&
+				!fPrefetchThreads.contains(DMContexts.getAncestorOfType(frameDmc, IMIExecutionDMContext.class))) {
+			cancelPrefetch();
+		}
 
 		final List<IVariableDMContext> localsList = new ArrayList<IVariableDMContext>();
 
@@ -1105,6 +1120,7 @@ implements IStack, ICachingService {
 	 */
 	@DsfServiceEventHandler
 	public void eventDispatched(IResumedDMEvent e) {
+		cancelPrefetch();
 		fMICommandCache.setContextAvailable(e.getDMContext(), false);
 		if (e.getReason() != StateChangeReason.STEP) {
 			fCachedStoppedEvent = null;
@@ -1148,6 +1164,88 @@ implements IStack, ICachingService {
 		fFramesCache.clear();
 
 		handleReturnValues(e);
+		prefetch(e);
+	}
+
+	/**
+	 * Fetches the top stack frames and the locals of the threads that triggered a suspend,
+	 * before the views ask for them. The views show the thread that stopped, most of the time
+	 * they ask for the same commands once they have processed the event; they are then served
+	 * by our caches or wait for the commands already sent.
+	 */
+	private void prefetch(ISuspendedDMEvent e) {
+		cancelPrefetch();
+		if (fTraceVisualization) {
+			return;
+		}
+
+		List<IMIExecutionDMContext> threads = new ArrayList<IMIExecutionDMContext>();
+		if (e instanceof IContainerSuspendedDMEvent) {
+			// All-stop mode
+			for (IExecutionDMContext ctx : ((IContainerSuspendedDMEvent)e).getTriggeringContexts()) {
+				if (ctx instanceof IMIExecutionDMContext) {
+					threads.add((IMIExecutionDMContext)ctx);
+				}
+			}
+		} else if (e.getDMContext() instanceof IMIExecutionDMContext) {
+			// Non-stop mode
+			threads.add((IMIExecutionDMContext)e.getDMContext());
+		}
+		if (threads.isEmpty()) {
+			return;
+		}
+
+		fPrefetchThreads = threads;
+		fPrefetchRm = new RequestMonitor(getExecutor(), null);
+		prefetch(threads, 0, fPrefetchRm);
+	}
+
+	private void prefetch(final List<IMIExecutionDMContext> threads, final int index, final RequestMonitor rm) {
+		if (rm.isCanceled() || index == threads.size()) {
+			rm.done();
+			return;
+		}
+
+		final IMIExecutionDMContext execDmc = threads.get(index);
+		final String threadId = execDmc.getThreadId();
+		// Errors are ignored, the views will ask again
+		final RequestMonitor nextRm = new ImmediateRequestMonitor() {
+			@Override
+			protected void handleCompleted() {
+				prefetch(threads, index + 1, rm);
+			}
+		};
+
+		fMICommandCache.execute(
+				createMIStackListFrames(execDmc, 0, DEFAULT_STACK_DEPTH - 1),
+				new DataRequestMonitor<MIStackListFramesInfo>(getExecutor(), null) {
+					@Override
+					protected void handleCompleted() {
+						if (rm.isCanceled()) {
+							// Our caches may already have been cleared
+							nextRm.done();
+							return;
+						}
+						if (isSuccess()) {
+							FramesCacheInfo info = fFramesCache.update(threadId, getData());
+							fFramesCache.update(threadId, info.getValidStackDepth(), DEFAULT_STACK_DEPTH);
+						}
+						getLocals(createFrameDMContext(execDmc, 0),
+								new DataRequestMonitor<IVariableDMContext[]>(getExecutor(), nextRm));
+					}
+				});
+	}
+
+	/**
+	 * Stops fetching the stack frames and locals of the threads that triggered the last suspend.
+	 * Commands already sent to GDB are not withdrawn, their results are still cached.
+	 */
+	private void cancelPrefetch() {
+		if (fPrefetchRm != null) {
+			fPrefetchRm.cancel();
+			fPrefetchRm = null;
+			fPrefetchThreads = new ArrayList<IMIExecutionDMContext>();
+		}
 	}
 
 	private void handleReturnValues(ISuspendedDMEvent e) {
@@ -1219,6 +1317,7 @@ implements IStack, ICachingService {
 	 */
 	@Override
 	public void flushCache(IDMContext context) {
+		cancelPrefetch();
 		fMICommandCache.reset(context);
 		fFramesCache.clear(context);
 		fCachedStoppedEvent = null;
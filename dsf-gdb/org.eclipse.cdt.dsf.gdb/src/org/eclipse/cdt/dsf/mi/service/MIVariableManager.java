@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2015 Monta Vista and others.
+ * Copyright (c) 2008, 2017 Monta Vista and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ package org.eclipse.cdt.dsf.mi.service;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -396,6 +397,9 @@ public class MIVariableManager implements ICommandControl {
 		
 		private boolean fFetchingChildren = false;
 		
+		// The last generation of the LRU in which this object was used
+		private int fLRUGeneration = -1;
+		
 		/** 
 		 * In case of base class variables that are accessed in a derived class 
 		 * we cannot trust var-info-path-expression because of a bug in gdb.
@@ -1287,6 +1291,51 @@ public class MIVariableManager implements ICommandControl {
 			}
 		}
 
+		/**
+		 * This method returns the children of the variable object passed as a
+		 * parameter, starting at the given index.  For arrays, only the children
+		 * up to the given limit are created, so that showing a range of the
+		 * elements of a huge array does not create an expression for each of
+		 * its elements.  For other variable objects, the children are fetched
+		 * as done by {@link #getChildren(IExpressionDMContext, int, DataRequestMonitor)}.
+		 * 
+		 * @param exprDmc
+		 * 
+		 * @param startIndex
+		 *            The index of the first child to return.
+		 * @param clientNumChildrenLimit
+		 *            If the current limit for the given expression is smaller,
+		 *            this limit will be applied.
+		 * @param rm
+		 *            The data request monitor that will hold the children
+		 *            returned
+		 */
+		private void getChildren(final IExpressionDMContext exprDmc, final int startIndex,
+				final int clientNumChildrenLimit, final DataRequestMonitor<ChildrenInfo> rm) {
+			
+			if (isArray() && fChildren == null && clientNumChildrenLimit != IMIExpressions.CHILD_COUNT_LIMIT_UNSPECIFIED) {
+				int endIndex = Math.min(clientNumChildrenLimit, getNumChildrenHint());
+				rm.setData(new ChildrenInfo(createArrayChildren(exprDmc, startIndex, endIndex), false));
+				rm.done();
+				return;
+			}
+			
+			if (startIndex <= 0) {
+				getChildren(exprDmc, clientNumChildrenLimit, rm);
+				return;
+			}
+			
+			getChildren(exprDmc, clientNumChildrenLimit, new DataRequestMonitor<ChildrenInfo>(fSession.getExecutor(), rm) {
+				@Override
+				protected void handleSuccess() {
+					ExpressionInfo[] children = getData().getChildren();
+					int fromIndex = Math.min(startIndex, children.length);
+					rm.setData(new ChildrenInfo(Arrays.copyOfRange(children, fromIndex, children.length), getData().hasMore()));
+					rm.done();
+				}
+			});
+		}
+
 		/**
 		 * Fetch the out-standing children.
 		 * 
@@ -1330,32 +1379,7 @@ public class MIVariableManager implements ICommandControl {
 	        // never need.  Using -var-list-children will create a variable object for every child
 	        // immediately, that is why we don't want to use it for arrays.
 	        if (isArray()) {
-	        	ExpressionInfo[] childrenOfArray = new ExpressionInfo[getNumChildrenHint()];
-	        	String exprName = exprDmc.getExpression();
-	        	
-        		int castingIndex = 0;
-	        	// in case of casts, need to resolve that before dereferencing, to be safe
-	        	if (exprDmc instanceof ICastedExpressionDMContext) {
-	        		castingIndex = ((ICastedExpressionDMContext)exprDmc).getCastInfo().getArrayStartIndex();
-	        	}
-	        	if (exprDmc instanceof IIndexedPartitionDMContext) {
-	        		castingIndex = ((IIndexedPartitionDMContext)exprDmc).getIndex();
-	        	}
-	        	for (int i= 0; i < childrenOfArray.length; i++) {
-	        		String fullExpr = exprName + "[" + i + "]";//$NON-NLS-1$//$NON-NLS-2$
-	        		
-        			String relExpr;
-	        		if (exprDmc instanceof MIExpressionDMC) {
-	        			relExpr = ((MIExpressionDMC)exprDmc).getRelativeExpression();
-	        		} else {
-	        			// Unexpected, but avoid exception
-	        			relExpr = exprDmc.getExpression();
-	        		}
-	        		relExpr = relExpr + "[" + (castingIndex + i) + "]";//$NON-NLS-1$//$NON-NLS-2$
-	        		
-
-	        		childrenOfArray[i] = new ExpressionInfo(fullExpr, relExpr, false, fExprInfo, i);
-	        	}
+	        	ExpressionInfo[] childrenOfArray = createArrayChildren(exprDmc, 0, getNumChildrenHint());
 
 	        	// First store these children, for the next time
 				setChildren(childrenOfArray);
@@ -1666,6 +1690,41 @@ public class MIVariableManager implements ICommandControl {
 	        		});
 		}
 		
+		/**
+		 * Creates the expressions for the elements of an array from
+		 * <code>startIndex</code> up to, but not including, <code>endIndex</code>.
+		 * No variable objects are created for the elements.
+		 */
+		private ExpressionInfo[] createArrayChildren(IExpressionDMContext exprDmc, int startIndex, int endIndex) {
+			ExpressionInfo[] childrenOfArray = new ExpressionInfo[Math.max(endIndex - startIndex, 0)];
+			String exprName = exprDmc.getExpression();
+
+			int castingIndex = 0;
+			// in case of casts, need to resolve that before dereferencing, to be safe
+			if (exprDmc instanceof ICastedExpressionDMContext) {
+				castingIndex = ((ICastedExpressionDMContext)exprDmc).getCastInfo().getArrayStartIndex();
+			}
+			if (exprDmc instanceof IIndexedPartitionDMContext) {
+				castingIndex = ((IIndexedPartitionDMContext)exprDmc).getIndex();
+			}
+			for (int j= 0; j < childrenOfArray.length; j++) {
+				int i = startIndex + j;
+				String fullExpr = exprName + "[" + i + "]";//$NON-NLS-1$//$NON-NLS-2$
+
+				String relExpr;
+				if (exprDmc instanceof MIExpressionDMC) {
+					relExpr = ((MIExpressionDMC)exprDmc).getRelativeExpression();
+				} else {
+					// Unexpected, but avoid exception
+					relExpr = exprDmc.getExpression();
+				}
+				relExpr = relExpr + "[" + (castingIndex + i) + "]";//$NON-NLS-1$//$NON-NLS-2$
+
+				childrenOfArray[j] = new ExpressionInfo(fullExpr, relExpr, false, fExprInfo, i);
+			}
+			return childrenOfArray;
+		}
+
 		/**
 		 * Create a child variable of this MIVariableObject and initialize
 		 * it from the given MIVar data.
@@ -2247,100 +2306,139 @@ public class MIVariableManager implements ICommandControl {
 				// Object needs to be updated in the back-end
 				currentState = STATE_UPDATING;
 
-				// In GDB, var-update will only report a change if -var-evaluate-expression has
-				// changed -- in the current format--.  This means that situations like
-				// double z = 1.2;
-				// z = 1.4;
-				// Will not report a change if the format is anything else than natural.
-				// This is because 1.2 and 1.4 are both printed as 1, 0x1, etc
-				// Since we cache the values of every format, we must know if -any- format has
-				// changed, not just the current one.
-				// To solve this, we always do an update in the natural format; I am not aware
-				// of any case where the natural format would stay the same, but another format
-				// would change.  However, since a var-update update all children as well,
-			    // we must make sure these children are also in the natural format
-				// The simplest way to do this is that whenever we change the format
-				// of a variable object, we immediately set it back to natural with a second
-				// var-set-format command.  This is done in the getValue() method
-				fCommandControl.queueCommand(
-						fCommandFactory.createMIVarUpdate(getRootToUpdate().getControlDMContext(), getGdbName()),
-						new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), rm) {
-							@Override
-							protected void handleCompleted() {
-								if (isSuccess()) {
-									setOutOfDate(false);
-									
-									MIVarChange[] changes = getData().getMIVarChanges();
-									if (changes.length > 0 && !changes[0].isInScope()) {
-										// Object is out-of-scope
-										currentState = STATE_READY;
+				// The roots that need to be updated when the views refresh are all
+				// updated by a single -var-update, see updateAllRoots()
+				updateAllRoots(this, new DataRequestMonitor<Boolean>(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleCompleted() {
+						if (isSuccess() && !getData()) {
+							// The variable objects could not be updated all at once,
+							// update this root on its own.
+							updateRoot(rm);
+							return;
+						}
 
-										outOfScope = true;
-										
-										// We can delete this root in GDB right away.  This is safe, even
-									 	// if the root has children, because they are also out-of-scope.
-										// We -must- also remove this entry from our LRU.  If we don't
-										// we can end-up with a race condition that create this object
-										// twice, or have an infinite loop while never re-creating the object.
-										// The can happen if we update a child first then we request 
-										// the root later,
-										lruVariableList.remove(getInternalId());
-
-										rm.setData(true);
-										rm.done();
-										
-										while (!updatesPending.isEmpty()) {
-											DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-											pendingRm.setData(false);
-											pendingRm.done();
-										}
-									} else {
-										// The root object is now up-to-date, we must parse the changes, if any.
-										processChanges(changes, new RequestMonitor(fSession.getExecutor(), rm) {
-											@Override
-											protected void handleCompleted() {
-												currentState = STATE_READY;
+						currentState = STATE_READY;
 
-												// We only mark this root as updated in our list if it is in-scope.
-												// For out-of-scope object, we don't ever need to re-update them so
-												// we don't need to add them to this list.
-												rootVariableUpdated(MIRootVariableObject.this);
+						if (isSuccess()) {
+							// An out-of-scope root has been removed from our LRU and must be re-created
+							rm.setData(isOutOfScope());
+						} else {
+							rm.setStatus(getStatus());
+						}
+						rm.done();
 
-												if (isSuccess()) {
-													rm.setData(false);
-												} else {
-													rm.setStatus(getStatus());
-												}
-												rm.done();
-
-												while (!updatesPending.isEmpty()) {
-													DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-													if (isSuccess()) {
-														pendingRm.setData(false);
-													} else {
-														pendingRm.setStatus(getStatus());
-													}
-													pendingRm.done();
-												}
-											};
-										});
-									}									
-								} else {
-									// We were not able to update for some reason
+						while (!updatesPending.isEmpty()) {
+							DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+							if (isSuccess()) {
+								pendingRm.setData(false);
+							} else {
+								pendingRm.setStatus(getStatus());
+							}
+							pendingRm.done();
+						}
+					}
+				});
+		    }
+		}
+
+		/**
+		 * Updates this root, and its children, with its own -var-update.
+		 */
+		private void updateRoot(final DataRequestMonitor<Boolean> rm) {
+			// In GDB, var-update will only report a change if -var-evaluate-expression has
+			// changed -- in the current format--.  This means that situations like
+			// double z = 1.2;
+			// z = 1.4;
+			// Will not report a change if the format is anything else than natural.
+			// This is because 1.2 and 1.4 are both printed as 1, 0x1, etc
+			// Since we cache the values of every format, we must know if -any- format has
+			// changed, not just the current one.
+			// To solve this, we always do an update in the natural format; I am not aware
+			// of any case where the natural format would stay the same, but another format
+			// would change.  However, since a var-update update all children as well,
+		    // we must make sure these children are also in the natural format
+			// The simplest way to do this is that whenever we change the format
+			// of a variable object, we immediately set it back to natural with a second
+			// var-set-format command.  This is done in the getValue() method
+			fCommandControl.queueCommand(
+					fCommandFactory.createMIVarUpdate(getRootToUpdate().getControlDMContext(), getGdbName()),
+					new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), rm) {
+						@Override
+						protected void handleCompleted() {
+							if (isSuccess()) {
+								setOutOfDate(false);
+								
+								MIVarChange[] changes = getData().getMIVarChanges();
+								if (changes.length > 0 && !changes[0].isInScope()) {
+									// Object is out-of-scope
 									currentState = STATE_READY;
 
-									rm.setData(false);
+									outOfScope = true;
+									
+									// We can delete this root in GDB right away.  This is safe, even
+								 	// if the root has children, because they are also out-of-scope.
+									// We -must- also remove this entry from our LRU.  If we don't
+									// we can end-up with a race condition that create this object
+									// twice, or have an infinite loop while never re-creating the object.
+									// The can happen if we update a child first then we request 
+									// the root later,
+									lruVariableList.remove(getInternalId());
+
+									rm.setData(true);
 									rm.done();
-
+									
 									while (!updatesPending.isEmpty()) {
 										DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-										pendingRm.setStatus(getStatus());
+										pendingRm.setData(false);
 										pendingRm.done();
 									}
+								} else {
+									// The root object is now up-to-date, we must parse the changes, if any.
+									processChanges(changes, new RequestMonitor(fSession.getExecutor(), rm) {
+										@Override
+										protected void handleCompleted() {
+											currentState = STATE_READY;
+
+											// We only mark this root as updated in our list if it is in-scope.
+											// For out-of-scope object, we don't ever need to re-update them so
+											// we don't need to add them to this list.
+											rootVariableUpdated(MIRootVariableObject.this);
+
+											if (isSuccess()) {
+												rm.setData(false);
+											} else {
+												rm.setStatus(getStatus());
+											}
+											rm.done();
+
+											while (!updatesPending.isEmpty()) {
+												DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+												if (isSuccess()) {
+													pendingRm.setData(false);
+												} else {
+													pendingRm.setStatus(getStatus());
+												}
+												pendingRm.done();
+											}
+										};
+									});
+								}									
+							} else {
+								// We were not able to update for some reason
+								currentState = STATE_READY;
+
+								rm.setData(false);
+								rm.done();
+
+								while (!updatesPending.isEmpty()) {
+									DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+									pendingRm.setStatus(getStatus());
+									pendingRm.done();
 								}
 							}
-						});
-		    }
+						}
+					});
 		}
 
 		/**
@@ -2487,8 +2585,18 @@ public class MIVariableManager implements ICommandControl {
 	private static class LRUVariableCache extends LinkedHashMap<VariableObjectId, MIVariableObject> {
 		public static final long serialVersionUID = 0;
 
-		// Maximum allowed concurrent variables
-		private static final int MAX_VARIABLE_LIST = 1000;
+		// Bounds for the allowed concurrent variables.  Within these bounds, the
+		// limit adapts to the number of variables used since the target last
+		// resumed, so that the variables shown in the views are not deleted and
+		// created again while the user scrolls through them.
+		private static final int MIN_VARIABLE_LIST = 1000;
+		private static final int MAX_VARIABLE_LIST = 10000;
+		
+		// Incremented whenever the target resumes
+		private int fGeneration = 0;
+		// Number of variables used in the current and in the previous generation
+		private int fWorkingSetSize = 0;
+		private int fPreviousWorkingSetSize = 0;
 		
 		public LRUVariableCache() {
 			super(0,     // Initial load capacity
@@ -2507,9 +2615,10 @@ public class MIVariableManager implements ICommandControl {
 		public MIVariableObject get(Object key) {
 			MIVariableObject varObj = super.get(key);
 		    touchAncestors(varObj);
+		    markUsed(varObj);
 		    
 		    // If we're over our max size, attempt to remove eldest entry.
-		    if (size() > MAX_VARIABLE_LIST) {
+		    if (size() > getMaxSize()) {
 		    	Map.Entry<VariableObjectId, MIVariableObject> eldest = entrySet().iterator().next();
 		    	// First make sure we are not deleting ourselves!
 		    	if (!eldest.getValue().equals(varObj) &&
@@ -2520,6 +2629,31 @@ public class MIVariableManager implements ICommandControl {
 		    return varObj;
 		}
 		
+		/**
+		 * Returns the current limit of concurrent variables, twice the number of
+		 * variables recently used, within the allowed bounds.
+		 */
+		private int getMaxSize() {
+			int workingSetSize = Math.max(fWorkingSetSize, fPreviousWorkingSetSize);
+			return Math.min(MAX_VARIABLE_LIST, Math.max(MIN_VARIABLE_LIST, 2 * workingSetSize));
+		}
+		
+		/**
+		 * Starts a new generation, called when the target resumes.
+		 */
+		public void startGeneration() {
+			fGeneration++;
+			fPreviousWorkingSetSize = fWorkingSetSize;
+			fWorkingSetSize = 0;
+		}
+		
+		private void markUsed(MIVariableObject varObj) {
+			if (varObj != null && varObj.fLRUGeneration != fGeneration) {
+				varObj.fLRUGeneration = fGeneration;
+				fWorkingSetSize++;
+			}
+		}
+		
 		private void touchAncestors(MIVariableObject varObj) {
 			while (varObj != null) {
 				varObj = varObj.getParent();
@@ -2537,6 +2671,7 @@ public class MIVariableManager implements ICommandControl {
             // Touch all parents of this element so as
             // to guarantee they are not deleted before their children.
             touchAncestors(varObj);
+            markUsed(varObj);
 
             return retVal;
         }
@@ -2574,6 +2709,16 @@ public class MIVariableManager implements ICommandControl {
 	/** The list of root variable objects that have been updated */
 	private final LinkedList<MIRootVariableObject> updatedRootList = new LinkedList<MIRootVariableObject>();
 
+	/**
+	 * The roots waiting for the -var-update of all variable objects in progress, and the
+	 * request monitors to complete for them, or null if no such update is in progress.
+	 */
+	private List<MIRootVariableObject> fRootsWaitingForUpdate = null;
+	private List<DataRequestMonitor<Boolean>> fRootUpdatesPending = null;
+
+	/** Incremented whenever the roots are marked as out-of-date */
+	private int fOutOfDateCount = 0;
+
 	/**
 	 * MIVariableManager constructor
 	 * 
@@ -2618,6 +2763,146 @@ public class MIVariableManager implements ICommandControl {
 	protected void rootVariableUpdated(MIRootVariableObject rootObj) {
 	    updatedRootList.add(rootObj);
 	}
+
+	/**
+	 * Updates all variable objects of GDB with a single -var-update and processes the
+	 * reported changes for every root of our LRU. After the target suspended, the views
+	 * request the update of many roots at the same time; instead of a round-trip to GDB
+	 * per root, the roots requesting an update while the command is in progress wait for
+	 * it, since it also reports their changes.
+	 *
+	 * The views still refresh all their rows after a suspend, not only the ones that changed:
+	 * the view model flushes its caches on the suspended event, before GDB is asked what
+	 * changed. The rows without changes are served from the values cached in their variable
+	 * objects and do not cost a command.
+	 *
+	 * The data of the request monitor is false, if the variable objects could not be updated
+	 * all at once and the root has to be updated on its own.
+	 */
+	private void updateAllRoots(MIRootVariableObject root, DataRequestMonitor<Boolean> rm) {
+		if (fRootsWaitingForUpdate != null) {
+			fRootsWaitingForUpdate.add(root);
+			fRootUpdatesPending.add(rm);
+			return;
+		}
+
+		final List<MIRootVariableObject> waitingRoots = new ArrayList<MIRootVariableObject>();
+		final List<DataRequestMonitor<Boolean>> pendingRms = new ArrayList<DataRequestMonitor<Boolean>>();
+		waitingRoots.add(root);
+		pendingRms.add(rm);
+		fRootsWaitingForUpdate = waitingRoots;
+		fRootUpdatesPending = pendingRms;
+		final int outOfDateCount = fOutOfDateCount;
+
+		// The natural format of the children is ensured as for the update of a single root,
+		// see MIRootVariableObject.updateRoot()
+		fCommandControl.queueCommand(
+				fCommandFactory.createMIVarUpdate(root.getControlDMContext(), "*"), //$NON-NLS-1$
+				new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), null) {
+					@Override
+					protected void handleCompleted() {
+						fRootsWaitingForUpdate = null;
+						fRootUpdatesPending = null;
+
+						if (!isSuccess()) {
+							for (DataRequestMonitor<Boolean> pendingRm : pendingRms) {
+								pendingRm.setData(false);
+								pendingRm.done();
+							}
+							return;
+						}
+
+						// Roots marked out-of-date while the command was in progress may have
+						// changed after GDB updated them, they must be updated again.
+						boolean upToDate = outOfDateCount == fOutOfDateCount;
+						processAllChanges(getData().getMIVarChanges(), waitingRoots, upToDate,
+								new RequestMonitor(fSession.getExecutor(), null) {
+							@Override
+							protected void handleCompleted() {
+								for (DataRequestMonitor<Boolean> pendingRm : pendingRms) {
+									if (isSuccess()) {
+										pendingRm.setData(true);
+									} else {
+										pendingRm.setStatus(getStatus());
+									}
+									pendingRm.done();
+								}
+							}
+						});
+					}
+				});
+	}
+
+	/**
+	 * Dispatches the changes reported by a -var-update of all variable objects to the roots
+	 * they belong to. The roots waiting for the update are marked up-to-date, even if there
+	 * are no changes for them. Other roots are only marked up-to-date if GDB reported a change
+	 * for them, GDB does not update the variable objects of running threads.
+	 */
+	private void processAllChanges(MIVarChange[] changes, List<MIRootVariableObject> waitingRoots,
+			boolean upToDate, RequestMonitor rm) {
+		// The name of a child in GDB is the name of its root followed by the path to the child
+		Map<String, MIRootVariableObject> rootsByName = new HashMap<String, MIRootVariableObject>();
+		for (MIVariableObject varObj : lruVariableList.values()) {
+			if (varObj instanceof MIRootVariableObject && varObj.getGdbName() != null) {
+				rootsByName.put(varObj.getGdbName(), (MIRootVariableObject) varObj);
+			}
+		}
+
+		Map<MIRootVariableObject, List<MIVarChange>> changesByRoot = new LinkedHashMap<MIRootVariableObject, List<MIVarChange>>();
+		for (MIRootVariableObject root : waitingRoots) {
+			changesByRoot.put(root, new ArrayList<MIVarChange>());
+		}
+		for (MIVarChange change : changes) {
+			String name = change.getVarName();
+			int dot = name.indexOf('.');
+			MIRootVariableObject root = rootsByName.get(dot < 0 ? name : name.substring(0, dot));
+			// Roots being created or updated on their own are left alone
+			if (root != null && (root.currentState == MIVariableObject.STATE_READY || waitingRoots.contains(root))) {
+				List<MIVarChange> rootChanges = changesByRoot.get(root);
+				if (rootChanges == null) {
+					rootChanges = new ArrayList<MIVarChange>();
+					changesByRoot.put(root, rootChanges);
+				}
+				rootChanges.add(change);
+			}
+		}
+
+		CountingRequestMonitor countingRm = new CountingRequestMonitor(fSession.getExecutor(), rm);
+		int count = 0;
+		for (Map.Entry<MIRootVariableObject, List<MIVarChange>> entry : changesByRoot.entrySet()) {
+			MIRootVariableObject root = entry.getKey();
+			List<MIVarChange> rootChanges = entry.getValue();
+			if (root.isOutOfScope()) {
+				continue;
+			}
+			if (isRootOutOfScope(root, rootChanges)) {
+				// Object is out-of-scope, see MIRootVariableObject.updateRoot()
+				root.setOutOfDate(false);
+				root.outOfScope = true;
+				lruVariableList.remove(root.getInternalId());
+				continue;
+			}
+
+			root.processChanges(rootChanges.toArray(new MIVarChange[rootChanges.size()]), countingRm);
+			count++;
+
+			if (upToDate && root.getOutOfDate()) {
+				root.setOutOfDate(false);
+				rootVariableUpdated(root);
+			}
+		}
+		countingRm.setDoneCount(count);
+	}
+
+	private static boolean isRootOutOfScope(MIRootVariableObject root, List<MIVarChange> rootChanges) {
+		for (MIVarChange change : rootChanges) {
+			if (change.getVarName().equals(root.getGdbName())) {
+				return !change.isInScope();
+			}
+		}
+		return false;
+	}
 	
     /**
      * @since 3.0
@@ -3007,7 +3292,8 @@ public class MIVariableManager implements ICommandControl {
     				new DataRequestMonitor<MIVariableObject>(fSession.getExecutor(), drm) {
     					@Override
     					protected void handleSuccess() {
-    						getData().getChildren(exprCtx, ((ExprMetaGetChildren)command).getNumChildLimit(),
+    						getData().getChildren(exprCtx, ((ExprMetaGetChildren)command).getStartIndex(),
+    								((ExprMetaGetChildren)command).getNumChildLimit(),
     								new DataRequestMonitor<ChildrenInfo>(fSession.getExecutor(), drm) {
     									@Override
     									protected void handleSuccess() {
@@ -3107,6 +3393,7 @@ public class MIVariableManager implements ICommandControl {
      * @since 1.1
      */
     public void markAllOutOfDate() {
+    	fOutOfDateCount++;
     	MIRootVariableObject root;
     	while ((root = updatedRootList.poll()) != null) {
     		root.setOutOfDate(true);
@@ -3121,6 +3408,7 @@ public class MIVariableManager implements ICommandControl {
     	// a list of all roots that have been updated, so we only have to
     	// set those to needing to be updated.
     	markAllOutOfDate();
+    	lruVariableList.startGeneration();
     }
     
     @DsfServiceEventHandler 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 Wind River Systems and others.
+ * Copyright (c) 2006, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,9 +25,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -125,6 +127,49 @@ public abstract class AbstractMIControl extends AbstractDsfService
     
     private final List<CommandHandle> fCommandQueue = new ArrayList<CommandHandle>();
 
+    /**
+     * Maximum number of commands that are handed to the TX thread without waiting for
+     * results, or zero if commands are not pipelined.
+     */
+    private int fCommandPipelineDepth = 0;
+
+    /**
+     * Queries which have been queued since the last command with potential side effects,
+     * and that have not been completed yet. Identical queries are answered together.
+     */
+    private final Map<QueryKey, CommandHandle> fPendingQueries = new HashMap<QueryKey, CommandHandle>();
+
+    /**
+     * Operations of commands without side effects, such that identical commands can be
+     * answered with the same result.
+     */
+    private static final Set<String> COALESCABLE_OPERATIONS = new HashSet<String>(Arrays.asList(
+    		"-stack-info-depth", //$NON-NLS-1$
+    		"-stack-info-frame", //$NON-NLS-1$
+    		"-stack-list-frames", //$NON-NLS-1$
+    		"-stack-list-arguments", //$NON-NLS-1$
+    		"-stack-list-locals", //$NON-NLS-1$
+    		"-stack-list-variables", //$NON-NLS-1$
+    		"-thread-info", //$NON-NLS-1$
+    		"-thread-list-ids", //$NON-NLS-1$
+    		"-list-thread-groups", //$NON-NLS-1$
+    		"-data-list-register-names", //$NON-NLS-1$
+    		"-data-list-register-values", //$NON-NLS-1$
+    		"-data-read-memory", //$NON-NLS-1$
+    		"-data-read-memory-bytes", //$NON-NLS-1$
+    		"-data-disassemble", //$NON-NLS-1$
+    		"-var-info-num-children", //$NON-NLS-1$
+    		"-var-info-type", //$NON-NLS-1$
+    		"-var-info-expression", //$NON-NLS-1$
+    		"-var-info-path-expression", //$NON-NLS-1$
+    		"-var-show-attributes", //$NON-NLS-1$
+    		"-var-show-format", //$NON-NLS-1$
+    		"-var-evaluate-expression", //$NON-NLS-1$
+    		"-break-list", //$NON-NLS-1$
+    		"-trace-status")); //$NON-NLS-1$
+
+    private final MICommandStatistics fStatistics = new MICommandStatistics();
+
     /**
      * Flag indicating that the command control has stopped processing commands.
      */
@@ -204,6 +249,51 @@ public abstract class AbstractMIControl extends AbstractDsfService
     	}
     }
     
+    /**
+     * Enables or disables pipelining of commands. When enabled, up to the given number of
+     * commands is sent to the back end without waiting for results, queued commands are
+     * written to the back end in batches, and identical queries that are waiting for their
+     * result are sent only once. Pipelining is only used when the --thread/--frame options
+     * are supported, such that the commands do not depend on the currently selected thread
+     * and frame of the back end.
+     * 
+     * @param depth the maximum number of commands on the wire, or zero to disable pipelining.
+     * @since 5.4
+     */
+    protected void setCommandPipelineDepth(int depth) {
+    	fCommandPipelineDepth = Math.max(0, depth);
+    }
+
+    private boolean isPipelining() {
+    	return fCommandPipelineDepth > 0 && fUseThreadAndFrameOptions;
+    }
+
+    /**
+     * Returns the number of commands that are waiting to be written to the back end
+     * or that are waiting for their result.
+     */
+    private int getOutstandingCommandCount() {
+    	return fRxCommands.size() + fTxCommands.size();
+    }
+
+    /**
+     * Returns the statistics of the commands processed by this service.
+     * @since 5.4
+     */
+    public MICommandStatistics getCommandStatistics() {
+    	return fStatistics;
+    }
+
+    /**
+     * Returns whether the command is a query without side effects on the back end, such that
+     * it can be answered with the result of an identical query that is sent or queued.
+     * 
+     * @since 5.4
+     */
+    protected boolean isCoalescable(MICommand<?> command) {
+    	return !(command instanceof RawCommand) && COALESCABLE_OPERATIONS.contains(command.getOperation());
+    }
+
     /**
      * @since 3.0
      */
@@ -270,6 +360,18 @@ public abstract class AbstractMIControl extends AbstractDsfService
         if (fStoppedCommandProcessing) return;
         fStoppedCommandProcessing = true;
         
+        /*
+         *  Commands answered together with an identical command are not in any of the queues.
+         */
+        for (CommandHandle commandHandle : fPendingQueries.values()) {
+        	for (CommandHandle follower : commandHandle.fFollowers) {
+                follower.getRequestMonitor().setStatus(genStatus("Connection is shut down")); //$NON-NLS-1$
+                follower.getRequestMonitor().done();
+        	}
+        	commandHandle.fFollowers.clear();
+        }
+        fPendingQueries.clear();
+
     	/*
     	 *  First go through the commands which have been queueud and not yet sent to the backend.
     	 */
@@ -339,6 +441,8 @@ public abstract class AbstractMIControl extends AbstractDsfService
         if (fStoppedCommandProcessing) {
             rm.setStatus(genStatus("Connection is shut down")); //$NON-NLS-1$
             rm.done();
+        } else if (coalesceQuery(handle)) {
+            processCommandQueued(handle);
         } else {
         	/*
         	 *  We only allow three outstanding commands to be on the wire to the backend
@@ -348,8 +452,10 @@ public abstract class AbstractMIControl extends AbstractDsfService
         	 */
         	fCommandQueue.add(handle);
             processCommandQueued(handle);
+            fStatistics.recordQueueDepth(fCommandQueue.size() + getOutstandingCommandCount());
             
-            if (fRxCommands.size() < NUMBER_CONCURRENT_COMMANDS) {
+            if (isPipelining() ? getOutstandingCommandCount() < fCommandPipelineDepth
+            		           : fRxCommands.size() < NUMBER_CONCURRENT_COMMANDS) {
                 // In a separate dispatch cycle.  This allows command listeners 
             	// to respond to the command queued event.  
                 getExecutor().execute(new DsfRunnable() {
@@ -364,6 +470,56 @@ public abstract class AbstractMIControl extends AbstractDsfService
         return handle;
     }
 
+    /**
+     * If pipelining is enabled and an identical query is waiting for its result, the handle is
+     * attached to it and completed together with it.
+     * @return whether the command was attached to an identical one.
+     */
+    private boolean coalesceQuery(CommandHandle handle) {
+    	if (!isPipelining())
+    		return false;
+
+    	if (!isCoalescable(handle.getCommand())) {
+    		// The command may change the result of the queries queued before it.
+    		fPendingQueries.clear();
+    		return false;
+    	}
+    	if (handle.getRequestMonitor() == null)
+    		return false;
+
+    	handle.fQueryKey = new QueryKey(handle.getCommand());
+    	CommandHandle pending = fPendingQueries.get(handle.fQueryKey);
+    	if (pending == null) {
+    		fPendingQueries.put(handle.fQueryKey, handle);
+    		return false;
+    	}
+    	pending.fFollowers.add(handle);
+    	fStatistics.recordCoalesced();
+    	return true;
+    }
+
+    /**
+     * Completes the commands that were answered together with the given one.
+     */
+    private void completeFollowers(CommandHandle commandHandle, ICommandResult result) {
+    	if (commandHandle.fQueryKey != null && fPendingQueries.get(commandHandle.fQueryKey) == commandHandle) {
+    		fPendingQueries.remove(commandHandle.fQueryKey);
+    	}
+    	if (commandHandle.fFollowers.isEmpty())
+    		return;
+
+    	final IStatus status = commandHandle.getRequestMonitor().getStatus();
+    	for (CommandHandle follower : commandHandle.fFollowers) {
+    		follower.getRequestMonitor().setData(commandHandle.getRequestMonitor().getData());
+    		if (!status.isOK()) {
+    			follower.getRequestMonitor().setStatus(status);
+    		}
+    		follower.getRequestMonitor().done();
+    		processCommandDone(follower, result);
+    	}
+    	commandHandle.fFollowers.clear();
+    }
+
     private void processNextQueuedCommand() {
 		if (!fCommandQueue.isEmpty()) {
 			final CommandHandle handle = fCommandQueue.remove(0);
@@ -417,6 +573,11 @@ public abstract class AbstractMIControl extends AbstractDsfService
 		    	fTxCommands.add(handle);
 			}
 		}
+		
+		if (isPipelining() && !fCommandQueue.isEmpty() && getOutstandingCommandCount() < fCommandPipelineDepth) {
+			// Hand off the next command right away, the TX thread writes them together.
+			processNextQueuedCommand();
+		}
     }
 
     /*
@@ -432,11 +593,31 @@ public abstract class AbstractMIControl extends AbstractDsfService
     	
     	synchronized(fCommandQueue) {
     		
-    		for ( CommandHandle handle : fCommandQueue ) {
+    		for ( int i = 0; i < fCommandQueue.size(); i++ ) {
+    			CommandHandle handle = fCommandQueue.get(i);
+    			CommandHandle removed = null;
     			if ( handle.equals(token)) {
-    				fCommandQueue.remove(handle);
+    				fCommandQueue.remove(i);
+    				removed = handle;
     				
-    				final CommandHandle finalHandle = handle;
+    				if (!handle.fFollowers.isEmpty()) {
+    					// The first of the identical commands takes the place of the removed one. 
+    					CommandHandle follower = handle.fFollowers.remove(0);
+    					follower.fFollowers.addAll(handle.fFollowers);
+    					handle.fFollowers.clear();
+    					fCommandQueue.add(i, follower);
+    					if (fPendingQueries.get(handle.fQueryKey) == handle) {
+    						fPendingQueries.put(handle.fQueryKey, follower);
+    					}
+    				} else if (handle.fQueryKey != null && fPendingQueries.get(handle.fQueryKey) == handle) {
+    					fPendingQueries.remove(handle.fQueryKey);
+    				}
+    			} else if (handle.fFollowers.remove(token)) {
+    				removed = (CommandHandle) token;
+    			}
+    			
+    			if (removed != null) {
+    				final CommandHandle finalHandle = removed;
                     getExecutor().execute(new DsfRunnable() {
                     	@Override
                         public void run() {
@@ -548,6 +729,36 @@ public abstract class AbstractMIControl extends AbstractDsfService
 		return count;
 	}
 	
+	/*
+	 *  Identifies the queries that can be answered with the same result: the class and the
+	 *  parameters used to parse the result must match in addition to the command string and
+	 *  the context compared by MICommand.equals().
+	 */
+    private static final class QueryKey {
+    	private final MICommand<MIInfo> fCommand;
+    	private final Object[] fResultParameters;
+
+    	QueryKey(MICommand<MIInfo> command) {
+    		fCommand = command;
+    		fResultParameters = command.getResultParameters();
+    	}
+
+    	@Override
+    	public boolean equals(Object obj) {
+    		if (!(obj instanceof QueryKey))
+    			return false;
+    		QueryKey other = (QueryKey) obj;
+    		return fCommand.getClass() == other.fCommand.getClass()
+    				&& Arrays.equals(fResultParameters, other.fResultParameters)
+    				&& fCommand.equals(other.fCommand);
+    	}
+
+    	@Override
+    	public int hashCode() {
+    		return fCommand.hashCode() * 31 + fCommand.getClass().hashCode();
+    	}
+    }
+
 	/*
 	 *  Support class which creates a convenient wrapper for holding all information about an
 	 *  individual request.
@@ -558,6 +769,12 @@ public abstract class AbstractMIControl extends AbstractDsfService
         private MICommand<MIInfo> fCommand;
         private DataRequestMonitor<MIInfo> fRequestMonitor;
         private int fTokenId ;
+        // Time at which the command was handed to the back end.
+        private long fSentTime;
+        // Identical commands that are completed with the result of this one.
+        private final List<CommandHandle> fFollowers = new ArrayList<CommandHandle>(0);
+        // Identifies the identical commands, set when the command is considered for coalescing.
+        private QueryKey fQueryKey;
         
         CommandHandle(MICommand<MIInfo> c, DataRequestMonitor<MIInfo> d) {
             fCommand = c; 
@@ -620,6 +837,8 @@ public abstract class AbstractMIControl extends AbstractDsfService
 
         @Override
         public void run () {
+            // Number of commands written since the stream was last flushed.
+            int unflushed = 0;
             while (true) {
                 CommandHandle commandHandle = null;
                 
@@ -636,6 +855,10 @@ public abstract class AbstractMIControl extends AbstractDsfService
                     	// We do this to avoid synchronizing the handling of fRxCommands
                     	// because this is more efficient, as it happens only once at shutdown.
                     	cancelRxCommands();
+                    	try {
+                    		if (fOutputStream != null && unflushed > 0) fOutputStream.flush();
+                    	} catch (IOException e) {
+                    	}
                         break; // Null command is an indicator that we're shutting down. 
                     }
                     
@@ -644,6 +867,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
                      */
                     if (!(commandHandle.getCommand() instanceof RawCommand)) {
                     	// RawCommands will not get an answer, so we cannot put them in the receive queue.
+                    	commandHandle.fSentTime = System.nanoTime();
                     	fRxCommands.put(commandHandle.getTokenId(), commandHandle);
                     }
                 
@@ -691,7 +915,14 @@ public abstract class AbstractMIControl extends AbstractDsfService
                         }
 
                         fOutputStream.write(str.getBytes());
-                        fOutputStream.flush();
+                        unflushed++;
+                        // Commands that are already queued are written together, GDB
+                        // processes them one after the other.
+                        if (fTxCommands.isEmpty()) {
+                        	fOutputStream.flush();
+                        	fStatistics.recordWrite(unflushed);
+                        	unflushed = 0;
+                        }
                     }
                 } catch (IOException e) {
                     // Shutdown thread in case of IO error.
@@ -917,6 +1148,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
                 final CommandHandle commandHandle = fRxCommands.remove(id);
 
                 if (commandHandle != null) {
+                    fStatistics.recordLatency(System.nanoTime() - commandHandle.fSentTime);
                     final MIOutput response = new MIOutput(
                         rr, fAccumulatedOOBRecords.toArray(new MIOOBRecord[fAccumulatedOOBRecords.size()]) );
                     fAccumulatedOOBRecords.clear();
@@ -962,6 +1194,11 @@ public abstract class AbstractMIControl extends AbstractDsfService
 	                             *  Now tell the generic listeners about it.
 	                             */
 	                            processCommandDone(commandHandle, finalResult);
+	                            
+	                            /*
+	                             *  Complete the identical commands which were waiting for this one.
+	                             */
+	                            completeFollowers(commandHandle, finalResult);
 	                        }
 	                        @Override
                             public String toString() {
@@ -1167,6 +1404,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
              *  Now tell the generic listeners about it.
              */
             processCommandDone(commandHandle, info);
+            completeFollowers(commandHandle, info);
 		}
     }
 }
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ericsson - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service.command;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters describing the traffic between an MI command control and the back end.
+ * Latencies and queue depths are collected in histograms with buckets of exponentially
+ * growing size: bucket 0 counts the value 0 and bucket <code>i</code> counts the values
+ * in the range <code>[2^(i-1), 2^i)</code>. The last bucket also counts all larger values.
+ * <p>
+ * The statistics can be updated and read from any thread.
+ *
+ * @since 5.4
+ */
+public final class MICommandStatistics {
+	/** Number of buckets of the histograms. */
+	public static final int BUCKET_COUNT = 26;
+
+	private final AtomicLongArray fLatencyHistogram = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLongArray fQueueDepthHistogram = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong fCommandsSent = new AtomicLong();
+	private final AtomicLong fCommandsCoalesced = new AtomicLong();
+	private final AtomicLong fWrites = new AtomicLong();
+	private volatile int fMaxQueueDepth;
+
+	static int getBucket(long value) {
+		if (value <= 0)
+			return 0;
+		return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	/**
+	 * Returns the smallest value counted by the given bucket.
+	 */
+	public static long getBucketLowerBound(int bucket) {
+		return bucket == 0 ? 0 : 1L << (bucket - 1);
+	}
+
+	void recordLatency(long nanos) {
+		fLatencyHistogram.incrementAndGet(getBucket(nanos / 1000));
+	}
+
+	void recordQueueDepth(int depth) {
+		fQueueDepthHistogram.incrementAndGet(getBucket(depth));
+		if (depth > fMaxQueueDepth) {
+			fMaxQueueDepth = depth;
+		}
+	}
+
+	void recordWrite(int commandCount) {
+		fWrites.incrementAndGet();
+		fCommandsSent.addAndGet(commandCount);
+	}
+
+	void recordCoalesced() {
+		fCommandsCoalesced.incrementAndGet();
+	}
+
+	/**
+	 * Returns the histogram of the times between sending a command to the back end and
+	 * receiving its result, in microseconds.
+	 */
+	public long[] getLatencyHistogram() {
+		return toArray(fLatencyHistogram);
+	}
+
+	/**
+	 * Returns the histogram of the number of commands waiting to be sent or waiting for their
+	 * result, sampled whenever a command is queued.
+	 */
+	public long[] getQueueDepthHistogram() {
+		return toArray(fQueueDepthHistogram);
+	}
+
+	/**
+	 * Returns the largest number of commands that were waiting to be sent or waiting for their
+	 * result at the same time.
+	 */
+	public int getMaxQueueDepth() {
+		return fMaxQueueDepth;
+	}
+
+	/**
+	 * Returns the number of commands sent to the back end.
+	 */
+	public long getCommandsSent() {
+		return fCommandsSent.get();
+	}
+
+	/**
+	 * Returns the number of writes to the back end, a write can contain multiple commands.
+	 */
+	public long getWrites() {
+		return fWrites.get();
+	}
+
+	/**
+	 * Returns the number of commands that were not sent to the back end, because they were
+	 * answered with the result of an identical command.
+	 */
+	public long getCommandsCoalesced() {
+		return fCommandsCoalesced.get();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			fLatencyHistogram.set(i, 0);
+			fQueueDepthHistogram.set(i, 0);
+		}
+		fCommandsSent.set(0);
+		fCommandsCoalesced.set(0);
+		fWrites.set(0);
+		fMaxQueueDepth = 0;
+	}
+
+	private static long[] toArray(AtomicLongArray histogram) {
+		long[] result = new long[histogram.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("sent=").append(getCommandsSent()) //$NON-NLS-1$
+			   .append(" writes=").append(getWrites()) //$NON-NLS-1$
+			   .append(" coalesced=").append(getCommandsCoalesced()) //$NON-NLS-1$
+			   .append(" maxQueueDepth=").append(getMaxQueueDepth()); //$NON-NLS-1$
+		appendHistogram(builder, " latency[us]=", getLatencyHistogram()); //$NON-NLS-1$
+		appendHistogram(builder, " queueDepth=", getQueueDepthHistogram()); //$NON-NLS-1$
+		return builder.toString();
+	}
+
+	private static void appendHistogram(StringBuilder builder, String name, long[] histogram) {
+		builder.append(name).append('{');
+		boolean first = true;
+		for (int i = 0; i < histogram.length; i++) {
+			if (histogram[i] != 0) {
+				if (!first) {
+					builder.append(", "); //$NON-NLS-1$
+				}
+				first = false;
+				builder.append(">=").append(getBucketLowerBound(i)).append(':').append(histogram[i]); //$NON-NLS-1$
+			}
+		}
+		builder.append('}');
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Ericsson and others.
+ * Copyright (c) 2007, 2017 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import org.eclipse.cdt.dsf.mi.service.command.output.ExprMetaGetChildrenInfo;
 
 public class ExprMetaGetChildren extends ExprMetaCommand<ExprMetaGetChildrenInfo> {
 
+	private int startIndex = 0;
 	private int numChildLimit = IMIExpressions.CHILD_COUNT_LIMIT_UNSPECIFIED;
 	
 	public ExprMetaGetChildren(IExpressionDMContext ctx) {
@@ -34,6 +35,24 @@ public class ExprMetaGetChildren extends ExprMetaCommand<ExprMetaGetChildrenInfo
 		this.numChildLimit = numChildLimit;
 	}
 	
+	/**
+	 * Requests only the children from <code>startIndex</code> up to
+	 * <code>numChildLimit</code>.  The result contains the children starting
+	 * at <code>startIndex</code>, for arrays the children outside of the
+	 * range are not created.
+	 * 
+	 * @param ctx
+	 * @param startIndex
+	 * @param numChildLimit
+	 * 
+	 * @since 5.4
+	 */
+	public ExprMetaGetChildren(IExpressionDMContext ctx, int startIndex, int numChildLimit) {
+		super(ctx);
+		this.startIndex = startIndex;
+		this.numChildLimit = numChildLimit;
+	}
+	
 	/**
 	 * @since 4.0
 	 */
@@ -41,10 +60,18 @@ public class ExprMetaGetChildren extends ExprMetaCommand<ExprMetaGetChildrenInfo
 		return numChildLimit;
 	}
 
+	/**
+	 * @since 5.4
+	 */
+	public int getStartIndex() {
+		return startIndex;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = super.hashCode();
+		result = prime * result + startIndex;
 		result = prime * result + numChildLimit;
 		return result;
 	}
@@ -56,6 +83,8 @@ public class ExprMetaGetChildren extends ExprMetaCommand<ExprMetaGetChildrenInfo
 		if (!super.equals(obj))
 			return false;
 		ExprMetaGetChildren other = (ExprMetaGetChildren) obj;
+		if (startIndex != other.startIndex)
+			return false;
 		if (numChildLimit != other.numChildLimit)
 			return false;
 		return true;
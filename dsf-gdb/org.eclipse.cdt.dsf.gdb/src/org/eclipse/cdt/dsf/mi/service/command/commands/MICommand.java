@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 QNX Software Systems and others.
+ * Copyright (c) 2000, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -211,6 +211,17 @@ public class MICommand<V extends MIInfo> implements ICommand<V> {
         return new MIInfo(MIresult);
     }
 
+    /**
+     * Returns the values, other than the command string, that {@link #getResult(MIOutput)}
+     * uses to interpret the output of the command. Two commands of the same class and with
+     * the same command string produce the same result only if these values are equal, too.
+     *
+     * @since 5.4
+     */
+    public Object[] getResultParameters() {
+        return new Object[0];
+    }
+
     protected String optionsToString() {
 		StringBuilder sb = new StringBuilder();
 		if (fOptions != null && !fOptions.isEmpty()) {
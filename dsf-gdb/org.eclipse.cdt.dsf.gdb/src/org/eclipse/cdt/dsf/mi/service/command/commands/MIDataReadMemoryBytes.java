@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2014 CodeSourcery and others.
+ * Copyright (c) 2010, 2017 CodeSourcery and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -70,4 +70,13 @@ public class MIDataReadMemoryBytes extends MICommand<MIDataReadMemoryBytesInfo>
 	public MIDataReadMemoryBytesInfo getResult(MIOutput out) {
 		return new MIDataReadMemoryBytesInfo(out, fCount, fword_size);
 	}
+
+	/**
+	 * @since 5.4
+	 */
+	@Override
+	public Object[] getResultParameters() {
+		// The word size is not part of the command string.
+		return new Object[] { fCount, fword_size };
+	}
 }
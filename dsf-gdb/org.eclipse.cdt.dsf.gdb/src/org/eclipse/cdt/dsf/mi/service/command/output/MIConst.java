@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 QNX Software Systems and others.
+ * Copyright (c) 2000, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,19 +15,69 @@
 
 package org.eclipse.cdt.dsf.mi.service.command.output;
 
+import java.nio.CharBuffer;
+
 /**
  * GDB/MI const value represents a ios-c string.
  */
 public class MIConst extends MIValue {
     
-    private String cstring = ""; //$NON-NLS-1$
-    
+    // The output of GDB may be read by several threads, the string is created by the first
+    // one that needs it. The string is published before the source is cleared.
+    private volatile String cstring = ""; //$NON-NLS-1$
+
+    // Region of the parsed line holding the value, used to create the string on demand.
+    private volatile String source;
+    private int start;
+    private int end;
+
+    public MIConst() {
+    }
+
+    /**
+     * Creates a constant for a region of a line that does not need to be translated.
+     */
+    MIConst(String source, int start, int end) {
+        this.cstring = null;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
     public String getCString() {
-        return cstring;
+        String str = cstring;
+        if (str == null) {
+            String src = source;
+            if (src == null) {
+                // Created by another thread in the meantime
+                return cstring;
+            }
+            str = src.substring(start, end);
+            cstring = str;
+            // The string is materialized, don't keep the whole line alive.
+            source = null;
+        }
+        return str;
     }
     
     public void setCString(String str) {
         cstring = str;
+        source = null;
+    }
+
+    /**
+     * Returns the characters of the value without creating a string for it.
+     */
+    CharSequence getCharSequence() {
+        String str = cstring;
+        if (str == null) {
+            String src = source;
+            if (src != null) {
+                return CharBuffer.wrap(src, start, end);
+            }
+            return cstring;
+        }
+        return str;
     }
     
     /**
@@ -35,7 +85,7 @@ public class MIConst extends MIValue {
      * @return The translated string.
      */
     public String getString() {
-        return MIStringHandler.translateCString(cstring, true);
+        return MIStringHandler.translateCString(getCString(), true);
     }
     
     public static String getString(String str) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2014 CodeSourcery and others.
+ * Copyright (c) 2010, 2017 CodeSourcery and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -72,7 +72,7 @@ public class MIDataReadMemoryBytesInfo extends MIInfo {
 					for (int j = 0; j < v.getMIValues().length; ++j) {
 						MITuple b = (MITuple) (v.getMIValues()[j]);
 						int offset = 0;
-						String contents = ""; //$NON-NLS-1$
+						CharSequence contents = ""; //$NON-NLS-1$
 						for (int k = 0; k < b.getMIResults().length; ++k) {
 							MIResult r = b.getMIResults()[k];
 							if (r.getVariable().equals("offset")) //$NON-NLS-1$
@@ -82,16 +82,16 @@ public class MIDataReadMemoryBytesInfo extends MIInfo {
 								offset = Integer.decode(offset_s);
 							} else if (r.getVariable().equals("contents")) //$NON-NLS-1$
 							{
-								contents = ((MIConst) r.getMIValue()).getCString();
+								// Decode the hex digits without creating a string for them
+								contents = ((MIConst) r.getMIValue()).getCharSequence();
 							}
 						}
 
 						if (offset*word_size + contents.length()/2 <= count*word_size)
 							for (int k = 0; k < contents.length() / 2; ++k) {
 								fBlock[offset*word_size + k] = new MemoryByte(
-										(byte) Integer.parseInt(
-												contents.substring(k * 2, k * 2 + 2),
-												16));
+										(byte) ((hexDigit(contents.charAt(k * 2)) << 4)
+												| hexDigit(contents.charAt(k * 2 + 1))));
 							}
 					}
 				}
@@ -103,4 +103,11 @@ public class MIDataReadMemoryBytesInfo extends MIInfo {
 		}
 	}
 
+	private static int hexDigit(char c) {
+		int digit = Character.digit(c, 16);
+		if (digit < 0) {
+			throw new NumberFormatException(String.valueOf(c));
+		}
+		return digit;
+	}
 }
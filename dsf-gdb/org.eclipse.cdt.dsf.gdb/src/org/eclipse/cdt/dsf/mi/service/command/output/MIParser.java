@@ -98,6 +98,14 @@ public class MIParser {
     public String cliPrompt = primaryPrompt;
     public String secondaryPrompt = ">"; //$NON-NLS-1$
 
+    private static final String[] RESULT_CLASSES = {
+    	MIResultRecord.DONE,
+    	MIResultRecord.ERROR,
+    	MIResultRecord.EXIT,
+    	MIResultRecord.RUNNING,
+    	MIResultRecord.CONNECTED,
+    };
+
     public RecordType getRecordType(String line) {
         int i = 0;
         if (Character.isDigit(line.charAt(0))) {
@@ -121,37 +129,31 @@ public class MIParser {
      * 
      */
     public MIResultRecord parseMIResultRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
+        Cursor cursor = new Cursor(line);
         // Fetch the Token/Id
-        int id = parseToken(buffer);
+        int id = parseToken(cursor);
         // Consume the '^'
-        buffer.deleteCharAt(0);
+        cursor.pos++;
         
         MIResultRecord rr = new MIResultRecord();
         rr.setToken(id);
-        if (buffer.toString().startsWith(MIResultRecord.DONE)) {
-            rr.setResultClass(MIResultRecord.DONE);
-            buffer.delete(0, MIResultRecord.DONE.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.ERROR)) {
-            rr.setResultClass(MIResultRecord.ERROR);
-            buffer.delete(0, MIResultRecord.ERROR.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.EXIT)) {
-            rr.setResultClass(MIResultRecord.EXIT);
-            buffer.delete(0, MIResultRecord.EXIT.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.RUNNING)) {
-            rr.setResultClass(MIResultRecord.RUNNING);
-            buffer.delete(0, MIResultRecord.RUNNING.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.CONNECTED)) {
-            rr.setResultClass(MIResultRecord.CONNECTED);
-            buffer.delete(0, MIResultRecord.CONNECTED.length());
+        String resultClass = null;
+        for (String rc : RESULT_CLASSES) {
+            if (line.startsWith(rc, cursor.pos)) {
+                resultClass = rc;
+                break;
+            }
+        }
+        if (resultClass != null) {
+            rr.setResultClass(resultClass);
+            cursor.pos += resultClass.length();
         } else {
             // Error throw an exception?
         }
 
         // Results are separated by commas.
-        if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-            buffer.deleteCharAt(0);
-            MIResult[] res = processMIResults(new FSB(buffer));
+        if (cursor.consume(',')) {
+            MIResult[] res = processMIResults(cursor);
             rr.setMIResults(res);
         }
         return rr;
@@ -161,13 +163,13 @@ public class MIParser {
      * Find OutOfBand Records depending on the starting token.
      */
     public MIOOBRecord parseMIOOBRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
-        int id = parseToken(buffer);
+        Cursor cursor = new Cursor(line);
+        int id = parseToken(cursor);
         MIOOBRecord oob = null;
-        char c = buffer.length() != 0 ? buffer.charAt(0) : 0;
+        char c = cursor.hasNext() ? cursor.peek() : 0;
         if (c == '*' || c == '+' || c == '=') {
             // Consume the first char
-            buffer.deleteCharAt(0);
+            cursor.pos++;
             MIAsyncRecord async = null;
             switch (c) {
                 case '*' :
@@ -187,22 +189,22 @@ public class MIParser {
             }
             async.setToken(id);
             // Extract the Async-Class
-            int i = buffer.toString().indexOf(',');
+            int i = line.indexOf(',', cursor.pos);
             if (i != -1) {
-                String asyncClass = buffer.substring(0, i);
+                String asyncClass = line.substring(cursor.pos, i);
                 async.setAsyncClass(asyncClass);
                 // Consume the async-class and the comma
-                buffer.delete(0, i + 1);
+                cursor.pos = i + 1;
             } else {
-                async.setAsyncClass(buffer.toString().trim());
-                buffer.setLength(0);
+                async.setAsyncClass(line.substring(cursor.pos).trim());
+                cursor.pos = cursor.end;
             }
-            MIResult[] res = processMIResults(new FSB(buffer));
+            MIResult[] res = processMIResults(cursor);
             async.setMIResults(res);
             oob = async;
         } else if (c == '~' || c == '@' || c == '&') {
             // Consume the first char
-            buffer.deleteCharAt(0);
+            cursor.pos++;
             MIStreamRecord stream = null;
             switch (c) {
                 case '~' :
@@ -220,13 +222,11 @@ public class MIParser {
                 	assert false;
                 	stream = new MIConsoleStreamOutput();
             }
-            // translateCString() assumes that the leading " is deleted
-            if (buffer.length() > 0 && buffer.charAt(0) == '"') {
-                buffer.deleteCharAt(0);
-            }
+            // translateCString() assumes that the leading " is consumed
+            cursor.consume('"');
             // Don't parse any backslashes - backslashes within stream records
             // aren't escaped.
-            stream.setCString(translateCString(new FSB(buffer), false));
+            stream.setCString(translateCString(cursor, false));
             oob = stream;
         } else {
             // Badly format MI line, just pass it to the user as target stream
@@ -237,21 +237,18 @@ public class MIParser {
         return oob;
     }
     
-    private int parseToken(StringBuffer buffer) {
+    private int parseToken(Cursor cursor) {
         int id = -1;
         // Fetch the Token/Id
-        if (Character.isDigit(buffer.charAt(0))) {
-            int i = 1;
-            while (i < buffer.length() && Character.isDigit(buffer.charAt(i))) {
-                i++;
-            }
-            String numbers = buffer.substring(0, i);
+        int start = cursor.pos;
+        while (cursor.hasNext() && Character.isDigit(cursor.peek())) {
+            cursor.pos++;
+        }
+        if (cursor.pos > start) {
             try {
-                id = Integer.parseInt(numbers);
+                id = Integer.parseInt(cursor.line.substring(start, cursor.pos));
             } catch (NumberFormatException e) {
             }
-            // Consume the token.
-            buffer.delete(0, i);
         }
         return id;
     }
@@ -260,15 +257,14 @@ public class MIParser {
      * Assuming that the usual leading comma was consumed.
      * Extract the MI Result comma seperated responses.
      */
-    private MIResult[] processMIResults(FSB buffer) {
+    private MIResult[] processMIResults(Cursor cursor) {
         List<MIResult> aList = new ArrayList<MIResult>();
-        MIResult result = processMIResult(buffer);
+        MIResult result = processMIResult(cursor);
         if (result != null) {
             aList.add(result);
         }
-        while (buffer.length() > 0 && buffer.charAt(0) == ',') {
-            buffer.deleteCharAt(0);
-            result = processMIResult(buffer);
+        while (cursor.consume(',')) {
+            result = processMIResult(cursor);
             if (result != null) {
                 aList.add(result);
             }
@@ -277,28 +273,28 @@ public class MIParser {
     }
 
     /**
-     * Construct the DsfMIResult.  Characters will be consume/delete
+     * Construct the DsfMIResult.  Characters will be consumed
      * moving forward constructing the AST.
      */
-    private MIResult processMIResult(FSB buffer) {
+    private MIResult processMIResult(Cursor cursor) {
         MIResult result = new MIResult();
         int equal;
-        if (buffer.length() > 0 && Character.isLetter(buffer.charAt(0)) && (equal = buffer.indexOf('=')) != -1) {
+        if (cursor.hasNext() && Character.isLetter(cursor.peek()) && (equal = cursor.line.indexOf('=', cursor.pos)) != -1) {
             // Result is a variable and value
-            String variable = buffer.substring(0, equal);
+            String variable = cursor.line.substring(cursor.pos, equal);
             result.setVariable(variable);
-            buffer.delete(0, equal + 1);
-            MIValue value = processMIValue(buffer);
+            cursor.pos = equal + 1;
+            MIValue value = processMIValue(cursor);
             result.setMIValue(value);
         } else {
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue(cursor);
             if (value != null) {
                 // Result is a value only (bug 527419)
                 result.setMIValue(value);
             } else {
-                result.setVariable(buffer.toString());
+                result.setVariable(cursor.line.substring(cursor.pos));
                 result.setMIValue(new MIConst()); // Empty string:???
-                buffer.setLength(0);
+                cursor.pos = cursor.end;
             }
         }
         return result;
@@ -307,55 +303,58 @@ public class MIParser {
     /**
      * Find a DsfMIValue implementation or return null.
      */
-    private MIValue processMIValue(FSB buffer) {
+    private MIValue processMIValue(Cursor cursor) {
         MIValue value = null;
-        if (buffer.length() > 0) {
-            if (buffer.charAt(0) == '{') {
-                buffer.deleteCharAt(0);
-                value = processMITuple(buffer);
-            } else if (buffer.charAt(0) == '[') {
-                buffer.deleteCharAt(0);
-                value = processMIList(buffer);
-            } else if (buffer.charAt(0) == '"') {
-                buffer.deleteCharAt(0);
-                MIConst cnst = new MIConst();
-                // Parse backslashes - backslashes within result
-                // and out of band records are escaped.
-                cnst.setCString(translateCString(buffer, true));
-                value = cnst;
+        if (cursor.hasNext()) {
+            if (cursor.consume('{')) {
+                value = processMITuple(cursor);
+            } else if (cursor.consume('[')) {
+                value = processMIList(cursor);
+            } else if (cursor.consume('"')) {
+                int start = cursor.pos;
+                int end = findClosingQuote(cursor);
+                if (end != -1) {
+                    // Nothing to translate, the string is created when it is needed.
+                    // This avoids copying large values like memory contents that are
+                    // decoded without ever asking for the string.
+                    value = new MIConst(cursor.line, start, end);
+                    cursor.pos = end < cursor.end ? end + 1 : end;
+                } else {
+                    MIConst cnst = new MIConst();
+                    // Parse backslashes - backslashes within result
+                    // and out of band records are escaped.
+                    cnst.setCString(translateCString(cursor, true));
+                    value = cnst;
+                }
             }
         }
         return value;
     }
 
     /**
-     * Assuming the starting '{' was deleted form the StringBuffer,
-     * go to the closing '}' consuming/deleting all the characters.
+     * Assuming the starting '{' was consumed, go to the closing '}'
+     * consuming all the characters.
      * This is usually call by processMIvalue();
      */
-    private MIValue processMITuple(FSB buffer) {
+    private MIValue processMITuple(Cursor cursor) {
         MITuple tuple = new MITuple();
         List<MIValue> valueList = new ArrayList<MIValue>();
         List<MIResult> resultList = new ArrayList<MIResult>();
         // Catch closing '}'
-        while (buffer.length() > 0 && buffer.charAt(0) != '}') {
+        while (cursor.hasNext() && cursor.peek() != '}') {
             // Try for the DsfMIValue first
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue(cursor);
             if (value != null) {
                 valueList.add(value);
             } else {
-                MIResult result = processMIResult(buffer);
+                MIResult result = processMIResult(cursor);
                 if (result != null) {
                     resultList.add(result);
                 }
             }
-            if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-                buffer.deleteCharAt(0);
-            }
-        }
-        if (buffer.length() > 0 && buffer.charAt(0) == '}') {
-            buffer.deleteCharAt(0);
+            cursor.consume(',');
         }
+        cursor.consume('}');
         MIValue[] values = valueList.toArray(new MIValue[valueList.size()]);
         MIResult[] res = resultList.toArray(new MIResult[resultList.size()]);
         tuple.setMIValues(values);
@@ -364,32 +363,28 @@ public class MIParser {
     }
 
     /**
-     * Assuming the leading '[' was deleted, find the closing
-     * ']' consuming/delete chars from the StringBuffer.
+     * Assuming the leading '[' was consumed, find the closing
+     * ']' consuming the chars.
      */
-    private MIValue processMIList(FSB buffer) {
+    private MIValue processMIList(Cursor cursor) {
         MIList list = new MIList();
         List<MIValue> valueList = new ArrayList<MIValue>();
         List<MIResult> resultList = new ArrayList<MIResult>();
         // catch closing ']'
-        while (buffer.length() > 0 && buffer.charAt(0) != ']') {
+        while (cursor.hasNext() && cursor.peek() != ']') {
             // Try for the DsfMIValue first
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue(cursor);
             if (value != null) {
                 valueList.add(value);
             } else {
-                MIResult result = processMIResult(buffer);
+                MIResult result = processMIResult(cursor);
                 if (result != null) {
                     resultList.add(result);
                 }
             }
-            if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-                buffer.deleteCharAt(0);
-            }
-        }
-        if (buffer.length() > 0 && buffer.charAt(0) == ']') {
-            buffer.deleteCharAt(0);
+            cursor.consume(',');
         }
+        cursor.consume(']');
         MIValue[] values = valueList.toArray(new MIValue[valueList.size()]);
         MIResult[] res = resultList.toArray(new MIResult[resultList.size()]);
         list.setMIValues(values);
@@ -397,28 +392,56 @@ public class MIParser {
         return list;
     }
 
+    /**
+     * Assuming the starting double quote was consumed, returns the position of the
+     * closing double quote, or the end of the line if there is none. Returns -1 if
+     * a backslash is found before, in which case the string needs to be translated.
+     */
+    private int findClosingQuote(Cursor cursor) {
+        String line = cursor.line;
+        for (int index = cursor.pos; index < cursor.end; index++) {
+            char c = line.charAt(index);
+            if (c == '"') {
+                return index;
+            }
+            if (c == '\\') {
+                return -1;
+            }
+        }
+        return cursor.end;
+    }
+
     /**
      * MI C-String rather MIConst values are enclosed in double quotes
      * and any double quotes or backslashes in the string are escaped.
-     * Assuming the starting double quote was removed. This method will
+     * Assuming the starting double quote was consumed. This method will
      * stop at the closing double quote, remove the extra backslash escaping
      * and return the string __without__ the enclosing double quotes. The
-     * original string buffer will move forward.
-     * @param buffer The string buffer to read from.
+     * cursor will move forward.
+     * @param cursor The position in the line to read from.
      * @param parseBackslashes Defines whether backslashes should be parsed.
      * This parameter is necessary to differentiate between records which
      * contain escaped backslashes and records which do not.
      * @return The translated C string.
      */
-    private String translateCString(FSB buffer, boolean parseBackslashes) {
+    private String translateCString(Cursor cursor, boolean parseBackslashes) {
+        String line = cursor.line;
+        int start = cursor.pos;
+        int end = findClosingQuote(cursor);
+        if (end != -1) {
+            // No backslashes, nothing to translate.
+            cursor.pos = end < cursor.end ? end + 1 : end;
+            return line.substring(start, end);
+        }
+
         boolean escape = false;
         boolean closingQuotes = false;
 
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
 
-        int index = 0;
-        for (; index < buffer.length() && !closingQuotes; index++) {
-            char c = buffer.charAt(index);
+        int index = start;
+        for (; index < cursor.end && !closingQuotes; index++) {
+            char c = line.charAt(index);
             if (c == '\\') {
                 if (escape) {
                     sb.append(c);
@@ -445,7 +468,7 @@ public class MIParser {
                 escape = false;
             }
         }
-        buffer.delete(0, index);
+        cursor.pos = index;
         return sb.toString();
     }
 
@@ -472,6 +495,40 @@ public class MIParser {
         return true;
     }
 
+    /**
+     * Position in the line that is being parsed. The parser moves forward over
+     * the line without copying or modifying it.
+     */
+    private static class Cursor {
+        final String line;
+        final int end;
+        int pos;
+
+        Cursor(String line) {
+            this.line = line;
+            this.end = line.length();
+        }
+
+        boolean hasNext() {
+            return pos < end;
+        }
+
+        char peek() {
+            return line.charAt(pos);
+        }
+
+        /**
+         * Consumes the given character if it is the next one in the line.
+         */
+        boolean consume(char c) {
+            if (pos < end && line.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+    }
+
     /** 
      * Fast String Buffer class. MIParser does a lot
      * of deleting off the front of a string, that's clearly
@@ -480,7 +537,10 @@ public class MIParser {
      * with this for large arrays. Use of FSB rather than String
      * Buffer makes MIParser N rather than N^2 because FSB can 
      * delete from the front in constant time.
+     * 
+     * @deprecated MIParser no longer uses this class, it parses the line in place.
      */
+    @Deprecated
     public class FSB {
         StringBuffer buf;
         int pos;
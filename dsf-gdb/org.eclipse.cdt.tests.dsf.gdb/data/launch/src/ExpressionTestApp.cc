@@ -433,6 +433,16 @@ void testExistingChild() {
 	return;
 }
 
+int testUpdateAllRoots() {
+	int a = 1;
+	Z z;
+	z.x = 2;
+	z.y = 3;
+	/* testUpdateAllRoots_1 */
+	a = 10; z.x = 20;
+	return a + z.x + z.y;
+}
+
 int main() {
     printf("Running ExpressionTest App\n");
 
@@ -463,6 +473,7 @@ int main() {
     testCasting();
     testReturn();
     testExistingChild();
+    testUpdateAllRoots();
     
     // For bug 320277
     BaseTest b; b.test();
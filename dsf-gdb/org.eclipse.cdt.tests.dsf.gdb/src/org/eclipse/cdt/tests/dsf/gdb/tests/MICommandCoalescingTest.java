@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ericsson - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.gdb.IGdbDebugPreferenceConstants;
+import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
+import org.eclipse.cdt.dsf.gdb.service.command.IGDBControl;
+import org.eclipse.cdt.dsf.mi.service.IMIExecutionDMContext;
+import org.eclipse.cdt.dsf.mi.service.command.CommandFactory;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIDataReadMemoryBytesInfo;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIStackInfoDepthInfo;
+import org.eclipse.cdt.dsf.service.DsfServicesTracker;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BaseParametrizedTestCase;
+import org.eclipse.cdt.tests.dsf.gdb.framework.SyncUtil;
+import org.eclipse.cdt.tests.dsf.gdb.launching.TestsPlugin;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Tests that identical queries waiting for their result are sent to GDB only
+ * once when commands are pipelined, and that all of them are completed with
+ * the result of the one that was sent.
+ */
+@RunWith(Parameterized.class)
+public class MICommandCoalescingTest extends BaseParametrizedTestCase {
+
+	private DsfSession fSession;
+	private DsfServicesTracker fServicesTracker;
+	private IGDBControl fCommandControl;
+	private CommandFactory fCommandFactory;
+
+	private final List<ICommand<?>> fSentCommands = Collections.synchronizedList(new ArrayList<ICommand<?>>());
+	private final List<ICommandToken> fRemovedTokens = Collections.synchronizedList(new ArrayList<ICommandToken>());
+
+	private final ICommandListener fCommandListener = new ICommandListener() {
+		@Override
+		public void commandQueued(ICommandToken token) {}
+		@Override
+		public void commandSent(ICommandToken token) {
+			fSentCommands.add(token.getCommand());
+		}
+		@Override
+		public void commandRemoved(ICommandToken token) {
+			fRemovedTokens.add(token);
+		}
+		@Override
+		public void commandDone(ICommandToken token, ICommandResult result) {}
+	};
+
+	/**
+	 * Request monitor that can be waited for from the test thread.
+	 */
+	private static class ResultMonitor<V> extends DataRequestMonitor<V> {
+		private final CountDownLatch fDone = new CountDownLatch(1);
+
+		ResultMonitor(DsfSession session) {
+			super(session.getExecutor(), null);
+		}
+
+		@Override
+		protected void handleCompleted() {
+			fDone.countDown();
+		}
+
+		boolean waitForDone(int timeout) throws InterruptedException {
+			return fDone.await(TestsPlugin.massageTimeout(timeout), TimeUnit.MILLISECONDS);
+		}
+
+		boolean isDone() {
+			return fDone.getCount() == 0;
+		}
+	}
+
+	@Override
+	public void doBeforeTest() throws Exception {
+		// Coalescing is only done when commands are pipelined, which is disabled by default
+		IEclipsePreferences node = InstanceScope.INSTANCE.getNode(GdbPlugin.PLUGIN_ID);
+		node.putInt(IGdbDebugPreferenceConstants.PREF_COMMAND_PIPELINE_DEPTH, 4);
+
+		super.doBeforeTest();
+
+		fSession = getGDBLaunch().getSession();
+		fSession.getExecutor().submit(() -> {
+			fServicesTracker = new DsfServicesTracker(TestsPlugin.getBundleContext(), fSession.getId());
+			fCommandControl = fServicesTracker.getService(IGDBControl.class);
+			fCommandFactory = fCommandControl.getCommandFactory();
+			fCommandControl.addCommandListener(fCommandListener);
+		}).get();
+	}
+
+	@Override
+	public void doAfterTest() throws Exception {
+		if (fSession != null && fCommandControl != null) {
+			fSession.getExecutor().submit(() -> fCommandControl.removeCommandListener(fCommandListener)).get();
+		}
+		super.doAfterTest();
+		if (fServicesTracker != null)
+			fServicesTracker.dispose();
+		fServicesTracker = null;
+		fCommandControl = null;
+		fCommandFactory = null;
+
+		IEclipsePreferences node = InstanceScope.INSTANCE.getNode(GdbPlugin.PLUGIN_ID);
+		node.remove(IGdbDebugPreferenceConstants.PREF_COMMAND_PIPELINE_DEPTH);
+	}
+
+	/**
+	 * Queues the two commands in the same dispatch cycle, such that the first
+	 * one is still waiting for its result when the second one is queued, and
+	 * removes the command at the given index from the queue, if any.
+	 */
+	private <V extends ICommandResult> void queueCommands(final ICommand<V> first, final DataRequestMonitor<V> firstRm,
+			final ICommand<V> second, final DataRequestMonitor<V> secondRm, final int removeIndex) throws Exception {
+		fSession.getExecutor().submit(() -> {
+			ICommandToken[] tokens = new ICommandToken[2];
+			tokens[0] = fCommandControl.queueCommand(first, firstRm);
+			tokens[1] = fCommandControl.queueCommand(second, secondRm);
+			if (removeIndex >= 0) {
+				fCommandControl.removeCommand(tokens[removeIndex]);
+			}
+		}).get();
+	}
+
+	/**
+	 * Returns how many times the given command was sent to GDB.
+	 */
+	private int getSentCount(ICommand<?> command) {
+		int count = 0;
+		synchronized (fSentCommands) {
+			for (ICommand<?> sent : fSentCommands) {
+				if (sent == command) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Waits until the executor processed the runnables submitted so far,
+	 * such that completed request monitors have been notified.
+	 */
+	private void flushExecutor() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			fSession.getExecutor().submit(() -> {}).get();
+		}
+	}
+
+	@Test
+	public void identicalQueriesAreSentOnce() throws Throwable {
+		IMIExecutionDMContext execDmc = SyncUtil.getExecutionContext(0);
+		ICommand<MIStackInfoDepthInfo> first = fCommandFactory.createMIStackInfoDepth(execDmc);
+		ICommand<MIStackInfoDepthInfo> second = fCommandFactory.createMIStackInfoDepth(execDmc);
+		ResultMonitor<MIStackInfoDepthInfo> firstRm = new ResultMonitor<>(fSession);
+		ResultMonitor<MIStackInfoDepthInfo> secondRm = new ResultMonitor<>(fSession);
+
+		queueCommands(first, firstRm, second, secondRm, -1);
+
+		assertTrue(firstRm.waitForDone(5000));
+		assertTrue(secondRm.waitForDone(5000));
+		assertTrue(firstRm.getStatus().toString(), firstRm.isSuccess());
+		assertTrue(secondRm.getStatus().toString(), secondRm.isSuccess());
+		assertSame(firstRm.getData(), secondRm.getData());
+		assertEquals(1, getSentCount(first));
+		assertEquals(0, getSentCount(second));
+	}
+
+	@Test
+	public void queriesWithDifferentWordSizesAreSentSeparately() throws Throwable {
+		// The command strings are the same, the results are parsed differently
+		IMemoryDMContext memoryDmc = (IMemoryDMContext) SyncUtil.getContainerContext();
+		ICommand<MIDataReadMemoryBytesInfo> first = fCommandFactory.createMIDataReadMemoryBytes(memoryDmc, "$sp", 0, 8, 1);
+		ICommand<MIDataReadMemoryBytesInfo> second = fCommandFactory.createMIDataReadMemoryBytes(memoryDmc, "$sp", 0, 8, 2);
+		ResultMonitor<MIDataReadMemoryBytesInfo> firstRm = new ResultMonitor<>(fSession);
+		ResultMonitor<MIDataReadMemoryBytesInfo> secondRm = new ResultMonitor<>(fSession);
+
+		queueCommands(first, firstRm, second, secondRm, -1);
+
+		assertTrue(firstRm.waitForDone(5000));
+		assertTrue(secondRm.waitForDone(5000));
+		assertTrue(firstRm.getStatus().toString(), firstRm.isSuccess());
+		assertTrue(secondRm.getStatus().toString(), secondRm.isSuccess());
+		assertEquals(1, getSentCount(first));
+		assertEquals(1, getSentCount(second));
+		assertEquals(8, firstRm.getData().getMIMemoryBlock().length);
+		assertEquals(16, secondRm.getData().getMIMemoryBlock().length);
+	}
+
+	@Test
+	public void followersReceiveError() throws Throwable {
+		IMemoryDMContext memoryDmc = (IMemoryDMContext) SyncUtil.getContainerContext();
+		ICommand<MIDataReadMemoryBytesInfo> first = fCommandFactory.createMIDataReadMemoryBytes(memoryDmc, "0", 0, 8, 1);
+		ICommand<MIDataReadMemoryBytesInfo> second = fCommandFactory.createMIDataReadMemoryBytes(memoryDmc, "0", 0, 8, 1);
+		ResultMonitor<MIDataReadMemoryBytesInfo> firstRm = new ResultMonitor<>(fSession);
+		ResultMonitor<MIDataReadMemoryBytesInfo> secondRm = new ResultMonitor<>(fSession);
+
+		queueCommands(first, firstRm, second, secondRm, -1);
+
+		assertTrue(firstRm.waitForDone(5000));
+		assertTrue(secondRm.waitForDone(5000));
+		assertFalse(firstRm.isSuccess());
+		assertFalse(secondRm.isSuccess());
+		assertEquals(firstRm.getStatus().getMessage(), secondRm.getStatus().getMessage());
+		assertEquals(1, getSentCount(first));
+		assertEquals(0, getSentCount(second));
+	}
+
+	@Test
+	public void followerReplacesRemovedQuery() throws Throwable {
+		IMIExecutionDMContext execDmc = SyncUtil.getExecutionContext(0);
+		ICommand<MIStackInfoDepthInfo> first = fCommandFactory.createMIStackInfoDepth(execDmc);
+		ICommand<MIStackInfoDepthInfo> second = fCommandFactory.createMIStackInfoDepth(execDmc);
+		ResultMonitor<MIStackInfoDepthInfo> firstRm = new ResultMonitor<>(fSession);
+		ResultMonitor<MIStackInfoDepthInfo> secondRm = new ResultMonitor<>(fSession);
+
+		queueCommands(first, firstRm, second, secondRm, 0);
+
+		assertTrue(secondRm.waitForDone(5000));
+		assertTrue(secondRm.getStatus().toString(), secondRm.isSuccess());
+		flushExecutor();
+		assertFalse(firstRm.isDone());
+		assertEquals(0, getSentCount(first));
+		assertEquals(1, getSentCount(second));
+		assertEquals(1, fRemovedTokens.size());
+		assertSame(first, fRemovedTokens.get(0).getCommand());
+	}
+
+	@Test
+	public void removedFollowerIsNotCompleted() throws Throwable {
+		IMIExecutionDMContext execDmc = SyncUtil.getExecutionContext(0);
+		ICommand<MIStackInfoDepthInfo> first = fCommandFactory.createMIStackInfoDepth(execDmc);
+		ICommand<MIStackInfoDepthInfo> second = fCommandFactory.createMIStackInfoDepth(execDmc);
+		ResultMonitor<MIStackInfoDepthInfo> firstRm = new ResultMonitor<>(fSession);
+		ResultMonitor<MIStackInfoDepthInfo> secondRm = new ResultMonitor<>(fSession);
+
+		queueCommands(first, firstRm, second, secondRm, 1);
+
+		assertTrue(firstRm.waitForDone(5000));
+		assertTrue(firstRm.getStatus().toString(), firstRm.isSuccess());
+		flushExecutor();
+		assertFalse(secondRm.isDone());
+		assertEquals(1, getSentCount(first));
+		assertEquals(0, getSentCount(second));
+		assertEquals(1, fRemovedTokens.size());
+		assertSame(second, fRemovedTokens.get(0).getCommand());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Ericsson and others.
+ * Copyright (c) 2007, 2017 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.eclipse.cdt.core.IAddress;
 import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
+import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.ImmediateDataRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.Query;
@@ -46,9 +47,14 @@ import org.eclipse.cdt.dsf.debug.service.IFormattedValues.FormattedValueDMData;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.StepType;
 import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
 import org.eclipse.cdt.dsf.debug.service.IStack.IVariableDMData;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControl;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
 import org.eclipse.cdt.dsf.mi.service.ClassAccessor.MIExpressionDMCAccessor;
 import org.eclipse.cdt.dsf.mi.service.MIExpressions;
 import org.eclipse.cdt.dsf.mi.service.MIExpressions.MIExpressionDMC;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIVarUpdate;
 import org.eclipse.cdt.dsf.mi.service.command.events.MIStoppedEvent;
 import org.eclipse.cdt.dsf.service.DsfServiceEventHandler;
 import org.eclipse.cdt.dsf.service.DsfServicesTracker;
@@ -98,6 +104,7 @@ public class MIExpressionsTest extends BaseParametrizedTestCase {
 		"testUpdateOfPointer_2",
 		"testUpdateOfPointerTypedef_1",
 		"testUpdateOfPointerTypedef_2",
+		"testUpdateAllRoots_1",
 	};
 
     @Override
@@ -2689,6 +2696,84 @@ public class MIExpressionsTest extends BaseParametrizedTestCase {
 		assertThat(pointerFieldTargetValue, is("4"));
     }
 
+    /**
+     * This test verifies that the expressions shown after a step are updated with a single
+     * -var-update, rather than with one -var-update per expression, and that the changes it
+     * reports reach the roots and the children they belong to.
+     */
+    @Test
+    public void testUpdateAllRootsAtOnce() throws Throwable {
+        String tag = String.format("%s:%d", SOURCE_NAME, getLineForTag("testUpdateAllRoots_1"));
+        MIStoppedEvent stoppedEvent = SyncUtil.runToLocation(tag);
+        IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+        IExpressionDMContext intDmc = SyncUtil.createExpression(frameDmc, "a");
+        IExpressionDMContext structDmc = SyncUtil.createExpression(frameDmc, "z");
+        IExpressionDMContext[] fieldsDmc = SyncUtil.getSubExpressions(structDmc);
+        assertThat(fieldsDmc.length, is(2));
+
+        final IExpressionDMContext[] exprDmcs = new IExpressionDMContext[] {
+            intDmc, fieldsDmc[0], fieldsDmc[1]
+        };
+        final String[] expectedValues = new String[] { "10", "20", "3" };
+        assertThat(SyncUtil.getExpressionValue(intDmc, IFormattedValues.NATURAL_FORMAT), is("1"));
+        assertThat(SyncUtil.getExpressionValue(fieldsDmc[0], IFormattedValues.NATURAL_FORMAT), is("2"));
+        assertThat(SyncUtil.getExpressionValue(fieldsDmc[1], IFormattedValues.NATURAL_FORMAT), is("3"));
+
+        // Changes the root 'a' and the child 'z.x'
+        SyncUtil.step(StepType.STEP_OVER);
+
+        final int[] varUpdateCount = new int[1];
+        final ICommandListener listener = new ICommandListener() {
+            @Override
+            public void commandQueued(ICommandToken token) {
+                if (token.getCommand() instanceof MIVarUpdate) {
+                    varUpdateCount[0]++;
+                }
+            }
+            @Override
+            public void commandSent(ICommandToken token) {}
+            @Override
+            public void commandRemoved(ICommandToken token) {}
+            @Override
+            public void commandDone(ICommandToken token, ICommandResult result) {}
+        };
+        final ICommandControl commandControl = fServicesTracker.getService(ICommandControl.class);
+        fSession.getExecutor().submit(() -> commandControl.addCommandListener(listener)).get();
+        final String[] values = new String[exprDmcs.length];
+        try {
+            // Request the values at the same time, like the views do after a step
+            Query<Object> query = new Query<Object>() {
+                @Override
+                protected void execute(DataRequestMonitor<Object> rm) {
+                    CountingRequestMonitor countingRm = new CountingRequestMonitor(fSession.getExecutor(), rm);
+                    countingRm.setDoneCount(exprDmcs.length);
+                    for (int i = 0; i < exprDmcs.length; i++) {
+                        final int index = i;
+                        fExpService.getFormattedExpressionValue(
+                            fExpService.getFormattedValueContext(exprDmcs[i], IFormattedValues.NATURAL_FORMAT),
+                            new DataRequestMonitor<FormattedValueDMData>(fSession.getExecutor(), countingRm) {
+                                @Override
+                                protected void handleSuccess() {
+                                    values[index] = getData().getFormattedValue();
+                                    super.handleSuccess();
+                                }
+                            });
+                    }
+                }
+            };
+            fSession.getExecutor().execute(query);
+            query.get(TestsPlugin.massageTimeout(2000), TimeUnit.MILLISECONDS);
+        } finally {
+            fSession.getExecutor().submit(() -> commandControl.removeCommandListener(listener)).get();
+        }
+
+        assertEquals(1, varUpdateCount[0]);
+        for (int i = 0; i < exprDmcs.length; i++) {
+            assertEquals(exprDmcs[i].getExpression(), expectedValues[i], values[i]);
+        }
+    }
+
     /**
      * This test verifies that we properly return if we can write to different expressions
      */
@@ -3669,6 +3754,53 @@ public class MIExpressionsTest extends BaseParametrizedTestCase {
 		assertEquals(castExprDmc.getParents()[0], exprDmc);
     }
 
+    /**
+     * This test verifies that a range of the children of an array can be
+     * requested before and after all of its children were requested, and
+     * that the children of the range are the right elements.
+     */
+    @Test
+    public void testArrayChildrenRange() throws Throwable {
+    	SyncUtil.runToLocation("testCasting");
+    	MIStoppedEvent stoppedEvent = SyncUtil.step(3, StepType.STEP_OVER);
+        IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+        // int array_small[4] = {65, 0x41424344, 0x45464748};
+	    IExpressionDMContext exprDmc = SyncUtil.createExpression(frameDmc, "array_small");
+	    final String[] allValues = new String[] { "65", "1094861636", "1162233672", "0" };
+
+	    // Only the requested range is created the first time
+	    IExpressionDMContext[] children = getChildren(exprDmc, 1, 2, new String[] {"array_small[1]", "array_small[2]"});
+	    for (int i = 0; i < children.length; i++) {
+	    	assertEquals(allValues[1 + i], SyncUtil.getExpressionValue(children[i], IFormattedValues.DECIMAL_FORMAT));
+	    }
+
+	    // Then all children
+	    children = getChildren(exprDmc, -1, -1,
+	    		new String[] {"array_small[0]", "array_small[1]", "array_small[2]", "array_small[3]"});
+	    for (int i = 0; i < children.length; i++) {
+	    	assertEquals(allValues[i], SyncUtil.getExpressionValue(children[i], IFormattedValues.DECIMAL_FORMAT));
+	    }
+
+	    // And the range again, now taken from all the children
+	    children = getChildren(exprDmc, 2, 2, new String[] {"array_small[2]", "array_small[3]"});
+	    for (int i = 0; i < children.length; i++) {
+	    	assertEquals(allValues[2 + i], SyncUtil.getExpressionValue(children[i], IFormattedValues.DECIMAL_FORMAT));
+	    }
+
+	    // A range of the second partition of int array_large[111]
+	    exprDmc = SyncUtil.createExpression(frameDmc, "array_large");
+	    IExpressionDMContext[] partitions = getChildren(exprDmc, new String[] {"*((array_large)+0)@100", "*((array_large)+100)@11"});
+	    children = getChildren(partitions[1], 5, 3, new String[] {"array_large[105]", "array_large[106]", "array_large[107]"});
+	    for (IExpressionDMContext child : children) {
+	    	assertEquals("0", SyncUtil.getExpressionValue(child, IFormattedValues.DECIMAL_FORMAT));
+	    }
+	    children = getChildren(partitions[1], -1, -1, new String[] {"array_large[100]", "array_large[101]", "array_large[102]",
+	    		"array_large[103]", "array_large[104]", "array_large[105]", "array_large[106]", "array_large[107]",
+	    		"array_large[108]", "array_large[109]", "array_large[110]"});
+	    assertEquals(11, children.length);
+    }
+
     /**
      * This test verifies that we can display as array and then revert
      * when dealing with an array with partitions.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Ericsson and others.
+ * Copyright (c) 2007, 2017 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,9 +18,12 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import org.eclipse.cdt.core.IAddress;
@@ -36,7 +39,16 @@ import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryChangedEvent;
 import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.StepType;
 import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControl;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.gdb.IGdbDebugPreferenceConstants;
+import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
+import org.eclipse.cdt.dsf.mi.service.MIMemory;
+import org.eclipse.cdt.dsf.mi.service.MIMemoryStatistics;
 import org.eclipse.cdt.dsf.mi.service.MIRunControl;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIDataReadMemoryBytes;
 import org.eclipse.cdt.dsf.mi.service.command.events.MIStoppedEvent;
 import org.eclipse.cdt.dsf.service.DsfServiceEventHandler;
 import org.eclipse.cdt.dsf.service.DsfServicesTracker;
@@ -47,6 +59,8 @@ import org.eclipse.cdt.tests.dsf.gdb.framework.ServiceEventWaitor;
 import org.eclipse.cdt.tests.dsf.gdb.framework.SyncUtil;
 import org.eclipse.cdt.tests.dsf.gdb.launching.TestsPlugin;
 import org.eclipse.cdt.utils.Addr64;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.debug.core.model.MemoryByte;
 import org.junit.Rule;
 import org.junit.Test;
@@ -97,6 +111,14 @@ public class MIMemoryTest extends BaseParametrizedTestCase {
 
 	@Override
 	public void doBeforeTest() throws Exception {
+		// Reading more memory than requested is disabled by default, enable it
+		// for the tests of the read ahead before the memory service is started
+		if (testName.getMethodName().startsWith("readSequentialBlocks")) {
+			IEclipsePreferences node = InstanceScope.INSTANCE.getNode(GdbPlugin.PLUGIN_ID);
+			node.putInt(IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_PAGE_SIZE, 256);
+			node.putInt(IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_READ_AHEAD, 4096);
+		}
+
 		super.doBeforeTest();
 
 	    fSession = getGDBLaunch().getSession();
@@ -152,6 +174,11 @@ public class MIMemoryTest extends BaseParametrizedTestCase {
 			fServicesTracker.dispose();
 		fServicesTracker = null;
 		clearEventCounters();
+
+		// Restore the preferences we might have changed
+		IEclipsePreferences node = InstanceScope.INSTANCE.getNode(GdbPlugin.PLUGIN_ID);
+		node.remove(IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_PAGE_SIZE);
+		node.remove(IGdbDebugPreferenceConstants.PREF_MEMORY_CACHE_READ_AHEAD);
 	}
 
 	// ========================================================================
@@ -524,6 +551,104 @@ public class MIMemoryTest extends BaseParametrizedTestCase {
 		assertEquals("MemoryChangedEvent problem: expected 0 events", 0, getEventCount());
 	}
 
+	// ------------------------------------------------------------------------
+	// readExactRange
+	// Test that, with the default preferences, only the requested memory is
+	// read from the back end, even for sequential requests
+	// ------------------------------------------------------------------------
+	@Test
+	public void readExactRange() throws Throwable {
+
+		// Run to the point where the variable is initialized
+		SyncUtil.runToLocation("MemoryTestApp.cc:setBlocks");
+		MIStoppedEvent stoppedEvent = SyncUtil.step(StepType.STEP_RETURN);
+		IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+		// Setup call parameters
+		int offset = 8;
+		int chunk = 16;
+		fBaseAddress = evaluateExpression(frameDmc, "&charBlock");
+
+		// Record the reads sent to the back end
+		final List<MIDataReadMemoryBytes> reads = new ArrayList<MIDataReadMemoryBytes>();
+		final ICommandListener listener = new ICommandListener() {
+			@Override
+			public void commandQueued(ICommandToken token) {
+				if (token.getCommand() instanceof MIDataReadMemoryBytes) {
+					reads.add((MIDataReadMemoryBytes) token.getCommand());
+				}
+			}
+			@Override
+			public void commandSent(ICommandToken token) {}
+			@Override
+			public void commandRemoved(ICommandToken token) {}
+			@Override
+			public void commandDone(ICommandToken token, ICommandResult result) {}
+		};
+		final ICommandControl commandControl = fServicesTracker.getService(ICommandControl.class);
+		fSession.getExecutor().submit(() -> commandControl.addCommandListener(listener)).get();
+		try {
+			// Get two sequential chunks of the memory block
+			for (int i = 0; i < 2; i++) {
+				MemoryByte[] buffer = SyncUtil.readMemory(fMemoryDmc, fBaseAddress, offset + i * chunk, fWordSize, chunk);
+				MemoryByteBuffer memBuf = new MemoryByteBuffer(buffer, fByteOrder, fWordSize);
+				for (long j = offset + i * chunk; j < offset + (i + 1) * chunk; j++) {
+					assertThat(memBuf.getNextWord(), is(j));
+				}
+			}
+		} finally {
+			fSession.getExecutor().submit(() -> commandControl.removeCommandListener(listener)).get();
+		}
+
+		// Ensure each chunk was read exactly. Back ends without -data-read-memory-bytes
+		// never read more than requested.
+		assertTrue("Expected at most 2 reads, got " + reads.size(), reads.size() <= 2);
+		for (int i = 0; i < reads.size(); i++) {
+			String[] parameters = reads.get(i).getParameters();
+			assertEquals(fBaseAddress.add(offset + i * chunk).getValue(), new Addr64(parameters[0]).getValue());
+			assertEquals(Integer.toString(chunk), parameters[1]);
+		}
+
+		// Ensure no MemoryChangedEvent event was received
+		assertEquals("MemoryChangedEvent problem: expected 0 events", 0, getEventCount());
+	}
+
+	// ------------------------------------------------------------------------
+	// readSequentialBlocks
+	// Test that reading a byte array in small sequential chunks, like a
+	// scrolling memory view does, is served by fewer reads of the back end
+	// ------------------------------------------------------------------------
+	@Test
+	public void readSequentialBlocks() throws Throwable {
+
+		// Run to the point where the variable is initialized
+		SyncUtil.runToLocation("MemoryTestApp.cc:setBlocks");
+		MIStoppedEvent stoppedEvent = SyncUtil.step(StepType.STEP_RETURN);
+		IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+		// Setup call parameters
+		int chunk = 16;
+		fBaseAddress = evaluateExpression(frameDmc, "&charBlock");
+		MIMemoryStatistics statistics = ((MIMemory) fMemoryService).getStatistics();
+		long reads = statistics.getReads();
+
+		// Get the memory block chunk by chunk
+		for (int offset = 0; offset < BLOCK_SIZE; offset += chunk) {
+			MemoryByte[] buffer = SyncUtil.readMemory(fMemoryDmc, fBaseAddress, offset, fWordSize, chunk);
+			MemoryByteBuffer memBuf = new MemoryByteBuffer(buffer, fByteOrder, fWordSize);
+			for (long i = offset; i < offset + chunk; i++) {
+				assertThat(memBuf.getNextWord(), is(i));
+			}
+		}
+
+		// Ensure the chunks were not all read individually
+		long chunkReads = statistics.getReads() - reads;
+		assertTrue("Expected less than " + BLOCK_SIZE / chunk + " reads, got " + chunkReads, chunkReads < BLOCK_SIZE / chunk);
+
+		// Ensure no MemoryChangedEvent event was received
+		assertEquals("MemoryChangedEvent problem: expected 0 events", 0, getEventCount());
+	}
+
 	///////////////////////////////////////////////////////////////////////////
 	// setMemory tests
 	///////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ericsson - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.DMContexts;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.ISuspendedDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
+import org.eclipse.cdt.dsf.debug.service.IStack.IVariableDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.gdb.service.command.IGDBControl;
+import org.eclipse.cdt.dsf.mi.service.IMIExecutionDMContext;
+import org.eclipse.cdt.dsf.mi.service.MIStack;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIStackListArguments;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIStackListFrames;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIStackListLocals;
+import org.eclipse.cdt.dsf.mi.service.command.events.MIStoppedEvent;
+import org.eclipse.cdt.dsf.service.DsfServiceEventHandler;
+import org.eclipse.cdt.dsf.service.DsfServicesTracker;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BaseParametrizedTestCase;
+import org.eclipse.cdt.tests.dsf.gdb.framework.SyncUtil;
+import org.eclipse.cdt.tests.dsf.gdb.launching.TestsPlugin;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Tests that MIStack fetches the top stack frames and the locals of the thread
+ * that stopped before they are asked for, and that the prefetch is cancelled
+ * when the user selects another thread.
+ */
+@RunWith(Parameterized.class)
+public class MIStackPrefetchTest extends BaseParametrizedTestCase {
+
+	private static final String EXEC_NAME = "MultiThread.exe";
+	private static final String SOURCE_NAME = "MultiThread.cc";
+
+	// Breakpoint tags in MultiThread.cc
+	private static final String[] LINE_TAGS = new String[] {
+			"LINE_MAIN_AFTER_THREAD_START", // Just after StartThread, hit once per thread
+	};
+
+	private DsfSession fSession;
+	private DsfServicesTracker fServicesTracker;
+	private IGDBControl fCommandControl;
+	private MIStack fStack;
+
+	/** The thread whose locals are asked for when the target suspends, simulates a selection. */
+	private IMIExecutionDMContext fThreadToSelect;
+
+	private final List<ICommand<?>> fQueuedCommands = Collections.synchronizedList(new ArrayList<ICommand<?>>());
+	private final List<ICommand<?>> fDoneCommands = Collections.synchronizedList(new ArrayList<ICommand<?>>());
+
+	private final ICommandListener fCommandListener = new ICommandListener() {
+		@Override
+		public void commandQueued(ICommandToken token) {
+			fQueuedCommands.add(token.getCommand());
+		}
+		@Override
+		public void commandSent(ICommandToken token) {}
+		@Override
+		public void commandRemoved(ICommandToken token) {}
+		@Override
+		public void commandDone(ICommandToken token, ICommandResult result) {
+			fDoneCommands.add(token.getCommand());
+		}
+	};
+
+	@Override
+	protected void setLaunchAttributes() {
+		super.setLaunchAttributes();
+
+		setLaunchAttribute(ICDTLaunchConfigurationConstants.ATTR_PROGRAM_NAME, EXEC_PATH + EXEC_NAME);
+	}
+
+	@Override
+	public void doBeforeTest() throws Exception {
+		super.doBeforeTest();
+
+		resolveLineTagLocations(SOURCE_NAME, LINE_TAGS);
+
+		fSession = getGDBLaunch().getSession();
+		fSession.getExecutor().submit(() -> {
+			fServicesTracker = new DsfServicesTracker(TestsPlugin.getBundleContext(), fSession.getId());
+			fCommandControl = fServicesTracker.getService(IGDBControl.class);
+			fStack = fServicesTracker.getService(MIStack.class);
+			fCommandControl.addCommandListener(fCommandListener);
+			fSession.addServiceEventListener(MIStackPrefetchTest.this, null);
+		}).get();
+	}
+
+	@Override
+	public void doAfterTest() throws Exception {
+		if (fSession != null && fCommandControl != null) {
+			fSession.getExecutor().submit(() -> {
+				fCommandControl.removeCommandListener(fCommandListener);
+				fSession.removeServiceEventListener(MIStackPrefetchTest.this);
+			}).get();
+		}
+		super.doAfterTest();
+		if (fServicesTracker != null)
+			fServicesTracker.dispose();
+		fServicesTracker = null;
+		fCommandControl = null;
+		fStack = null;
+	}
+
+	/**
+	 * Called after MIStack processed the event, since services receive events
+	 * before other listeners.
+	 */
+	@DsfServiceEventHandler
+	public void eventDispatched(ISuspendedDMEvent e) {
+		if (fThreadToSelect != null) {
+			fStack.getLocals(fStack.createFrameDMContext(fThreadToSelect, 0),
+					new DataRequestMonitor<IVariableDMContext[]>(fSession.getExecutor(), null));
+		}
+	}
+
+	/**
+	 * Returns the commands of the given class that were queued or done for the given thread.
+	 */
+	private static List<ICommand<?>> getCommands(List<ICommand<?>> commands, Class<?> commandClass,
+			IMIExecutionDMContext execDmc) {
+		List<ICommand<?>> result = new ArrayList<>();
+		synchronized (commands) {
+			for (ICommand<?> command : commands) {
+				IMIExecutionDMContext commandDmc =
+						DMContexts.getAncestorOfType(command.getContext(), IMIExecutionDMContext.class);
+				if (commandClass.isInstance(command) && commandDmc != null
+						&& commandDmc.getThreadId().equals(execDmc.getThreadId())) {
+					result.add(command);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Waits until a command of the given class is done for the given thread,
+	 * and for the executor to notify the request monitors of the command.
+	 */
+	private void waitForCommandDone(Class<?> commandClass, IMIExecutionDMContext execDmc) throws Exception {
+		long timeout = System.currentTimeMillis() + TestsPlugin.massageTimeout(5000);
+		while (getCommands(fDoneCommands, commandClass, execDmc).isEmpty()) {
+			if (System.currentTimeMillis() > timeout) {
+				fail("No " + commandClass.getSimpleName() + " for thread " + execDmc.getThreadId());
+			}
+			Thread.sleep(50);
+		}
+		for (int i = 0; i < 2; i++) {
+			fSession.getExecutor().submit(() -> {}).get();
+		}
+	}
+
+	private IMIExecutionDMContext getStoppedThread(MIStoppedEvent stoppedEvent) {
+		IMIExecutionDMContext execDmc =
+				DMContexts.getAncestorOfType(stoppedEvent.getDMContext(), IMIExecutionDMContext.class);
+		assertNotNull(execDmc);
+		return execDmc;
+	}
+
+	@Test
+	public void framesAndLocalsAreServedFromCacheAfterBreakpointHit() throws Throwable {
+		SyncUtil.addBreakpoint(SOURCE_NAME + ':' + getLineForTag("LINE_MAIN_AFTER_THREAD_START"));
+		fQueuedCommands.clear();
+		fDoneCommands.clear();
+		IMIExecutionDMContext execDmc = getStoppedThread(SyncUtil.resumeUntilStopped());
+
+		// The prefetch fetches the arguments together with the locals
+		waitForCommandDone(MIStackListLocals.class, execDmc);
+		waitForCommandDone(MIStackListArguments.class, execDmc);
+		assertEquals(1, getCommands(fQueuedCommands, MIStackListFrames.class, execDmc).size());
+		fQueuedCommands.clear();
+
+		// What the views ask for when the thread is selected
+		int depth = SyncUtil.getStackDepth(execDmc);
+		assertTrue(depth > 0);
+		for (int level = 0; level < depth; level++) {
+			assertNotNull(SyncUtil.getFrameData(execDmc, level));
+		}
+		IFrameDMContext topFrame = SyncUtil.getStackFrame(execDmc, 0);
+		assertTrue(SyncUtil.getLocals(topFrame).length > 0);
+
+		assertEquals(0, getCommands(fQueuedCommands, MIStackListFrames.class, execDmc).size());
+		assertEquals(0, getCommands(fQueuedCommands, MIStackListLocals.class, execDmc).size());
+		assertEquals(0, getCommands(fQueuedCommands, MIStackListArguments.class, execDmc).size());
+	}
+
+	@Test
+	public void selectingAnotherThreadCancelsPrefetch() throws Throwable {
+		SyncUtil.addBreakpoint(SOURCE_NAME + ':' + getLineForTag("LINE_MAIN_AFTER_THREAD_START"));
+		IMIExecutionDMContext mainThread = getStoppedThread(SyncUtil.resumeUntilStopped());
+
+		// The thread started by main before the breakpoint was hit
+		IMIExecutionDMContext otherThread = null;
+		for (IMIExecutionDMContext thread : SyncUtil.getExecutionContexts()) {
+			if (!thread.getThreadId().equals(mainThread.getThreadId())) {
+				otherThread = thread;
+			}
+		}
+		assertNotNull(otherThread);
+
+		// Hit the breakpoint again and select the other thread as soon as
+		// the target suspends, while the frames of main are being fetched
+		fThreadToSelect = otherThread;
+		fQueuedCommands.clear();
+		fDoneCommands.clear();
+		assertEquals(mainThread.getThreadId(), getStoppedThread(SyncUtil.resumeUntilStopped()).getThreadId());
+		fThreadToSelect = null;
+
+		waitForCommandDone(MIStackListLocals.class, otherThread);
+		waitForCommandDone(MIStackListFrames.class, mainThread);
+		assertEquals(0, getCommands(fQueuedCommands, MIStackListLocals.class, mainThread).size());
+	}
+}
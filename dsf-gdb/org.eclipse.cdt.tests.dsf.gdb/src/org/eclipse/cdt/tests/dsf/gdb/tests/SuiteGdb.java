@@ -62,6 +62,8 @@ import org.junit.runners.Suite;
 		CommandTimeoutTest.class,
 		ThreadStackFrameSyncTest.class,
 		CommandLineArgsTest.class,
+		MICommandCoalescingTest.class,
+		MIStackPrefetchTest.class,
 		/* Add your test class here */
 })
 public class SuiteGdb {
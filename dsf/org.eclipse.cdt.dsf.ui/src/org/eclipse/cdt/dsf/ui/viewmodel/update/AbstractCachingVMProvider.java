@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Wind River Systems and others.
+ * Copyright (c) 2007, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,6 @@ package org.eclipse.cdt.dsf.ui.viewmodel.update;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -20,6 +19,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
@@ -87,6 +87,15 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
 
     private static final int MAX_CACHE_SIZE = 1000;
 
+    /**
+     * Maximum number of children cached for a single element.  Beyond this
+     * limit only the children requested last, plus a margin on either side,
+     * are kept.  This keeps the cache small when a large array or container
+     * is expanded and scrolled through.
+     */
+    private static final int MAX_CACHED_CHILDREN = 1000;
+    private static final int CHILDREN_WINDOW_MARGIN = 100;
+
 	/**
      * Class representing a key to an element's data in the cache.  The main
      * components of this key are the viewer input and the path, they uniquely
@@ -241,10 +250,33 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             if (fChildren == null) {
                 Integer childrenCount = fChildrenCount;
                 childrenCount = childrenCount != null ? childrenCount : 0;
-                int capacity = Math.max((childrenCount.intValue() * 4)/3, 32);
+                int capacity = Math.min(Math.max((childrenCount.intValue() * 4)/3, 32), 
+                    (MAX_CACHED_CHILDREN + 2 * CHILDREN_WINDOW_MARGIN) * 4/3);
                 fChildren = new HashMap<Integer,Object>(capacity);
             }
         }
+
+        /**
+         * Discards the children outside of the given window of children, if
+         * more than {@link #MAX_CACHED_CHILDREN} are cached for this element.
+         * The window is extended by {@link #CHILDREN_WINDOW_MARGIN} on either
+         * side, so that scrolling does not immediately cause cache misses. 
+         */
+        void trimChildren(int offset, int length) {
+            if (fChildren == null || fChildren.size() <= MAX_CACHED_CHILDREN) {
+                return;
+            }
+            length = Math.min(length, MAX_CACHED_CHILDREN);
+            final int from = offset - CHILDREN_WINDOW_MARGIN;
+            final int to = offset + length + CHILDREN_WINDOW_MARGIN;
+            for (Iterator<Integer> itr = fChildren.keySet().iterator(); itr.hasNext();) {
+                int index = itr.next();
+                if (index < from || index >= to) {
+                    itr.remove();
+                }
+            }
+            fAllChildrenKnown = false;
+        }
         
         @Override
         public String toString() {
@@ -380,13 +412,21 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
      * Also, the ordering is used to optimize the flushing of the cache data (see 
      * {@link FlushMarkerKey} for more details).
      */
-    private final Map<Object, Entry> fCacheData = Collections.synchronizedMap(new HashMap<Object, Entry>(200, 0.75f));
+    private final Map<Object, Entry> fCacheData = new ConcurrentHashMap<Object, Entry>(200, 0.75f);
     
     /**
      * Pointer to the first cache entry in the double-linked list of cache entries.
      */
     private final Entry fCacheListHead;
 
+    /**
+     * Number of updates that were completed from the cache, and number of 
+     * updates that had to be forwarded to the nodes.  Both are only accessed
+     * on the executor thread.
+     */
+    private long fCacheHits;
+    private long fCacheMisses;
+
 
     public AbstractCachingVMProvider(AbstractVMAdapter adapter, IPresentationContext presentationContext) {
         super(adapter, presentationContext);
@@ -403,6 +443,14 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         fAvailableUpdatePolicies = createUpdateModes();
     }
     
+    @Override
+    public void dispose() {
+        if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
+            DsfUIPlugin.debug("cacheDisposed(" + getCacheStatistics() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        super.dispose();
+    }
+
     protected IVMUpdatePolicy[] createUpdateModes() {
         return new IVMUpdatePolicy[] { new AutomaticUpdatePolicy() };
     }
@@ -476,10 +524,12 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                     DsfUIPlugin.debug("cacheHitHasChildren(node = " + node + ", update = " + update + ", " + entry.fHasChildren + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
                 }
+                fCacheHits++;
                 update.setHasChilren(entry.fHasChildren.booleanValue());
                 update.done();
             } else {
                 // Cache miss!  Save the flush counter of the entry and create a proxy update.
+                fCacheMisses++;
                 final int flushCounter = entry.fFlushCounter;
                 missUpdates.add( 
                     new VMHasChildrenUpdate(
@@ -525,10 +575,12 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                 DsfUIPlugin.debug("cacheHitChildrenCount(node = " + node + ", update = " + update + ", " + entry.fChildrenCount + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
             }
+            fCacheHits++;
             update.setChildCount(entry.fChildrenCount.intValue());
             update.done();
         } else {
             // Cache miss!  Save the flush counter of the entry and create a proxy update.
+            fCacheMisses++;
             final int flushCounter = entry.fFlushCounter;
             IChildrenCountUpdate updateProxy = new VMChildrenCountUpdate(
                 update, 
@@ -567,6 +619,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             // Need to retrieve all the children if there is no children information yet.
             // Or if the client requested all children (offset = -1, length -1) and all 
             // the children are not yet known.
+            fCacheMisses++;
             IChildrenUpdate updateProxy = new VMChildrenUpdate(
                 update, update.getOffset(), update.getLength(),
                 new ViewerDataRequestMonitor<List<Object>>(getExecutor(), update){
@@ -601,6 +654,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                 update.setChild(child, offset);
                             }
                         }
+                        if (flushCounter == entry.fFlushCounter) {
+                            entry.trimChildren(updateOffset, getData().size());
+                        }
                         update.done();
                     }
                     
@@ -623,6 +679,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
 
             // The following assert should never fail given the first if statement. 
             assert entry.fAllChildrenKnown;
+            fCacheHits++;
             
             // we have all of the children in cache; return from cache
             for(int position = 0; position < entry.fChildren.size(); position++) {
@@ -661,6 +718,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             	
                 // Some children were not found in the cache, create separate 
                 // proxy updates for the continuous ranges of missing children.
+                fCacheMisses++;
                 List<IChildrenUpdate> partialUpdates = new ArrayList<IChildrenUpdate>(2);
                 final CountingRequestMonitor multiRm = new ViewerCountingRequestMonitor(getExecutor(), update);
                 while(!childrenMissingFromCache.isEmpty())
@@ -696,6 +754,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                         }
                                     }
                                 }
+                                if (flushCounter == entry.fFlushCounter) {
+                                    entry.trimChildren(update.getOffset(), update.getLength());
+                                }
                                 multiRm.done();
                             }
                         }));
@@ -707,6 +768,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 multiRm.setDoneCount(partialUpdates.size());
             } else {
                 // All children were found in cache.  Complete the update.
+                fCacheHits++;
                 update.done();
             }
         }
@@ -722,7 +784,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
      */
     private void flush(FlushMarkerKey flushKey) {
         if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
-            DsfUIPlugin.debug("cacheFlushing(" + flushKey + ")"); //$NON-NLS-1$ //$NON-NLS-2$  
+            DsfUIPlugin.debug("cacheFlushing(" + flushKey + ", " + getCacheStatistics() + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
         // For each entry that has the given context as a parent, perform the flush.
         // Iterate through the cache entries backwards.  This means that we will be
@@ -1073,6 +1135,29 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         }
     }
     
+    /**
+     * Returns a description of the occupancy and the hit rate of the cache,
+     * used for tracing.
+     */
+    private String getCacheStatistics() {
+        int entries = 0;
+        int children = 0;
+        for (Entry entry : fCacheData.values()) {
+            if (entry instanceof ElementDataEntry) {
+                entries++;
+                Map<Integer, Object> entryChildren = ((ElementDataEntry)entry).fChildren;
+                if (entryChildren != null) {
+                    children += entryChildren.size();
+                }
+            }
+        }
+        long requests = fCacheHits + fCacheMisses;
+        return "entries = " + entries + "/" + MAX_CACHE_SIZE +  //$NON-NLS-1$ //$NON-NLS-2$
+            ", children = " + children + //$NON-NLS-1$
+            ", hits = " + fCacheHits + ", misses = " + fCacheMisses + //$NON-NLS-1$ //$NON-NLS-2$
+            ", hitRate = " + (requests == 0 ? 0 : fCacheHits * 100 / requests) + "%"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
     /**
      * Convenience method used by {@link #getElementDataEntry(ElementDataKey)}
      */
@@ -1175,11 +1260,13 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 if (entry.fProperties.containsKey(PROP_UPDATE_POLICY_ID)) {
                     entry.fProperties.put(PROP_UPDATE_POLICY_ID, getActiveUpdatePolicy().getID());
                 }
+                fCacheHits++;
                 update.setAllProperties(entry.fProperties);
                 update.setStatus((IStatus)entry.fProperties.get(PROP_UPDATE_STATUS));
                 update.done();
             } else {
                 // Cache miss!  Check if already cached properties can be re-used. 
+                fCacheMisses++;
                 Set<String> missingProperties = null;
                 if (entry.fProperties != null) {
                     missingProperties = new HashSet<String>(update.getProperties().size() * 4/3);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Wind River Systems and others.
+ * Copyright (c) 2006, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,11 +17,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.cdt.dsf.internal.DsfPlugin;
 import org.eclipse.cdt.dsf.internal.LoggingUtils;
@@ -50,6 +54,11 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
      */
     private String fName;
     
+    /**
+     * Statistics about the executables run by this executor.
+     */
+    private final DsfExecutorStatistics fStatistics = new DsfExecutorStatistics(getQueue());
+    
     /** Thread factory that creates the single thread to be used for this executor */
     static class DsfThreadFactory implements ThreadFactory {
         private String fThreadName; 
@@ -104,6 +113,14 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
         return fName;
     }
     
+    /**
+     * Returns the statistics about the executables run by this executor.
+     * @since 2.8
+     */
+    public DsfExecutorStatistics getStatistics() {
+        return fStatistics;
+    }
+    
     static void logException(Throwable t) {
         DsfPlugin plugin = DsfPlugin.getDefault();
         if (plugin == null) return;
@@ -131,7 +148,11 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
     protected static boolean DEBUG_EXECUTOR = false;
     protected static String DEBUG_EXECUTOR_NAME = ""; //$NON-NLS-1$
     protected static boolean ASSERTIONS_ENABLED = false;
+    /** @since 2.8 */
+    protected static boolean DEBUG_EXECUTOR_STATISTICS = false;
     static {
+        DEBUG_EXECUTOR_STATISTICS = DsfPlugin.DEBUG && Boolean.parseBoolean(
+            Platform.getDebugOption("org.eclipse.cdt.dsf/debug/executorStatistics")); //$NON-NLS-1$
         DEBUG_EXECUTOR = DsfPlugin.DEBUG && Boolean.parseBoolean(
             Platform.getDebugOption("org.eclipse.cdt.dsf/debug/executor")); //$NON-NLS-1$
         DEBUG_EXECUTOR_NAME = DsfPlugin.DEBUG 
@@ -419,6 +440,97 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
         }
     }
 
+    /**
+     * Wrapper for the tasks queued in the executor, records the statistics of their
+     * execution. A task waited since it was due to run, i.e. since it was submitted,
+     * unless it was scheduled with a delay.
+     */
+    private class MeasuredTask<V> implements RunnableScheduledFuture<V> {
+        private final Object fExecutable;
+        private final RunnableScheduledFuture<V> fTask;
+
+        MeasuredTask(Object executable, RunnableScheduledFuture<V> task) {
+            fExecutable = executable;
+            fTask = task;
+        }
+
+        @Override
+        public void run() {
+            boolean cancelled = fTask.isCancelled();
+            long start = System.nanoTime();
+            // The task has been taken from the queue. Rejected tasks and the ones removed
+            // from the queue without being run are not part of the backlog.
+            fStatistics.started(-fTask.getDelay(TimeUnit.NANOSECONDS), getQueue().size() + 1);
+            try {
+                fTask.run();
+            } finally {
+                if (!cancelled) {
+                    fStatistics.finished(getMeasuredExecutable(), System.nanoTime() - start);
+                }
+            }
+        }
+
+        private Object getMeasuredExecutable() {
+            Object executable = fExecutable;
+            if (executable instanceof TracingWrapper) {
+                executable = ((TracingWrapper)executable).getExecutable();
+            }
+            if (executable instanceof RequestMonitor.CompletedRunnable) {
+                executable = ((RequestMonitor.CompletedRunnable)executable).getRequestMonitor();
+            }
+            return executable;
+        }
+
+        @Override
+        public boolean isPeriodic() { return fTask.isPeriodic(); }
+
+        @Override
+        public long getDelay(TimeUnit unit) { return fTask.getDelay(unit); }
+
+        @Override
+        public int compareTo(Delayed other) {
+            // Let the tasks of the executor compare their sequence numbers, the executables
+            // are run in the order they were submitted.
+            if (other instanceof MeasuredTask) {
+                other = ((MeasuredTask<?>)other).fTask;
+            }
+            return fTask.compareTo(other);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) { return fTask.cancel(mayInterruptIfRunning); }
+
+        @Override
+        public boolean isCancelled() { return fTask.isCancelled(); }
+
+        @Override
+        public boolean isDone() { return fTask.isDone(); }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException { return fTask.get(); }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return fTask.get(timeout, unit);
+        }
+    }
+
+    /**
+     * @since 2.8
+     */
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+        return new MeasuredTask<V>(runnable, task);
+    }
+
+    /**
+     * @since 2.8
+     */
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+        return new MeasuredTask<V>(callable, task);
+    }
+
     @Override
     public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
         if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
@@ -504,6 +616,9 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
     
     @Override
     protected void terminated() {
+    	if (DEBUG_EXECUTOR_STATISTICS && ("".equals(DEBUG_EXECUTOR_NAME) || fName.equals(DEBUG_EXECUTOR_NAME))) { //$NON-NLS-1$
+    		DsfPlugin.debug(DsfPlugin.getDebugTime() + " Executor (" + ((DsfThreadFactory)getThreadFactory()).fThreadName + ") statistics:\n" + fStatistics); //$NON-NLS-1$ //$NON-NLS-2$
+    	}
     	fThreadToExecutorMap.remove(((DsfThreadFactory)getThreadFactory()).fThread);
     	super.terminated();
     }
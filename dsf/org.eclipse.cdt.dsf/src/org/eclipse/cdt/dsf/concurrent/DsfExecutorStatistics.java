@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics about the executables run by a {@link DefaultDsfExecutor}: how long they
+ * waited in the queue of the executor, how long they ran, and how many were waiting
+ * to be run. The run times are recorded per class of executable, and summed up per
+ * top-level class, which usually is the service that created the executable. The
+ * completion of a request monitor is recorded for the class of the request monitor.
+ * <p>
+ * The statistics are always collected, recording an execution costs two reads of the
+ * system timer, a read of the size of the queue and the update of three histograms.
+ * They can be read from any thread.
+ * </p>
+ *
+ * @since 2.8
+ */
+@ThreadSafe
+public class DsfExecutorStatistics {
+
+	/**
+	 * A histogram of durations in nanoseconds. The durations are counted in buckets whose
+	 * upper bounds are the powers of two, i.e. the value of a percentile is accurate
+	 * within a factor of two.
+	 */
+	@Immutable
+	public static class Histogram {
+		private final long[] fCounts;
+		private final long fCount;
+		private final long fTotal;
+		private final long fMax;
+
+		private Histogram(long[] counts, long count, long total, long max) {
+			fCounts = counts;
+			fCount = count;
+			fTotal = total;
+			fMax = max;
+		}
+
+		/** Returns the number of recorded durations. */
+		public long getCount() { return fCount; }
+
+		/** Returns the sum of the recorded durations, in nanoseconds. */
+		public long getTotal() { return fTotal; }
+
+		/** Returns the longest recorded duration, in nanoseconds. */
+		public long getMax() { return fMax; }
+
+		/** Returns the average of the recorded durations, in nanoseconds. */
+		public long getMean() { return fCount == 0 ? 0 : fTotal / fCount; }
+
+		/**
+		 * Returns an upper bound, in nanoseconds, for the given percentage of the recorded
+		 * durations.
+		 * @param percentile a value between 0 and 100
+		 */
+		public long getPercentile(double percentile) {
+			long rank = (long) Math.ceil(fCount * percentile / 100);
+			long count = 0;
+			for (int i = 0; i < fCounts.length; i++) {
+				count += fCounts[i];
+				if (count >= rank && count > 0) {
+					// Bucket i counts the durations up to 2^i - 1 nanoseconds
+					return i == 0 ? 0 : Math.min((1L << i) - 1, fMax);
+				}
+			}
+			return fMax;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + fCount + " mean=" + format(getMean()) //$NON-NLS-1$ //$NON-NLS-2$
+					+ " p50=" + format(getPercentile(50)) + " p99=" + format(getPercentile(99)) //$NON-NLS-1$ //$NON-NLS-2$
+					+ " max=" + format(fMax) + " total=" + format(fTotal); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		private static String format(long nanos) {
+			return TimeUnit.NANOSECONDS.toMicros(nanos) + "us"; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The mutable counterpart of {@link Histogram}, only accessed while holding the lock
+	 * of the statistics.
+	 */
+	private static class Recorder {
+		// Bucket i counts the durations d with 2^(i-1) <= d < 2^i
+		final long[] fCounts = new long[Long.SIZE + 1];
+		long fCount;
+		long fTotal;
+		long fMax;
+
+		void record(long nanos) {
+			if (nanos < 0) {
+				nanos = 0;
+			}
+			fCounts[Long.SIZE - Long.numberOfLeadingZeros(nanos)]++;
+			fCount++;
+			fTotal += nanos;
+			if (nanos > fMax) {
+				fMax = nanos;
+			}
+		}
+
+		Histogram toHistogram() {
+			return new Histogram(fCounts.clone(), fCount, fTotal, fMax);
+		}
+	}
+
+	private final Recorder fWaitTimes = new Recorder();
+	private final Recorder fRunTimes = new Recorder();
+	private final Map<String, Recorder> fRunTimesPerClass = new HashMap<String, Recorder>();
+	private final Map<String, Recorder> fRunTimesPerService = new HashMap<String, Recorder>();
+	// The queue of the executor, the executables waiting in it are the backlog
+	private final Queue<?> fQueue;
+	private int fMaxBacklog;
+
+	DsfExecutorStatistics(Queue<?> queue) {
+		fQueue = queue;
+	}
+
+	/**
+	 * Records the start of an executable. The backlog is the number of executables that
+	 * were waiting, including the started one.
+	 */
+	synchronized void started(long waitTime, int backlog) {
+		if (backlog > fMaxBacklog) {
+			fMaxBacklog = backlog;
+		}
+		fWaitTimes.record(waitTime);
+	}
+
+	synchronized void finished(Object executable, long runTime) {
+		fRunTimes.record(runTime);
+
+		Class<?> execClass = executable.getClass();
+		String className = execClass.getName();
+		Recorder recorder = fRunTimesPerClass.get(className);
+		if (recorder == null) {
+			recorder = new Recorder();
+			fRunTimesPerClass.put(className, recorder);
+		}
+		recorder.record(runTime);
+
+		while (execClass.getEnclosingClass() != null) {
+			execClass = execClass.getEnclosingClass();
+		}
+		String serviceName = execClass.getName();
+		recorder = fRunTimesPerService.get(serviceName);
+		if (recorder == null) {
+			recorder = new Recorder();
+			fRunTimesPerService.put(serviceName, recorder);
+		}
+		recorder.record(runTime);
+	}
+
+	/** Returns the times the executables waited in the queue before they were run. */
+	public synchronized Histogram getWaitTimes() {
+		return fWaitTimes.toHistogram();
+	}
+
+	/** Returns the times the executables ran. */
+	public synchronized Histogram getRunTimes() {
+		return fRunTimes.toHistogram();
+	}
+
+	/** Returns the run times per class of executable. */
+	public synchronized Map<String, Histogram> getRunTimesPerClass() {
+		return toHistograms(fRunTimesPerClass);
+	}
+
+	/**
+	 * Returns the run times per top-level class of the executables, which usually is the
+	 * service that created them.
+	 */
+	public synchronized Map<String, Histogram> getRunTimesPerService() {
+		return toHistograms(fRunTimesPerService);
+	}
+
+	/** Returns the number of executables waiting to be run. */
+	public int getBacklog() {
+		return fQueue.size();
+	}
+
+	/** Returns the largest number of executables that were waiting to be run at the same time. */
+	public synchronized int getMaxBacklog() {
+		return fMaxBacklog;
+	}
+
+	/**
+	 * Returns a description of the statistics, with the given number of services and
+	 * classes that ran the longest.
+	 */
+	public String toString(int limit) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("wait: ").append(getWaitTimes()); //$NON-NLS-1$
+		builder.append("\nrun: ").append(getRunTimes()); //$NON-NLS-1$
+		builder.append("\nbacklog: ").append(getBacklog()).append(" max=").append(getMaxBacklog()); //$NON-NLS-1$ //$NON-NLS-2$
+		appendLongest(builder, "\nservices:", getRunTimesPerService(), limit); //$NON-NLS-1$
+		appendLongest(builder, "\nclasses:", getRunTimesPerClass(), limit); //$NON-NLS-1$
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toString(10);
+	}
+
+	private static Map<String, Histogram> toHistograms(Map<String, Recorder> recorders) {
+		Map<String, Histogram> result = new HashMap<String, Histogram>();
+		for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().toHistogram());
+		}
+		return result;
+	}
+
+	private static void appendLongest(StringBuilder builder, String title, final Map<String, Histogram> histograms,
+			int limit) {
+		List<String> names = new ArrayList<String>(histograms.keySet());
+		Collections.sort(names, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return Long.compare(histograms.get(b).getTotal(), histograms.get(a).getTotal());
+			}
+		});
+		builder.append(title);
+		for (int i = 0; i < names.size() && i < limit; i++) {
+			builder.append("\n\t").append(names.get(i)).append(": ").append(histograms.get(names.get(i))); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 Wind River Systems and others.
+ * Copyright (c) 2006, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -306,21 +306,30 @@ public class RequestMonitor extends DsfExecutable {
 		}
         
         try {
-            fExecutor.execute(new DsfRunnable() {
-                @Override
-                public void run() {
-                    RequestMonitor.this.handleCompleted();
-                }
-                @Override
-                public String toString() {
-                    return "Completed: " + RequestMonitor.this.toString(); //$NON-NLS-1$
-                }
-            });
+            fExecutor.execute(new CompletedRunnable());
         } catch (RejectedExecutionException e) {
             handleRejectedExecutionException();
         }
     }
     
+    /**
+     * Runs the completion handlers of this request monitor in the executor. The executor
+     * statistics record its run time for the class of the request monitor.
+     */
+    class CompletedRunnable extends DsfRunnable {
+        RequestMonitor getRequestMonitor() {
+            return RequestMonitor.this;
+        }
+        @Override
+        public void run() {
+            RequestMonitor.this.handleCompleted();
+        }
+        @Override
+        public String toString() {
+            return "Completed: " + RequestMonitor.this.toString(); //$NON-NLS-1$
+        }
+    }
+
     /**
      * Sets status and marks request monitor as completed.
      * 
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.dsf.concurrent.DsfExecutorStatistics;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutorStatistics.Histogram;
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.tests.dsf.TestDsfExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the statistics collected by the DSF executor.
+ */
+public class DsfExecutorStatisticsTests {
+    TestDsfExecutor fExecutor;
+
+    static class SleepingRunnable extends DsfRunnable {
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    static class TestRequestMonitor extends RequestMonitor {
+        int fCount;
+        TestRequestMonitor(TestDsfExecutor executor) {
+            super(executor, null);
+        }
+        @Override
+        protected void handleCompleted() {
+            fCount++;
+        }
+    }
+
+    @Before
+    public void startExecutor() throws ExecutionException, InterruptedException {
+        fExecutor = new TestDsfExecutor();
+    }
+
+    @After
+    public void shutdownExecutor() throws ExecutionException, InterruptedException {
+        fExecutor.submit(new DsfRunnable() { @Override
+	public void run() {
+            fExecutor.shutdown();
+        }}).get();
+        if (fExecutor.exceptionsCaught()) {
+            Throwable[] exceptions = fExecutor.getExceptions();
+            throw new ExecutionException(exceptions[0]);
+        }
+        fExecutor = null;
+    }
+
+    @Test
+    public void runTimesTest() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < 3; i++) {
+            fExecutor.execute(new SleepingRunnable());
+        }
+        final TestRequestMonitor rm = new TestRequestMonitor(fExecutor);
+        fExecutor.submit(new DsfRunnable() { @Override
+        public void run() {
+            rm.done();
+        }}).get();
+        // Wait for the completion of the request monitor
+        fExecutor.submit(new DsfRunnable() { @Override
+        public void run() {
+        }}).get();
+        assertEquals(1, rm.fCount);
+
+        DsfExecutorStatistics statistics = fExecutor.getStatistics();
+        Histogram runTimes = statistics.getRunTimesPerClass().get(SleepingRunnable.class.getName());
+        assertNotNull(runTimes);
+        assertEquals(3, runTimes.getCount());
+        assertTrue(runTimes.getTotal() >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(runTimes.getPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(runTimes.getPercentile(50) <= runTimes.getMax());
+
+        // The completion of a request monitor is recorded for its class
+        runTimes = statistics.getRunTimesPerClass().get(TestRequestMonitor.class.getName());
+        assertNotNull(runTimes);
+        assertEquals(1, runTimes.getCount());
+
+        // Nested classes are summed up for their top-level class
+        runTimes = statistics.getRunTimesPerService().get(DsfExecutorStatisticsTests.class.getName());
+        assertNotNull(runTimes);
+        assertTrue(runTimes.getCount() >= 5);
+    }
+
+    @Test
+    public void waitTimesTest() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < 5; i++) {
+            fExecutor.execute(new SleepingRunnable());
+        }
+        fExecutor.submit(new DsfRunnable() { @Override
+        public void run() {
+        }}).get();
+
+        DsfExecutorStatistics statistics = fExecutor.getStatistics();
+        assertEquals(0, statistics.getBacklog());
+        assertTrue(statistics.getMaxBacklog() >= 2);
+        // The last runnable waited for the ones sleeping before it
+        Histogram waitTimes = statistics.getWaitTimes();
+        assertEquals(6, waitTimes.getCount());
+        assertTrue(waitTimes.getMax() >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    public void backlogOfRemovedTasksTest() throws InterruptedException, ExecutionException {
+        DsfExecutorStatistics statistics = fExecutor.getStatistics();
+        ScheduledFuture<?> future = fExecutor.schedule(new SleepingRunnable(), 1, TimeUnit.HOURS);
+        assertEquals(1, statistics.getBacklog());
+        assertTrue(fExecutor.remove((Runnable) future));
+        assertEquals(0, statistics.getBacklog());
+
+        TestDsfExecutor executor = new TestDsfExecutor();
+        statistics = executor.getStatistics();
+        executor.schedule(new SleepingRunnable(), 1, TimeUnit.HOURS);
+        assertEquals(1, statistics.getBacklog());
+        assertEquals(1, executor.shutdownNow().size());
+        assertEquals(0, statistics.getBacklog());
+        try {
+            executor.execute(new SleepingRunnable());
+            fail("The executor is shut down");
+        } catch (RejectedExecutionException e) {
+        }
+        assertEquals(0, statistics.getBacklog());
+        assertEquals(0, statistics.getMaxBacklog());
+    }
+}
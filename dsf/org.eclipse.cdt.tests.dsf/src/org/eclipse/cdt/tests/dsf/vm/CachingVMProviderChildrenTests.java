@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.vm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.cdt.dsf.ui.viewmodel.AbstractVMAdapter;
+import org.eclipse.cdt.dsf.ui.viewmodel.IVMProvider;
+import org.eclipse.cdt.dsf.ui.viewmodel.VMChildrenUpdate;
+import org.eclipse.cdt.tests.dsf.ViewerUpdatesListener;
+import org.eclipse.cdt.tests.dsf.vm.TestModel.TestElement;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IChildrenUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.PresentationContext;
+import org.eclipse.jface.viewers.TreePath;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Tests that the caching VM provider bounds the number of children it caches
+ * for a single element, and still returns the correct children after it
+ * discarded some of them.
+ */
+public class CachingVMProviderChildrenTests extends TestCase {
+
+    private static final int CHILD_COUNT = 3000;
+
+    Display fDisplay;
+    DsfExecutor fDsfExecutor;
+    DsfSession fDsfSession;
+    IPresentationContext fPresentationContext;
+    TestModel fModel;
+    AbstractVMAdapter fVMAdapter;
+    TestModelCachingVMProvider fVMProvider;
+    TestElementVMContext fRootVMC;
+
+    /** The children updates that were forwarded to the node, i.e. missed the cache. */
+    final List<IChildrenUpdate> fNodeUpdates = Collections.synchronizedList(new ArrayList<IChildrenUpdate>());
+
+    public CachingVMProviderChildrenTests(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        fDsfExecutor = new DefaultDsfExecutor();
+        fDsfSession = DsfSession.startSession(fDsfExecutor, getClass().getName());
+        fDisplay = PlatformUI.getWorkbench().getDisplay();
+        fPresentationContext = new PresentationContext(getClass().getName());
+
+        fModel = new TestModel(fDsfSession);
+        TestElement[] children = new TestElement[CHILD_COUNT];
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            children[i] = new TestElement(fModel, "child" + i, new TestElement[0]);
+        }
+        fModel.setRoot(new TestElement(fModel, "root", children));
+
+        fVMAdapter = new AbstractVMAdapter() {
+            @Override
+            protected IVMProvider createViewModelProvider(IPresentationContext context) {
+                return fVMProvider;
+            }
+        };
+        fVMProvider = new TestModelCachingVMProvider(fVMAdapter, fPresentationContext, fDsfSession);
+        fVMProvider.getNode().setVMUpdateListener(new ViewerUpdatesListener() {
+            @Override
+            public void updateStarted(IViewerUpdate update) {
+                if (update instanceof IChildrenUpdate) {
+                    fNodeUpdates.add((IChildrenUpdate)update);
+                }
+                super.updateStarted(update);
+            }
+        });
+        fRootVMC = fVMProvider.getElementVMContext(fPresentationContext, fModel.getRootElement());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fVMProvider.getNode().setVMUpdateListener(null);
+        fVMAdapter.dispose();
+        fPresentationContext.dispose();
+        DsfSession.endSession(fDsfSession);
+        fDsfExecutor.shutdown();
+    }
+
+    /**
+     * Requests the children of the root element in the given range from the
+     * provider, and returns them.  Offset and length -1 request all children.
+     */
+    private List<Object> getChildren(int offset, int length) {
+        final List<Object> result = new ArrayList<Object>();
+        final boolean[] done = new boolean[1];
+        final IChildrenUpdate update = new VMChildrenUpdate(TreePath.EMPTY, fRootVMC, fPresentationContext,
+            offset, length, new DataRequestMonitor<List<Object>>(ImmediateExecutor.getInstance(), null) {
+                @Override
+                protected void handleCompleted() {
+                    assertTrue(getStatus().toString(), isSuccess());
+                    result.addAll(getData());
+                    done[0] = true;
+                }
+            });
+        fVMProvider.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                fVMProvider.updateNode(fVMProvider.getNode(), update);
+            }
+        });
+        while (!done[0]) if (!fDisplay.readAndDispatch ()) fDisplay.sleep ();
+        return result;
+    }
+
+    private void assertChildren(List<Object> children, int offset, int length) {
+        assertEquals(length, children.size());
+        TestElement[] elements = fModel.getRootElement().getChildren();
+        for (int i = 0; i < length; i++) {
+            assertEquals(elements[offset + i], ((TestElementVMContext)children.get(i)).getElement());
+        }
+    }
+
+    public void testAllChildrenAfterRange() {
+        // All children are fetched, but not all of them are kept
+        assertChildren(getChildren(-1, -1), 0, CHILD_COUNT);
+        assertEquals(1, fNodeUpdates.size());
+
+        // The beginning of the list is still cached
+        fNodeUpdates.clear();
+        assertChildren(getChildren(0, 100), 0, 100);
+        assertEquals(0, fNodeUpdates.size());
+
+        // The end of the list was discarded
+        assertChildren(getChildren(CHILD_COUNT - 100, 100), CHILD_COUNT - 100, 100);
+        assertEquals(1, fNodeUpdates.size());
+        assertEquals(CHILD_COUNT - 100, fNodeUpdates.get(0).getOffset());
+        assertEquals(100, fNodeUpdates.get(0).getLength());
+
+        // Requesting all children goes back to the node
+        fNodeUpdates.clear();
+        assertChildren(getChildren(-1, -1), 0, CHILD_COUNT);
+        assertEquals(1, fNodeUpdates.size());
+    }
+
+    public void testScrollThroughChildren() {
+        // Fetch the children one page at a time, the pages fetched last stay cached
+        final int pageSize = 100;
+        for (int offset = 0; offset < CHILD_COUNT; offset += pageSize) {
+            assertChildren(getChildren(offset, pageSize), offset, pageSize);
+        }
+        assertEquals(CHILD_COUNT / pageSize, fNodeUpdates.size());
+
+        fNodeUpdates.clear();
+        assertChildren(getChildren(CHILD_COUNT - pageSize, pageSize), CHILD_COUNT - pageSize, pageSize);
+        assertEquals(0, fNodeUpdates.size());
+
+        // The first page was discarded
+        assertChildren(getChildren(0, pageSize), 0, pageSize);
+        assertEquals(1, fNodeUpdates.size());
+    }
+}